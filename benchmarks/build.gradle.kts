@@ -0,0 +1,48 @@
+plugins {
+    id("java")
+    id("me.champeau.jmh") version "0.7.3"
+}
+
+repositories {
+    mavenCentral()
+}
+
+dependencies {
+    compileOnly("org.jetbrains:annotations:26.0.2")
+    jmhCompileOnly("org.jetbrains:annotations:26.0.2")
+
+    implementation("org.antlr:antlr4-runtime:4.13.2")
+    implementation("org.ow2.asm:asm-tree:9.8")
+    implementation(project(":langjal"))
+    implementation(project(":jalp"))
+}
+
+tasks {
+    withType<JavaCompile> {
+        sourceCompatibility = "21"
+        targetCompatibility = "21"
+    }
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_21
+    targetCompatibility = JavaVersion.VERSION_21
+}
+
+jmh {
+    jmhVersion = "1.37"
+    resultFormat = "JSON"
+    resultsFile = layout.buildDirectory.file("results/jmh/results.json")
+
+    // 例: ./gradlew :benchmarks:jmh -PjmhIncludes=DiagnosticsAllocationBenchmark -PjmhProfilers=gc
+    providers.gradleProperty("jmhIncludes").orNull?.let { includes = it.split(",") }
+    providers.gradleProperty("jmhProfilers").orNull?.let { profilers = it.split(",") }
+}
+
+// 例: ./gradlew :benchmarks:jmh :benchmarks:recordJmhBaseline -PbaselineName=1.2.0
+tasks.register<Copy>("recordJmhBaseline") {
+    description = "Copies the latest JMH results into baselines/ to be committed."
+    from(layout.buildDirectory.file("results/jmh/results.json"))
+    into(layout.projectDirectory.dir("baselines"))
+    rename { (providers.gradleProperty("baselineName").orNull ?: project.version.toString()) + ".json" }
+}
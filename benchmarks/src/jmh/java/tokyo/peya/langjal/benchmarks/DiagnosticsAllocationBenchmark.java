@@ -0,0 +1,78 @@
+package tokyo.peya.langjal.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import tokyo.peya.langjal.analyser.MethodAnalysisResult;
+import tokyo.peya.langjal.compiler.CompileReporter;
+import tokyo.peya.langjal.compiler.CompileSettings;
+import tokyo.peya.langjal.compiler.JALClassCompiler;
+import tokyo.peya.langjal.compiler.JALFileCompiler;
+import tokyo.peya.langjal.compiler.member.JALMethodCompiler;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the allocations made for diagnostics while analysing a method.
+ * <p>
+ * {@code quiet} uses a reporter which disables info and debug messages, as a non-verbose jalc run does.
+ * {@code discarding} uses a reporter which claims to report them but drops every message,
+ * so the analyser still builds every string, as it did before messages were guarded by the reporter levels.
+ * The difference of {@code gc.alloc.rate.norm} between them is the cost of diagnostics.
+ * Run with the GC profiler:
+ * <pre>{@code
+ * ./gradlew :benchmarks:jmh -PjmhIncludes=DiagnosticsAllocationBenchmark -PjmhProfilers=gc
+ * }</pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DiagnosticsAllocationBenchmark {
+    @Param({"quiet", "discarding"})
+    private String reporter;
+
+    private JALMethodCompiler method;
+
+    @Setup
+    public void setUp() {
+        CompileReporter compileReporter = switch (this.reporter) {
+            case "quiet" -> new SilentCompileReporter();
+            case "discarding" -> new SilentCompileReporter() {
+                @Override
+                public boolean isInfoEnabled() {
+                    return true;
+                }
+
+                @Override
+                public boolean isDebugEnabled() {
+                    return true;
+                }
+            };
+            default -> throw new IllegalArgumentException("Unknown reporter: " + this.reporter);
+        };
+
+        String source = new JALSourceGenerator("DiagnosticsBenchmark")
+                .instructions(4000)
+                .labels(1000)
+                .generate();
+        JALClassCompiler compiler = JALFileCompiler.compileOnly(source, compileReporter, CompileSettings.NONE);
+
+        this.method = compiler.getMethodCompilers().getFirst();
+    }
+
+    @Benchmark
+    public MethodAnalysisResult analyse() {
+        return this.method.analyseMethod();
+    }
+}
@@ -0,0 +1,56 @@
+package tokyo.peya.langjal.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import tokyo.peya.langjal.compiler.CompileSettings;
+import tokyo.peya.langjal.compiler.JALClassCompiler;
+import tokyo.peya.langjal.compiler.JALFileCompiler;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures whole compiles with {@link JALFileCompiler#compileOnly}, from preprocessing to the stack frame maps,
+ * over synthetic classes of different size, branchiness and try/catch density.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FileCompilerBenchmark {
+    @Param({"1000", "10000"})
+    private int instructions;
+    @Param({"0", "0.5"})
+    private double branchiness;
+    @Param({"0", "0.25"})
+    private double tryCatchDensity;
+
+    private String source;
+
+    @Setup
+    public void setUp() {
+        this.source = new JALSourceGenerator("FileCompilerBenchmark")
+                .methods(4)
+                .instructions(this.instructions)
+                .labels(this.instructions / 20)
+                .branchiness(this.branchiness)
+                .namedLocals(4)
+                .tryCatchDensity(this.tryCatchDensity)
+                .generate();
+    }
+
+    @Benchmark
+    public JALClassCompiler compile() {
+        return JALFileCompiler.compileOnly(this.source, new SilentCompileReporter(), CompileSettings.FULL);
+    }
+}
@@ -0,0 +1,82 @@
+package tokyo.peya.langjal.benchmarks;
+
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import tokyo.peya.langjal.compiler.JALLexer;
+import tokyo.peya.langjal.compiler.JALParser;
+import tokyo.peya.langjal.compiler.instructions.AbstractInstructionEvaluator;
+import tokyo.peya.langjal.compiler.member.JALInstructionEvaluator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the former linear scan over all evaluators with the lookup table
+ * of {@link JALInstructionEvaluator} on a method of 100k instructions.
+ * Scores are per instruction.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InstructionDispatchBenchmark {
+    private static final int INSTRUCTIONS = 100_000;
+
+    private JALParser.InstructionContext[] instructions;
+
+    @Setup
+    public void setUp() {
+        String source = new JALSourceGenerator("DispatchBenchmark")
+                .instructions(INSTRUCTIONS)
+                .generate();
+        JALLexer lexer = new JALLexer(CharStreams.fromString(source));
+        JALParser parser = new JALParser(new CommonTokenStream(lexer));
+
+        List<JALParser.InstructionContext> collected = new ArrayList<>(INSTRUCTIONS);
+        JALParser.ClassDefinitionContext clazz = parser.root().classDefinition();
+        for (JALParser.ClassBodyItemContext item : clazz.classBody().classBodyItem()) {
+            if (item.methodDefinition() == null)
+                continue;
+            for (JALParser.InstructionSetContext set : item.methodDefinition().methodBody().instructionSet())
+                collected.addAll(set.instruction());
+        }
+
+        this.instructions = collected.toArray(new JALParser.InstructionContext[0]);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(INSTRUCTIONS)
+    public void linearScan(Blackhole blackhole) {
+        List<AbstractInstructionEvaluator<?>> evaluators = JALInstructionEvaluator.getEvaluators();
+        for (JALParser.InstructionContext instruction : this.instructions) {
+            for (AbstractInstructionEvaluator<?> evaluator : evaluators) {
+                if (evaluator.isApplicable(instruction)) {
+                    blackhole.consume(evaluator);
+                    break;
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(INSTRUCTIONS)
+    public void lookupTable(Blackhole blackhole) {
+        for (JALParser.InstructionContext instruction : this.instructions)
+            blackhole.consume(JALInstructionEvaluator.getEvaluator(instruction));
+    }
+}
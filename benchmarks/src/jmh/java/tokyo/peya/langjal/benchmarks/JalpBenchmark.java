@@ -0,0 +1,85 @@
+package tokyo.peya.langjal.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import tokyo.peya.langjal.compiler.CompileSettings;
+import tokyo.peya.langjal.compiler.JALMemoryCompiler;
+import tokyo.peya.langjal.jalp.JALPOptions;
+import tokyo.peya.langjal.jalp.OutputFormatter;
+import tokyo.peya.langjal.jalp.printers.ClassPrinter;
+import tokyo.peya.langjal.jalp.printers.CodePrinter;
+import tokyo.peya.langjal.jalp.printers.LineNumberMatcher;
+import tokyo.peya.langjal.jalp.reader.JALAttribute;
+import tokyo.peya.langjal.jalp.reader.JALClass;
+import tokyo.peya.langjal.jalp.reader.JALClassReader;
+import tokyo.peya.langjal.jalp.reader.JALMethod;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the disassembler: reading a class with {@link JALClassReader},
+ * printing the code of its methods with {@link CodePrinter}, and printing the whole class.
+ * The class is compiled from a synthetic source once, and the output is discarded.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JalpBenchmark {
+    @Param({"1000", "10000"})
+    private int instructions;
+
+    private byte[] classFile;
+    private JALClass clazz;
+    private OutputFormatter out;
+
+    @Setup
+    public void setUp() {
+        String source = new JALSourceGenerator("JalpBenchmark")
+                .methods(4)
+                .instructions(this.instructions)
+                .labels(this.instructions / 20)
+                .branchiness(0.5)
+                .tryCatchDensity(0.25)
+                .generate();
+        this.classFile = new JALMemoryCompiler(new SilentCompileReporter(), CompileSettings.FULL)
+                .compileToBytes(source);
+        this.clazz = JALClassReader.read(this.classFile);
+        this.out = new OutputFormatter(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @Benchmark
+    public JALClass read() {
+        return JALClassReader.read(this.classFile);
+    }
+
+    @Benchmark
+    public void printCode() {
+        for (JALMethod method : this.clazz.methods()) {
+            JALAttribute.CodeAttribute code = method.getAttribute(JALAttribute.CodeAttribute.class);
+            if (code == null)
+                continue;
+
+            new CodePrinter(this.out, this.clazz.getAttribute("BootstrapMethods"), this.clazz.constants())
+                    .printCode(code.code(), new LineNumberMatcher(code.getAttribute(JALAttribute.LineNumberTableAttribute.class)));
+        }
+    }
+
+    @Benchmark
+    public void readAndPrintClass() {
+        new ClassPrinter(this.out, JALPOptions.VERBOSE).process(JALClassReader.read(this.classFile));
+    }
+}
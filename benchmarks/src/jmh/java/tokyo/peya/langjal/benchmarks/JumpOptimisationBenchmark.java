@@ -0,0 +1,81 @@
+package tokyo.peya.langjal.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import tokyo.peya.langjal.compiler.CompileSettings;
+import tokyo.peya.langjal.compiler.JALMemoryCompiler;
+import tokyo.peya.langjal.compiler.output.InMemoryClassLoader;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the loop-heavy programs in {@code examples/} compiled with and without {@link CompileSettings#OPTIMISE_JUMPS}.
+ * The size of each class file is printed when the trial starts, and the run time of its {@code main} is measured
+ * with the standard output discarded.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JumpOptimisationBenchmark {
+    @Param({"ArraysAndLoops", "BubbleSort", "FizzBuzz", "LinearSearch"})
+    private String example;
+    @Param({"false", "true"})
+    private boolean optimise;
+
+    private MethodHandle main;
+    private PrintStream originalOut;
+
+    @Setup
+    public void setUp() throws Exception {
+        String source = ExampleSources.read(this.example);
+        int settings = CompileSettings.REQUIRED_ONLY;
+        if (this.optimise)
+            settings |= CompileSettings.OPTIMISE_JUMPS;
+
+        JALMemoryCompiler compiler = new JALMemoryCompiler(new SilentCompileReporter(), settings);
+        InMemoryClassLoader loader = compiler.compileToClassLoader(
+                List.of(source),
+                JumpOptimisationBenchmark.class.getClassLoader()
+        );
+        String className = loader.getClassNames().iterator().next();
+        System.out.println(this.example + (this.optimise ? " (optimised)" : "") + ": "
+                + compiler.compileToBytes(source).length + " bytes");
+
+        this.main = MethodHandles.publicLookup().findStatic(
+                loader.loadClass(className.replace('/', '.')),
+                "main",
+                MethodType.methodType(void.class, String[].class)
+        );
+        this.originalOut = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.setOut(this.originalOut);
+    }
+
+    @Benchmark
+    public void runMain() throws Throwable {
+        this.main.invokeExact(new String[0]);
+    }
+}
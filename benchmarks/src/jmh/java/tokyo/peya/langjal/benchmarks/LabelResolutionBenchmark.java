@@ -0,0 +1,65 @@
+package tokyo.peya.langjal.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import tokyo.peya.langjal.analyser.MethodAnalysisResult;
+import tokyo.peya.langjal.compiler.CompileSettings;
+import tokyo.peya.langjal.compiler.JALClassCompiler;
+import tokyo.peya.langjal.compiler.JALFileCompiler;
+import tokyo.peya.langjal.compiler.member.JALMethodCompiler;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures label and local variable resolution in a method with many labels.
+ * Every label is the target of a branch whose condition goes through a named local variable,
+ * so that evaluating the method resolves each label and local by name, and the analysis resolves each branch target by node.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LabelResolutionBenchmark {
+    @Param({"2000", "20000"})
+    private int labels;
+
+    private String source;
+    private JALMethodCompiler method;
+
+    @Setup
+    public void setUp() {
+        this.source = new JALSourceGenerator("LabelResolutionBenchmark")
+                .instructions(this.labels * 4)
+                .labels(this.labels)
+                .branches(true)
+                .namedLocals(200)
+                .generate();
+
+        this.method = this.evaluate().getMethodCompilers().getFirst();
+    }
+
+    @Benchmark
+    public JALClassCompiler evaluate() {
+        return JALFileCompiler.compileOnly(
+                this.source,
+                new SilentCompileReporter(),
+                CompileSettings.NONE
+        );
+    }
+
+    @Benchmark
+    public MethodAnalysisResult analyse() {
+        return this.method.analyseMethod();
+    }
+}
@@ -0,0 +1,75 @@
+package tokyo.peya.langjal.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import tokyo.peya.langjal.compiler.preprocessor.JALPreprocessor;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link JALPreprocessor#preprocess(String)} on macro-dense sources:
+ * {@code defines} macros, each of which expands through a chain of {@code depth} nested macros,
+ * used three to a line among identifiers which are not macros.
+ * <p>
+ * With {@code redefine}, one macro at the end of the chains is redefined every 100 lines,
+ * so the cached expansions are invalidated and built again as the source is read.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MacroExpansionBenchmark {
+    private static final int LINES = 10_000;
+
+    @Param({"10", "100", "1000"})
+    private int defines;
+    @Param({"1", "8"})
+    private int depth;
+    @Param({"false", "true"})
+    private boolean redefine;
+
+    private String source;
+
+    @Setup
+    public void setUp() {
+        StringBuilder sb = new StringBuilder();
+        // 連鎖の末尾は引数付きマクロにして，関数形式の展開も含める
+        sb.append("#define PUSH(value) ldc value\n");
+        for (int i = 0; i < this.defines; i++) {
+            for (int level = this.depth - 1; level > 0; level--)
+                sb.append("#define M").append(i).append("_").append(level)
+                        .append(" M").append(i).append("_").append(level - 1).append('\n');
+            sb.append("#define M").append(i).append("_0 PUSH(").append(i).append(") pop\n");
+        }
+
+        String top = "_" + (this.depth - 1);
+        for (int line = 0; line < LINES; line++) {
+            if (this.redefine && line % 100 == 99)
+                sb.append("#define PUSH(value) ldc_w value\n");
+
+            int macro = line % this.defines;
+            sb.append("    M").append(macro).append(top)
+                    .append(" nop M").append((macro * 7 + 1) % this.defines).append(top)
+                    .append(" iconst_0 pop M").append((macro * 13 + 2) % this.defines).append(top)
+                    .append(" // M").append(macro).append(top).append('\n');
+        }
+
+        this.source = sb.toString();
+    }
+
+    @Benchmark
+    public String preprocess() {
+        return JALPreprocessor.preprocess(this.source);
+    }
+}
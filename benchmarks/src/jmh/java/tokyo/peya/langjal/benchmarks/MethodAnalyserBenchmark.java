@@ -0,0 +1,57 @@
+package tokyo.peya.langjal.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import tokyo.peya.langjal.analyser.MethodAnalysisResult;
+import tokyo.peya.langjal.compiler.CompileSettings;
+import tokyo.peya.langjal.compiler.JALClassCompiler;
+import tokyo.peya.langjal.compiler.JALFileCompiler;
+import tokyo.peya.langjal.compiler.member.JALMethodCompiler;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how {@link tokyo.peya.langjal.analyser.MethodAnalyser} scales with the number of labels in a method.
+ * The method is compiled once without frame computation, and only the analysis is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MethodAnalyserBenchmark {
+    @Param({"1000", "10000", "50000"})
+    private int labels;
+
+    private JALMethodCompiler method;
+
+    @Setup
+    public void setUp() {
+        String source = new JALSourceGenerator("AnalyserBenchmark")
+                .instructions(this.labels * 4)
+                .labels(this.labels)
+                .generate();
+        JALClassCompiler compiler = JALFileCompiler.compileOnly(
+                source,
+                new SilentCompileReporter(),
+                CompileSettings.NONE
+        );
+
+        this.method = compiler.getMethodCompilers().getFirst();
+    }
+
+    @Benchmark
+    public MethodAnalysisResult analyse() {
+        return this.method.analyseMethod();
+    }
+}
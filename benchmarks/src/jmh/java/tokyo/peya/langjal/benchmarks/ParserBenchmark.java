@@ -0,0 +1,71 @@
+package tokyo.peya.langjal.benchmarks;
+
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import tokyo.peya.langjal.compiler.JALLexer;
+import tokyo.peya.langjal.compiler.JALParser;
+import tokyo.peya.langjal.compiler.JALSourceParser;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures lexing with {@link JALLexer} alone, and lexing and parsing with {@link JALParser},
+ * on a method with a share of labels followed by branches.
+ * {@code parseLL} builds a new lexer and parser and parses in the default LL mode, as compiles formerly did,
+ * and {@code parseTwoStage} goes through {@link JALSourceParser}, which reuses them and tries SLL first.
+ * <p>
+ * Nearly every token of the source starts an instruction, so the time divided by {@code instructions}
+ * is close to the parse time per instruction, most of which the choice of the {@code instruction} rule takes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserBenchmark {
+    @Param({"1000", "10000", "100000"})
+    private int instructions;
+
+    private String source;
+    private SilentCompileReporter reporter;
+
+    @Setup
+    public void setUp() {
+        this.source = new JALSourceGenerator("ParserBenchmark")
+                .instructions(this.instructions)
+                .labels(this.instructions / 20)
+                .branchiness(0.5)
+                .generate();
+        this.reporter = new SilentCompileReporter();
+    }
+
+    @Benchmark
+    public int lex() {
+        CommonTokenStream tokens = new CommonTokenStream(new JALLexer(CharStreams.fromString(this.source)));
+        tokens.fill();
+        return tokens.size();
+    }
+
+    @Benchmark
+    public JALParser.RootContext parseLL() {
+        JALLexer lexer = new JALLexer(CharStreams.fromString(this.source));
+        return new JALParser(new CommonTokenStream(lexer)).root();
+    }
+
+    @Benchmark
+    public JALParser.RootContext parseTwoStage() {
+        return JALSourceParser.parse(CharStreams.fromString(this.source), this.reporter, null);
+    }
+}
@@ -0,0 +1,48 @@
+package tokyo.peya.langjal.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import tokyo.peya.langjal.compiler.preprocessor.JALPreprocessor;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link JALPreprocessor#preprocess(String)} on a method with and without its blocks written as macros.
+ * Without macros, the preprocessor only has to copy the source through.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PreprocessorBenchmark {
+    @Param({"1000", "10000", "100000"})
+    private int instructions;
+    @Param({"false", "true"})
+    private boolean macros;
+
+    private String source;
+
+    @Setup
+    public void setUp() {
+        this.source = new JALSourceGenerator("PreprocessorBenchmark")
+                .instructions(this.instructions)
+                .macros(this.macros)
+                .generate();
+    }
+
+    @Benchmark
+    public String preprocess() {
+        return JALPreprocessor.preprocess(this.source);
+    }
+}
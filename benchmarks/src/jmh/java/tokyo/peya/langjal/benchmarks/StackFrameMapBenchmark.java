@@ -0,0 +1,68 @@
+package tokyo.peya.langjal.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import tokyo.peya.langjal.analyser.MethodAnalysisResult;
+import tokyo.peya.langjal.analyser.StackFrameMapCreator;
+import tokyo.peya.langjal.analyser.StackFrameMapEntry;
+import tokyo.peya.langjal.compiler.CompileSettings;
+import tokyo.peya.langjal.compiler.JALFileCompiler;
+import tokyo.peya.langjal.compiler.member.JALMethodCompiler;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link StackFrameMapCreator#createStackFrameMap()} from the propagations of an analysed method.
+ * The method is compiled and analysed once, and only the creation of the frames is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StackFrameMapBenchmark {
+    @Param({"1000", "10000"})
+    private int labels;
+    @Param({"0", "16"})
+    private int namedLocals;
+
+    private JALMethodCompiler method;
+    private MethodAnalysisResult analysisResult;
+
+    @Setup
+    public void setUp() {
+        String source = new JALSourceGenerator("StackFrameMapBenchmark")
+                .instructions(this.labels * 4)
+                .labels(this.labels)
+                .branches(true)
+                .namedLocals(this.namedLocals)
+                .generate();
+        this.method = JALFileCompiler.compileOnly(
+                source,
+                new SilentCompileReporter(),
+                CompileSettings.NONE
+        ).getMethodCompilers().getFirst();
+        this.analysisResult = this.method.analyseMethod();
+    }
+
+    @Benchmark
+    public StackFrameMapEntry[] createStackFrameMap() {
+        StackFrameMapCreator creator = new StackFrameMapCreator(
+                this.method.getContext(),
+                this.method.getMethod(),
+                this.method.getHierarchy()
+        );
+        creator.updateFrames(this.analysisResult.propagations());
+        return creator.createStackFrameMap();
+    }
+}
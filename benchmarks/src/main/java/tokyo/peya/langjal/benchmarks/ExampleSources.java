@@ -0,0 +1,40 @@
+package tokyo.peya.langjal.benchmarks;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Reads the programs in {@code examples/} of the repository,
+ * wherever in the repository the benchmarks are run from.
+ */
+public final class ExampleSources {
+    private ExampleSources() {
+    }
+
+    /**
+     * Reads the source of an example.
+     *
+     * @param name The name of the example, without {@code .jal}.
+     * @return The source of the example.
+     * @throws IOException If the example could not be read.
+     */
+    @NotNull
+    public static String read(@NotNull String name) throws IOException {
+        return Files.readString(findExamples().resolve(name + ".jal"));
+    }
+
+    @NotNull
+    private static Path findExamples() {
+        Path path = Path.of(System.getProperty("user.dir")).toAbsolutePath();
+        while (path != null) {
+            if (Files.isDirectory(path.resolve("examples")) && Files.exists(path.resolve("settings.gradle.kts")))
+                return path.resolve("examples");
+            path = path.getParent();
+        }
+
+        throw new IllegalStateException("Could not find examples from " + System.getProperty("user.dir"));
+    }
+}
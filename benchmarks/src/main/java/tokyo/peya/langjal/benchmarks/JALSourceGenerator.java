@@ -0,0 +1,237 @@
+package tokyo.peya.langjal.benchmarks;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Generates synthetic JAL sources for benchmarks.
+ * <p>
+ * The generated class has methods {@code public static run(I)I}, {@code run1(I)I}, ...
+ * whose bodies consist of small straight-line blocks which leave the operand stack empty,
+ * so that labels can be placed between any two of them.
+ * Optionally, a share of the labels is referenced by a branch, the branch conditions go through named local variables,
+ * a share of the labels starts a try block reaching to the next label, and the blocks are written as macros.
+ */
+public class JALSourceGenerator {
+    /**
+     * The blocks the method body is built from, used in round-robin order.
+     * Each block consumes and produces nothing on the operand stack.
+     */
+    private static final String[][] BLOCKS = {
+            {"iload_0", "iconst_1", "iadd", "istore_0"},
+            {"iload_0", "bipush 7", "imul", "istore_0"},
+            {"iload_0", "iconst_3", "ixor", "istore_0"},
+            {"iinc 0 1"},
+            {"iload_0", "sipush 1000", "irem", "istore_0"},
+    };
+
+    private final String className;
+    private int methods;
+    private int instructions;
+    private int labels;
+    private double branchiness;
+    private int namedLocals;
+    private double tryCatchDensity;
+    private boolean macros;
+
+    public JALSourceGenerator(@NotNull String className) {
+        this.className = className;
+        this.methods = 1;
+        this.instructions = 1000;
+        this.labels = 0;
+        this.branchiness = 0;
+        this.namedLocals = 0;
+        this.tryCatchDensity = 0;
+        this.macros = false;
+    }
+
+    /**
+     * Sets the number of methods in the class, each of which has the same body.
+     *
+     * @param methods The number of methods.
+     * @return This generator.
+     */
+    public JALSourceGenerator methods(int methods) {
+        this.methods = methods;
+        return this;
+    }
+
+    /**
+     * Sets the approximate number of instructions in the method body.
+     * The actual number is rounded up to the end of the last block, plus the trailing return.
+     *
+     * @param instructions The number of instructions.
+     * @return This generator.
+     */
+    public JALSourceGenerator instructions(int instructions) {
+        this.instructions = instructions;
+        return this;
+    }
+
+    /**
+     * Sets the number of labels to spread evenly over the method body.
+     *
+     * @param labels The number of labels.
+     * @return This generator.
+     */
+    public JALSourceGenerator labels(int labels) {
+        this.labels = labels;
+        return this;
+    }
+
+    /**
+     * Sets whether every label is the target of a conditional branch placed right after it.
+     *
+     * @param branches Whether to emit the branches.
+     * @return This generator.
+     * @see #branchiness(double)
+     */
+    public JALSourceGenerator branches(boolean branches) {
+        return this.branchiness(branches ? 1 : 0);
+    }
+
+    /**
+     * Sets the share of labels which are the target of a conditional branch placed right after them.
+     * The branching labels are spread evenly, e.g. every fourth label with {@code 0.25}.
+     *
+     * @param branchiness The share of branching labels, from {@code 0} to {@code 1}.
+     * @return This generator.
+     */
+    public JALSourceGenerator branchiness(double branchiness) {
+        this.branchiness = branchiness;
+        return this;
+    }
+
+    /**
+     * Sets the number of named local variables the branch conditions are stored to and loaded from, in round-robin order.
+     * With {@code 0}, the branches test the parameter directly.
+     * Only takes effect when {@link #branchiness(double) branches} are emitted.
+     *
+     * @param namedLocals The number of named local variables, up to 255.
+     * @return This generator.
+     */
+    public JALSourceGenerator namedLocals(int namedLocals) {
+        this.namedLocals = namedLocals;
+        return this;
+    }
+
+    /**
+     * Sets the share of labels which start a try block reaching to the next label.
+     * Each try block has its own handler for {@code java/lang/ArithmeticException} at the end of the method.
+     * The try blocks are spread evenly, in the same way as {@link #branchiness(double)}.
+     *
+     * @param tryCatchDensity The share of labels starting a try block, from {@code 0} to {@code 1}.
+     * @return This generator.
+     */
+    public JALSourceGenerator tryCatchDensity(double tryCatchDensity) {
+        this.tryCatchDensity = tryCatchDensity;
+        return this;
+    }
+
+    /**
+     * Sets whether each block is defined once with {@code #define} and written as the macro name,
+     * so that the body has to be expanded by the preprocessor.
+     *
+     * @param macros Whether to write the blocks as macros.
+     * @return This generator.
+     */
+    public JALSourceGenerator macros(boolean macros) {
+        this.macros = macros;
+        return this;
+    }
+
+    /**
+     * Generates the source code.
+     *
+     * @return The JAL source code.
+     */
+    public String generate() {
+        int blockCount = this.countBlocks();
+        int labelInterval = this.labels <= 0 ? Integer.MAX_VALUE : Math.max(1, blockCount / this.labels);
+        int labelCount = this.labels <= 0 ? 0 : Math.min(this.labels, (blockCount + labelInterval - 1) / labelInterval);
+
+        StringBuilder sb = new StringBuilder(this.methods * this.instructions * 16);
+        if (this.macros)
+            appendMacros(sb);
+        sb.append("public class ").append(this.className).append(" (major_version=55, minor_version=0) {\n");
+        for (int method = 0; method < this.methods; method++) {
+            sb.append("  public static run").append(method == 0 ? "" : String.valueOf(method)).append("(I)I {\n");
+            this.appendBody(sb, blockCount, labelInterval, labelCount);
+            sb.append("  }\n");
+        }
+        sb.append("}\n");
+        return sb.toString();
+    }
+
+    private void appendBody(@NotNull StringBuilder sb, int blockCount, int labelInterval, int labelCount) {
+        int emittedLabels = 0;
+        for (int i = 0; i < blockCount; i++) {
+            if (emittedLabels < labelCount && i % labelInterval == 0) {
+                int label = emittedLabels++;
+                sb.append("  L").append(label).append(':');
+                if (isSelected(label, this.tryCatchDensity))
+                    sb.append(" [~").append(label + 1 < labelCount ? "L" + (label + 1) : "LEnd")
+                            .append(", java/lang/ArithmeticException: H").append(label).append(']');
+                sb.append('\n');
+                if (isSelected(label, this.branchiness))
+                    this.appendBranch(sb, label);
+            }
+
+            if (this.macros)
+                sb.append("    BLOCK").append(i % BLOCKS.length).append('\n');
+            else
+                for (String instruction : BLOCKS[i % BLOCKS.length])
+                    sb.append("    ").append(instruction).append('\n');
+        }
+
+        if (this.tryCatchDensity > 0)
+            sb.append("  LEnd:\n");
+        sb.append("    iload_0\n");
+        sb.append("    ireturn\n");
+
+        for (int label = 0; label < labelCount; label++) {
+            if (!isSelected(label, this.tryCatchDensity))
+                continue;
+
+            // 例外は捨てて，引数をそのまま返す
+            sb.append("  H").append(label).append(":\n");
+            sb.append("    pop\n");
+            sb.append("    iload_0\n");
+            sb.append("    ireturn\n");
+        }
+    }
+
+    private static void appendMacros(@NotNull StringBuilder sb) {
+        for (int i = 0; i < BLOCKS.length; i++) {
+            sb.append("#define BLOCK").append(i);
+            for (String instruction : BLOCKS[i])
+                sb.append(" \\\n").append(instruction);
+            sb.append("\n\n");
+        }
+    }
+
+    private static boolean isSelected(int label, double share) {
+        // share の割合で，ラベルを等間隔に選ぶ
+        return (int) ((label + 1) * share) > (int) (label * share);
+    }
+
+    private void appendBranch(@NotNull StringBuilder sb, int label) {
+        sb.append("    iload_0\n");
+        if (this.namedLocals > 0) {
+            String local = "v" + (label % this.namedLocals);
+            sb.append("    istore ").append(local).append('\n');
+            sb.append("    iload ").append(local).append('\n');
+        }
+        sb.append("    ifeq L").append(label).append('\n');
+    }
+
+    private int countBlocks() {
+        int blocks = 0;
+        int emitted = 0;
+        while (emitted < this.instructions) {
+            emitted += BLOCKS[blocks % BLOCKS.length].length;
+            blocks++;
+        }
+
+        return blocks;
+    }
+}
@@ -0,0 +1,55 @@
+package tokyo.peya.langjal.benchmarks;
+
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import tokyo.peya.langjal.compiler.CompileReporter;
+import tokyo.peya.langjal.compiler.exceptions.CompileErrorException;
+
+import java.nio.file.Path;
+
+/**
+ * A reporter which discards every message but errors,
+ * so that benchmarks do not measure console output.
+ */
+public class SilentCompileReporter implements CompileReporter {
+    @Override
+    public void postWarning(@NotNull String message, @Nullable Path sourcePath) {
+    }
+
+    @Override
+    public void postInfo(@NotNull String message, @Nullable Path sourcePath) {
+    }
+
+    @Override
+    public void postDebug(@NotNull String message, @Nullable Path sourcePath) {
+    }
+
+    @Override
+    public void postError(@NotNull String message, @Nullable Path sourcePath) {
+        System.err.println("ERROR: " + message);
+    }
+
+    @Override
+    public void postError(@NotNull String message, @NotNull CompileErrorException cause, @Nullable Path sourcePath) {
+        System.err.println("ERROR: " + message);
+    }
+
+    @Override
+    public void postWarning(@NotNull String message, @Nullable Path sourcePath, long line, long column, long length) {
+    }
+
+    @Override
+    public void postWarning(@NotNull String message, @NotNull Path sourcePath, @NotNull ParserRuleContext ctxt) {
+    }
+
+    @Override
+    public boolean isInfoEnabled() {
+        return false;
+    }
+
+    @Override
+    public boolean isDebugEnabled() {
+        return false;
+    }
+}
@@ -371,6 +371,15 @@ classDefinition
    RBR
  ;
 
+// 本体を読まずにクラス階層だけを先に登録するため，クラス定義の先頭だけを読む
+classHeader
+ : accModClass
+   (KWD_CLASS | KWD_INTERFACE)
+   className
+   (LP classMeta? RP)?
+   LBR
+ ;
+
 className
  : fullQualifiedClassName
  ;
@@ -711,7 +720,11 @@ jvmInsArgLookupSwitchCaseName
 
 // <editor-fold desc="INSTRUCTIONS">
 
-instruction: jvmInsAaload | jvmInsAastore  | jvmInsAconstNull | jvmInsAload | jvmInsAloadN  | jvmInsAnewArray
+// 各選択肢はニーモニックのトークン 1 つで決まる (LL(1)) ので，ANTLR は予測を行わず switch で分岐する．
+// wide を各命令の規則に持たせると，先頭のトークンが被って全選択肢が適応的予測に落ちるため，ここで括り出す．
+instruction: INSN_WIDE (jvmInsAload | jvmInsAstore | jvmInsDload | jvmInsDstore | jvmInsFload | jvmInsFstore
+                | jvmInsIinc | jvmInsIload | jvmInsIstore | jvmInsLload | jvmInsLstore | jvmInsRet)
+                | jvmInsAaload | jvmInsAastore  | jvmInsAconstNull | jvmInsAload | jvmInsAloadN  | jvmInsAnewArray
                 | jvmInsAreturn | jvmInsArraylength | jvmInsAstore | jvmInsAstoreN | jvmInsAthrow | jvmInsBaload
                 | jvmInsBastore | jvmInsBipush | jvmInsCaload | jvmInsCastore | jvmInsCheckcast | jvmInsD2F
                 | jvmInsD2I | jvmInsD2L | jvmInsDadd | jvmInsDaload | jvmInsDastore | jvmInsDcmpOP | jvmInsDconstN
@@ -738,12 +751,12 @@ instruction: jvmInsAaload | jvmInsAastore  | jvmInsAconstNull | jvmInsAload | jv
 jvmInsAaload: INSN_AALOAD;
 jvmInsAastore: INSN_AASTORE;
 jvmInsAconstNull: INSN_ACONST_NULL;
-jvmInsAload: INSN_WIDE? INSN_ALOAD jvmInsArgLocalRef;
+jvmInsAload: INSN_ALOAD jvmInsArgLocalRef;
 jvmInsAloadN: INSN_ALOAD_0 | INSN_ALOAD_1 | INSN_ALOAD_2 | INSN_ALOAD_3 | INSN_ALOAD_4;
 jvmInsAnewArray: INSN_ANEWARRAY typeDescriptor;
 jvmInsAreturn: INSN_ARETURN;
 jvmInsArraylength: INSN_ARRAYLENGTH;
-jvmInsAstore: INSN_WIDE? INSN_ASTORE jvmInsArgLocalRef localDeclaration?;
+jvmInsAstore: INSN_ASTORE jvmInsArgLocalRef localDeclaration?;
 jvmInsAstoreN: (INSN_ASTORE_0 | INSN_ASTORE_1 | INSN_ASTORE_2 | INSN_ASTORE_3) localDeclaration?;
 jvmInsAthrow: INSN_ATHROW;
 jvmInsBaload: INSN_BALOAD;
@@ -761,13 +774,13 @@ jvmInsDastore: INSN_DASTORE;
 jvmInsDcmpOP: INSN_DCMPG | INSN_DCMPL;
 jvmInsDconstN: INSN_DCONST_0 | INSN_DCONST_1;
 jvmInsDdiv: INSN_DDIV;
-jvmInsDload: INSN_WIDE? INSN_DLOAD jvmInsArgLocalRef;
+jvmInsDload: INSN_DLOAD jvmInsArgLocalRef;
 jvmInsDloadN: INSN_DLOAD_0 | INSN_DLOAD_1 | INSN_DLOAD_2 | INSN_DLOAD_3;
 jvmInsDmul: INSN_DMUL;
 jvmInsDneg: INSN_DNEG;
 jvmInsDrem: INSN_DREM;
 jvmInsDreturn: INSN_DRETURN;
-jvmInsDstore: INSN_WIDE? INSN_DSTORE jvmInsArgLocalRef localDeclaration?;
+jvmInsDstore: INSN_DSTORE jvmInsArgLocalRef localDeclaration?;
 jvmInsDstoreN: (INSN_DSTORE_0 | INSN_DSTORE_1 | INSN_DSTORE_2 | INSN_DSTORE_3) localDeclaration?;
 jvmInsDsub: INSN_DSUB;
 jvmInsDup: INSN_DUP;
@@ -785,13 +798,13 @@ jvmInsFastore: INSN_FASTORE;
 jvmInsFcmpOP: INSN_FCMPG | INSN_FCMPL;
 jvmInsFconstN: INSN_FCONST_0 | INSN_FCONST_1 | INSN_FCONST_2;
 jvmInsFdiv: INSN_FDIV;
-jvmInsFload: INSN_WIDE? INSN_FLOAD jvmInsArgLocalRef;
+jvmInsFload: INSN_FLOAD jvmInsArgLocalRef;
 jvmInsFloadN: INSN_FLOAD_0 | INSN_FLOAD_1 | INSN_FLOAD_2 | INSN_FLOAD_3;
 jvmInsFmul: INSN_FMUL;
 jvmInsFneg: INSN_FNEG;
 jvmInsFrem: INSN_FREM;
 jvmInsFreturn: INSN_FRETURN;
-jvmInsFstore: INSN_WIDE? INSN_FSTORE jvmInsArgLocalRef localDeclaration?;
+jvmInsFstore: INSN_FSTORE jvmInsArgLocalRef localDeclaration?;
 jvmInsFstoreN: (INSN_FSTORE_0 | INSN_FSTORE_1 | INSN_FSTORE_2 | INSN_FSTORE_3) localDeclaration?;
 jvmInsFsub: INSN_FSUB;
 jvmInsGetfield: INSN_GETFIELD jvmInsArgFieldRef;
@@ -837,8 +850,8 @@ jvmInsIfOP
   ;
 jvmInsIfNonnull: INSN_IFNONNULL labelName;
 jvmInsIfNull: INSN_IFNULL labelName;
-jvmInsIinc: INSN_WIDE? INSN_IINC jvmInsArgLocalRef NUMBER;
-jvmInsIload: INSN_WIDE? INSN_ILOAD jvmInsArgLocalRef;
+jvmInsIinc: INSN_IINC jvmInsArgLocalRef NUMBER;
+jvmInsIload: INSN_ILOAD jvmInsArgLocalRef;
 jvmInsIloadN: INSN_ILOAD_0 | INSN_ILOAD_1 | INSN_ILOAD_2 | INSN_ILOAD_3;
 jvmInsImul: INSN_IMUL;
 jvmInsIneg: INSN_INEG;
@@ -853,7 +866,7 @@ jvmInsIrem: INSN_IREM;
 jvmInsIreturn: INSN_IRETURN;
 jvmInsIshl: INSN_ISHL;
 jvmInsIshr: INSN_ISHR;
-jvmInsIstore: INSN_WIDE? INSN_ISTORE jvmInsArgLocalRef localDeclaration?;
+jvmInsIstore: INSN_ISTORE jvmInsArgLocalRef localDeclaration?;
 jvmInsIstoreN: (INSN_ISTORE_0 | INSN_ISTORE_1 | INSN_ISTORE_2 | INSN_ISTORE_3) localDeclaration?;
 jvmInsIsub: INSN_ISUB;
 jvmInsIushr: INSN_IUSHR;
@@ -873,7 +886,7 @@ jvmInsLdc: INSN_LDC jvmInsArgScalarType;
 jvmInsLdcW: INSN_LDC_W jvmInsArgScalarType;
 jvmInsLdc2W: INSN_LDC2_W jvmInsArgScalarType;
 jvmInsLdiv: INSN_LDIV;
-jvmInsLload: INSN_WIDE? INSN_LLOAD jvmInsArgLocalRef;
+jvmInsLload: INSN_LLOAD jvmInsArgLocalRef;
 jvmInsLloadN: INSN_LLOAD_0 | INSN_LLOAD_1 | INSN_LLOAD_2 | INSN_LLOAD_3;
 jvmInsLmul: INSN_LMUL;
 jvmInsLneg: INSN_LNEG;
@@ -883,7 +896,7 @@ jvmInsLrem: INSN_LREM;
 jvmInsLreturn: INSN_LRETURN;
 jvmInsLshl: INSN_LSHL;
 jvmInsLshr: INSN_LSHR;
-jvmInsLstore: INSN_WIDE? INSN_LSTORE jvmInsArgLocalRef localDeclaration?;
+jvmInsLstore: INSN_LSTORE jvmInsArgLocalRef localDeclaration?;
 jvmInsLstoreN: (INSN_LSTORE_0 | INSN_LSTORE_1 | INSN_LSTORE_2 | INSN_LSTORE_3) localDeclaration?;
 jvmInsLsub: INSN_LSUB;
 jvmInsLushr: INSN_LUSHR;
@@ -898,7 +911,7 @@ jvmInsPop: INSN_POP;
 jvmInsPop2: INSN_POP2;
 jvmInsPutfield: INSN_PUTFIELD jvmInsArgFieldRef;
 jvmInsPutstatic: INSN_PUTSTATIC jvmInsArgFieldRef;
-jvmInsRet: INSN_WIDE? INSN_RET jvmInsArgLocalRef;
+jvmInsRet: INSN_RET jvmInsArgLocalRef;
 jvmInsReturn: INSN_RETURN;
 jvmInsSaload: INSN_SALOAD;
 jvmInsSastore: INSN_SASTORE;
@@ -6,6 +6,8 @@ import org.objectweb.asm.tree.JumpInsnNode;
 import org.objectweb.asm.tree.LabelNode;
 import org.objectweb.asm.tree.LookupSwitchInsnNode;
 import org.objectweb.asm.tree.TableSwitchInsnNode;
+import tokyo.peya.langjal.analyser.hierarchy.CachingClassHierarchyResolver;
+import tokyo.peya.langjal.analyser.hierarchy.ClassHierarchyResolver;
 import tokyo.peya.langjal.analyser.stack.*;
 import tokyo.peya.langjal.compiler.FileEvaluatingReporter;
 import tokyo.peya.langjal.compiler.exceptions.analyse.PropagationMismatchException;
@@ -68,6 +70,8 @@ public class InstructionSetAnalyser {
     private final List<InstructionInfo> instructions;
     @NotNull
     private final Map<LabelInfo, BitSet> liveLocalsAtEntry;
+    @NotNull
+    private final ClassHierarchyResolver hierarchy;
 
     @NotNull
     private final List<AnalysedInstruction> analysedInstructions;
@@ -87,6 +91,11 @@ public class InstructionSetAnalyser {
     private boolean doesContainCriticalJump;
     private int maxStackSize;
     private int maxLocalSize;
+    /**
+     * The number of propagations merged into the frame this instruction set had already received.
+     */
+    @Getter
+    private int mergeCount;
 
     /**
      * Constructs an analyser for a set of instructions belonging to a label (basic block).
@@ -101,12 +110,32 @@ public class InstructionSetAnalyser {
                                   @NotNull LabelInfo label,
                                   @NotNull List<InstructionInfo> instructions,
                                   @NotNull Map<LabelInfo, BitSet> liveLocalsAtEntry) {
+        this(context, methodLabels, label, instructions, liveLocalsAtEntry, CachingClassHierarchyResolver.getShared());
+    }
+
+    /**
+     * Constructs an analyser for a set of instructions belonging to a label (basic block).
+     *
+     * @param context           The reporting context.
+     * @param methodLabels      The holder for all labels in the method.
+     * @param label             The label (basic block) to analyse.
+     * @param instructions      The instructions in this block.
+     * @param liveLocalsAtEntry The live local slots at the entry of each block.
+     * @param hierarchy         The resolver used to merge and check object types.
+     */
+    public InstructionSetAnalyser(@NotNull FileEvaluatingReporter context,
+                                  @NotNull LabelsHolder methodLabels,
+                                  @NotNull LabelInfo label,
+                                  @NotNull List<InstructionInfo> instructions,
+                                  @NotNull Map<LabelInfo, BitSet> liveLocalsAtEntry,
+                                  @NotNull ClassHierarchyResolver hierarchy) {
         this.context = context;
         this.methodLabels = methodLabels;
 
         this.label = label;
         this.instructions = new ArrayList<>(instructions);
         this.liveLocalsAtEntry = liveLocalsAtEntry;
+        this.hierarchy = hierarchy;
 
         this.analysedInstructions = new ArrayList<>();
         this.propagatedStack = new Stack<>();
@@ -141,10 +170,13 @@ public class InstructionSetAnalyser {
      */
     @NotNull
     public InstructionSetAnalysisResult analyse(@NotNull FramePropagation propagation) {
-        this.context.postInfo("Analysing instructions set named '%s' with %d instructions".formatted(
-                this.label.name(), this.instructions.size()
-        ));
-        this.context.postDebug("Incoming propagation for instruction set '" + this.label.name() + "': " + propagation);
+        if (this.context.isInfoEnabled())
+            this.context.postInfo("Analysing instructions set named '%s' with %d instructions".formatted(
+                    this.label.name(), this.instructions.size()
+            ));
+        if (this.context.isDebugEnabled())
+            this.context.postDebug("Incoming propagation for instruction set '" + this.label.name() + "': " +
+                    propagation);
 
         this.resetAnalysisState();
         this.applyPropagation(propagation);
@@ -161,8 +193,9 @@ public class InstructionSetAnalyser {
                 FramePropagation[] newPropagations = new FramePropagation[propagations.length + 1];
                 System.arraycopy(propagations, 0, newPropagations, 0, propagations.length);
                 newPropagations[propagations.length] = this.createPropagations(nextBlockLabel);
-                this.context.postDebug("Instruction set '" + this.label.name() +
-                        "' falls through to next block '" + nextBlockLabel.name() + "'.");
+                if (this.context.isDebugEnabled())
+                    this.context.postDebug("Instruction set '" + this.label.name() +
+                            "' falls through to next block '" + nextBlockLabel.name() + "'.");
                 propagations = newPropagations;
             }
         }
@@ -183,7 +216,8 @@ public class InstructionSetAnalyser {
         this.doesContainCriticalJump = false;
         this.maxStackSize = 0;
         this.maxLocalSize = 0;
-        this.context.postDebug("Reset analysis state for instruction set '" + this.label.name() + "'.");
+        if (this.context.isDebugEnabled())
+            this.context.postDebug("Reset analysis state for instruction set '" + this.label.name() + "'.");
     }
 
     private void applyPropagation(@NotNull FramePropagation propagation) {
@@ -202,22 +236,30 @@ public class InstructionSetAnalyser {
             this.propagatedStack.addAll(List.of(stack));
             this.propagatedLocals.addAll(List.of(locals));
             this.initialiseCurrentFrameInfo();  // 現在のフレーム情報を初期化
-            this.context.postDebug("Applied first propagation to '" + this.label.name() +
-                    "', stack: " + StackElementUtils.stackToString(this.stack.toArray(new StackElement[0])) +
-                    ", locals: " + StackElementUtils.stackToString(this.locals.toArray(new LocalStackElement[0])));
+            if (this.context.isDebugEnabled())
+                this.context.postDebug("Applied first propagation to '" + this.label.name() +
+                        "', stack: " + StackElementUtils.stackToString(this.stack.toArray(new StackElement[0])) +
+                        ", locals: " + StackElementUtils.stackToString(this.locals.toArray(new LocalStackElement[0])));
             return;
         }
 
         // 既に解析済みのスタックとローカル変数がある場合は，
         // Propagate で受け取ったスタックとローカル変数をマージする
+        this.mergeCount++;
         StackElement[] lastPropagatedStack = this.propagatedStack.toArray(new StackElement[0]);
-        StackElement[] mergedStack = StackElementUtils.mergeStack(this.label, lastPropagatedStack, stack);
+        StackElement[] mergedStack = StackElementUtils.mergeStack(
+                this.label,
+                lastPropagatedStack,
+                stack,
+                this.hierarchy
+        );
         this.propagatedStack.clear();
         Collections.addAll(this.propagatedStack, mergedStack);
-        this.context.postDebug("Merged propagated stack for '" + this.label.name() +
-                "': previous=" + StackElementUtils.stackToString(lastPropagatedStack) +
-                ", incoming=" + StackElementUtils.stackToString(stack) +
-                ", merged=" + StackElementUtils.stackToString(mergedStack));
+        if (this.context.isDebugEnabled())
+            this.context.postDebug("Merged propagated stack for '" + this.label.name() +
+                    "': previous=" + StackElementUtils.stackToString(lastPropagatedStack) +
+                    ", incoming=" + StackElementUtils.stackToString(stack) +
+                    ", merged=" + StackElementUtils.stackToString(mergedStack));
 
         LocalStackElement[] lastPropagatedLocals = StackElementUtils.filterDeadLocals(
                 this.propagatedLocals.toArray(new LocalStackElement[0]),
@@ -226,14 +268,16 @@ public class InstructionSetAnalyser {
         LocalStackElement[] mergedLocals = StackElementUtils.mergeLocals(
                 lastPropagatedLocals,
                 locals,
-                this.liveLocalsAtEntry.get(this.label)
+                this.liveLocalsAtEntry.get(this.label),
+                this.hierarchy
         );
         this.propagatedLocals.clear();
         Collections.addAll(this.propagatedLocals, mergedLocals);
-        this.context.postDebug("Merged propagated locals for '" + this.label.name() +
-                "': previous=" + StackElementUtils.stackToString(lastPropagatedLocals) +
-                ", incoming=" + StackElementUtils.stackToString(locals) +
-                ", merged=" + StackElementUtils.stackToString(mergedLocals));
+        if (this.context.isDebugEnabled())
+            this.context.postDebug("Merged propagated locals for '" + this.label.name() +
+                    "': previous=" + StackElementUtils.stackToString(lastPropagatedLocals) +
+                    ", incoming=" + StackElementUtils.stackToString(locals) +
+                    ", merged=" + StackElementUtils.stackToString(mergedLocals));
 
         this.initialiseCurrentFrameInfo();  // 現在のフレーム情報を初期化
     }
@@ -263,7 +307,8 @@ public class InstructionSetAnalyser {
         // ターゲットラベルを登録
         if (!this.jumpTargets.contains(targetLabel)) {
             this.jumpTargets.add(targetLabel);
-            this.context.postDebug("Registered jump target '" + targetLabel.name() + "' from " + instructionInfo);
+            if (this.context.isDebugEnabled())
+                this.context.postDebug("Registered jump target '" + targetLabel.name() + "' from " + instructionInfo);
         }
     }
 
@@ -308,16 +353,18 @@ public class InstructionSetAnalyser {
 
             // return 後も解析してしまうと，maxLocals/maxStacks に加算されてしまうため，当該ブロックの線形解析を終了する。
             if (isCriticalJump) {
-                this.context.postDebug("Instruction " + instruction +
-                        " is a critical jump; stopping linear analysis for block '" + this.label.name() + "'.");
+                if (this.context.isDebugEnabled())
+                    this.context.postDebug("Instruction " + instruction +
+                            " is a critical jump; stopping linear analysis for block '" + this.label.name() + "'.");
                 break;
             }
         }
 
-        this.context.postInfo(String.format(
-                "Analysed instruction set '%s' with %d instructions, max stack size: %d, max local size: %d",
-                this.label.name(), this.instructions.size(), this.maxStackSize, this.maxLocalSize
-        ));
+        if (this.context.isInfoEnabled())
+            this.context.postInfo(String.format(
+                    "Analysed instruction set '%s' with %d instructions, max stack size: %d, max local size: %d",
+                    this.label.name(), this.instructions.size(), this.maxStackSize, this.maxLocalSize
+            ));
 
         return propagations.toArray(new FramePropagation[0]);
     }
@@ -328,7 +375,8 @@ public class InstructionSetAnalyser {
             case JumpInsnNode jumpNode -> {
                 this.analyseJumpTarget(info, jumpNode);
                 propagations.add(this.createPropagations(jumpNode.label, info));
-                this.context.postDebug("Created jump propagation(s) for " + info + ": " + propagations);
+                if (this.context.isDebugEnabled())
+                    this.context.postDebug("Created jump propagation(s) for " + info + ": " + propagations);
             }
             case TableSwitchInsnNode tableSwitchNode -> {
                 // テーブルスイッチの場合は，すべてのターゲットラベルを登録
@@ -337,7 +385,8 @@ public class InstructionSetAnalyser {
                 // デフォルトラベルも登録
                 LabelNode defaultLabelNode = tableSwitchNode.dflt;
                 propagations.add(this.createPropagations(defaultLabelNode, info));
-                this.context.postDebug("Created tableswitch propagation(s) for " + info + ": " + propagations);
+                if (this.context.isDebugEnabled())
+                    this.context.postDebug("Created tableswitch propagation(s) for " + info + ": " + propagations);
             }
             case LookupSwitchInsnNode lookupSwitchNode -> {
                 // ルックアップスイッチの場合は，すべてのターゲットラベルを登録
@@ -346,7 +395,8 @@ public class InstructionSetAnalyser {
                 // デフォルトラベルも登録
                 LabelNode defaultLabelNode = lookupSwitchNode.dflt;
                 propagations.add(this.createPropagations(defaultLabelNode, info));
-                this.context.postDebug("Created lookupswitch propagation(s) for " + info + ": " + propagations);
+                if (this.context.isDebugEnabled())
+                    this.context.postDebug("Created lookupswitch propagation(s) for " + info + ": " + propagations);
             }
             default -> {
             }
@@ -376,10 +426,12 @@ public class InstructionSetAnalyser {
         for (StackOperation stackOperation : stackLocalOperations) {
             StackOperation.StackOperationType type = stackOperation.type();
             StackElement element = stackOperation.element();
-            this.context.postDebug("Applying " + type + " operation for " + instruction +
-                    ": " + element +
-                    ", stack before: " + StackElementUtils.stackToString(this.stack.toArray(new StackElement[0])) +
-                    ", locals before: " + StackElementUtils.stackToString(this.locals.toArray(new LocalStackElement[0])));
+            if (this.context.isDebugEnabled())
+                this.context.postDebug("Applying " + type + " operation for " + instruction +
+                        ": " + element +
+                        ", stack before: " + StackElementUtils.stackToString(this.stack.toArray(new StackElement[0])) +
+                        ", locals before: " +
+                        StackElementUtils.stackToString(this.locals.toArray(new LocalStackElement[0])));
             // 変数のようなものなので，参照/保持する必要がある
             switch (type) {
                 case PUSH:
@@ -423,7 +475,7 @@ public class InstructionSetAnalyser {
             return expectedElement;  // Capsule の場合は，その中の要素を使うだけなので，後のチェックは省く。
         }
 
-        StackElementUtils.checkAssignableTo(poppedElement, expectedElement);
+        StackElementUtils.checkAssignableTo(poppedElement, expectedElement, this.hierarchy);
 
         return poppedElement;  // マージ結果は使わないが，型チェックのために必要
     }
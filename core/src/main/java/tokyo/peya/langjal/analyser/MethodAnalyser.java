@@ -3,12 +3,15 @@ package tokyo.peya.langjal.analyser;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.objectweb.asm.tree.*;
+import tokyo.peya.langjal.analyser.hierarchy.CachingClassHierarchyResolver;
+import tokyo.peya.langjal.analyser.hierarchy.ClassHierarchyResolver;
 import tokyo.peya.langjal.analyser.stack.*;
 import tokyo.peya.langjal.compiler.FileEvaluatingReporter;
 import tokyo.peya.langjal.compiler.instructions.InstructionEvaluatorNop;
 import tokyo.peya.langjal.compiler.jvm.EOpcodes;
 import tokyo.peya.langjal.compiler.jvm.TypeDescriptor;
 import tokyo.peya.langjal.compiler.member.*;
+import tokyo.peya.langjal.compiler.metrics.CompileCounter;
 
 import java.util.*;
 
@@ -17,6 +20,11 @@ import java.util.*;
  * <p>
  * This class simulates stack and local variable changes, propagates frames,
  * and computes maximum stack and local sizes for the method.
+ * <p>
+ * Propagations are processed as a dataflow worklist: instruction sets are looked up by their label,
+ * confirmed propagations are indexed by their (sender, receiver) edge,
+ * and newly found propagations are scheduled in reverse postorder of the control flow graph,
+ * so that a block is usually analysed after all of its forward predecessors.
  * <br>
  * <b>Usage Example:</b>
  * <pre>{@code
@@ -31,15 +39,26 @@ public class MethodAnalyser {
     private final InstructionsHolder instructions;
     private final LabelsHolder labels;
     private final LocalVariablesHolder locals;
+    private final ClassHierarchyResolver hierarchy;
     private final InstructionInfo nop;
 
     private final List<InstructionSetAnalyser> analysers;
-    private final List<FramePropagation> pendingPropagations;
+    private final Map<LabelInfo, InstructionSetAnalyser> analysersByLabel;
+    private final Map<LabelInfo, List<LabelInfo>> successors;
+    /**
+     * Instruction sets in reverse postorder of the control flow graph.
+     * Sets unreachable from the method entry (e.g. exception handlers) follow the reachable ones.
+     */
+    private final List<LabelInfo> reversePostOrder;
+    private final Map<LabelInfo, Integer> scheduleOrder;
+    private final Deque<FramePropagation> pendingPropagations;
     private final Map<FramePropagation, InstructionSetAnalysisResult> confirmedAnalysisResults;
+    private final Map<PropagationEdge, FramePropagation> confirmedPropagations;
     private final Map<LabelInfo, BitSet> liveLocalsAtEntry;
 
     private int maxStackSize;
     private int maxLocalSize;
+    private long propagationCount;
 
     public MethodAnalyser(@NotNull FileEvaluatingReporter context,
                           @NotNull ClassNode ownerClazz,
@@ -47,11 +66,22 @@ public class MethodAnalyser {
                           @NotNull InstructionsHolder instructions,
                           @NotNull LabelsHolder labels,
                           @NotNull LocalVariablesHolder locals) {
+        this(context, ownerClazz, method, instructions, labels, locals, CachingClassHierarchyResolver.getShared());
+    }
+
+    public MethodAnalyser(@NotNull FileEvaluatingReporter context,
+                          @NotNull ClassNode ownerClazz,
+                          @NotNull MethodNode method,
+                          @NotNull InstructionsHolder instructions,
+                          @NotNull LabelsHolder labels,
+                          @NotNull LocalVariablesHolder locals,
+                          @NotNull ClassHierarchyResolver hierarchy) {
         this.context = context;
         this.method = method;
         this.instructions = instructions;
         this.labels = labels;
         this.locals = locals;
+        this.hierarchy = hierarchy;
         this.nop = new InstructionInfo(
                 new InstructionEvaluatorNop(),
                 ownerClazz,
@@ -63,8 +93,13 @@ public class MethodAnalyser {
                 -1
         );
         this.analysers = new ArrayList<>();
-        this.pendingPropagations = new ArrayList<>();
-        this.confirmedAnalysisResults = new HashMap<>();
+        this.analysersByLabel = new HashMap<>();
+        this.successors = new HashMap<>();
+        this.reversePostOrder = new ArrayList<>();
+        this.scheduleOrder = new HashMap<>();
+        this.pendingPropagations = new ArrayDeque<>();
+        this.confirmedAnalysisResults = new LinkedHashMap<>();
+        this.confirmedPropagations = new HashMap<>();
         this.liveLocalsAtEntry = new HashMap<>();
     }
 
@@ -74,10 +109,11 @@ public class MethodAnalyser {
             @NotNull LabelsHolder labels,
             @NotNull LabelInfo label,
             @NotNull List<InstructionInfo> instructions,
-            @NotNull Map<LabelInfo, BitSet> liveLocalsAtEntry) {
+            @NotNull Map<LabelInfo, BitSet> liveLocalsAtEntry,
+            @NotNull ClassHierarchyResolver hierarchy) {
         return instructions.isEmpty()
                 ? null
-                : new InstructionSetAnalyser(context, labels, label, instructions, liveLocalsAtEntry);
+                : new InstructionSetAnalyser(context, labels, label, instructions, liveLocalsAtEntry, hierarchy);
     }
 
     /**
@@ -86,19 +122,28 @@ public class MethodAnalyser {
      * @return The method analysis result.
      */
     public MethodAnalysisResult analyse() {
-        this.context.postInfo("Analysing method: " + this.method.name + " in class: " + this.method.desc);
-        this.context.postDebug("Preparing analyser state for method: " + this.method.name + this.method.desc);
+        if (this.context.isInfoEnabled())
+            this.context.postInfo("Analysing method: " + this.method.name + " in class: " + this.method.desc);
+        if (this.context.isDebugEnabled())
+            this.context.postDebug("Preparing analyser state for method: " + this.method.name + this.method.desc);
 
         // Make analyse() re-entrant: it can be called multiple times on the same instance.
         this.analysers.clear();
+        this.analysersByLabel.clear();
+        this.successors.clear();
+        this.reversePostOrder.clear();
+        this.scheduleOrder.clear();
         this.pendingPropagations.clear();
         this.confirmedAnalysisResults.clear();
+        this.confirmedPropagations.clear();
         this.maxStackSize = 0;
         this.maxLocalSize = 0;
+        this.propagationCount = 0;
 
         this.createAnalysers();
         if (this.analysers.isEmpty()) {
-            this.context.postInfo("There are no instruction sets to analyse in method: " + this.method.name);
+            if (this.context.isInfoEnabled())
+                this.context.postInfo("There are no instruction sets to analyse in method: " + this.method.name);
             return MethodAnalysisResult.empty(this.method);  // インストラクションセットがない場合は空の結果を返す
         }
         this.printAnalyseTargets();
@@ -109,15 +154,18 @@ public class MethodAnalyser {
         this.maxStackSize = Math.max(this.maxStackSize, firstPropagation.maxStackSize());
         this.maxLocalSize = Math.max(this.maxLocalSize, firstPropagation.maxLocalSize());
         this.pendingPropagations.add(firstPropagation);
-        this.context.postDebug("Initial propagation queued: " + firstPropagation);
+        if (this.context.isDebugEnabled())
+            this.context.postDebug("Initial propagation queued: " + firstPropagation);
 
         // 各インストラクション・セットのスタックとローカル変数の動きを解析
         this.analyseLoop();
-        this.pendingPropagations.addAll(this.createExceptionHandlerPropagations());
-        this.context.postDebug("Exception handler propagation pass queued " + this.pendingPropagations.size() +
-                " propagation(s).");
+        this.enqueuePropagations(this.createExceptionHandlerPropagations());
+        if (this.context.isDebugEnabled())
+            this.context.postDebug("Exception handler propagation pass queued " + this.pendingPropagations.size() +
+                    " propagation(s).");
         this.analyseLoop();
         this.maxLocalSize = Math.max(this.maxLocalSize, this.locals.getMaxLocalSize());
+        this.recordCounts();
 
         // 分析が完了したら，結果を返答
         return new MethodAnalysisResult(
@@ -129,99 +177,125 @@ public class MethodAnalyser {
         );
     }
 
+    private void recordCounts() {
+        String methodName = this.method.name + this.method.desc;
+        long mergeCount = 0;
+        for (InstructionSetAnalyser analyser : this.analysers)
+            mergeCount += analyser.getMergeCount();
+
+        this.context.recordCount(CompileCounter.PROPAGATIONS, methodName, this.propagationCount);
+        this.context.recordCount(CompileCounter.MERGES, methodName, mergeCount);
+    }
+
     private void analyseLoop() {
-        long startTime = System.currentTimeMillis();
         long iterationCount = 0;
         while (!this.pendingPropagations.isEmpty()) {
             iterationCount++;
-            if (iterationCount % 5 == 0) {
-                long elapsedTime = System.currentTimeMillis() - startTime;
-                this.context.postInfo("Processing propagation: " + iterationCount +
-                        ", Pending: " + this.pendingPropagations.size() +
-                        ", Elapsed: " + elapsedTime + "ms");
-            }
+            this.propagationCount++;
 
-            FramePropagation propagation = this.pendingPropagations.removeFirst();
-            this.context.postDebug("Dequeued propagation #" + iterationCount + ": " + propagation +
-                    ", remaining pending: " + this.pendingPropagations.size());
+            FramePropagation propagation = this.pendingPropagations.poll();
+            if (this.context.isDebugEnabled())
+                this.context.postDebug("Dequeued propagation #" + iterationCount + ": " + propagation +
+                        ", remaining pending: " + this.pendingPropagations.size());
             LabelInfo receiver = propagation.receiver();
 
             if (receiver == this.labels.getGlobalEnd()) {
-                this.context.postDebug("Reached global end label, stopping analysis for branch: " + propagation.sender()
-                        .name());
+                if (this.context.isDebugEnabled())
+                    this.context.postDebug("Reached global end label, stopping analysis for branch: " +
+                            propagation.sender().name());
                 continue;  // グローバル終了ラベルに到達した場合、分析を停止
             }
 
             this.analysePropagation(propagation);
         }
 
-        long elapsedTime = System.currentTimeMillis() - startTime;
-        this.context.postInfo("Analysis completed for method: " + this.method.name +
-                ", Total iterations: " + iterationCount +
-                ", Max stack size: " + this.maxStackSize +
-                ", Max local size: " + this.maxLocalSize +
-                ", Elapsed time: " + elapsedTime + "ms");
+        if (this.context.isInfoEnabled())
+            this.context.postInfo("Analysis completed for method: " + this.method.name +
+                    ", Total iterations: " + iterationCount +
+                    ", Max stack size: " + this.maxStackSize +
+                    ", Max local size: " + this.maxLocalSize);
     }
 
     private void analysePropagation(@NotNull FramePropagation propagation) {
         LabelInfo sender = propagation.sender();
         LabelInfo receiver = propagation.receiver();
-        this.context.postDebug("Analysing propagation for jump " + sender.name() + " -> " + receiver.name() +
-                ", Stack size: " + propagation.stack().length +
-                ", Local size: " + propagation.locals().length +
-                ", Stack: " + StackElementUtils.stackToString(propagation.stack()) +
-                ", Locals: " + StackElementUtils.stackToString(propagation.locals()));
-
-        for (InstructionSetAnalyser analyser : this.analysers) {
-            if (!analyser.getLabel().equals(receiver))  // 該当するインストラクション・セットを探す
-                continue;
+        if (this.context.isDebugEnabled())
+            this.context.postDebug("Analysing propagation for jump " + sender.name() + " -> " + receiver.name() +
+                    ", Stack size: " + propagation.stack().length +
+                    ", Local size: " + propagation.locals().length +
+                    ", Stack: " + StackElementUtils.stackToString(propagation.stack()) +
+                    ", Locals: " + StackElementUtils.stackToString(propagation.locals()));
+
+        InstructionSetAnalyser analyser = this.analysersByLabel.get(receiver);  // 該当するインストラクション・セットを探す
+        if (analyser == null) {
+            if (this.context.isDebugEnabled())
+                this.context.postDebug("No instruction set found for propagation receiver " + receiver.name());
+            return;
+        }
 
+        if (this.context.isDebugEnabled())
             this.context.postDebug("Matched propagation receiver " + receiver.name() +
                     " to instruction set with " + analyser.getInstructions().size() + " instruction(s).");
-            InstructionSetAnalysisResult analysisResult = analyser.analyse(propagation);
-            this.confirmedAnalysisResults.put(propagation, analysisResult);  // 分析結果を確定
-            this.updateMaxes(analysisResult);
+        InstructionSetAnalysisResult analysisResult = analyser.analyse(propagation);
+        // 分析結果を確定
+        this.confirmedAnalysisResults.put(propagation, analysisResult);
+        this.confirmedPropagations.put(new PropagationEdge(sender, receiver), propagation);
+        this.updateMaxes(analysisResult);
+        if (this.context.isDebugEnabled())
             this.context.postDebug("Confirmed propagation " + sender.name() + " -> " + receiver.name() +
                     ", result stack: " + StackElementUtils.stackToString(analysisResult.stack()) +
                     ", result locals: " + StackElementUtils.stackToString(analysisResult.locals()) +
                     ", emitted propagations: " + analysisResult.framePropagations().length);
-            for (FramePropagation nextPropagation : analysisResult.framePropagations()) {
-                if (this.checkConfirmedPropagation(nextPropagation)) {
+
+        List<FramePropagation> newPropagations = new ArrayList<>();
+        for (FramePropagation nextPropagation : analysisResult.framePropagations()) {
+            if (this.checkConfirmedPropagation(nextPropagation)) {
+                if (this.context.isDebugEnabled())
                     this.context.postDebug("New propagation found: " + nextPropagation);
-                    this.pendingPropagations.add(nextPropagation);  // 新しい伝播を追加
-                }
-                else
-                    this.context.postDebug("Skipping already-confirmed propagation: " + nextPropagation);
+                newPropagations.add(nextPropagation);  // 新しい伝播を追加
             }
-            break;
+            else if (this.context.isDebugEnabled())
+                this.context.postDebug("Skipping already-confirmed propagation: " + nextPropagation);
         }
+        this.enqueuePropagations(newPropagations);
     }
 
-    private boolean checkConfirmedPropagation(@NotNull FramePropagation propagation) {
-        Iterator<FramePropagation> iterator = this.confirmedAnalysisResults.keySet().iterator();
-        while (iterator.hasNext()) {
-            FramePropagation confirmed = iterator.next();
-            if (confirmed.sender().equals(propagation.sender()) &&
-                    confirmed.receiver().equals(propagation.receiver())) {
-                // 既に同じ送信元と受信先の伝播が存在する場合、スタックとローカル変数を比較
-                if (Arrays.equals(confirmed.stack(), propagation.stack()) &&
-                        Arrays.equals(confirmed.locals(), propagation.locals()))
-                    return false;  // 同じスタックとローカル変数の組み合わせが既に存在する
-                else {
-                    this.context.postDebug("Found existing propagation with different stack/locals: " + confirmed +
-                            ", replacement: " + propagation);
-                    // 既存の伝播と異なるスタックやローカル変数がある場合、更新する
-                    iterator.remove();  // 古い伝播を削除
-                    return true;  // 新しい伝播を追加する必要がある
-                }
-            }
-        }
+    private void enqueuePropagations(@NotNull List<FramePropagation> propagations) {
+        // 受信先を逆後順で並べてからキューに積むことで，合流点をなるべく先行ブロックの後に解析する
+        propagations.stream()
+                .sorted(Comparator.comparingInt(propagation -> this.getScheduleOrder(propagation.receiver())))
+                .forEach(this.pendingPropagations::add);
+    }
+
+    private int getScheduleOrder(@NotNull LabelInfo label) {
+        Integer order = this.scheduleOrder.get(label);
+        return order == null ? Integer.MAX_VALUE : order;
+    }
 
-        // 既存の伝播に同じ送信元と受信先がない場合、新しい伝播として追加
+    private boolean checkConfirmedPropagation(@NotNull FramePropagation propagation) {
+        PropagationEdge edge = new PropagationEdge(propagation.sender(), propagation.receiver());
+        FramePropagation confirmed = this.confirmedPropagations.get(edge);
+        if (confirmed == null)
+            return true;  // 既存の伝播に同じ送信元と受信先がない場合、新しい伝播として追加
+
+        // 既に同じ送信元と受信先の伝播が存在する場合、スタックとローカル変数を比較
+        if (Arrays.equals(confirmed.stack(), propagation.stack()) &&
+                Arrays.equals(confirmed.locals(), propagation.locals()))
+            return false;  // 同じスタックとローカル変数の組み合わせが既に存在する
+
+        if (this.context.isDebugEnabled())
+            this.context.postDebug("Found existing propagation with different stack/locals: " + confirmed +
+                    ", replacement: " + propagation);
+        // 既存の伝播と異なるスタックやローカル変数がある場合、古い伝播を削除して更新する
+        this.confirmedPropagations.remove(edge);
+        this.confirmedAnalysisResults.remove(confirmed);
         return true;
     }
 
     private void printAnalyseTargets() {
+        if (!this.context.isInfoEnabled())
+            return;
+
         this.context.postInfo("Analysing the following instruction sets in method: " + this.method.name);
         for (InstructionSetAnalyser analyser : this.analysers)
             this.context.postInfo(" - Name: " + analyser.getLabel().name() +
@@ -239,7 +313,7 @@ public class MethodAnalyser {
 
         LocalVariableInfo[] locals = this.locals.getParameters();
         LocalStackElement[] localStack = this.createLocalStack(locals);
-        if (localStack.length == 0)
+        if (localStack.length == 0 && this.context.isInfoEnabled())
             this.context.postInfo("No local variables found for method: " + this.method.name);
 
         return new FramePropagation(
@@ -350,56 +424,110 @@ public class MethodAnalyser {
                     this.labels,
                     label,
                     instructions,
-                    this.liveLocalsAtEntry
+                    this.liveLocalsAtEntry,
+                    this.hierarchy
             );
             if (analyser == null) {
-                this.context.postDebug(String.format(
-                        "No instructions found for label: %s, creating empty analyser.",
-                        label.name()
-                ));
+                if (this.context.isDebugEnabled())
+                    this.context.postDebug(String.format(
+                            "No instructions found for label: %s, creating empty analyser.",
+                            label.name()
+                    ));
                 continue;
             }
 
             this.analysers.add(analyser);
+            this.analysersByLabel.put(label, analyser);
         }
 
+        for (InstructionSetAnalyser analyser : this.analysers)
+            this.successors.put(analyser.getLabel(), this.getSuccessors(analyser.getLabel()));
+
+        this.computeReversePostOrder();
         this.computeLiveLocalsAtEntry();
     }
 
+    private void computeReversePostOrder() {
+        Set<LabelInfo> visited = new HashSet<>();
+        // メソッドの入口から辿れるブロックを先に，到達できないブロック（例外ハンドラなど）をその後に並べる
+        this.appendReversePostOrder(this.labels.getGlobalStart(), visited);
+        for (InstructionSetAnalyser analyser : this.analysers)
+            this.appendReversePostOrder(analyser.getLabel(), visited);
+
+        for (int i = 0; i < this.reversePostOrder.size(); i++)
+            this.scheduleOrder.put(this.reversePostOrder.get(i), i);
+    }
+
+    private void appendReversePostOrder(@NotNull LabelInfo root, @NotNull Set<? super LabelInfo> visited) {
+        if (!this.analysersByLabel.containsKey(root) || !visited.add(root))
+            return;
+
+        // ラベル数が多いメソッドでもスタックを溢れさせないように，再帰を使わずに深さ優先探索する
+        List<LabelInfo> postOrder = new ArrayList<>();
+        Deque<LabelInfo> path = new ArrayDeque<>();
+        Deque<Iterator<LabelInfo>> pendingSuccessors = new ArrayDeque<>();
+        path.push(root);
+        pendingSuccessors.push(this.successors.get(root).iterator());
+        while (!path.isEmpty()) {
+            Iterator<LabelInfo> iterator = pendingSuccessors.peek();
+            if (iterator.hasNext()) {
+                LabelInfo successor = iterator.next();
+                if (this.analysersByLabel.containsKey(successor) && visited.add(successor)) {
+                    path.push(successor);
+                    pendingSuccessors.push(this.successors.get(successor).iterator());
+                }
+                continue;
+            }
+
+            pendingSuccessors.pop();
+            postOrder.add(path.pop());
+        }
+
+        this.reversePostOrder.addAll(postOrder.reversed());
+    }
+
     private void computeLiveLocalsAtEntry() {
         this.liveLocalsAtEntry.clear();
         for (InstructionSetAnalyser analyser : this.analysers)
             this.liveLocalsAtEntry.put(analyser.getLabel(), new BitSet());
 
+        // 後ろ向きの解析なので，後順（逆後順の逆）に辿ると少ないパスで収束する
+        List<LabelInfo> postOrder = this.reversePostOrder.reversed();
+
         boolean updated;
         int pass = 0;
         do {
             pass++;
             updated = false;
-            for (int i = this.analysers.size() - 1; i >= 0; i--) {
-                InstructionSetAnalyser analyser = this.analysers.get(i);
+            for (LabelInfo label : postOrder) {
+                InstructionSetAnalyser analyser = this.analysersByLabel.get(label);
                 BitSet nextLive = this.computeLiveLocalsAtEntry(analyser);
                 BitSet previousLive = this.liveLocalsAtEntry.get(analyser.getLabel());
                 if (!nextLive.equals(previousLive)) {
-                    this.context.postDebug("Live locals changed at " + analyser.getLabel().name() +
-                            " on pass " + pass + ": " + previousLive + " -> " + nextLive);
+                    if (this.context.isDebugEnabled())
+                        this.context.postDebug("Live locals changed at " + analyser.getLabel().name() +
+                                " on pass " + pass + ": " + previousLive + " -> " + nextLive);
                     this.liveLocalsAtEntry.put(analyser.getLabel(), nextLive);
                     updated = true;
                 }
             }
         }
         while (updated);
-        this.context.postDebug("Live local analysis converged in " + pass + " pass(es): " + this.liveLocalsAtEntry);
+        if (this.context.isDebugEnabled())
+            this.context.postDebug("Live local analysis converged in " + pass + " pass(es): " + this.liveLocalsAtEntry);
     }
 
     private @NotNull BitSet computeLiveLocalsAtEntry(@NotNull InstructionSetAnalyser analyser) {
         BitSet liveLocals = this.computeLiveLocalsAtExit(analyser.getLabel());
-        this.context.postDebug("Initial live locals at exit of " + analyser.getLabel().name() + ": " + liveLocals);
+        if (this.context.isDebugEnabled())
+            this.context.postDebug("Initial live locals at exit of " + analyser.getLabel().name() + ": " + liveLocals);
         List<InstructionInfo> instructions = analyser.getInstructions();
+        boolean debug = this.context.isDebugEnabled();
         for (int i = instructions.size() - 1; i >= 0; i--) {
-            BitSet before = (BitSet) liveLocals.clone();
+            // 変化の報告のためだけの複製なので，デバッグ出力が無効なら作らない
+            BitSet before = debug ? (BitSet) liveLocals.clone() : null;
             this.applyInstructionLiveness(instructions.get(i), liveLocals);
-            if (!before.equals(liveLocals))
+            if (debug && !before.equals(liveLocals))
                 this.context.postDebug("Liveness after walking " + instructions.get(i) +
                         " backwards: " + before + " -> " + liveLocals);
         }
@@ -409,12 +537,13 @@ public class MethodAnalyser {
 
     private @NotNull BitSet computeLiveLocalsAtExit(@NotNull LabelInfo label) {
         BitSet liveLocals = new BitSet();
-        for (LabelInfo successor : this.getSuccessors(label)) {
+        for (LabelInfo successor : this.successors.getOrDefault(label, List.of())) {
             BitSet successorLive = this.liveLocalsAtEntry.get(successor);
             if (successorLive != null)
                 liveLocals.or(successorLive);
         }
-        this.context.postDebug("Computed live locals at exit of " + label.name() + ": " + liveLocals);
+        if (this.context.isDebugEnabled())
+            this.context.postDebug("Computed live locals at exit of " + label.name() + ": " + liveLocals);
         return liveLocals;
     }
 
@@ -520,4 +649,7 @@ public class MethodAnalyser {
             default -> 1;
         };
     }
+
+    private record PropagationEdge(@NotNull LabelInfo sender, @NotNull LabelInfo receiver) {
+    }
 }
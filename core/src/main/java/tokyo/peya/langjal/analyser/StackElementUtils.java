@@ -3,6 +3,8 @@ package tokyo.peya.langjal.analyser;
 import lombok.experimental.UtilityClass;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import tokyo.peya.langjal.analyser.hierarchy.CachingClassHierarchyResolver;
+import tokyo.peya.langjal.analyser.hierarchy.ClassHierarchyResolver;
 import tokyo.peya.langjal.analyser.stack.*;
 import tokyo.peya.langjal.compiler.exceptions.analyse.StackElementMismatchedException;
 import tokyo.peya.langjal.compiler.exceptions.analyse.StackSizeDifferentException;
@@ -21,6 +23,8 @@ import java.util.List;
  * as well as for finding common super types and converting stack elements to string representations.
  * <br>
  * These utilities are essential for stack frame verification and merging in JVM analysis.
+ * Class hierarchies are looked up through a {@link ClassHierarchyResolver};
+ * overloads without a resolver use {@link CachingClassHierarchyResolver#getShared()}.
  * <br>
  * <b>Usage Example:</b>
  * <pre>{@code
@@ -81,12 +85,33 @@ public class StackElementUtils {
      */
     public static LocalStackElement[] mergeLocals(@NotNull LocalStackElement[] existingLocal,
                                                   @NotNull LocalStackElement[] newLocal) {
-        return mergeLocals(existingLocal, newLocal, Math.min(existingLocal.length, newLocal.length));
+        return mergeLocals(existingLocal, newLocal, CachingClassHierarchyResolver.getShared());
+    }
+
+    /**
+     * Merges two local variable arrays, checking type consistency and removing trailing TOP elements.
+     *
+     * @param existingLocal The first local variable array.
+     * @param newLocal      The second local variable array.
+     * @param hierarchy     The resolver used to merge object types.
+     * @return The merged local variable array.
+     */
+    public static LocalStackElement[] mergeLocals(@NotNull LocalStackElement[] existingLocal,
+                                                  @NotNull LocalStackElement[] newLocal,
+                                                  @NotNull ClassHierarchyResolver hierarchy) {
+        return mergeLocals(existingLocal, newLocal, Math.min(existingLocal.length, newLocal.length), hierarchy);
     }
 
     public static LocalStackElement[] mergeLocals(@NotNull LocalStackElement[] existingLocal,
                                                   @NotNull LocalStackElement[] newLocal,
                                                   @Nullable BitSet liveLocals) {
+        return mergeLocals(existingLocal, newLocal, liveLocals, CachingClassHierarchyResolver.getShared());
+    }
+
+    public static LocalStackElement[] mergeLocals(@NotNull LocalStackElement[] existingLocal,
+                                                  @NotNull LocalStackElement[] newLocal,
+                                                  @Nullable BitSet liveLocals,
+                                                  @NotNull ClassHierarchyResolver hierarchy) {
         int maxLocalSize = Math.max(existingLocal.length, newLocal.length);
         LocalStackElement[] mergedLocals = new LocalStackElement[maxLocalSize];
         for (int i = 0; i < maxLocalSize; i++) {
@@ -107,7 +132,7 @@ public class StackElementUtils {
             mergedLocals[i] = new LocalStackElement(
                     existingLocalElement.producer(),
                     i,
-                    mergeElement(existingElement, newElement),
+                    mergeElement(existingElement, newElement, hierarchy),
                     existingLocalElement.isParameter() || newLocalElement.isParameter()
             );
         }
@@ -126,6 +151,22 @@ public class StackElementUtils {
     public static LocalStackElement[] mergeLocals(@NotNull LocalStackElement[] existingLocal,
                                                   @NotNull LocalStackElement[] newLocal,
                                                   int minLocalSize) {
+        return mergeLocals(existingLocal, newLocal, minLocalSize, CachingClassHierarchyResolver.getShared());
+    }
+
+    /**
+     * Merges two local variable arrays up to the specified minimum size.
+     *
+     * @param existingLocal The first local variable array.
+     * @param newLocal      The second local variable array.
+     * @param minLocalSize  The minimum size to merge.
+     * @param hierarchy     The resolver used to merge object types.
+     * @return The merged local variable array.
+     */
+    public static LocalStackElement[] mergeLocals(@NotNull LocalStackElement[] existingLocal,
+                                                  @NotNull LocalStackElement[] newLocal,
+                                                  int minLocalSize,
+                                                  @NotNull ClassHierarchyResolver hierarchy) {
         if (minLocalSize > existingLocal.length || minLocalSize > newLocal.length)
             throw new IllegalArgumentException(
                     "minLocalSize must be less than or equal to the length of both existingLocal and newLocal arrays."
@@ -143,7 +184,7 @@ public class StackElementUtils {
             mergedLocals[i] = new LocalStackElement(
                     existingLocalElement.producer(),
                     i,
-                    mergeElement(existingElement, newElement),
+                    mergeElement(existingElement, newElement, hierarchy),
                     existingLocalElement.isParameter() || newLocalElement.isParameter()
             );
         }
@@ -212,6 +253,23 @@ public class StackElementUtils {
     public static StackElement[] mergeStack(@NotNull LabelInfo frameLabel,
                                             @NotNull StackElement[] existingStack,
                                             @NotNull StackElement[] newStack) {
+        return mergeStack(frameLabel, existingStack, newStack, CachingClassHierarchyResolver.getShared());
+    }
+
+    /**
+     * Merges two stack arrays, checking type consistency.
+     * Throws if stack sizes or types differ.
+     *
+     * @param frameLabel    The label for error reporting.
+     * @param existingStack The first stack array.
+     * @param newStack      The second stack array.
+     * @param hierarchy     The resolver used to merge object types.
+     * @return The merged stack array.
+     */
+    public static StackElement[] mergeStack(@NotNull LabelInfo frameLabel,
+                                            @NotNull StackElement[] existingStack,
+                                            @NotNull StackElement[] newStack,
+                                            @NotNull ClassHierarchyResolver hierarchy) {
         checkStackSize(frameLabel, "stack", List.of(existingStack), List.of(newStack));
 
         StackElement[] mergedStack = new StackElement[existingStack.length];
@@ -222,7 +280,7 @@ public class StackElementUtils {
             checkSameType(existingElement, newElement);
 
             // スタック要素をマージする
-            mergedStack[i] = mergeElement(existingElement, newElement);
+            mergedStack[i] = mergeElement(existingElement, newElement, hierarchy);
         }
 
         return mergedStack;
@@ -277,6 +335,20 @@ public class StackElementUtils {
      * @return The merged stack element.
      */
     public static StackElement mergeElement(@NotNull StackElement existingElement, @NotNull StackElement newElement) {
+        return mergeElement(existingElement, newElement, CachingClassHierarchyResolver.getShared());
+    }
+
+    /**
+     * Merges two stack elements, handling object types and nulls.
+     * For object types, finds a common super type if needed.
+     *
+     * @param existingElement The first stack element.
+     * @param newElement      The second stack element.
+     * @param hierarchy       The resolver used to merge object types.
+     * @return The merged stack element.
+     */
+    public static StackElement mergeElement(@NotNull StackElement existingElement, @NotNull StackElement newElement,
+                                            @NotNull ClassHierarchyResolver hierarchy) {
         StackElementUtils.checkSameType(existingElement, newElement);
 
         // null は任意の参照型に代入可能なので merge 後は参照型側を採用する
@@ -294,7 +366,7 @@ public class StackElementUtils {
             // オブジェクト型はマージする
             case OBJECT -> {
                 assert newElement instanceof ObjectElement;  // #checkType() でチェック済み
-                yield mergeObjects((ObjectElement) existingElement, (ObjectElement) newElement);
+                yield mergeObjects((ObjectElement) existingElement, (ObjectElement) newElement, hierarchy);
             }
             case UNINITIALIZED_THIS, UNINITIALIZED -> newElement;  // Uninitialized は新しい要素をそのまま返す
         };
@@ -302,6 +374,12 @@ public class StackElementUtils {
 
     public static void checkAssignableTo(@NotNull StackElement actualElement,
                                          @NotNull StackElement expectedElement) {
+        checkAssignableTo(actualElement, expectedElement, CachingClassHierarchyResolver.getShared());
+    }
+
+    public static void checkAssignableTo(@NotNull StackElement actualElement,
+                                         @NotNull StackElement expectedElement,
+                                         @NotNull ClassHierarchyResolver hierarchy) {
         if (actualElement instanceof NullElement && expectedElement instanceof ObjectElement)
             return;
 
@@ -316,7 +394,7 @@ public class StackElementUtils {
                 && (expectedElement instanceof ObjectElement expectedObject)))
             return;
 
-        if (!isObjectAssignableTo(actualObject.content(), expectedObject.content()))
+        if (!isObjectAssignableTo(actualObject.content(), expectedObject.content(), hierarchy))
             throw new StackElementMismatchedException(
                     actualElement.producer(), expectedElement, actualElement,
                     "Cannot assign object " + actualObject.content() +
@@ -325,7 +403,8 @@ public class StackElementUtils {
     }
 
     private static boolean isObjectAssignableTo(@NotNull TypeDescriptor actualType,
-                                                @NotNull TypeDescriptor expectedType) {
+                                                @NotNull TypeDescriptor expectedType,
+                                                @NotNull ClassHierarchyResolver hierarchy) {
         if (actualType.equals(expectedType))
             return true;
 
@@ -333,20 +412,20 @@ public class StackElementUtils {
             return true;
 
         if (actualType.isArray() || expectedType.isArray())
-            return isArrayAssignableTo(actualType, expectedType);
+            return isArrayAssignableTo(actualType, expectedType, hierarchy);
 
         if (actualType.getBaseType().isPrimitive() || expectedType.getBaseType().isPrimitive())
             return false;
 
-        ClassReferenceType commonSuperType = getCommonSuperType(
-                (ClassReferenceType) actualType.getBaseType(),
-                (ClassReferenceType) expectedType.getBaseType()
+        return hierarchy.isAssignableFrom(
+                ((ClassReferenceType) expectedType.getBaseType()).getInternalName(),
+                ((ClassReferenceType) actualType.getBaseType()).getInternalName()
         );
-        return commonSuperType.equals(expectedType.getBaseType());
     }
 
     private static boolean isArrayAssignableTo(@NotNull TypeDescriptor actualType,
-                                               @NotNull TypeDescriptor expectedType) {
+                                               @NotNull TypeDescriptor expectedType,
+                                               @NotNull ClassHierarchyResolver hierarchy) {
         if (!actualType.isArray())
             return false;
         if (expectedType.equals(TypeDescriptor.OBJECT))
@@ -361,7 +440,7 @@ public class StackElementUtils {
         if (actualType.getBaseType().isPrimitive() || expectedType.getBaseType().isPrimitive())
             return false;
 
-        return isObjectAssignableTo(componentType(actualType), componentType(expectedType));
+        return isObjectAssignableTo(componentType(actualType), componentType(expectedType), hierarchy);
     }
 
     private static @NotNull TypeDescriptor componentType(@NotNull TypeDescriptor type) {
@@ -385,23 +464,37 @@ public class StackElementUtils {
      * @return The merged object element.
      */
     public static ObjectElement mergeObjects(@NotNull ObjectElement existingObject, @NotNull ObjectElement newObject) {
+        return mergeObjects(existingObject, newObject, CachingClassHierarchyResolver.getShared());
+    }
+
+    /**
+     * Merges two object stack elements, finding their common super type if needed.
+     *
+     * @param existingObject The first object element.
+     * @param newObject      The second object element.
+     * @param hierarchy      The resolver used to find the common super type.
+     * @return The merged object element.
+     */
+    public static ObjectElement mergeObjects(@NotNull ObjectElement existingObject, @NotNull ObjectElement newObject,
+                                             @NotNull ClassHierarchyResolver hierarchy) {
         TypeDescriptor existingType = existingObject.content();
         TypeDescriptor newType = newObject.content();
         if (existingType.equals(newType))
             return newObject;
 
-        TypeDescriptor mergedType = getCommonReferenceType(existingType, newType);
+        TypeDescriptor mergedType = getCommonReferenceType(existingType, newType, hierarchy);
         return new ObjectElement(newObject.producer(), mergedType);
     }
 
     private static @NotNull TypeDescriptor getCommonReferenceType(@NotNull TypeDescriptor existingType,
-                                                                  @NotNull TypeDescriptor newType) {
+                                                                  @NotNull TypeDescriptor newType,
+                                                                  @NotNull ClassHierarchyResolver hierarchy) {
         if (existingType.getBaseType().equals(ClassReferenceType.OBJECT)
                 || newType.getBaseType().equals(ClassReferenceType.OBJECT))
             return TypeDescriptor.OBJECT;
 
         if (existingType.isArray() || newType.isArray())
-            return getCommonArrayType(existingType, newType);
+            return getCommonArrayType(existingType, newType, hierarchy);
 
         if (existingType.getBaseType().isPrimitive() || newType.getBaseType().isPrimitive()) {
             throw new IllegalArgumentException(
@@ -412,13 +505,15 @@ public class StackElementUtils {
 
         ClassReferenceType commonSuperType = getCommonSuperType(
                 (ClassReferenceType) existingType.getBaseType(),
-                (ClassReferenceType) newType.getBaseType()
+                (ClassReferenceType) newType.getBaseType(),
+                hierarchy
         );
         return new TypeDescriptor(commonSuperType);
     }
 
     private static @NotNull TypeDescriptor getCommonArrayType(@NotNull TypeDescriptor existingType,
-                                                              @NotNull TypeDescriptor newType) {
+                                                              @NotNull TypeDescriptor newType,
+                                                              @NotNull ClassHierarchyResolver hierarchy) {
         if (!(existingType.isArray() && newType.isArray()))
             return TypeDescriptor.OBJECT;
 
@@ -433,7 +528,8 @@ public class StackElementUtils {
 
         ClassReferenceType commonSuperType = getCommonSuperType(
                 (ClassReferenceType) existingType.getBaseType(),
-                (ClassReferenceType) newType.getBaseType()
+                (ClassReferenceType) newType.getBaseType(),
+                hierarchy
         );
         return new TypeDescriptor(commonSuperType, existingType.getArrayDimensions());
     }
@@ -448,32 +544,33 @@ public class StackElementUtils {
      */
     public static ClassReferenceType getCommonSuperType(@NotNull ClassReferenceType type1,
                                                         @NotNull ClassReferenceType type2) {
-        ClassLoader classLoader = ClassReferenceType.class.getClassLoader();
-        Class<?> class1, class2;
-        try {
-            class1 = Class.forName(type1.getDottedName(), false, classLoader);
-            class2 = Class.forName(type2.getDottedName(), false, classLoader);
-        } catch (ClassNotFoundException e) {
-            return type1;  // クラスが見つからない場合は，片方の型をそのまま返す
-        }
-
-        if (class1.isAssignableFrom(class2))
-            return type1;  // type1 が type2 のスーパークラスなら type1 を返す
-        else if (class2.isAssignableFrom(class1))
-            return type2;  // type2 が type1 のスーパークラスなら type2 を返す
-
-        if (class1.isInterface() || class2.isInterface())
-            return ClassReferenceType.parse(Object.class.getName());  // インターフェースの場合は Object を返す
-
-        while (!class1.isAssignableFrom(class2)) {
-            Class<?> newClass1 = class1.getSuperclass();
-            if (newClass1 == null)
-                return ClassReferenceType.OBJECT;
-            class1 = newClass1;
-        }
+        return getCommonSuperType(type1, type2, CachingClassHierarchyResolver.getShared());
+    }
 
-        // 共通のスーパークラスを返す。 Object まで到達するので，その時は Object を返す
-        return ClassReferenceType.parse(class1.getName());
+    /**
+     * Finds the common super type of two class reference types.
+     * If either is an interface, or a class in their hierarchies cannot be resolved, returns Object.
+     *
+     * @param type1     The first class reference type.
+     * @param type2     The second class reference type.
+     * @param hierarchy The resolver used to look up the class hierarchies.
+     * @return The common super type.
+     */
+    public static ClassReferenceType getCommonSuperType(@NotNull ClassReferenceType type1,
+                                                        @NotNull ClassReferenceType type2,
+                                                        @NotNull ClassHierarchyResolver hierarchy) {
+        if (type1.equals(type2))
+            return type1;
+
+        String commonSuperClass = hierarchy.getCommonSuperClass(type1.getInternalName(), type2.getInternalName());
+        if (commonSuperClass == null)
+            return ClassReferenceType.OBJECT;  // 階層を辿れない場合は，検証器が必ず受け入れる Object にする
+        else if (commonSuperClass.equals(type1.getInternalName()))
+            return type1;
+        else if (commonSuperClass.equals(type2.getInternalName()))
+            return type2;
+
+        return ClassReferenceType.parse(commonSuperClass);
     }
 
     static String stackToString(@NotNull Collection<? extends StackElement> stack) {
@@ -1,7 +1,10 @@
 package tokyo.peya.langjal.analyser;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.objectweb.asm.tree.MethodNode;
+import tokyo.peya.langjal.analyser.hierarchy.CachingClassHierarchyResolver;
+import tokyo.peya.langjal.analyser.hierarchy.ClassHierarchyResolver;
 import tokyo.peya.langjal.analyser.stack.LocalStackElement;
 import tokyo.peya.langjal.analyser.stack.StackElement;
 import tokyo.peya.langjal.compiler.FileEvaluatingReporter;
@@ -23,6 +26,7 @@ import java.util.Map;
 public class StackFrameMapCreator {
     private final FileEvaluatingReporter context;
     private final MethodNode method;
+    private final ClassHierarchyResolver hierarchy;
 
     private final Map<LabelInfo, InstructionSetFrame> frames;
 
@@ -34,8 +38,22 @@ public class StackFrameMapCreator {
      * @param method  the method for which the stack frame map is created
      */
     public StackFrameMapCreator(@NotNull FileEvaluatingReporter context, @NotNull MethodNode method) {
+        this(context, method, CachingClassHierarchyResolver.getShared());
+    }
+
+    /**
+     * Constructor for StackFrameMapCreator.
+     * Initializes the map of stack frames for a given method.
+     *
+     * @param context   the context for reporting evaluation messages
+     * @param method    the method for which the stack frame map is created
+     * @param hierarchy the resolver used to merge object types of frames
+     */
+    public StackFrameMapCreator(@NotNull FileEvaluatingReporter context, @NotNull MethodNode method,
+                                @NotNull ClassHierarchyResolver hierarchy) {
         this.context = context;
         this.method = method;
+        this.hierarchy = hierarchy;
 
         this.frames = new HashMap<>();
     }
@@ -58,14 +76,19 @@ public class StackFrameMapCreator {
         return isSameStack(stack1, stack2, stack1.length);
     }
 
-    private static InstructionSetFrame mergeFrames(@NotNull InstructionSetFrame frame1,
-                                                   @NotNull InstructionSetFrame frame2) {
+    private InstructionSetFrame mergeFrames(@NotNull InstructionSetFrame frame1,
+                                            @NotNull InstructionSetFrame frame2) {
         StackElement[] mergedStack = StackElementUtils.mergeStack(
                 frame1.label(),
                 frame1.stack(),
-                frame2.stack()
+                frame2.stack(),
+                this.hierarchy
+        );
+        LocalStackElement[] mergedLocals = StackElementUtils.mergeLocals(
+                frame1.locals(),
+                frame2.locals(),
+                this.hierarchy
         );
-        LocalStackElement[] mergedLocals = StackElementUtils.mergeLocals(frame1.locals(), frame2.locals());
         StackElementUtils.cleanUpLocals(mergedLocals);
 
         return new InstructionSetFrame(frame1.label(), mergedStack, mergedLocals);
@@ -80,10 +103,12 @@ public class StackFrameMapCreator {
      *                     for each instruction in the method
      */
     public void updateFrames(@NotNull FramePropagation[] propagations) {
-        this.context.postInfo("Updating stack frames for method: " + this.method.name);
+        if (this.context.isInfoEnabled())
+            this.context.postInfo("Updating stack frames for method: " + this.method.name);
         for (FramePropagation propagation : propagations)
             this.updateFrame(propagation);
-        this.context.postInfo("Finished updating stack frames for method: " + this.method.name);
+        if (this.context.isInfoEnabled())
+            this.context.postInfo("Finished updating stack frames for method: " + this.method.name);
     }
 
     /**
@@ -113,20 +138,35 @@ public class StackFrameMapCreator {
             return;
         }
 
-        this.context.postDebug("Merging frame at " + label.name() + " with existing frame.");
+        if (this.context.isDebugEnabled())
+            this.context.postDebug("Merging frame at " + label.name() + " with existing frame.");
 
         // 既に同じものがあったら，スタックとローカル変数をマージする。
         InstructionSetFrame existingFrame = this.frames.get(label);
-        this.context.postDebug("Existing frame: " + this.formatFrame(existingFrame));
-        this.context.postDebug("Incoming frame: " + this.formatFrame(newFrame));
-        InstructionSetFrame mergedFrame = mergeFrames(existingFrame, newFrame);
+        if (this.context.isDebugEnabled()) {
+            this.context.postDebug("Existing frame: " + this.formatFrame(existingFrame));
+            this.context.postDebug("Incoming frame: " + this.formatFrame(newFrame));
+        }
+        InstructionSetFrame mergedFrame = this.mergeFrames(existingFrame, newFrame);
 
-        this.context.postDebug("Merged frame at " + label.name() + ":");
+        if (this.context.isDebugEnabled())
+            this.context.postDebug("Merged frame at " + label.name() + ":");
         this.printFrame(mergedFrame);
 
         this.frames.put(label, mergedFrame);
     }
 
+    /**
+     * Returns the frame at the given label, merged from every propagation to it so far.
+     *
+     * @param label the label which the frame is at
+     * @return the frame, or null if no propagation reaches the label
+     */
+    @Nullable
+    public InstructionSetFrame getFrame(@NotNull LabelInfo label) {
+        return this.frames.get(label);
+    }
+
     /**
      * Creates a stack frame map for the method.
      * This method processes all the frames collected and computes the next frame
@@ -143,7 +183,8 @@ public class StackFrameMapCreator {
      * If there is only one frame or none, it returns an empty array.
      */
     public StackFrameMapEntry[] createStackFrameMap() {
-        this.context.postInfo("Creating stack frame map for method: " + this.method.name);
+        if (this.context.isInfoEnabled())
+            this.context.postInfo("Creating stack frame map for method: " + this.method.name);
         // フレームをラベルのインデックス順にする
         List<InstructionSetFrame> frames =
                 this.frames.values().stream()
@@ -161,12 +202,14 @@ public class StackFrameMapCreator {
             InstructionSetFrame previous = frames.get(i);
             InstructionSetFrame next = frames.get(i + 1);
             StackFrameMapEntry nextFrame = computeNextFrame(previous, next);
-            this.context.postDebug("Computed StackMap frame transition " + previous.label().name() +
-                    " -> " + next.label().name() + ": " + nextFrame);
+            if (this.context.isDebugEnabled())
+                this.context.postDebug("Computed StackMap frame transition " + previous.label().name() +
+                        " -> " + next.label().name() + ": " + nextFrame);
             stackFrameMap[i] = nextFrame;
         }
 
-        this.context.postInfo("Stack frame map created with " + stackFrameMap.length + " entries.");
+        if (this.context.isInfoEnabled())
+            this.context.postInfo("Stack frame map created with " + stackFrameMap.length + " entries.");
         return stackFrameMap;
     }
 
@@ -236,6 +279,9 @@ public class StackFrameMapCreator {
     }
 
     private void printFrames(List<InstructionSetFrame> frames) {
+        if (!this.context.isDebugEnabled())
+            return;
+
         this.context.postDebug("----- Stack Frames of " + this.method.name + " -----");
         if (this.frames.isEmpty()) {
             this.context.postDebug("No stack frames found.");
@@ -246,7 +292,8 @@ public class StackFrameMapCreator {
     }
 
     private void printFrame(@NotNull InstructionSetFrame frame) {
-        this.context.postDebug(this.formatFrame(frame));
+        if (this.context.isDebugEnabled())
+            this.context.postDebug(this.formatFrame(frame));
     }
 
     private @NotNull String formatFrame(@NotNull InstructionSetFrame frame) {
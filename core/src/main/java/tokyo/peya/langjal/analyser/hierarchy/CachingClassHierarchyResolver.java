@@ -0,0 +1,306 @@
+package tokyo.peya.langjal.analyser.hierarchy;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A {@link ClassHierarchyResolver} which reads class headers from {@link ClassFileSource}s
+ * and caches them, together with the complete set of super types of each class.
+ * <p>
+ * Classes registered with {@link #register(ClassHierarchyInfo)} take precedence, followed by the parent resolver if any,
+ * and then the sources in order.
+ * After the first lookup, assignability checks are a single set lookup.
+ * <br>
+ * <b>Usage Example:</b>
+ * <pre>{@code
+ * try (CachingClassHierarchyResolver resolver = CachingClassHierarchyResolver.ofClasspath(classpath)) {
+ *     JALFileCompiler compiler = new JALFileCompiler(reporter, outputDir, settings, resolver);
+ *     ...
+ * }
+ * }</pre>
+ */
+public class CachingClassHierarchyResolver implements ClassHierarchyResolver, Closeable {
+    /**
+     * The resolver asked before the sources, typically a long-lived one for the platform classes.
+     */
+    @Nullable
+    private final ClassHierarchyResolver parent;
+    private final List<ClassFileSource> sources;
+    /**
+     * Resolved and registered classes.
+     */
+    private final Map<String, ClassHierarchyInfo> hierarchies;
+    /**
+     * Classes which were not found in any source. A class is removed from here when it is registered.
+     */
+    private final Set<String> missingClasses;
+    private final Map<String, Set<String>> superTypes;
+    /**
+     * The lock which {@link #register(ClassHierarchyInfo)} and the caching of lookups are done under.
+     */
+    private final Object registrationLock;
+    /**
+     * Incremented on each registration which changes a hierarchy,
+     * so that lookups done before it are not cached after it.
+     */
+    private volatile int generation;
+
+    public CachingClassHierarchyResolver(@NotNull List<? extends ClassFileSource> sources) {
+        this(null, sources);
+    }
+
+    public CachingClassHierarchyResolver(@Nullable ClassHierarchyResolver parent,
+                                         @NotNull List<? extends ClassFileSource> sources) {
+        this.parent = parent;
+        this.sources = List.copyOf(sources);
+        this.hierarchies = new ConcurrentHashMap<>();
+        this.missingClasses = ConcurrentHashMap.newKeySet();
+        this.superTypes = new ConcurrentHashMap<>();
+        this.registrationLock = new Object();
+    }
+
+    /**
+     * Returns the resolver shared by analyses which are not given a resolver explicitly.
+     * It resolves classes in the same way as {@link #createDefault()}.
+     * <p>
+     * Classes being compiled must not be registered to this resolver, because it outlives any compilation.
+     *
+     * @return The shared resolver.
+     */
+    @NotNull
+    public static CachingClassHierarchyResolver getShared() {
+        return SharedHolder.INSTANCE;
+    }
+
+    /**
+     * Returns the resolver of the platform classes, read from the runtime image.
+     * It lives as long as the JVM, so that a long-running process reads each platform class only once.
+     * <p>
+     * Classes being compiled must not be registered to this resolver; use it as the parent of another one instead.
+     *
+     * @return The platform resolver.
+     */
+    @NotNull
+    public static CachingClassHierarchyResolver getPlatform() {
+        return PlatformHolder.INSTANCE;
+    }
+
+    /**
+     * Creates a resolver which asks {@link #getPlatform()} for the platform classes,
+     * and reads any other class from the class path of the compiler itself.
+     * <p>
+     * The platform classes are shared with every other resolver created by this method,
+     * and the created resolver holds no resources of its own, so it need not be closed.
+     *
+     * @return The created resolver.
+     */
+    @NotNull
+    public static CachingClassHierarchyResolver createDefault() {
+        return new CachingClassHierarchyResolver(
+                getPlatform(),
+                List.of(new ClassLoaderClassFileSource(CachingClassHierarchyResolver.class.getClassLoader()))
+        );
+    }
+
+    /**
+     * Creates a resolver which reads the platform classes from the runtime image,
+     * and any other class from the given class path entries.
+     *
+     * @param classpath The class path entries, which are directories or jar files.
+     * @return The created resolver.
+     * @throws IOException If a jar file cannot be opened.
+     */
+    @NotNull
+    public static CachingClassHierarchyResolver ofClasspath(@NotNull Collection<Path> classpath) throws IOException {
+        List<ClassFileSource> sources = new ArrayList<>();
+        sources.add(new JrtClassFileSource());
+        try {
+            for (Path entry : classpath)
+                sources.add(ClassFileSource.of(entry));
+        } catch (IOException e) {
+            closeAll(sources, e);
+            throw e;
+        }
+
+        return new CachingClassHierarchyResolver(sources);
+    }
+
+    /**
+     * Creates a resolver which asks the given parent first,
+     * and then reads classes from the given class path entries.
+     *
+     * @param parent    The parent resolver, e.g. {@link #getPlatform()}. It is not closed by the created resolver.
+     * @param classpath The class path entries, which are directories or jar files.
+     * @return The created resolver.
+     * @throws IOException If a jar file cannot be opened.
+     */
+    @NotNull
+    public static CachingClassHierarchyResolver ofClasspath(@NotNull ClassHierarchyResolver parent,
+                                                            @NotNull Collection<Path> classpath) throws IOException {
+        List<ClassFileSource> sources = new ArrayList<>();
+        try {
+            for (Path entry : classpath)
+                sources.add(ClassFileSource.of(entry));
+        } catch (IOException e) {
+            closeAll(sources, e);
+            throw e;
+        }
+
+        return new CachingClassHierarchyResolver(parent, sources);
+    }
+
+    private static void closeAll(@NotNull List<? extends ClassFileSource> sources, @NotNull IOException cause) {
+        for (ClassFileSource source : sources) {
+            try {
+                source.close();
+            } catch (IOException e) {
+                cause.addSuppressed(e);
+            }
+        }
+    }
+
+    @Override
+    @Nullable
+    public ClassHierarchyInfo resolve(@NotNull String internalName) {
+        ClassHierarchyInfo cached = this.hierarchies.get(internalName);
+        if (cached != null || this.missingClasses.contains(internalName))
+            return cached;
+
+        // 読み込み中にロックを握らないように，computeIfAbsent ではなく読み込み後に putIfAbsent する
+        int generation = this.generation;
+        ClassHierarchyInfo loaded = this.load(internalName);
+        if (loaded == null) {
+            synchronized (this.registrationLock) {
+                // 読み込み中に登録されたクラスを，見つからなかったものとして覚えないようにする
+                if (this.generation == generation && !this.hierarchies.containsKey(internalName))
+                    this.missingClasses.add(internalName);
+            }
+            return this.hierarchies.get(internalName);
+        }
+
+        cached = this.hierarchies.putIfAbsent(internalName, loaded);
+        return cached == null ? loaded : cached;
+    }
+
+    @Nullable
+    private ClassHierarchyInfo load(@NotNull String internalName) {
+        if (this.parent != null) {
+            ClassHierarchyInfo inherited = this.parent.resolve(internalName);
+            if (inherited != null)
+                return inherited;
+        }
+
+        for (ClassFileSource source : this.sources) {
+            try {
+                byte[] classFile = source.readClassFile(internalName);
+                if (classFile != null)
+                    return ClassHierarchyInfo.fromClassFile(classFile);
+            } catch (IOException | RuntimeException e) {
+                // 読めないクラスファイルは無視して，次のソースを探す
+            }
+        }
+
+        return null;
+    }
+
+    @Override
+    public void register(@NotNull ClassHierarchyInfo info) {
+        synchronized (this.registrationLock) {
+            ClassHierarchyInfo previous = this.hierarchies.put(info.name(), info);
+            this.missingClasses.remove(info.name());
+            if (info.equals(previous))
+                return;  // 先に登録した階層と同じなら，計算済みのものはそのまま使える
+
+            // 登録したクラスを経由する階層が変わり得るので，計算済みの上位型は捨てる
+            this.generation++;
+            this.superTypes.clear();
+        }
+    }
+
+    @Override
+    public boolean isAssignableFrom(@NotNull String type, @NotNull String other) {
+        if (type.equals(other) || type.equals(OBJECT))
+            return true;
+
+        return this.getSuperTypes(other).contains(type);
+    }
+
+    /**
+     * Returns the class itself and all of its super classes and super interfaces
+     * which can be reached through resolvable classes.
+     *
+     * @param internalName The internal name of the class.
+     * @return An unmodifiable set of internal names.
+     */
+    @NotNull
+    public Set<String> getSuperTypes(@NotNull String internalName) {
+        Set<String> cached = this.superTypes.get(internalName);
+        if (cached != null)
+            return cached;
+
+        int generation = this.generation;
+        Set<String> collected = new HashSet<>();
+        Deque<String> pending = new ArrayDeque<>();
+        pending.add(internalName);
+        while (!pending.isEmpty()) {
+            String current = pending.poll();
+            if (!collected.add(current))
+                continue;
+
+            ClassHierarchyInfo info = this.resolve(current);
+            if (info == null)
+                continue;
+            if (info.superName() != null)
+                pending.add(info.superName());
+            pending.addAll(info.interfaces());
+        }
+
+        Set<String> superTypes = Set.copyOf(collected);
+        synchronized (this.registrationLock) {
+            // 計算中に登録があれば，古い階層から求めた結果なのでキャッシュしない
+            if (this.generation == generation)
+                this.superTypes.putIfAbsent(internalName, superTypes);
+        }
+        return superTypes;
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (ClassFileSource source : this.sources) {
+            try {
+                source.close();
+            } catch (IOException e) {
+                if (failure == null)
+                    failure = e;
+                else
+                    failure.addSuppressed(e);
+            }
+        }
+
+        if (failure != null)
+            throw failure;
+    }
+
+    private static final class SharedHolder {
+        private static final CachingClassHierarchyResolver INSTANCE = createDefault();
+    }
+
+    private static final class PlatformHolder {
+        private static final CachingClassHierarchyResolver INSTANCE =
+                new CachingClassHierarchyResolver(List.of(new JrtClassFileSource()));
+    }
+}
@@ -0,0 +1,46 @@
+package tokyo.peya.langjal.analyser.hierarchy;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A location which class files can be read from, such as a directory, a jar file or the runtime image.
+ * <p>
+ * Class files are returned as raw bytes; no class is loaded or initialised.
+ * Implementations must be safe to use from multiple threads.
+ */
+public interface ClassFileSource extends Closeable {
+    /**
+     * Creates a source for a classpath entry.
+     * Directories are read as class directories, and any other file is read as a jar file.
+     *
+     * @param path The classpath entry.
+     * @return The source of the entry.
+     * @throws IOException If the jar file cannot be opened.
+     */
+    @NotNull
+    static ClassFileSource of(@NotNull Path path) throws IOException {
+        if (Files.isDirectory(path))
+            return new DirectoryClassFileSource(path);
+        return new JarClassFileSource(path);
+    }
+
+    /**
+     * Reads the class file of the given class.
+     *
+     * @param internalName The internal name of the class, e.g. {@code java/lang/String}.
+     * @return The bytes of the class file, or null if this source does not contain the class.
+     * @throws IOException If the class file exists but cannot be read.
+     */
+    byte @Nullable [] readClassFile(@NotNull String internalName) throws IOException;
+
+    @Override
+    default void close() throws IOException {
+        // 既定では，解放するリソースを持たない
+    }
+}
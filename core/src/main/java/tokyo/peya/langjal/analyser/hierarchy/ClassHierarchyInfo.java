@@ -0,0 +1,61 @@
+package tokyo.peya.langjal.analyser.hierarchy;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.tree.ClassNode;
+import tokyo.peya.langjal.compiler.jvm.EOpcodes;
+
+import java.util.List;
+
+/**
+ * The part of a class header which is needed to compute assignability and common super classes.
+ *
+ * @param name        The internal name of the class, e.g. {@code java/lang/String}.
+ * @param superName   The internal name of the super class, or null for {@code java/lang/Object} and modules.
+ * @param interfaces  The internal names of the directly implemented interfaces.
+ * @param isInterface Whether the class is an interface.
+ */
+public record ClassHierarchyInfo(
+        @NotNull
+        String name,
+        @Nullable
+        String superName,
+        @NotNull
+        List<String> interfaces,
+        boolean isInterface
+) {
+    /**
+     * Reads the header of a class file without loading the class.
+     *
+     * @param classFile The bytes of the class file.
+     * @return The hierarchy information of the class.
+     */
+    @NotNull
+    public static ClassHierarchyInfo fromClassFile(byte @NotNull [] classFile) {
+        // ClassReader はヘッダだけを読むので，メソッド本体などは解析されない
+        ClassReader reader = new ClassReader(classFile);
+        return new ClassHierarchyInfo(
+                reader.getClassName(),
+                reader.getSuperName(),
+                List.of(reader.getInterfaces()),
+                (reader.getAccess() & EOpcodes.ACC_INTERFACE) != 0
+        );
+    }
+
+    /**
+     * Creates hierarchy information from a class which is being compiled.
+     *
+     * @param classNode The class node.
+     * @return The hierarchy information of the class.
+     */
+    @NotNull
+    public static ClassHierarchyInfo of(@NotNull ClassNode classNode) {
+        return new ClassHierarchyInfo(
+                classNode.name,
+                classNode.superName,
+                classNode.interfaces == null ? List.of() : List.copyOf(classNode.interfaces),
+                (classNode.access & EOpcodes.ACC_INTERFACE) != 0
+        );
+    }
+}
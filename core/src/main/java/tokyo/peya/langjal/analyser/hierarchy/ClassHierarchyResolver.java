@@ -0,0 +1,117 @@
+package tokyo.peya.langjal.analyser.hierarchy;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Resolves the super class and interfaces of classes, which is needed to merge stack frames
+ * and to check the assignability of references during analysis.
+ * <p>
+ * Implementations must not load the classes they resolve, and must be safe to use from multiple threads,
+ * because one resolver is shared by every method and file of a compilation.
+ *
+ * @see CachingClassHierarchyResolver
+ */
+public interface ClassHierarchyResolver {
+    /**
+     * The internal name of {@code java.lang.Object}.
+     */
+    String OBJECT = "java/lang/Object";
+
+    /**
+     * Resolves the hierarchy information of a class.
+     *
+     * @param internalName The internal name of the class, e.g. {@code java/lang/String}.
+     * @return The hierarchy information, or null if the class cannot be found.
+     */
+    @Nullable
+    ClassHierarchyInfo resolve(@NotNull String internalName);
+
+    /**
+     * Registers a class which is being compiled, so that it can be resolved
+     * even though its class file does not exist yet.
+     * <p>
+     * The default implementation ignores the class.
+     *
+     * @param info The hierarchy information of the class.
+     */
+    default void register(@NotNull ClassHierarchyInfo info) {
+        // 既定では何もしない
+    }
+
+    /**
+     * Checks whether a value of type {@code other} can be assigned to {@code type},
+     * i.e. {@code type} is {@code other} itself, or one of its super classes or super interfaces.
+     *
+     * @param type  The internal name of the target type.
+     * @param other The internal name of the assigned type.
+     * @return True if assignable. Classes that cannot be resolved are treated as having no super types.
+     */
+    default boolean isAssignableFrom(@NotNull String type, @NotNull String other) {
+        if (type.equals(other) || type.equals(OBJECT))
+            return true;
+
+        Deque<String> pending = new ArrayDeque<>();
+        Set<String> visited = new HashSet<>();
+        pending.add(other);
+        while (!pending.isEmpty()) {
+            String current = pending.poll();
+            if (!visited.add(current))
+                continue;
+            if (current.equals(type))
+                return true;
+
+            ClassHierarchyInfo info = this.resolve(current);
+            if (info == null)
+                continue;
+            if (info.superName() != null)
+                pending.add(info.superName());
+            pending.addAll(info.interfaces());
+        }
+
+        return false;
+    }
+
+    /**
+     * Finds the nearest common super class of two classes, as the JVM verifier does.
+     * If either of them is an interface, and they are not assignable to each other,
+     * {@code java/lang/Object} is returned.
+     *
+     * @param type1 The internal name of the first class.
+     * @param type2 The internal name of the second class.
+     * @return The internal name of the common super class, or null if a class in the hierarchy cannot be resolved.
+     */
+    @Nullable
+    default String getCommonSuperClass(@NotNull String type1, @NotNull String type2) {
+        if (this.isAssignableFrom(type1, type2))
+            return type1;
+        else if (this.isAssignableFrom(type2, type1))
+            return type2;
+
+        ClassHierarchyInfo info1 = this.resolve(type1);
+        ClassHierarchyInfo info2 = this.resolve(type2);
+        if (info1 == null || info2 == null)
+            return null;
+        if (info1.isInterface() || info2.isInterface())
+            return OBJECT;
+
+        // type1 のスーパークラスを遡って，type2 を代入できる最初のクラスを探す
+        String current = info1.superName();
+        while (current != null) {
+            if (this.isAssignableFrom(current, type2))
+                return current;
+
+            ClassHierarchyInfo currentInfo = this.resolve(current);
+            if (currentInfo == null)
+                return null;
+            current = currentInfo.superName();
+        }
+
+        return OBJECT;
+    }
+}
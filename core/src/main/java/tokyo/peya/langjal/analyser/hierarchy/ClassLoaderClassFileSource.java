@@ -0,0 +1,31 @@
+package tokyo.peya.langjal.analyser.hierarchy;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads class files as resources of a class loader.
+ * The classes are not loaded; only their class files are read.
+ */
+public class ClassLoaderClassFileSource implements ClassFileSource {
+    private final ClassLoader classLoader;
+
+    public ClassLoaderClassFileSource(@NotNull ClassLoader classLoader) {
+        this.classLoader = classLoader;
+    }
+
+    @Override
+    public byte @Nullable [] readClassFile(@NotNull String internalName) throws IOException {
+        try (InputStream in = this.classLoader.getResourceAsStream(internalName + ".class")) {
+            return in == null ? null : in.readAllBytes();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "class loader " + this.classLoader;
+    }
+}
@@ -0,0 +1,57 @@
+package tokyo.peya.langjal.analyser.hierarchy;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Where the class file of a class was found by a {@link ClasspathIndex}.
+ *
+ * @param kind    The kind of the classpath entry containing the class file.
+ * @param path    The class file for {@link Kind#DIRECTORY} and {@link Kind#RUNTIME_IMAGE},
+ *                or the jar file for {@link Kind#ARCHIVE}.
+ * @param archive The opened jar file for {@link Kind#ARCHIVE}, shared with the index; null otherwise.
+ * @param entry   The entry of the class file in the jar file for {@link Kind#ARCHIVE}; null otherwise.
+ */
+public record ClassLocation(@NotNull Kind kind, @NotNull Path path,
+                            @Nullable ZipFile archive, @Nullable ZipEntry entry) {
+    /**
+     * Reads the class file.
+     * The jar file of an archive location must not have been closed with its index.
+     *
+     * @return The bytes of the class file.
+     * @throws IOException If the class file cannot be read.
+     */
+    public byte @NotNull [] read() throws IOException {
+        if (this.archive == null || this.entry == null)
+            return Files.readAllBytes(this.path);
+
+        try (InputStream in = this.archive.getInputStream(this.entry)) {
+            return in.readAllBytes();
+        }
+    }
+
+    /**
+     * The kind of a classpath entry.
+     */
+    public enum Kind {
+        /**
+         * A class output directory laid out by package.
+         */
+        DIRECTORY,
+        /**
+         * A jar or zip file.
+         */
+        ARCHIVE,
+        /**
+         * The {@code jrt:/} image of the running JDK.
+         */
+        RUNTIME_IMAGE
+    }
+}
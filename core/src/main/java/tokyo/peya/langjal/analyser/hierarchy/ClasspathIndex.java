@@ -0,0 +1,219 @@
+package tokyo.peya.langjal.analyser.hierarchy;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * An index from the internal name of each class on a class path to the location of its class file.
+ * <p>
+ * The index is built once: directories are walked and the central directories of jar files are read up front,
+ * so that a lookup is a single map access instead of a probe of every classpath entry.
+ * Jar files stay open and are shared by every lookup until the index is closed.
+ * Platform classes are looked up in the runtime image by package, as {@link JrtClassFileSource} does.
+ * As on a class path, a class found in several entries is taken from the first of them.
+ * <p>
+ * Classes added to the class path after the index was built are not seen;
+ * {@link #isStale()} tells whether an indexed directory or jar file has been modified since.
+ * The index is a {@link ClassFileSource}, so it can be given to a {@link CachingClassHierarchyResolver}.
+ */
+public class ClasspathIndex implements ClassFileSource {
+    private static final String CLASS_SUFFIX = ".class";
+
+    private final Map<String, ClassLocation> locations;
+    private final List<ZipFile> archives;
+    private final Map<Path, FileTime> timestamps;
+    @Nullable
+    private final JrtClassFileSource runtimeImage;
+
+    private ClasspathIndex(@NotNull Map<String, ClassLocation> locations, @NotNull List<ZipFile> archives,
+                           @NotNull Map<Path, FileTime> timestamps, @Nullable JrtClassFileSource runtimeImage) {
+        this.locations = Collections.unmodifiableMap(locations);
+        this.archives = List.copyOf(archives);
+        this.timestamps = Collections.unmodifiableMap(timestamps);
+        this.runtimeImage = runtimeImage;
+    }
+
+    /**
+     * Builds an index of the given classpath entries.
+     * Directories are indexed as class directories, and any other existing file as a jar file.
+     * Entries which do not exist are ignored.
+     *
+     * @param classpath           The classpath entries, in order of precedence.
+     * @param includeRuntimeImage Whether to look up classes missing from the entries in the runtime image.
+     * @return The index.
+     * @throws IOException If a directory cannot be walked or a jar file cannot be opened.
+     */
+    @NotNull
+    public static ClasspathIndex build(@NotNull Collection<Path> classpath, boolean includeRuntimeImage) throws IOException {
+        Map<String, ClassLocation> locations = new HashMap<>();
+        List<ZipFile> archives = new ArrayList<>();
+        Map<Path, FileTime> timestamps = new LinkedHashMap<>();
+        try {
+            for (Path entry : classpath) {
+                if (Files.isDirectory(entry))
+                    indexDirectory(entry, locations, timestamps);
+                else if (Files.isRegularFile(entry))
+                    archives.add(indexArchive(entry, locations, timestamps));
+            }
+        } catch (IOException e) {
+            for (ZipFile archive : archives) {
+                try {
+                    archive.close();
+                } catch (IOException closeError) {
+                    e.addSuppressed(closeError);
+                }
+            }
+            throw e;
+        }
+
+        JrtClassFileSource runtimeImage = includeRuntimeImage ? new JrtClassFileSource() : null;
+        return new ClasspathIndex(locations, archives, timestamps, runtimeImage);
+    }
+
+    private static void indexDirectory(@NotNull Path root, @NotNull Map<String, ClassLocation> locations,
+                                       @NotNull Map<Path, FileTime> timestamps) throws IOException {
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                // クラスの追加・削除はディレクトリの更新日時に現れるので，これだけを覚えておけば古くなったか分かる
+                timestamps.put(dir, attrs.lastModifiedTime());
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                String entryName = root.relativize(file).toString().replace('\\', '/');
+                if (attrs.isRegularFile() && entryName.endsWith(CLASS_SUFFIX))
+                    locations.putIfAbsent(
+                            toInternalName(entryName),
+                            new ClassLocation(ClassLocation.Kind.DIRECTORY, file, null, null)
+                    );
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    @NotNull
+    private static ZipFile indexArchive(@NotNull Path path, @NotNull Map<String, ClassLocation> locations,
+                                        @NotNull Map<Path, FileTime> timestamps) throws IOException {
+        timestamps.put(path, Files.getLastModifiedTime(path));
+        ZipFile archive = new ZipFile(path.toFile());
+        Enumeration<? extends ZipEntry> entries = archive.entries();
+        while (entries.hasMoreElements()) {
+            ZipEntry entry = entries.nextElement();
+            String entryName = entry.getName();
+            // META-INF 配下（マルチリリース JAR の別バージョンなど）はクラスパス上のクラスではない
+            if (entry.isDirectory() || !entryName.endsWith(CLASS_SUFFIX) || entryName.startsWith("META-INF/"))
+                continue;
+
+            locations.putIfAbsent(
+                    toInternalName(entryName),
+                    new ClassLocation(ClassLocation.Kind.ARCHIVE, path, archive, entry)
+            );
+        }
+        return archive;
+    }
+
+    @NotNull
+    private static String toInternalName(@NotNull String entryName) {
+        return entryName.substring(0, entryName.length() - CLASS_SUFFIX.length());
+    }
+
+    /**
+     * Finds the class file of the given class.
+     *
+     * @param internalName The internal name of the class, e.g. {@code java/lang/String}.
+     * @return The location of the class file, or null if neither the class path nor the runtime image contains it.
+     * @throws IOException If the runtime image cannot be searched.
+     */
+    @Nullable
+    public ClassLocation find(@NotNull String internalName) throws IOException {
+        ClassLocation location = this.locations.get(internalName);
+        if (location != null || this.runtimeImage == null)
+            return location;
+
+        Path classFile = this.runtimeImage.findClassFile(internalName);
+        if (classFile == null)
+            return null;
+
+        return new ClassLocation(ClassLocation.Kind.RUNTIME_IMAGE, classFile, null, null);
+    }
+
+    /**
+     * Returns the internal names of the classes on the class path, excluding the runtime image.
+     *
+     * @return The internal names, in no particular order.
+     */
+    @NotNull
+    public Set<String> getClassNames() {
+        return this.locations.keySet();
+    }
+
+    /**
+     * Returns whether a directory or jar file of the class path has been modified, added to or removed
+     * since the index was built, so that the index may miss classes or point to ones which are gone.
+     *
+     * @return {@code true} if the index should be rebuilt.
+     */
+    public boolean isStale() {
+        for (Map.Entry<Path, FileTime> entry : this.timestamps.entrySet()) {
+            try {
+                if (!Files.getLastModifiedTime(entry.getKey()).equals(entry.getValue()))
+                    return true;
+            } catch (IOException e) {
+                return true;  // 消えたディレクトリや JAR ファイル
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public byte @Nullable [] readClassFile(@NotNull String internalName) throws IOException {
+        ClassLocation location = this.find(internalName);
+        if (location == null)
+            return null;
+
+        return location.read();
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOException error = null;
+        for (ZipFile archive : this.archives) {
+            try {
+                archive.close();
+            } catch (IOException e) {
+                if (error == null)
+                    error = e;
+                else
+                    error.addSuppressed(e);
+            }
+        }
+        if (error != null)
+            throw error;
+    }
+
+    @Override
+    public String toString() {
+        return "classpath index of " + this.locations.size() + " classes";
+    }
+}
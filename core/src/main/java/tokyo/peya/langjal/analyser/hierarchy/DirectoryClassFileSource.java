@@ -0,0 +1,33 @@
+package tokyo.peya.langjal.analyser.hierarchy;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Reads class files from a class output directory laid out by package.
+ */
+public class DirectoryClassFileSource implements ClassFileSource {
+    private final Path root;
+
+    public DirectoryClassFileSource(@NotNull Path root) {
+        this.root = root;
+    }
+
+    @Override
+    public byte @Nullable [] readClassFile(@NotNull String internalName) throws IOException {
+        Path classFile = this.root.resolve(internalName + ".class");
+        if (!Files.isRegularFile(classFile))
+            return null;
+
+        return Files.readAllBytes(classFile);
+    }
+
+    @Override
+    public String toString() {
+        return "directory " + this.root;
+    }
+}
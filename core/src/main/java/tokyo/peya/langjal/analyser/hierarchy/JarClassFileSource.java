@@ -0,0 +1,45 @@
+package tokyo.peya.langjal.analyser.hierarchy;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Reads class files from a jar file.
+ * The jar is opened once and kept open until this source is closed.
+ */
+public class JarClassFileSource implements ClassFileSource {
+    private final Path path;
+    private final ZipFile jar;
+
+    public JarClassFileSource(@NotNull Path path) throws IOException {
+        this.path = path;
+        this.jar = new ZipFile(path.toFile());
+    }
+
+    @Override
+    public byte @Nullable [] readClassFile(@NotNull String internalName) throws IOException {
+        ZipEntry entry = this.jar.getEntry(internalName + ".class");
+        if (entry == null || entry.isDirectory())
+            return null;
+
+        try (InputStream in = this.jar.getInputStream(entry)) {
+            return in.readAllBytes();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.jar.close();
+    }
+
+    @Override
+    public String toString() {
+        return "jar " + this.path;
+    }
+}
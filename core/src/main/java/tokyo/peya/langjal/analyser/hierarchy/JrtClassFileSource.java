@@ -0,0 +1,89 @@
+package tokyo.peya.langjal.analyser.hierarchy;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Reads class files of the platform classes from the {@code jrt:/} image of the running JDK.
+ * <p>
+ * The image lists the modules which contain each package under {@code /packages},
+ * so that a class is looked up only in the modules of its package.
+ */
+public class JrtClassFileSource implements ClassFileSource {
+    private final FileSystem jrt;
+    private final Map<String, List<String>> modulesByPackage;
+
+    public JrtClassFileSource() {
+        this.jrt = FileSystems.getFileSystem(URI.create("jrt:/"));
+        this.modulesByPackage = new ConcurrentHashMap<>();
+    }
+
+    @Override
+    public byte @Nullable [] readClassFile(@NotNull String internalName) throws IOException {
+        Path classFile = this.findClassFile(internalName);
+        if (classFile == null)
+            return null;
+
+        return Files.readAllBytes(classFile);
+    }
+
+    /**
+     * Locates the class file of the given class in the runtime image.
+     *
+     * @param internalName The internal name of the class, e.g. {@code java/lang/String}.
+     * @return The path of the class file in the {@code jrt:/} file system, or null if the image does not contain the class.
+     * @throws IOException If the modules of the package cannot be listed.
+     */
+    @Nullable
+    public Path findClassFile(@NotNull String internalName) throws IOException {
+        int lastSlash = internalName.lastIndexOf('/');
+        if (lastSlash == -1)
+            return null;  // 無名パッケージのクラスはランタイムイメージに含まれない
+
+        String packageName = internalName.substring(0, lastSlash).replace('/', '.');
+        List<String> modules;
+        try {
+            modules = this.modulesByPackage.computeIfAbsent(packageName, this::findModules);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        for (String module : modules) {
+            Path classFile = this.jrt.getPath("/modules", module, internalName + ".class");
+            if (Files.isRegularFile(classFile))
+                return classFile;
+        }
+
+        return null;
+    }
+
+    private List<String> findModules(@NotNull String packageName) {
+        Path packageDirectory = this.jrt.getPath("/packages", packageName);
+        if (!Files.isDirectory(packageDirectory))
+            return List.of();
+
+        // /packages/<パッケージ名>/<モジュール名> というリンクが並んでいる
+        try (Stream<Path> modules = Files.list(packageDirectory)) {
+            return modules.map(module -> module.getFileName().toString()).toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "jrt:/";
+    }
+}
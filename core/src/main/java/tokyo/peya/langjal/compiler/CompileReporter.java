@@ -4,6 +4,7 @@ import org.antlr.v4.runtime.ParserRuleContext;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import tokyo.peya.langjal.compiler.exceptions.CompileErrorException;
+import tokyo.peya.langjal.compiler.metrics.CompileMetricsListener;
 
 import java.nio.file.Path;
 
@@ -75,4 +76,40 @@ public interface CompileReporter {
      * @param ctxt       The parser rule context for the warning.
      */
     void postWarning(@NotNull String message, @NotNull Path sourcePath, @NotNull ParserRuleContext ctxt);
+
+    /**
+     * Checks whether informational messages are reported, or discarded by {@link #postInfo(String, Path)}.
+     * <p>
+     * The compiler skips building messages which would be discarded,
+     * so a reporter which ignores info messages should return false.
+     *
+     * @return true if info messages are reported.
+     */
+    default boolean isInfoEnabled() {
+        return true;
+    }
+
+    /**
+     * Checks whether debug messages are reported, or discarded by {@link #postDebug(String, Path)}.
+     * <p>
+     * Debug messages dump stacks and frames on every propagation, so building them is expensive.
+     * A reporter which ignores debug messages should return false.
+     *
+     * @return true if debug messages are reported.
+     */
+    default boolean isDebugEnabled() {
+        return true;
+    }
+
+    /**
+     * Returns the listener which receives wall times and counters of compilations reported to this reporter.
+     * <p>
+     * The default implementation discards them, so that the compiler does not measure anything.
+     *
+     * @return The metrics listener, or {@link CompileMetricsListener#NONE} to collect no metrics.
+     */
+    @NotNull
+    default CompileMetricsListener getMetricsListener() {
+        return CompileMetricsListener.NONE;
+    }
 }
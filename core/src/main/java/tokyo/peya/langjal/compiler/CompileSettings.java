@@ -27,6 +27,45 @@ public interface CompileSettings {
      */
     int INCLUDE_LINE_NUMBER_TABLE = 0x02;
 
+    /**
+     * Evaluates and analyses the methods of a class concurrently.
+     * The output is the same as without this setting: methods are added to the class in source order.
+     * Messages of different methods may be reported interleaved, so the reporter must be thread-safe.
+     */
+    int PARALLEL_METHODS = 0x04;
+
+    /**
+     * Splits methods whose code exceeds the 65535-byte limit of the JVM into synthetic helper methods,
+     * instead of failing when the class is written.
+     * A method is cut at a label where the operand stack is empty and which is the only way into the code after it,
+     * and the code from there is moved to a {@code private static} method taking the local variables as parameters.
+     * Constructors, class initialisers and methods using {@code jsr}/{@code ret} are not split.
+     */
+    int SPLIT_LARGE_METHODS = 0x08;
+
+    /**
+     * Rewrites redundant instruction sequences into shorter equivalents before the method is written,
+     * such as {@code store x; load x}, {@code dup; pop}, {@code goto} to the next instruction
+     * and {@code ldc} of small constants.
+     * Labelled instructions are never removed, so branch targets and exception handler ranges are kept.
+     */
+    int OPTIMISE_PEEPHOLE = 0x10;
+
+    /**
+     * Removes the instructions which the analysis of the method does not reach,
+     * moving their labels to the next remaining instruction, and drops exception handlers left with empty ranges.
+     * Labels which nothing refers to any more are removed as well, so that they need no stack map frames.
+     */
+    int ELIMINATE_DEAD_CODE = 0x20;
+
+    /**
+     * Simplifies the jumps between labelled blocks: chains of {@code goto}s are threaded,
+     * a conditional branch over a {@code goto} is inverted, {@code goto} to a {@code return} becomes the {@code return},
+     * and loops testing their condition at the top are rotated to test it again at the bottom.
+     * The blocks left unreachable are removed as with {@link #ELIMINATE_DEAD_CODE}.
+     */
+    int OPTIMISE_JUMPS = 0x40;
+
     /**
      * Lightweight compile settings.
      * This setting computes the stack frame map but does not include the line number table.
@@ -3,9 +3,14 @@ package tokyo.peya.langjal.compiler;
 import lombok.AllArgsConstructor;
 import org.antlr.v4.runtime.ParserRuleContext;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import tokyo.peya.langjal.compiler.exceptions.CompileErrorException;
+import tokyo.peya.langjal.compiler.metrics.CompileCounter;
+import tokyo.peya.langjal.compiler.metrics.CompileMetricsListener;
+import tokyo.peya.langjal.compiler.metrics.CompilePhase;
 
 import java.nio.file.Path;
+import java.util.function.Supplier;
 
 /**
  * Reporter that delegates compile-time messages to another reporter,
@@ -49,6 +54,46 @@ public class FileEvaluatingReporter {
         this.delegate.postDebug(message, this.sourcePath);
     }
 
+    /**
+     * Posts an informational message for the source file, building it only if info messages are reported.
+     *
+     * @param message The supplier of the info message.
+     */
+    public void postInfo(@NotNull Supplier<String> message) {
+        if (this.delegate.isInfoEnabled())
+            this.delegate.postInfo(message.get(), this.sourcePath);
+    }
+
+    /**
+     * Posts a detailed debug message for the source file, building it only if debug messages are reported.
+     *
+     * @param message The supplier of the debug message.
+     */
+    public void postDebug(@NotNull Supplier<String> message) {
+        if (this.delegate.isDebugEnabled())
+            this.delegate.postDebug(message.get(), this.sourcePath);
+    }
+
+    /**
+     * Checks whether informational messages are reported.
+     * Hot paths should check this before building a message, so that nothing is allocated when it would be discarded.
+     *
+     * @return true if info messages are reported.
+     */
+    public boolean isInfoEnabled() {
+        return this.delegate.isInfoEnabled();
+    }
+
+    /**
+     * Checks whether debug messages are reported.
+     * Hot paths should check this before building a message, so that nothing is allocated when it would be discarded.
+     *
+     * @return true if debug messages are reported.
+     */
+    public boolean isDebugEnabled() {
+        return this.delegate.isDebugEnabled();
+    }
+
     /**
      * Posts an error message for the source file.
      *
@@ -98,4 +143,52 @@ public class FileEvaluatingReporter {
     public void postWarning(@NotNull String message, @NotNull ParserRuleContext ctxt) {
         this.delegate.postWarning(message, this.sourcePath, ctxt);
     }
+
+    /**
+     * Checks whether metrics of the source file are collected by the underlying reporter.
+     *
+     * @return true if metrics are collected.
+     */
+    public boolean isMetricsEnabled() {
+        return this.delegate.getMetricsListener() != CompileMetricsListener.NONE;
+    }
+
+    /**
+     * Records the wall time of a phase which started at the given time.
+     *
+     * @param phase      The completed phase.
+     * @param methodName The name and descriptor of the method, or null for file phases.
+     * @param startNanos The value of {@link System#nanoTime()} when the phase started.
+     */
+    public void recordPhase(@NotNull CompilePhase phase, @Nullable String methodName, long startNanos) {
+        CompileMetricsListener listener = this.delegate.getMetricsListener();
+        if (listener != CompileMetricsListener.NONE)
+            listener.phaseCompleted(this.sourcePath, methodName, phase, System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Records the wall time of a phase measured by the caller.
+     *
+     * @param phase        The completed phase.
+     * @param methodName   The name and descriptor of the method, or null for file phases.
+     * @param elapsedNanos The wall time the phase took, in nanoseconds.
+     */
+    public void recordElapsed(@NotNull CompilePhase phase, @Nullable String methodName, long elapsedNanos) {
+        CompileMetricsListener listener = this.delegate.getMetricsListener();
+        if (listener != CompileMetricsListener.NONE)
+            listener.phaseCompleted(this.sourcePath, methodName, phase, elapsedNanos);
+    }
+
+    /**
+     * Adds the given amount to a counter of the source file.
+     *
+     * @param counter    The counter.
+     * @param methodName The name and descriptor of the method, or null if not applicable.
+     * @param amount     The amount to add.
+     */
+    public void recordCount(@NotNull CompileCounter counter, @Nullable String methodName, long amount) {
+        CompileMetricsListener listener = this.delegate.getMetricsListener();
+        if (listener != CompileMetricsListener.NONE)
+            listener.counted(this.sourcePath, methodName, counter, amount);
+    }
 }
@@ -6,6 +6,9 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.objectweb.asm.tree.ClassNode;
 import org.objectweb.asm.tree.FieldNode;
+import tokyo.peya.langjal.analyser.hierarchy.CachingClassHierarchyResolver;
+import tokyo.peya.langjal.analyser.hierarchy.ClassHierarchyInfo;
+import tokyo.peya.langjal.analyser.hierarchy.ClassHierarchyResolver;
 import tokyo.peya.langjal.compiler.exceptions.CompileErrorException;
 import tokyo.peya.langjal.compiler.jvm.EOpcodes;
 import tokyo.peya.langjal.compiler.member.JALMethodCompiler;
@@ -15,6 +18,9 @@ import tokyo.peya.langjal.compiler.utils.RuntimeUtils;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 /**
  * Compiles a parsed JAL class definition into an ASM ClassNode.
@@ -36,6 +42,10 @@ public class JALClassCompiler {
      */
     @MagicConstant(valuesFromClass = CompileSettings.class)
     private final int compileFlags;
+    /**
+     * Resolver of class hierarchies, shared by every class of the compilation.
+     */
+    private final ClassHierarchyResolver hierarchy;
 
     /**
      * The compiled ASM ClassNode representing the output class.
@@ -53,9 +63,25 @@ public class JALClassCompiler {
      */
     public JALClassCompiler(@NotNull FileEvaluatingReporter reporter, @Nullable String fileName,
                             @MagicConstant(valuesFromClass = CompileSettings.class) int compileFlags) {
+        this(reporter, fileName, compileFlags, CachingClassHierarchyResolver.createDefault());
+    }
+
+    /**
+     * Constructs a new JALClassCompiler instance.
+     *
+     * @param reporter     The reporter for compilation messages.
+     * @param fileName     The name of the source file.
+     * @param compileFlags Compilation flags.
+     * @param hierarchy    The resolver of class hierarchies used to compute stack frames.
+     *                     The compiled class is registered to it.
+     */
+    public JALClassCompiler(@NotNull FileEvaluatingReporter reporter, @Nullable String fileName,
+                            @MagicConstant(valuesFromClass = CompileSettings.class) int compileFlags,
+                            @NotNull ClassHierarchyResolver hierarchy) {
         this.reporter = reporter;
         this.fileName = fileName;
         this.compileFlags = compileFlags;
+        this.hierarchy = hierarchy;
 
         this.compiledClass = new ClassNode();
         this.methodCompilers = new ArrayList<>();
@@ -139,6 +165,8 @@ public class JALClassCompiler {
      */
     public ClassNode compileClassAST(@NotNull JALParser.ClassDefinitionContext clazz) throws CompileErrorException {
         this.visitClassInformation(this.compiledClass, clazz);
+        // メソッド内でこのクラス自身の型をマージできるように，本体より先に階層を登録する
+        this.hierarchy.register(ClassHierarchyInfo.of(this.compiledClass));
         this.visitClassBody(this.compiledClass, clazz.classBody());
 
         return this.compiledClass;
@@ -157,16 +185,127 @@ public class JALClassCompiler {
         if (body == null)
             return;
 
+        boolean parallel = (this.compileFlags & CompileSettings.PARALLEL_METHODS) != 0;
+        List<JALParser.MethodDefinitionContext> methods = new ArrayList<>();
         List<JALParser.ClassBodyItemContext> items = body.classBodyItem();
         for (JALParser.ClassBodyItemContext item : items) {
             if (item.methodDefinition() != null) {
-                JALMethodCompiler evaluator = new JALMethodCompiler(this.reporter, classNode, this.compileFlags);
-                evaluator.evaluateMethod(item.methodDefinition());
+                JALMethodCompiler evaluator = new JALMethodCompiler(
+                        this.reporter,
+                        classNode,
+                        this.compileFlags,
+                        this.hierarchy
+                );
+                if (parallel)
+                    methods.add(item.methodDefinition());  // 後でまとめて並列にコンパイルする
+                else
+                    evaluator.evaluateMethod(item.methodDefinition());
                 this.methodCompilers.add(evaluator);
             }
             if (item.fieldDefinition() != null)
                 visitField(classNode, item.fieldDefinition());
         }
+
+        if (parallel)
+            this.compileMethodsInParallel(classNode, methods);
+    }
+
+    private void compileMethodsInParallel(@NotNull ClassNode classNode,
+                                          @NotNull List<JALParser.MethodDefinitionContext> methods) {
+        if (methods.size() <= 1 || ForkJoinPool.getCommonPoolParallelism() <= 1) {
+            for (int i = 0; i < methods.size(); i++)
+                this.methodCompilers.get(i).evaluateMethod(methods.get(i));
+            return;
+        }
+
+        // 各メソッドは自身のホルダを持ち，クラスノードには触らないので，独立してコンパイルできる
+        // クラス毎にスレッドを作らないように，共有のプールで動かす
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        List<Future<?>> results = new ArrayList<>(methods.size());
+        for (int i = 0; i < methods.size(); i++) {
+            JALMethodCompiler evaluator = this.methodCompilers.get(i);
+            JALParser.MethodDefinitionContext method = methods.get(i);
+            results.add(pool.submit(() -> evaluator.compileMethod(method)));
+        }
+
+        // 全て終わるのを待ってから，ソースの順番通りにメソッドを追加し，全てのエラーをまとめて投げる
+        Throwable failure = null;
+        try {
+            for (Future<?> result : results) {
+                try {
+                    result.get();
+                } catch (ExecutionException e) {
+                    if (failure == null)
+                        failure = e.getCause();
+                    else
+                        failure.addSuppressed(e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            for (Future<?> result : results)
+                result.cancel(true);
+            throw new IllegalStateException("Interrupted while compiling methods of " + classNode.name, e);
+        }
+
+        for (JALMethodCompiler evaluator : this.methodCompilers) {
+            classNode.methods.add(evaluator.getMethod());
+            classNode.methods.addAll(evaluator.getSplitMethods());
+        }
+
+        if (failure instanceof RuntimeException runtimeException)
+            throw runtimeException;
+        else if (failure instanceof Error error)
+            throw error;
+        else if (failure != null)
+            throw new IllegalStateException("Failed to compile methods of " + classNode.name, failure);
+    }
+
+    /**
+     * Reads the hierarchy of a class from the header of its definition,
+     * which is equal to the one registered when the class is compiled.
+     *
+     * @param header The parsed class header.
+     * @return The hierarchy information of the class.
+     */
+    @NotNull
+    public static ClassHierarchyInfo readHierarchy(@NotNull JALParser.ClassHeaderContext header) {
+        JALParser.ClassMetaContext meta = header.classMeta();
+        int modifier = visitClassAccessModifier(header.accModClass());
+        return new ClassHierarchyInfo(
+                header.className().getText(),
+                readSuperClassName(meta),
+                readInterfaceNames(meta),
+                (modifier & EOpcodes.ACC_INTERFACE) != 0
+        );
+    }
+
+    @NotNull
+    private static String readSuperClassName(@Nullable JALParser.ClassMetaContext meta) {
+        if (meta != null)
+            for (JALParser.ClassMetaItemContext item : meta.classMetaItem())
+                if (item.classPropSuperClass() != null) {
+                    String superClassName = item.classPropSuperClass().className().getText();
+                    if (!superClassName.isEmpty())
+                        return superClassName;
+                }
+
+        return "java/lang/Object"; // デフォルトのスーパークラス
+    }
+
+    @NotNull
+    private static List<String> readInterfaceNames(@Nullable JALParser.ClassMetaContext meta) {
+        List<String> interfaceNames = Collections.emptyList();
+        if (meta != null)
+            for (JALParser.ClassMetaItemContext item : meta.classMetaItem())
+                if (item.classPropInterfaces() != null)
+                    interfaceNames = item.classPropInterfaces().className()
+                            .stream()
+                            .map(JALParser.ClassNameContext::getText)
+                            .filter(name -> name != null && !name.isEmpty())
+                            .toList();
+
+        return interfaceNames;
     }
 
     private void visitClassInformation(@NotNull ClassNode classNode,
@@ -176,10 +315,10 @@ public class JALClassCompiler {
         int minor = -1;
         int modifier = visitClassAccessModifier(definitionContext.accModClass());
         String className = definitionContext.className().getText();
-        String superClassName = null;
-        List<String> interfaceName = Collections.emptyList();
-
         JALParser.ClassMetaContext meta = definitionContext.classMeta();
+        String superClassName = readSuperClassName(meta);
+        List<String> interfaceName = readInterfaceNames(meta);
+
         if (meta != null) {
             List<JALParser.ClassMetaItemContext> metaItems = meta.classMetaItem();
             for (JALParser.ClassMetaItemContext item : metaItems) {
@@ -187,14 +326,6 @@ public class JALClassCompiler {
                     major = EvaluatorCommons.asInteger(item.classPropMajor().NUMBER());
                 else if (item.classPropMinor() != null)
                     minor = EvaluatorCommons.asInteger(item.classPropMinor().NUMBER());
-                else if (item.classPropSuperClass() != null)
-                    superClassName = item.classPropSuperClass().className().getText();
-                else if (item.classPropInterfaces() != null)
-                    interfaceName = item.classPropInterfaces().className()
-                            .stream()
-                            .map(JALParser.ClassNameContext::getText)
-                            .filter(name -> name != null && !name.isEmpty())
-                            .toList();
             }
         }
 
@@ -205,9 +336,6 @@ public class JALClassCompiler {
             minor = 0;
         }
 
-        if (superClassName == null || superClassName.isEmpty())
-            superClassName = "java/lang/Object"; // デフォルトのスーパークラス
-
         int version = minor << 16 | major;
         classNode.visit(
                 version,
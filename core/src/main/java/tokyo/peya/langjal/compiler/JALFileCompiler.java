@@ -1,27 +1,41 @@
 package tokyo.peya.langjal.compiler;
 
 import org.antlr.v4.runtime.CharStream;
-import org.antlr.v4.runtime.CharStreams;
 import org.antlr.v4.runtime.CommonTokenStream;
 import org.intellij.lang.annotations.MagicConstant;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.objectweb.asm.ClassWriter;
 import org.objectweb.asm.tree.ClassNode;
+import tokyo.peya.langjal.analyser.hierarchy.CachingClassHierarchyResolver;
+import tokyo.peya.langjal.analyser.hierarchy.ClassHierarchyInfo;
+import tokyo.peya.langjal.analyser.hierarchy.ClassHierarchyResolver;
 import tokyo.peya.langjal.compiler.exceptions.ClassFinalisingException;
 import tokyo.peya.langjal.compiler.exceptions.ClassWritingException;
 import tokyo.peya.langjal.compiler.exceptions.CompileErrorException;
 import tokyo.peya.langjal.compiler.exceptions.FileReadingException;
+import tokyo.peya.langjal.compiler.metrics.CompilePhase;
+import tokyo.peya.langjal.compiler.output.ClassSink;
+import tokyo.peya.langjal.compiler.output.DirectoryClassSink;
 import tokyo.peya.langjal.compiler.preprocessor.JALPreprocessor;
+import tokyo.peya.langjal.compiler.preprocessor.PreprocessingReader;
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
 
 /**
  * Compiles JAL source files or source code strings into JVM class files.
  * <p>
- * Handles reading input, invoking the parser and class compiler, and writing output class files.
+ * Handles reading input, invoking the parser and class compiler, and writing output class files to a {@link ClassSink}.
  */
 public class JALFileCompiler {
     /**
@@ -29,17 +43,22 @@ public class JALFileCompiler {
      */
     private final CompileReporter reporter;
     /**
-     * Output directory for compiled class files.
+     * Destination of compiled class files.
      */
-    private final Path outputDir;
+    private final ClassSink sink;
     /**
      * Compilation settings flags.
      */
     @MagicConstant(valuesFromClass = CompileSettings.class)
     private final int settings;
+    /**
+     * Resolver of class hierarchies, shared by every file compiled by this compiler.
+     */
+    private final ClassHierarchyResolver hierarchy;
 
     /**
      * Constructs a new JALFileCompiler instance.
+     * Class hierarchies are resolved from the runtime image and the class path of the compiler.
      *
      * @param reporter  The reporter for compilation messages.
      * @param outputDir The directory to write compiled class files.
@@ -48,14 +67,62 @@ public class JALFileCompiler {
      */
     public JALFileCompiler(@NotNull CompileReporter reporter, @NotNull Path outputDir,
                            @MagicConstant(valuesFromClass = CompileSettings.class) int settings) throws IOException {
+        this(reporter, outputDir, settings, CachingClassHierarchyResolver.createDefault());
+    }
 
+    /**
+     * Constructs a new JALFileCompiler instance.
+     *
+     * @param reporter  The reporter for compilation messages.
+     * @param outputDir The directory to write compiled class files.
+     * @param settings  Compilation settings flags.
+     * @param hierarchy The resolver of class hierarchies used to compute stack frames.
+     *                  Compiled classes are registered to it, so it should be shared by all files of one compilation.
+     * @throws IOException If the output directory cannot be created.
+     */
+    public JALFileCompiler(@NotNull CompileReporter reporter, @NotNull Path outputDir,
+                           @MagicConstant(valuesFromClass = CompileSettings.class) int settings,
+                           @NotNull ClassHierarchyResolver hierarchy) throws IOException {
+        this(reporter, createDirectorySink(outputDir), settings, hierarchy);
+    }
+
+    /**
+     * Constructs a new JALFileCompiler instance which writes compiled classes to the given sink.
+     * Class hierarchies are resolved from the runtime image and the class path of the compiler.
+     *
+     * @param reporter The reporter for compilation messages.
+     * @param sink     The destination of compiled class files.
+     * @param settings Compilation settings flags.
+     */
+    public JALFileCompiler(@NotNull CompileReporter reporter, @NotNull ClassSink sink,
+                           @MagicConstant(valuesFromClass = CompileSettings.class) int settings) {
+        this(reporter, sink, settings, CachingClassHierarchyResolver.createDefault());
+    }
+
+    /**
+     * Constructs a new JALFileCompiler instance which writes compiled classes to the given sink.
+     *
+     * @param reporter  The reporter for compilation messages.
+     * @param sink      The destination of compiled class files.
+     * @param settings  Compilation settings flags.
+     * @param hierarchy The resolver of class hierarchies used to compute stack frames.
+     *                  Compiled classes are registered to it, so it should be shared by all files of one compilation.
+     */
+    public JALFileCompiler(@NotNull CompileReporter reporter, @NotNull ClassSink sink,
+                           @MagicConstant(valuesFromClass = CompileSettings.class) int settings,
+                           @NotNull ClassHierarchyResolver hierarchy) {
         this.reporter = reporter;
-        this.outputDir = outputDir;
+        this.sink = sink;
         this.settings = settings;
+        this.hierarchy = hierarchy;
+    }
 
+    private static ClassSink createDirectorySink(@NotNull Path outputDir) throws IOException {
         // Ensure the output directory exists
         if (!Files.exists(outputDir))
             Files.createDirectories(outputDir);
+
+        return new DirectoryClassSink(outputDir);
     }
 
     /**
@@ -72,25 +139,104 @@ public class JALFileCompiler {
     public static JALClassCompiler compileOnly(@NotNull String sourceCode, @NotNull CompileReporter reporter,
                                                @MagicConstant(valuesFromClass = CompileSettings.class) int settings
     ) throws CompileErrorException {
-        CharStream charStream = CharStreams.fromString(JALPreprocessor.preprocess(sourceCode));
-        return compile(reporter, charStream, settings, null);
+        return compileOnly(sourceCode, reporter, settings, CachingClassHierarchyResolver.createDefault());
+    }
+
+    /**
+     * Compiles the given source code string and returns the class compiler instance.
+     * Does not write any files to disk.
+     *
+     * @param sourceCode The source code to compile.
+     * @param reporter   The reporter for compilation messages.
+     * @param settings   Compilation settings flags.
+     * @param hierarchy  The resolver of class hierarchies used to compute stack frames.
+     * @return The JALClassCompiler instance for the compiled class.
+     * @throws CompileErrorException If a compilation error occurs.
+     */
+    @NotNull
+    public static JALClassCompiler compileOnly(@NotNull String sourceCode, @NotNull CompileReporter reporter,
+                                               @MagicConstant(valuesFromClass = CompileSettings.class) int settings,
+                                               @NotNull ClassHierarchyResolver hierarchy
+    ) throws CompileErrorException {
+        return compile(reporter, new StringReader(sourceCode), settings, hierarchy, null);
+    }
+
+    /**
+     * Reads the hierarchy of the class defined in the given source file, without compiling its body.
+     * It can be registered to the resolver before any source is compiled,
+     * so that stack frames do not depend on the order in which the sources are compiled.
+     *
+     * @param inputFile The path to the source file.
+     * @return The hierarchy of the class, or null if the file cannot be read or has no valid class header.
+     */
+    @Nullable
+    public static ClassHierarchyInfo readClassHierarchy(@NotNull Path inputFile) {
+        try (Reader sourceCode = Files.newBufferedReader(inputFile)) {
+            return readClassHierarchy(sourceCode, inputFile);
+        } catch (IOException e) {
+            return null;  // 読めないファイルは，コンパイル時に報告される
+        }
+    }
+
+    /**
+     * Reads the hierarchy of the class defined in the given source code, without compiling its body.
+     *
+     * @param sourceCode The source code.
+     * @return The hierarchy of the class, or null if the source code has no valid class header.
+     */
+    @Nullable
+    public static ClassHierarchyInfo readClassHierarchy(@NotNull String sourceCode) {
+        return readClassHierarchy(new StringReader(sourceCode), null);
+    }
+
+    @Nullable
+    private static ClassHierarchyInfo readClassHierarchy(@NotNull Reader sourceCode, @Nullable Path sourcePath) {
+        try {
+            // 前処理は読み進めた行の分だけ行われるので，本体までは読まない
+            CharStream charStream = JALPreprocessor.toCharStream(
+                    JALPreprocessor.preprocess(sourceCode),
+                    sourcePath == null ? null : sourcePath.toString()
+            );
+            JALSourceParser sourceParser = JALSourceParser.forCurrentThread();
+            JALParser.ClassHeaderContext header = sourceParser.parseClassHeader(sourceParser.tokenise(charStream));
+            return header == null ? null : JALClassCompiler.readHierarchy(header);
+        } catch (RuntimeException e) {
+            // 前処理の誤りや読み込みの失敗も，コンパイル時に報告される
+            return null;
+        }
     }
 
     @NotNull
     private static JALClassCompiler compile(@NotNull CompileReporter reporter,
-                                            @NotNull CharStream charStream,
+                                            @NotNull Reader sourceCode,
                                             @MagicConstant(valuesFromClass = CompileSettings.class) int settings,
+                                            @NotNull ClassHierarchyResolver hierarchy,
                                             @Nullable Path sourcePath) throws CompileErrorException {
-        JALLexer lexer = new JALLexer(charStream);
-        CommonTokenStream tokenStream = new CommonTokenStream(lexer);
-        JALParser parser = new JALParser(tokenStream);
-        JALCompileErrorStrategy errorStrategy = new JALCompileErrorStrategy(reporter, sourcePath);
-        parser.setErrorHandler(errorStrategy);
-
         FileEvaluatingReporter fileReporter = new FileEvaluatingReporter(reporter, sourcePath);
         fileReporter.postInfo("Compiling JAL source code");
 
-        JALParser.RootContext tree = parser.root();
+        // ソース全体を文字列にせず，字句解析器が読み進めるのに合わせて一行ずつ前処理する
+        PreprocessingReader preprocessed = JALPreprocessor.preprocess(sourceCode);
+        CharStream charStream = JALPreprocessor.toCharStream(
+                preprocessed,
+                sourcePath == null ? null : sourcePath.toString()
+        );
+        JALSourceParser sourceParser = JALSourceParser.forCurrentThread();
+        CommonTokenStream tokenStream = sourceParser.tokenise(charStream);
+        if (fileReporter.isMetricsEnabled()) {
+            // 字句解析と構文解析の時間を分けて計測するため，先にトークンを全て読み込んでおく
+            long phaseStart = System.nanoTime();
+            tokenStream.fill();
+            long elapsed = System.nanoTime() - phaseStart;
+            long preprocessElapsed = preprocessed.getElapsedNanos();
+            fileReporter.recordElapsed(CompilePhase.PREPROCESS, null, preprocessElapsed);
+            fileReporter.recordElapsed(CompilePhase.LEX, null, elapsed - preprocessElapsed);
+        }
+
+        JALCompileErrorStrategy errorStrategy = new JALCompileErrorStrategy(reporter, sourcePath);
+        long phaseStart = System.nanoTime();
+        JALParser.RootContext tree = sourceParser.parse(tokenStream, errorStrategy);
+        fileReporter.recordPhase(CompilePhase.PARSE, null, phaseStart);
         if (errorStrategy.isError())
             throw new CompileErrorException("Failed to parse JAL source code", 0, 0, 0);
 
@@ -99,7 +245,7 @@ public class JALFileCompiler {
             throw new CompileErrorException("No class definition found in JAL source code", 0, 0, 0);
 
         String fileName = sourcePath == null ? null : sourcePath.getFileName().toString();
-        JALClassCompiler classCompiler = new JALClassCompiler(fileReporter, fileName, settings);
+        JALClassCompiler classCompiler = new JALClassCompiler(fileReporter, fileName, settings, hierarchy);
 
         classCompiler.compileClassAST(classDefinition);
         return classCompiler;
@@ -115,32 +261,68 @@ public class JALFileCompiler {
     }
 
     /**
-     * Compiles the specified input file and writes the resulting class file to the output directory.
+     * Compiles the specified input file and writes the resulting class file to the sink.
      *
      * @param inputFile The path to the input source file.
+     * @return The compiled ASM ClassNode, or null if the input file could not be read.
      * @throws CompileErrorException If a compilation error occurs.
      */
-    public void compile(@NotNull Path inputFile) throws CompileErrorException {
-        String sourceCode;
-        try {
-            sourceCode = Files.readString(inputFile);
+    @Nullable
+    public ClassNode compile(@NotNull Path inputFile) throws CompileErrorException {
+        return this.compile(inputFile, null);
+    }
+
+    /**
+     * Compiles the specified input file and writes the resulting class file to the sink,
+     * updating the digest with the bytes of the file as the compiler reads them.
+     * The file is read only once, so the digest covers exactly the content which was compiled.
+     *
+     * @param inputFile The path to the input source file.
+     * @param digest    The digest to update with the content of the file, or null.
+     * @return The compiled ASM ClassNode, or null if the input file could not be read.
+     * @throws CompileErrorException If a compilation error occurs.
+     */
+    @Nullable
+    public ClassNode compile(@NotNull Path inputFile, @Nullable MessageDigest digest) throws CompileErrorException {
+        ClassNode compiled;
+        try (Reader sourceCode = openSource(inputFile, digest)) {
+            compiled = compile(this.reporter, sourceCode, this.settings, this.hierarchy, inputFile)
+                    .getCompiledClass();
         } catch (IOException e) {
-            this.reporter.postError(
-                    "Failed to read input file: " + inputFile.toAbsolutePath(),
-                    new FileReadingException(e, inputFile),
-                    inputFile
-            );
-            return;
+            this.reportReadFailure(inputFile, e);
+            return null;
+        } catch (RuntimeException e) {
+            // 読み込み中の失敗は，文字ストリームが RuntimeException に包んで投げる
+            if (!(e.getCause() instanceof IOException cause) || e instanceof CompileErrorException)
+                throw e;
+
+            this.reportReadFailure(inputFile, cause);
+            return null;
         }
 
-        CharStream charStream = CharStreams.fromString(JALPreprocessor.preprocess(sourceCode), inputFile.toString());
-        ClassNode compiled = compile(this.reporter, charStream, this.settings, inputFile).getCompiledClass();
-        this.writeClass(compiled);
-        return;
+        this.writeClass(compiled, inputFile);
+        return compiled;
+    }
+
+    private static Reader openSource(@NotNull Path inputFile, @Nullable MessageDigest digest) throws IOException {
+        if (digest == null)
+            return Files.newBufferedReader(inputFile);
+
+        // Files.newBufferedReader と同じく，不正なバイト列は置き換えずにエラーにする
+        InputStream source = new DigestInputStream(Files.newInputStream(inputFile), digest);
+        return new BufferedReader(new InputStreamReader(source, StandardCharsets.UTF_8.newDecoder()));
+    }
+
+    private void reportReadFailure(@NotNull Path inputFile, @NotNull IOException cause) {
+        this.reporter.postError(
+                "Failed to read input file: " + inputFile.toAbsolutePath(),
+                new FileReadingException(cause, inputFile),
+                inputFile
+        );
     }
 
     /**
-     * Compiles the given source code string and writes the resulting class file to the output directory.
+     * Compiles the given source code string and writes the resulting class file to the sink.
      *
      * @param sourceCode The source code to compile.
      * @return The compiled ASM ClassNode.
@@ -148,28 +330,27 @@ public class JALFileCompiler {
      */
     @NotNull
     public ClassNode compile(@NotNull String sourceCode) throws CompileErrorException {
-        CharStream charStream = CharStreams.fromString(JALPreprocessor.preprocess(sourceCode));
-        ClassNode compiled = compile(this.reporter, charStream, this.settings, null).getCompiledClass();
-        this.writeClass(compiled);
+        ClassNode compiled = compile(this.reporter, new StringReader(sourceCode), this.settings, this.hierarchy, null)
+                .getCompiledClass();
+        this.writeClass(compiled, null);
         return compiled;
     }
 
-    private void writeClass(@NotNull ClassNode classNode) throws CompileErrorException {
+    private void writeClass(@NotNull ClassNode classNode, @Nullable Path sourcePath) throws CompileErrorException {
+        long phaseStart = System.nanoTime();
         ClassWriter classWriter = new ClassWriter(0);
         try {
-
             classNode.accept(classWriter);
         } catch (Throwable e) {
             throw new ClassFinalisingException(e);
         }
 
-        Path outputFile = this.outputDir.resolve(classNode.name + ".class");
         try {
-            Files.createDirectories(outputFile.getParent());
-
-            Files.write(outputFile, classWriter.toByteArray());
+            this.sink.write(classNode.name, classWriter.toByteArray());
         } catch (IOException e) {
             throw new ClassWritingException(e);
         }
+
+        new FileEvaluatingReporter(this.reporter, sourcePath).recordPhase(CompilePhase.CLASS_WRITE, null, phaseStart);
     }
 }
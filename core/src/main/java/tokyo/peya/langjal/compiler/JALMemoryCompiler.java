@@ -0,0 +1,187 @@
+package tokyo.peya.langjal.compiler;
+
+import org.intellij.lang.annotations.MagicConstant;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.objectweb.asm.tree.ClassNode;
+import tokyo.peya.langjal.analyser.hierarchy.CachingClassHierarchyResolver;
+import tokyo.peya.langjal.analyser.hierarchy.ClassHierarchyInfo;
+import tokyo.peya.langjal.analyser.hierarchy.ClassHierarchyResolver;
+import tokyo.peya.langjal.compiler.exceptions.CompileErrorException;
+import tokyo.peya.langjal.compiler.output.InMemoryClassLoader;
+import tokyo.peya.langjal.compiler.output.MemoryClassSink;
+
+import java.lang.invoke.MethodHandles;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiles JAL source code strings into class files in memory, and defines them in the running JVM.
+ * <p>
+ * Nothing is written to disk, which makes this suitable for generating classes at runtime.
+ * <br>
+ * <b>Usage Example:</b>
+ * <pre>{@code
+ * JALMemoryCompiler compiler = new JALMemoryCompiler(reporter, CompileSettings.FULL);
+ * InMemoryClassLoader loader = compiler.compileToClassLoader(List.of(sourceA, sourceB), getClass().getClassLoader());
+ * Class<?> generated = loader.loadClass("com.example.A");
+ * }</pre>
+ */
+public class JALMemoryCompiler {
+    /**
+     * Reporter for compilation messages and errors.
+     */
+    private final CompileReporter reporter;
+    /**
+     * Compilation settings flags.
+     */
+    @MagicConstant(valuesFromClass = CompileSettings.class)
+    private final int settings;
+    /**
+     * Resolver of class hierarchies, shared by every source compiled by this compiler.
+     */
+    private final ClassHierarchyResolver hierarchy;
+
+    /**
+     * Constructs a new JALMemoryCompiler instance.
+     * Class hierarchies are resolved from the runtime image and the class path of the compiler.
+     *
+     * @param reporter The reporter for compilation messages.
+     * @param settings Compilation settings flags.
+     */
+    public JALMemoryCompiler(@NotNull CompileReporter reporter,
+                             @MagicConstant(valuesFromClass = CompileSettings.class) int settings) {
+        this(reporter, settings, CachingClassHierarchyResolver.createDefault());
+    }
+
+    /**
+     * Constructs a new JALMemoryCompiler instance.
+     *
+     * @param reporter  The reporter for compilation messages.
+     * @param settings  Compilation settings flags.
+     * @param hierarchy The resolver of class hierarchies used to compute stack frames.
+     *                  Compiled classes are registered to it.
+     */
+    public JALMemoryCompiler(@NotNull CompileReporter reporter,
+                             @MagicConstant(valuesFromClass = CompileSettings.class) int settings,
+                             @NotNull ClassHierarchyResolver hierarchy) {
+        this.reporter = reporter;
+        this.settings = settings;
+        this.hierarchy = hierarchy;
+    }
+
+    /**
+     * Compiles the given source code string into a class file.
+     *
+     * @param sourceCode The source code to compile.
+     * @return The bytes of the class file.
+     * @throws CompileErrorException If a compilation error occurs.
+     */
+    public byte @NotNull [] compileToBytes(@NotNull String sourceCode) throws CompileErrorException {
+        MemoryClassSink sink = new MemoryClassSink();
+        ClassNode compiled = new JALFileCompiler(this.reporter, sink, this.settings, this.hierarchy)
+                .compile(sourceCode);
+
+        return sink.getClassFile(compiled.name);
+    }
+
+    /**
+     * Compiles the given source code strings into class files.
+     * <p>
+     * The hierarchies of all the classes are registered to the class hierarchy before any source is compiled,
+     * so a class may extend or be merged with classes of any of the sources, regardless of their order.
+     *
+     * @param sourceCodes The source codes to compile.
+     * @return The class files keyed by the internal names of their classes, in the order of the sources.
+     * @throws CompileErrorException If a compilation error occurs in any of the sources.
+     */
+    @NotNull
+    public Map<String, byte[]> compileToBytes(@NotNull Collection<String> sourceCodes) throws CompileErrorException {
+        MemoryClassSink sink = new MemoryClassSink();
+        JALFileCompiler compiler = new JALFileCompiler(this.reporter, sink, this.settings, this.hierarchy);
+        for (String sourceCode : sourceCodes) {
+            ClassHierarchyInfo info = JALFileCompiler.readClassHierarchy(sourceCode);
+            if (info != null)
+                this.hierarchy.register(info);
+        }
+        for (String sourceCode : sourceCodes)
+            compiler.compile(sourceCode);
+
+        return sink.getClasses();
+    }
+
+    /**
+     * Compiles the given source code strings and returns a new class loader which defines the compiled classes.
+     * <p>
+     * Classes are defined when they are first loaded, so the compiled classes may reference each other.
+     *
+     * @param sourceCodes The source codes to compile.
+     * @param parent      The parent class loader, which other referenced classes are loaded from.
+     * @return The class loader of the compiled classes.
+     * @throws CompileErrorException If a compilation error occurs in any of the sources.
+     */
+    @NotNull
+    public InMemoryClassLoader compileToClassLoader(@NotNull Collection<String> sourceCodes,
+                                                    @Nullable ClassLoader parent) throws CompileErrorException {
+        return new InMemoryClassLoader(parent, this.compileToBytes(sourceCodes));
+    }
+
+    /**
+     * Compiles the given source code string and loads the compiled class with a new class loader.
+     *
+     * @param sourceCode The source code to compile.
+     * @param parent     The parent class loader, which referenced classes are loaded from.
+     * @return The loaded class.
+     * @throws CompileErrorException If a compilation error occurs.
+     */
+    @NotNull
+    public Class<?> compileAndLoad(@NotNull String sourceCode,
+                                   @Nullable ClassLoader parent) throws CompileErrorException {
+        InMemoryClassLoader loader = this.compileToClassLoader(List.of(sourceCode), parent);
+        String internalName = loader.getClassNames().iterator().next();
+        try {
+            return loader.loadClass(internalName.replace('/', '.'));
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("Compiled class " + internalName + " cannot be loaded", e);
+        }
+    }
+
+    /**
+     * Compiles the given source code string and defines the class with {@link MethodHandles.Lookup#defineClass(byte[])},
+     * i.e. in the same class loader, package and protection domain as the lookup class.
+     *
+     * @param sourceCode The source code to compile. The class must be in the same package as the lookup class.
+     * @param lookup     The lookup with {@link MethodHandles.Lookup#PACKAGE} access.
+     * @return The defined class.
+     * @throws CompileErrorException  If a compilation error occurs.
+     * @throws IllegalAccessException If the lookup does not have {@code PACKAGE} access.
+     */
+    @NotNull
+    public Class<?> compileAndDefine(@NotNull String sourceCode, @NotNull MethodHandles.Lookup lookup)
+            throws CompileErrorException, IllegalAccessException {
+        return lookup.defineClass(this.compileToBytes(sourceCode));
+    }
+
+    /**
+     * Compiles the given source code string and defines it as a hidden class with
+     * {@link MethodHandles.Lookup#defineHiddenClass(byte[], boolean, MethodHandles.Lookup.ClassOption...)}.
+     * Hidden classes cannot be referenced by name, and can be unloaded as soon as they are unreachable.
+     *
+     * @param sourceCode The source code to compile. The class must be in the same package as the lookup class.
+     * @param lookup     The lookup with full privilege access.
+     * @param initialize Whether to initialise the class.
+     * @param options    The options of the hidden class.
+     * @return A lookup on the defined hidden class.
+     * @throws CompileErrorException  If a compilation error occurs.
+     * @throws IllegalAccessException If the lookup does not have full privilege access.
+     */
+    @NotNull
+    public MethodHandles.Lookup compileAndDefineHidden(@NotNull String sourceCode,
+                                                       @NotNull MethodHandles.Lookup lookup,
+                                                       boolean initialize,
+                                                       MethodHandles.Lookup.ClassOption... options)
+            throws CompileErrorException, IllegalAccessException {
+        return lookup.defineHiddenClass(this.compileToBytes(sourceCode), initialize, options);
+    }
+}
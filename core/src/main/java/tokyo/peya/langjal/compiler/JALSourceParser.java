@@ -0,0 +1,141 @@
+package tokyo.peya.langjal.compiler;
+
+import org.antlr.v4.runtime.BailErrorStrategy;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CommonTokenFactory;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ConsoleErrorListener;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import tokyo.peya.langjal.compiler.exceptions.CompileErrorException;
+
+import java.nio.file.Path;
+
+/**
+ * Parses JAL source code, reusing one {@link JALLexer} and one {@link JALParser} per thread.
+ * <p>
+ * A source is first parsed in the {@link PredictionMode#SLL SLL} prediction mode, which is faster than full LL
+ * but gives up at the first syntax error. Only when it gives up, the source is parsed again in the
+ * {@link PredictionMode#LL LL} mode with the reporting error strategy, so that syntax errors are reported as before,
+ * and inputs which SLL alone cannot decide are still parsed correctly.
+ */
+public final class JALSourceParser {
+    private static final ThreadLocal<JALSourceParser> PARSERS = ThreadLocal.withInitial(JALSourceParser::new);
+
+    private final JALLexer lexer;
+    private final JALParser parser;
+    private final BailErrorStrategy bailErrorStrategy;
+
+    private JALSourceParser() {
+        this.lexer = new JALLexer(null);
+        this.lexer.setTokenFactory(new CommonTokenFactory(true));  // 読み終えた文字は捨てられるので，トークンに文字列を持たせる
+        this.parser = new JALParser(null);
+        this.bailErrorStrategy = new BailErrorStrategy();
+    }
+
+    /**
+     * Parses the given source code with the lexer and parser of the current thread.
+     *
+     * @param source     The preprocessed source code.
+     * @param reporter   The reporter for syntax errors.
+     * @param sourcePath The path of the source file, or null.
+     * @return The parse tree of the source code.
+     * @throws CompileErrorException If the source code has syntax errors.
+     */
+    @NotNull
+    public static JALParser.RootContext parse(@NotNull CharStream source, @NotNull CompileReporter reporter,
+                                              @Nullable Path sourcePath) throws CompileErrorException {
+        JALSourceParser sourceParser = forCurrentThread();
+        JALCompileErrorStrategy errorStrategy = new JALCompileErrorStrategy(reporter, sourcePath);
+        JALParser.RootContext tree = sourceParser.parse(sourceParser.tokenise(source), errorStrategy);
+        if (errorStrategy.isError())
+            throw new CompileErrorException("Failed to parse JAL source code", 0, 0, 0);
+
+        return tree;
+    }
+
+    /**
+     * Returns the parser of the current thread.
+     * It must not be used again before the parse started with it has finished.
+     *
+     * @return The parser of the current thread.
+     */
+    @NotNull
+    /* non-public */ static JALSourceParser forCurrentThread() {
+        return PARSERS.get();
+    }
+
+    /**
+     * Starts lexing the given source code with the lexer of this thread.
+     *
+     * @param source The preprocessed source code.
+     * @return The token stream, which reads tokens as the parser asks for them.
+     */
+    @NotNull
+    /* non-public */ CommonTokenStream tokenise(@NotNull CharStream source) {
+        this.lexer.setInputStream(source);
+        return new CommonTokenStream(this.lexer);
+    }
+
+    /**
+     * Parses the tokens, first in the SLL mode, then in the LL mode with the given error strategy if SLL gives up.
+     * Both the lexer and the parser are released from the source afterwards.
+     *
+     * @param tokens        The token stream from {@link #tokenise(CharStream)}.
+     * @param errorStrategy The error strategy which reports the syntax errors found in the LL mode.
+     * @return The parse tree, which is incomplete if {@code errorStrategy} reported errors.
+     */
+    @NotNull
+    /* non-public */ JALParser.RootContext parse(@NotNull CommonTokenStream tokens,
+                                                 @NotNull JALCompileErrorStrategy errorStrategy) {
+        try {
+            this.prepareParser(tokens, PredictionMode.SLL);
+            this.parser.setErrorHandler(this.bailErrorStrategy);
+            this.parser.removeErrorListeners();  // SLL の失敗はエラーではないので，表示させない
+            try {
+                return this.parser.root();
+            } catch (ParseCancellationException ignored) {
+                // 読めた分のトークンは残っているので，巻き戻して LL で読み直す
+            }
+
+            tokens.seek(0);
+            this.prepareParser(tokens, PredictionMode.LL);
+            this.parser.setErrorHandler(errorStrategy);
+            this.parser.addErrorListener(ConsoleErrorListener.INSTANCE);
+            return this.parser.root();
+        } finally {
+            // 解析木だけを残して，前のソースを抱え込まないようにする
+            this.parser.setTokenStream(null);
+            this.lexer.setInputStream(null);
+        }
+    }
+
+    /**
+     * Parses only the header of the class definition, up to the brace which opens its body.
+     * The rest of the source is neither lexed nor parsed.
+     *
+     * @param tokens The token stream from {@link #tokenise(CharStream)}.
+     * @return The class header, or null if the source does not start with a valid one.
+     */
+    @Nullable
+    /* non-public */ JALParser.ClassHeaderContext parseClassHeader(@NotNull CommonTokenStream tokens) {
+        try {
+            this.prepareParser(tokens, PredictionMode.SLL);
+            this.parser.setErrorHandler(this.bailErrorStrategy);
+            this.parser.removeErrorListeners();  // 誤りは本体のコンパイル時に報告される
+            return this.parser.classHeader();
+        } catch (ParseCancellationException e) {
+            return null;
+        } finally {
+            this.parser.setTokenStream(null);
+            this.lexer.setInputStream(null);
+        }
+    }
+
+    private void prepareParser(@NotNull CommonTokenStream tokens, @NotNull PredictionMode mode) {
+        this.parser.setTokenStream(tokens);
+        this.parser.getInterpreter().setPredictionMode(mode);
+    }
+}
@@ -1,6 +1,7 @@
 package tokyo.peya.langjal.compiler.instructions;
 
 import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.tree.TerminalNode;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.objectweb.asm.tree.ClassNode;
@@ -41,6 +42,20 @@ public abstract class AbstractInstructionEvaluator<T extends ParserRuleContext>
         return context != null;
     }
 
+    /**
+     * Returns the {@code wide} prefix of the given instruction, if any.
+     * The prefix belongs to the enclosing {@code instruction} rule, not to the rule of the instruction itself.
+     *
+     * @param instruction The parser rule context of the instruction.
+     * @return The {@code wide} token, or null if the instruction is not prefixed with it.
+     */
+    @Nullable
+    protected static TerminalNode getWidePrefix(@NotNull ParserRuleContext instruction) {
+        if (instruction.getParent() instanceof JALParser.InstructionContext parent)
+            return parent.INSN_WIDE();
+        return null;
+    }
+
     /**
      * Returns the opcodes that this evaluator can handle.
      *
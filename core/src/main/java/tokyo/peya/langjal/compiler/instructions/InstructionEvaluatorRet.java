@@ -26,7 +26,7 @@ public class InstructionEvaluatorRet extends AbstractInstructionEvaluator<JALPar
         LocalVariableInfo local = locals.resolve(instruction.jvmInsArgLocalRef());
 
         int idx = local.index();
-        boolean isWide = instruction.INSN_WIDE() != null;
+        boolean isWide = getWidePrefix(instruction) != null;
         if (idx >= 0xFF && !isWide)
             throw new IllegalInstructionException(
                     String.format(
@@ -30,7 +30,7 @@ public class InstructionEvaluatorIInc extends AbstractInstructionEvaluator<JALPa
         LocalVariableInfo local = locals.resolve(ref);
 
         int idx = local.index();
-        boolean isWide = instruction.INSN_WIDE() != null;
+        boolean isWide = getWidePrefix(instruction) != null;
         int increment = EvaluatorCommons.asInteger(instruction.NUMBER());
 
         if (!isWide) {
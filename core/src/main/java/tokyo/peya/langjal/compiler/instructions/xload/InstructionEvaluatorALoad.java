@@ -30,7 +30,7 @@ public class InstructionEvaluatorALoad extends AbstractInstructionEvaluator<JALP
                 instruction.jvmInsArgLocalRef(),
                 Opcodes.ALOAD,
                 "aload",
-                instruction.INSN_WIDE()
+                getWidePrefix(instruction)
         );
     }
 
@@ -30,7 +30,7 @@ public class InstructionEvaluatorDLoad extends AbstractInstructionEvaluator<JALP
                 instruction.jvmInsArgLocalRef(),
                 Opcodes.DLOAD,
                 "dload",
-                instruction.INSN_WIDE()
+                getWidePrefix(instruction)
         );
     }
 
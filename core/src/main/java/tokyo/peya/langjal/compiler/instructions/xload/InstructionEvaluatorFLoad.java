@@ -30,7 +30,7 @@ public class InstructionEvaluatorFLoad extends AbstractInstructionEvaluator<JALP
                 instruction.jvmInsArgLocalRef(),
                 Opcodes.FLOAD,
                 "fload",
-                instruction.INSN_WIDE()
+                getWidePrefix(instruction)
         );
     }
 
@@ -30,7 +30,7 @@ public class InstructionEvaluatorILoad extends AbstractInstructionEvaluator<JALP
                 instruction.jvmInsArgLocalRef(),
                 Opcodes.ILOAD,
                 "iload",
-                instruction.INSN_WIDE()
+                getWidePrefix(instruction)
         );
     }
 
@@ -30,7 +30,7 @@ public class InstructionEvaluatorLLoad extends AbstractInstructionEvaluator<JALP
                 instruction.jvmInsArgLocalRef(),
                 Opcodes.LLOAD,
                 "lload",
-                instruction.INSN_WIDE()
+                getWidePrefix(instruction)
         );
     }
 
@@ -35,7 +35,7 @@ public class InstructionEvaluatorAStore extends AbstractInstructionEvaluator<JAL
                 instruction.localDeclaration(),
                 ClassReferenceType.OBJECT.toString(),
                 "astore",
-                instruction.INSN_WIDE()
+                getWidePrefix(instruction)
         );
     }
 
@@ -34,7 +34,7 @@ public class InstructionEvaluatorDStore extends AbstractInstructionEvaluator<JAL
                 instruction.localDeclaration(),
                 "D",
                 "dstore",
-                instruction.INSN_WIDE()
+                getWidePrefix(instruction)
         );
     }
 
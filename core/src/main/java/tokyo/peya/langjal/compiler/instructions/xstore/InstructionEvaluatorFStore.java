@@ -34,7 +34,7 @@ public class InstructionEvaluatorFStore extends AbstractInstructionEvaluator<JAL
                 instruction.localDeclaration(),
                 "F",
                 "fstore",
-                instruction.INSN_WIDE()
+                getWidePrefix(instruction)
         );
     }
 
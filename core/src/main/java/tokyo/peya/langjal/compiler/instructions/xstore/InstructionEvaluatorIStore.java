@@ -34,7 +34,7 @@ public class InstructionEvaluatorIStore extends AbstractInstructionEvaluator<JAL
                 instruction.localDeclaration(),
                 "I",
                 "istore",
-                instruction.INSN_WIDE()
+                getWidePrefix(instruction)
         );
     }
 
@@ -34,7 +34,7 @@ public class InstructionEvaluatorLStore extends AbstractInstructionEvaluator<JAL
                 instruction.localDeclaration(),
                 "J",
                 "lstore",
-                instruction.INSN_WIDE()
+                getWidePrefix(instruction)
         );
     }
 
@@ -0,0 +1,224 @@
+package tokyo.peya.langjal.compiler.member;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.objectweb.asm.tree.LabelNode;
+import tokyo.peya.langjal.analyser.AnalysedInstruction;
+import tokyo.peya.langjal.analyser.InstructionSetAnalysisResult;
+import tokyo.peya.langjal.analyser.MethodAnalysisResult;
+import tokyo.peya.langjal.compiler.CompileSettings;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Removes the code of a method which no frame propagation of the analysis reaches.
+ * <p>
+ * An instruction is removed when the analyser did not visit it, i.e. its instruction set is never reached,
+ * or it follows a {@code goto}, {@code return}, {@code athrow} or switch in the same set.
+ * The label of a removed instruction is moved to the next remaining instruction,
+ * or merged into its label if it has one, so that exception handler ranges and local variable scopes keep their bounds.
+ * Exception handlers whose range no longer covers any instruction, or whose handler is removed, are dropped.
+ * <p>
+ * Labels which no branch, switch, exception handler or local variable scope refers to any more are removed as well,
+ * which merges instruction sets and saves their stack map frames.
+ * They are kept when {@link CompileSettings#SPLIT_LARGE_METHODS} is set, as the method may be split at them.
+ */
+final class DeadCodeEliminator {
+    private final InstructionsHolder instructions;
+    private final LabelsHolder labels;
+    private final LocalVariablesHolder locals;
+    private final TryCatchDirectivesHolder tryCatchDirectives;
+    private final boolean keepsUnusedLabels;
+
+    private final Map<LabelInfo, LabelInfo> replacements;
+
+    DeadCodeEliminator(@NotNull JALMethodCompiler compiler) {
+        this.instructions = compiler.getInstructions();
+        this.labels = compiler.getLabels();
+        this.locals = compiler.getLocals();
+        this.tryCatchDirectives = compiler.getTryCatchDirectives();
+        this.keepsUnusedLabels = (compiler.getCompileFlags() & CompileSettings.SPLIT_LARGE_METHODS) != 0;
+
+        this.replacements = new HashMap<>();
+    }
+
+    /**
+     * Removes the unreachable code and unused labels of the method.
+     *
+     * @param analysisResult The analysis result of the method as it is.
+     * @return {@code true} if the method was changed, in which case it must be analysed again.
+     */
+    boolean eliminate(@NotNull MethodAnalysisResult analysisResult) {
+        int size = this.instructions.getSize();
+        if (size == 0 || analysisResult.instructionAnalysisResults().length == 0)
+            return false;  // 解析されていなければ，何が到達しないかも分からない
+
+        Set<InstructionInfo> reached = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (InstructionSetAnalysisResult result : analysisResult.instructionAnalysisResults())
+            for (AnalysedInstruction analysed : result.analyzedInstructions())
+                reached.add(analysed.instruction());
+
+        boolean[] removed = new boolean[size];
+        int[] newIndices = new int[size + 1];
+        int remaining = 0;
+        for (int i = 0; i < size; i++) {
+            newIndices[i] = remaining;  // 消える命令は，次に残る命令の位置になる
+            removed[i] = !reached.contains(this.instructions.getInstruction(i));
+            if (!removed[i])
+                remaining++;
+        }
+        newIndices[size] = remaining;
+
+        LabelInfo[] assignedLabels = this.moveLabelsOfRemoved(removed);
+        int directiveCount = this.tryCatchDirectives.getTryCatchDirectives().size();
+        this.rewriteTryCatchDirectives(reached, newIndices);
+        boolean droppedDirectives = this.tryCatchDirectives.getTryCatchDirectives().size() != directiveCount;
+        this.locals.replaceScopeLabels(this.resolveReplacements());
+
+        List<LabelInfo> removedLabels = new ArrayList<>(this.replacements.keySet());
+        if (!this.keepsUnusedLabels)
+            this.removeUnusedLabels(removed, assignedLabels, removedLabels);
+        if (remaining == size && removedLabels.isEmpty() && !droppedDirectives)
+            return false;
+
+        List<InstructionInfo> rewritten = new ArrayList<>(remaining);
+        for (int i = 0; i < size; i++) {
+            if (removed[i])
+                continue;
+
+            InstructionInfo instruction = this.instructions.getInstruction(i);
+            if (instruction.assignedLabel() == assignedLabels[i])
+                rewritten.add(instruction);
+            else
+                rewritten.add(InstructionsHolder.withLabel(instruction, assignedLabels[i]));
+        }
+
+        this.instructions.rewriteInstructions(rewritten, newIndices);
+        this.labels.removeLabels(removedLabels);
+        return true;
+    }
+
+    private LabelInfo @NotNull [] moveLabelsOfRemoved(boolean @NotNull [] removed) {
+        // 消える命令のラベルは，次に残る命令へ付け替えるか，そのラベルにまとめる
+        LabelInfo[] assignedLabels = new LabelInfo[removed.length];
+        LabelInfo pendingLabel = null;
+        for (int i = 0; i < removed.length; i++) {
+            LabelInfo label = this.instructions.getInstruction(i).assignedLabel();
+            if (removed[i]) {
+                if (label == null)
+                    continue;
+                if (pendingLabel == null)
+                    pendingLabel = label;
+                else
+                    this.replacements.put(label, pendingLabel);
+                continue;
+            }
+
+            if (pendingLabel != null) {
+                if (label == null)
+                    label = pendingLabel;
+                else
+                    this.replacements.put(pendingLabel, label);
+                pendingLabel = null;
+            }
+            assignedLabels[i] = label;
+        }
+        if (pendingLabel != null)
+            this.replacements.put(pendingLabel, this.labels.getGlobalEnd());
+
+        return assignedLabels;
+    }
+
+    @NotNull
+    private LabelInfo resolve(@NotNull LabelInfo label) {
+        LabelInfo resolved = label;
+        LabelInfo replacement;
+        while ((replacement = this.replacements.get(resolved)) != null)
+            resolved = replacement;
+        return resolved;
+    }
+
+    @NotNull
+    private Map<LabelInfo, LabelInfo> resolveReplacements() {
+        Map<LabelInfo, LabelInfo> resolved = new HashMap<>();
+        for (LabelInfo label : this.replacements.keySet())
+            resolved.put(label, this.resolve(label));
+        return resolved;
+    }
+
+    private void rewriteTryCatchDirectives(@NotNull Set<InstructionInfo> reached, int @NotNull [] newIndices) {
+        this.tryCatchDirectives.rewriteTryCatchDirectives(directive -> {
+            LabelInfo catchLabel = this.isReachedHandler(directive.catchBlockLabel(), reached)
+                    ? directive.catchBlockLabel() : null;
+            LabelInfo finallyLabel = this.isReachedHandler(directive.finallyBlockLabel(), reached)
+                    ? directive.finallyBlockLabel() : null;
+            LabelInfo start = this.resolve(directive.tryBlockStartLabel());
+            LabelInfo end = this.resolve(directive.tryBlockEndLabel());
+            if (catchLabel == null && finallyLabel == null)
+                return null;
+            if (remapIndex(newIndices, start.instructionIndex()) >= remapIndex(newIndices, end.instructionIndex()))
+                return null;  // 範囲に命令が残らない
+
+            return new TryCatchDirective(start, end, catchLabel, directive.exceptionType(), finallyLabel);
+        });
+    }
+
+    private boolean isReachedHandler(@Nullable LabelInfo handler, @NotNull Set<InstructionInfo> reached) {
+        if (handler == null)
+            return false;
+
+        InstructionInfo instruction = this.instructions.getInstruction(handler.instructionIndex());
+        return instruction != null && reached.contains(instruction);
+    }
+
+    private static int remapIndex(int @NotNull [] newIndices, int instructionIndex) {
+        if (instructionIndex < 0)
+            return instructionIndex;
+        return newIndices[Math.min(instructionIndex, newIndices.length - 1)];
+    }
+
+    private void removeUnusedLabels(boolean @NotNull [] removed, @Nullable LabelInfo @NotNull [] assignedLabels,
+                                    @NotNull List<LabelInfo> removedLabels) {
+        Set<LabelInfo> usedLabels = Collections.newSetFromMap(new IdentityHashMap<>());
+        usedLabels.add(this.labels.getGlobalStart());
+        usedLabels.add(this.labels.getGlobalEnd());
+        for (int i = 0; i < removed.length; i++) {
+            if (removed[i])
+                continue;
+
+            for (LabelNode target : MethodSplitter.getBranchTargets(this.instructions.getInstruction(i).insn())) {
+                LabelInfo targetLabel = this.labels.getLabelByNode(target);
+                if (targetLabel != null)
+                    usedLabels.add(this.resolve(targetLabel));
+            }
+        }
+        for (TryCatchDirective directive : this.tryCatchDirectives.getTryCatchDirectives()) {
+            usedLabels.add(directive.tryBlockStartLabel());
+            usedLabels.add(directive.tryBlockEndLabel());
+            if (directive.catchBlockLabel() != null)
+                usedLabels.add(directive.catchBlockLabel());
+            if (directive.finallyBlockLabel() != null)
+                usedLabels.add(directive.finallyBlockLabel());
+        }
+        for (LocalVariableInfo local : this.locals.getLocalVariables()) {
+            usedLabels.add(local.start());
+            usedLabels.add(local.end());
+        }
+
+        for (int i = 0; i < assignedLabels.length; i++) {
+            LabelInfo label = assignedLabels[i];
+            if (label == null || usedLabels.contains(label))
+                continue;
+
+            // どこからも参照されないラベルは，前の命令セットにまとめてフレームを省く
+            assignedLabels[i] = null;
+            removedLabels.add(label);
+        }
+    }
+}
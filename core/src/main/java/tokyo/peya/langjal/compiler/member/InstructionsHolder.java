@@ -187,8 +187,12 @@ public class InstructionsHolder {
     }
 
     private int calcSwitchPadding() {
+        return calcSwitchPadding(this.bytecodeOffset);
+    }
+
+    private static int calcSwitchPadding(int switchOffset) {
         // パディングは 4 バイト境界に合わせる
-        return (4 - (this.bytecodeOffset + 1) % 4) % 4;
+        return (4 - (switchOffset + 1) % 4) % 4;
     }
 
     private void addInstruction(@NotNull InstructionInfo instruction) {
@@ -196,6 +200,279 @@ public class InstructionsHolder {
         this.bytecodeOffset += instruction.instructionSize();
     }
 
+    /**
+     * Promotes the branches whose targets are farther than a 16-bit offset can reach.
+     * <p>
+     * {@code goto} and {@code jsr} become {@code goto_w} and {@code jsr_w},
+     * and a conditional branch becomes the inverted branch jumping over a {@code goto_w} to the original target.
+     * As a promoted branch makes the code longer and can push other branches out of range,
+     * the offsets are recomputed until no more branches are promoted.
+     * The jumped-over {@code goto_w} and the instruction after it are labelled, and the other labels are moved
+     * with their instructions, so that the stack frame map computed afterwards matches the relaxed code.
+     * <p>
+     * As the size of {@code ldc} depends on the constant pool built later,
+     * it is measured as {@code ldc_w} to decide whether a branch is in range.
+     *
+     * @return The number of promoted branches.
+     */
+    public int relaxBranches() {
+        int size = this.instructions.size();
+        int[] targets = new int[size];
+        boolean hasBranch = false;
+        for (int i = 0; i < size; i++) {
+            targets[i] = -1;
+            if (!(this.instructions.get(i).insn() instanceof JumpInsnNode jump) || !isRelaxable(jump.getOpcode()))
+                continue;
+            // 末尾の条件分岐は飛び越え先がないので，そのままにする（どのみち検証に通らない）
+            if (isConditionalJump(jump.getOpcode()) && i == size - 1)
+                continue;
+
+            LabelInfo target = this.labels.getLabelByNode(jump.label);
+            if (target != null) {
+                targets[i] = Math.min(target.instructionIndex(), size);
+                hasBranch = true;
+            }
+        }
+        if (!hasBranch)
+            return 0;
+
+        boolean[] promoted = new boolean[size];
+        int[] offsets = new int[size + 1];
+        int promotedCount = 0;
+        boolean changed;
+        do {
+            changed = false;
+            this.computeRelaxedOffsets(offsets, promoted);
+            for (int i = 0; i < size; i++) {
+                if (targets[i] < 0 || promoted[i])
+                    continue;
+
+                int distance = offsets[targets[i]] - offsets[i];
+                if (distance < Short.MIN_VALUE || distance > Short.MAX_VALUE) {
+                    promoted[i] = true;
+                    promotedCount++;
+                    changed = true;
+                }
+            }
+        } while (changed);  // 命令は伸びる一方なので，いずれ収束する
+
+        if (promotedCount > 0)
+            this.promoteBranches(promoted, promotedCount);
+        return promotedCount;
+    }
+
+    /**
+     * Measures the offset of each instruction in the same way as {@link #relaxBranches()}.
+     * As {@code ldc} is measured as {@code ldc_w}, the offsets may be larger than in the written code, but never smaller.
+     *
+     * @return The offset of each instruction, with one more element for the size of the code.
+     */
+    /* non-public */ int[] measureOffsets() {
+        int[] offsets = new int[this.instructions.size() + 1];
+        this.computeRelaxedOffsets(offsets, new boolean[this.instructions.size()]);
+        return offsets;
+    }
+
+    /**
+     * Removes the instructions from the given index to the end, to move them to another method.
+     *
+     * @param index The index of the first instruction to remove.
+     * @return The removed instructions, keeping their labels and offsets in this method.
+     */
+    /* non-public */ List<InstructionInfo> removeFrom(int index) {
+        List<InstructionInfo> tail = this.instructions.subList(index, this.instructions.size());
+        List<InstructionInfo> removed = new ArrayList<>(tail);
+        tail.clear();
+        if (!removed.isEmpty())
+            this.bytecodeOffset = removed.getFirst().bytecodeOffset();
+        return removed;
+    }
+
+    private void computeRelaxedOffsets(int @NotNull [] offsets, boolean @NotNull [] promoted) {
+        int offset = 0;
+        for (int i = 0; i < promoted.length; i++) {
+            offsets[i] = offset;
+            InstructionInfo instruction = this.instructions.get(i);
+            if (promoted[i])
+                offset += isConditionalJump(instruction.opcode()) ? 3 + 5 : 5;  // 反転した分岐 + goto_w
+            else if (instruction.opcode() == EOpcodes.LDC)
+                offset += 3;  // 定数プールの番号が 255 を超えると ldc_w になる
+            else
+                offset += sizeAt(instruction, offset);
+        }
+        offsets[promoted.length] = offset;
+    }
+
+    private void promoteBranches(boolean @NotNull [] promoted, int promotedCount) {
+        int size = this.instructions.size();
+        List<InstructionInfo> relaxed = new ArrayList<>(size + promotedCount);
+        List<Integer> invertedBranches = new ArrayList<>();
+        int[] newIndices = new int[size + 1];
+        for (int i = 0; i < size; i++) {
+            newIndices[i] = relaxed.size();
+            InstructionInfo instruction = this.instructions.get(i);
+            if (!promoted[i]) {
+                relaxed.add(instruction);
+                continue;
+            }
+
+            JumpInsnNode jump = (JumpInsnNode) instruction.insn();
+            int opcode = jump.getOpcode();
+            if (!isConditionalJump(opcode)) {
+                // goto と jsr には 32 ビットのオフセットを持つ版がある
+                jump.setOpcode(opcode == EOpcodes.GOTO ? EOpcodes.GOTO_W : EOpcodes.JSR_W);
+                relaxed.add(this.replaceInstruction(instruction, jump, instruction.assignedLabel(), 5));
+                continue;
+            }
+
+            // 条件分岐にはないので，条件を反転して goto_w を飛び越えさせる。飛び越え先は後で付ける
+            JumpInsnNode gotoW = new JumpInsnNode(EOpcodes.GOTO_W, jump.label);
+            jump.setOpcode(invertConditionalJump(opcode));
+            invertedBranches.add(relaxed.size());
+            relaxed.add(this.replaceInstruction(instruction, jump, instruction.assignedLabel(), 3));
+            relaxed.add(this.replaceInstruction(instruction, gotoW, null, 5));
+        }
+        newIndices[size] = relaxed.size();
+        this.labels.remapInstructionIndices(newIndices);
+
+        for (int branchIndex : invertedBranches) {
+            // goto_w を独立したブロックにしておくと，反転した分岐がブロックの末尾になり，両方の行き先へ伝搬される
+            InstructionInfo gotoW = relaxed.get(branchIndex + 1);
+            LabelInfo gotoWLabel = this.labels.importASMLabel(new LabelNode(), branchIndex + 1);
+            relaxed.set(branchIndex + 1, withLabel(gotoW, gotoWLabel));
+
+            InstructionInfo next = relaxed.get(branchIndex + 2);
+            LabelInfo skipLabel = next.assignedLabel();
+            if (skipLabel == null) {
+                skipLabel = this.labels.importASMLabel(new LabelNode(), branchIndex + 2);
+                relaxed.set(branchIndex + 2, withLabel(next, skipLabel));
+            }
+            ((JumpInsnNode) relaxed.get(branchIndex).insn()).label = skipLabel.node();
+        }
+
+        this.reassignOffsets(relaxed);
+    }
+
+    /**
+     * Replaces the instructions with the rewritten ones, moving every label to the new index of its instruction.
+     *
+     * @param rewritten  The rewritten instructions.
+     * @param newIndices The new index of each old instruction index,
+     *                   with one more element for the index just past the last instruction.
+     *                   The index of a removed instruction is that of the instruction following it.
+     */
+    /* non-public */ void rewriteInstructions(@NotNull List<InstructionInfo> rewritten, int @NotNull [] newIndices) {
+        this.labels.remapInstructionIndices(newIndices);
+        this.reassignOffsets(rewritten);
+    }
+
+    /**
+     * Creates an instruction which replaces the given one, keeping its label and source line.
+     *
+     * @param original The instruction to replace.
+     * @param insn     The new instruction node, which must not be a switch.
+     * @return The new InstructionInfo.
+     */
+    @NotNull
+    /* non-public */ InstructionInfo replaceInstruction(@NotNull InstructionInfo original, @NotNull AbstractInsnNode insn) {
+        return this.replaceInstruction(original, insn, original.assignedLabel(), this.calcInstructionSize(insn));
+    }
+
+    private void reassignOffsets(@NotNull List<InstructionInfo> rewritten) {
+        // オフセットを振り直す。tableswitch/lookupswitch はパディングが変わりうる
+        this.instructions.clear();
+        this.bytecodeOffset = 0;
+        for (InstructionInfo instruction : rewritten) {
+            int instructionSize = sizeAt(instruction, this.bytecodeOffset);
+            this.addInstruction(new InstructionInfo(
+                    this.bytecodeOffset,
+                    instruction.insn(),
+                    this.ownerClass,
+                    this.ownerMethod,
+                    instruction.producer(),
+                    instruction.assignedLabel(),
+                    instructionSize,
+                    instruction.sourceLine()
+            ));
+        }
+    }
+
+    @NotNull
+    private InstructionInfo replaceInstruction(@NotNull InstructionInfo original, @NotNull AbstractInsnNode insn,
+                                               @Nullable LabelInfo assignedLabel, int instructionSize) {
+        return new InstructionInfo(
+                original.bytecodeOffset(),
+                insn,
+                this.ownerClass,
+                this.ownerMethod,
+                JALInstructionEvaluator.getEvaluatorByOpcode(insn.getOpcode()),
+                assignedLabel,
+                instructionSize,
+                original.sourceLine()
+        );
+    }
+
+    /**
+     * Returns the instruction with its label replaced.
+     *
+     * @param instruction   The instruction.
+     * @param assignedLabel The new label of the instruction, or null to remove its label.
+     * @return The new InstructionInfo.
+     */
+    @NotNull
+    /* non-public */ static InstructionInfo withLabel(@NotNull InstructionInfo instruction,
+                                                     @Nullable LabelInfo assignedLabel) {
+        return new InstructionInfo(
+                instruction.bytecodeOffset(),
+                instruction.insn(),
+                instruction.ownerClass(),
+                instruction.owner(),
+                instruction.producer(),
+                assignedLabel,
+                instruction.instructionSize(),
+                instruction.sourceLine()
+        );
+    }
+
+    private static int sizeAt(@NotNull InstructionInfo instruction, int offset) {
+        int opcode = instruction.opcode();
+        if (opcode != EOpcodes.TABLESWITCH && opcode != EOpcodes.LOOKUPSWITCH)
+            return instruction.instructionSize();
+
+        return instruction.instructionSize()
+                - calcSwitchPadding(instruction.bytecodeOffset())
+                + calcSwitchPadding(offset);
+    }
+
+    private static boolean isRelaxable(int opcode) {
+        return opcode == EOpcodes.GOTO || opcode == EOpcodes.JSR || isConditionalJump(opcode);
+    }
+
+    /**
+     * Checks whether the opcode is a conditional branch, i.e. one of {@code if<cond>}, {@code if_icmp<cond>},
+     * {@code if_acmp<cond>}, {@code ifnull} and {@code ifnonnull}.
+     *
+     * @param opcode The opcode.
+     * @return True if the opcode is a conditional branch.
+     */
+    /* non-public */ static boolean isConditionalJump(int opcode) {
+        return (opcode >= EOpcodes.IFEQ && opcode <= EOpcodes.IF_ACMPNE)
+                || opcode == EOpcodes.IFNULL || opcode == EOpcodes.IFNONNULL;
+    }
+
+    /**
+     * Returns the conditional branch which jumps exactly when the given one does not.
+     *
+     * @param opcode The opcode of a conditional branch.
+     * @return The opcode of the inverted branch.
+     */
+    /* non-public */ static int invertConditionalJump(int opcode) {
+        // ifeq/ifne, iflt/ifge, ... は隣り合う対になっている。ifnull/ifnonnull だけ偶奇が逆
+        if (opcode == EOpcodes.IFNULL || opcode == EOpcodes.IFNONNULL)
+            return opcode ^ 1;
+        return ((opcode + 1) ^ 1) - 1;
+    }
+
     /**
      * Finalizes instructions by adding them to the method and handling labels and line numbers.
      */
@@ -1,5 +1,7 @@
 package tokyo.peya.langjal.compiler.member;
 
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.tree.ParseTree;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import tokyo.peya.langjal.compiler.JALParser;
@@ -64,10 +66,15 @@ import tokyo.peya.langjal.compiler.instructions.xreturn.*;
 import tokyo.peya.langjal.compiler.instructions.xstore.*;
 
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Provides evaluation logic for JAL instructions by delegating to registered evaluators.
  * Maintains a list of supported instruction evaluators and selects the appropriate one for each instruction.
+ * <p>
+ * Evaluators are looked up through tables instead of scanning the list:
+ * by opcode, and by the class of the rule context which the {@code instruction} rule has matched.
  */
 public class JALInstructionEvaluator {
     private static final List<AbstractInstructionEvaluator<?>> EVALUATORS = List.of(
@@ -278,6 +285,25 @@ public class JALInstructionEvaluator {
             new InstructionEvaluatorInvokeDynamic()
     );
 
+    private static final AbstractInstructionEvaluator<?>[] EVALUATORS_BY_OPCODE = createOpcodeTable();
+    /**
+     * Evaluators keyed by the rule context class of each instruction, e.g. {@code JvmInsGotoContext}.
+     * Every alternative of the {@code instruction} rule ends with a distinct context class,
+     * optionally preceded by the {@code wide} prefix, so the class alone decides which evaluator is applicable.
+     */
+    private static final Map<Class<?>, AbstractInstructionEvaluator<?>> EVALUATORS_BY_CONTEXT =
+            new ConcurrentHashMap<>();
+
+    private static AbstractInstructionEvaluator<?>[] createOpcodeTable() {
+        AbstractInstructionEvaluator<?>[] table = new AbstractInstructionEvaluator<?>[256];
+        for (AbstractInstructionEvaluator<?> evaluator : EVALUATORS)
+            for (int opcode : evaluator.getEvaluatableOpcodes())
+                if (table[opcode] == null)  // 先に登録されたものを優先する
+                    table[opcode] = evaluator;
+
+        return table;
+    }
+
     /**
      * Evaluates a JAL instruction using the appropriate evaluator.
      *
@@ -289,28 +315,70 @@ public class JALInstructionEvaluator {
     @Nullable
     public static EvaluatedInstruction evaluateInstruction(@NotNull JALMethodCompiler methodEvaluator,
                                                            @NotNull JALParser.InstructionContext instruction) {
+        return getEvaluator(instruction).evaluate(
+                methodEvaluator.getContext(),
+                methodEvaluator.getClazz(),
+                methodEvaluator.getMethod(),
+                methodEvaluator.getInstructions(),
+                methodEvaluator.getLabels(),
+                methodEvaluator.getLocals(),
+                instruction
+        );
+    }
+
+    /**
+     * Returns the evaluator which is applicable to the given instruction.
+     *
+     * @param instruction The instruction context.
+     * @return The applicable evaluator.
+     * @throws InternalCompileErrorException If the instruction is unsupported.
+     */
+    @NotNull
+    public static AbstractInstructionEvaluator<?> getEvaluator(@NotNull JALParser.InstructionContext instruction) {
+        int childCount = instruction.getChildCount();
+        // wide 付きの命令では先頭が wide のトークンになるので，末尾の子を見る
+        ParseTree mnemonic = childCount == 0 ? null : instruction.getChild(childCount - 1);
+        if (mnemonic instanceof ParserRuleContext) {
+            // 初めて見るコンテキストのみ走査し，以降は表から引く
+            AbstractInstructionEvaluator<?> evaluator = EVALUATORS_BY_CONTEXT.computeIfAbsent(
+                    mnemonic.getClass(),
+                    ignored -> findApplicableEvaluator(instruction)
+            );
+            if (evaluator != null)
+                return evaluator;
+        }
+
+        throw new InternalCompileErrorException("Unsupported instruction: " + instruction.getText(), instruction);
+    }
+
+    @Nullable
+    private static AbstractInstructionEvaluator<?> findApplicableEvaluator(
+            @NotNull JALParser.InstructionContext instruction) {
         for (AbstractInstructionEvaluator<?> evaluator : EVALUATORS)
             if (evaluator.isApplicable(instruction))
-                return evaluator.evaluate(
-                        methodEvaluator.getContext(),
-                        methodEvaluator.getClazz(),
-                        methodEvaluator.getMethod(),
-                        methodEvaluator.getInstructions(),
-                        methodEvaluator.getLabels(),
-                        methodEvaluator.getLocals(),
-                        instruction
-                );
+                return evaluator;
 
-        throw new InternalCompileErrorException("Unsupported instruction: " + instruction.getText(), instruction);
+        return null;
     }
 
     @NotNull
     public static AbstractInstructionEvaluator<?> getEvaluatorByOpcode(int opcode) {
-        for (AbstractInstructionEvaluator<?> evaluator : EVALUATORS)
-            for (int supportedOpcode : evaluator.getEvaluatableOpcodes())
-                if (supportedOpcode == opcode)
-                    return evaluator;
+        AbstractInstructionEvaluator<?> evaluator = opcode >= 0 && opcode < EVALUATORS_BY_OPCODE.length
+                ? EVALUATORS_BY_OPCODE[opcode]
+                : null;
+        if (evaluator == null)
+            throw new IllegalArgumentException("No evaluator found for opcode: " + opcode);
 
-        throw new IllegalArgumentException("No evaluator found for opcode: " + opcode);
+        return evaluator;
+    }
+
+    /**
+     * Returns all registered evaluators, in the order of their registration.
+     *
+     * @return An unmodifiable list of evaluators.
+     */
+    @NotNull
+    public static List<AbstractInstructionEvaluator<?>> getEvaluators() {
+        return EVALUATORS;
     }
 }
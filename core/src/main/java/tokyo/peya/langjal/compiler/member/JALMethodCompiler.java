@@ -3,11 +3,14 @@ package tokyo.peya.langjal.compiler.member;
 import lombok.Getter;
 import org.intellij.lang.annotations.MagicConstant;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.objectweb.asm.tree.*;
 import tokyo.peya.langjal.analyser.MethodAnalyser;
 import tokyo.peya.langjal.analyser.MethodAnalysisResult;
 import tokyo.peya.langjal.analyser.StackFrameMapCreator;
 import tokyo.peya.langjal.analyser.StackFrameMapEntry;
+import tokyo.peya.langjal.analyser.hierarchy.CachingClassHierarchyResolver;
+import tokyo.peya.langjal.analyser.hierarchy.ClassHierarchyResolver;
 import tokyo.peya.langjal.compiler.CompileSettings;
 import tokyo.peya.langjal.compiler.FileEvaluatingReporter;
 import tokyo.peya.langjal.compiler.JALParser;
@@ -16,8 +19,13 @@ import tokyo.peya.langjal.compiler.jvm.EOpcodes;
 import tokyo.peya.langjal.compiler.jvm.MethodDescriptor;
 import tokyo.peya.langjal.compiler.jvm.PrimitiveTypes;
 import tokyo.peya.langjal.compiler.jvm.TypeDescriptor;
+import tokyo.peya.langjal.compiler.metrics.CompileCounter;
+import tokyo.peya.langjal.compiler.metrics.CompilePhase;
 import tokyo.peya.langjal.compiler.utils.EvaluatorCommons;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Compiles a JAL method definition into JVM bytecode using ASM.
  * Handles parsing, instruction evaluation, local variable management, and try-catch directives.
@@ -36,6 +44,10 @@ public class JALMethodCompiler {
      * Compilation flags controlling the compilation process.
      */
     private final int compileFlags;
+    /**
+     * Resolver of class hierarchies, shared by every method of the compilation.
+     */
+    private final ClassHierarchyResolver hierarchy;
 
     /**
      * The ASM method node being compiled.
@@ -58,6 +70,11 @@ public class JALMethodCompiler {
      * Holder for try-catch directives in this method.
      */
     private final TryCatchDirectivesHolder tryCatchDirectives;
+    /**
+     * Synthetic methods which the code of this method was moved to, as it exceeded the size limit of a method.
+     * They are added to the class after this method.
+     */
+    private final List<MethodNode> splitMethods;
 
     /**
      * Constructs a JALMethodCompiler for the given class and reporter.
@@ -68,15 +85,31 @@ public class JALMethodCompiler {
      */
     public JALMethodCompiler(@NotNull FileEvaluatingReporter reporter, @NotNull ClassNode cn,
                              @MagicConstant(valuesFromClass = CompileSettings.class) int compileFlags) {
+        this(reporter, cn, compileFlags, CachingClassHierarchyResolver.getShared());
+    }
+
+    /**
+     * Constructs a JALMethodCompiler for the given class and reporter.
+     *
+     * @param reporter     The reporter for compilation messages.
+     * @param cn           The class node.
+     * @param compileFlags Compilation flags.
+     * @param hierarchy    The resolver of class hierarchies used to compute stack frames.
+     */
+    public JALMethodCompiler(@NotNull FileEvaluatingReporter reporter, @NotNull ClassNode cn,
+                             @MagicConstant(valuesFromClass = CompileSettings.class) int compileFlags,
+                             @NotNull ClassHierarchyResolver hierarchy) {
         this.context = reporter;
         this.clazz = cn;
         this.compileFlags = compileFlags;
+        this.hierarchy = hierarchy;
         this.method = new MethodNode();
 
         this.labels = new LabelsHolder();
         this.instructions = new InstructionsHolder(cn, this.method, this.labels);
         this.locals = new LocalVariablesHolder(this.context, this.labels);
         this.tryCatchDirectives = new TryCatchDirectivesHolder(this.context);
+        this.splitMethods = new ArrayList<>();
     }
 
     private static boolean shouldAppendReturnOnLast(InstructionInfo instruction) {
@@ -121,12 +154,88 @@ public class JALMethodCompiler {
      */
     public void evaluateMethod(@NotNull JALParser.MethodDefinitionContext method) {
         this.clazz.methods.add(this.method);
+        this.compileMethod(method);
+        this.clazz.methods.addAll(this.splitMethods);
+    }
 
+    /**
+     * Evaluates and compiles the given method definition context, without adding the method to the class.
+     * The caller must add {@link #getMethod()} and then {@link #getSplitMethods()} to the class,
+     * which allows methods to be compiled concurrently.
+     *
+     * @param method The method definition context.
+     */
+    public void compileMethod(@NotNull JALParser.MethodDefinitionContext method) {
+        long phaseStart = System.nanoTime();
         this.evaluateMethodMetadata(method);
         this.evaluateMethodParameters(method);
         this.evaluateMethodBody(method.methodBody());
+        this.context.recordPhase(CompilePhase.EVALUATE, this.getMethodName(), phaseStart);
+        this.context.recordCount(CompileCounter.INSTRUCTIONS, this.getMethodName(), this.instructions.getSize());
+        this.completeMethod();
+    }
+
+    private void completeMethod() {
+        MethodAnalysisResult analysisResult = null;
+        // ジャンプを最適化すると，どこからも飛ばれなくなった命令セットが残り，フレームを作れなくなる
+        if ((this.compileFlags & (CompileSettings.ELIMINATE_DEAD_CODE | CompileSettings.OPTIMISE_JUMPS)) != 0)
+            analysisResult = this.eliminateDeadCode();
+        if ((this.compileFlags & CompileSettings.SPLIT_LARGE_METHODS) != 0 && this.splitLargeMethod())
+            analysisResult = null;  // 分割したら解析し直す
         if ((this.compileFlags & CompileSettings.COMPUTE_STACK_FRAME_MAP) != 0)
-            this.addStackMapTable();
+            this.addStackMapTable(analysisResult);
+    }
+
+    @Nullable
+    private MethodAnalysisResult eliminateDeadCode() {
+        long phaseStart = System.nanoTime();
+        MethodAnalysisResult analysisResult = this.analyseMethod();
+        this.context.recordPhase(CompilePhase.ANALYSIS, this.getMethodName(), phaseStart);
+
+        if (!new DeadCodeEliminator(this).eliminate(analysisResult))
+            return analysisResult;  // 何も消えなければ，解析結果をそのまま使える
+
+        this.refinaliseMethod();
+        return null;
+    }
+
+    private boolean splitLargeMethod() {
+        MethodSplitter splitter = new MethodSplitter(this);
+        if (!splitter.isTooLarge())
+            return false;
+
+        JALMethodCompiler helper = splitter.split();
+        if (helper == null)
+            return false;  // 分割できなければそのままにして，ClassWriter にエラーを出させる
+
+        this.splitMethods.add(helper.getMethod());
+        this.splitMethods.addAll(helper.getSplitMethods());
+        return true;
+    }
+
+    /**
+     * Rebuilds the method node from the holders, after instructions were moved to a helper method.
+     */
+    /* non-public */ void refinaliseMethod() {
+        this.method.instructions.clear();
+        if (this.method.tryCatchBlocks != null)
+            this.method.tryCatchBlocks.clear();
+        if (this.method.localVariables != null)
+            this.method.localVariables.clear();
+
+        this.labels.registerGlobalStart(this.method);
+        this.finaliseMethod();
+    }
+
+    /**
+     * Finishes a helper method whose instructions, labels and locals were imported from a method split by
+     * {@link MethodSplitter}, splitting it again if it is still too large.
+     */
+    /* non-public */ void finaliseSplitMethod() {
+        this.finaliseMethod();
+        this.method.visitEnd();
+        this.context.recordCount(CompileCounter.INSTRUCTIONS, this.getMethodName(), this.instructions.getSize());
+        this.completeMethod();
     }
 
     /**
@@ -141,18 +250,35 @@ public class JALMethodCompiler {
                 this.method,
                 this.instructions,
                 this.labels,
-                this.locals
+                this.locals,
+                this.hierarchy
         );
         return analyser.analyse();
     }
 
-    private void addStackMapTable() {
+    /**
+     * Returns the name and descriptor of the method, which identifies the method in metrics.
+     *
+     * @return The name and descriptor, e.g. {@code main([Ljava/lang/String;)V}.
+     */
+    @NotNull
+    public String getMethodName() {
+        return this.method.name + this.method.desc;
+    }
+
+    private void addStackMapTable(@Nullable MethodAnalysisResult analysisResult) {
         // 各命令セットを解析して，スタックフレームを作成する。
-        MethodAnalysisResult analysisResult = this.analyseMethod();
+        long phaseStart = System.nanoTime();
+        if (analysisResult == null) {
+            analysisResult = this.analyseMethod();
+            this.context.recordPhase(CompilePhase.ANALYSIS, this.getMethodName(), phaseStart);
+        }
 
+        phaseStart = System.nanoTime();
         StackFrameMapCreator mapCreator = new StackFrameMapCreator(
                 this.context,
-                this.method
+                this.method,
+                this.hierarchy
         );
         mapCreator.updateFrames(analysisResult.propagations());
         StackFrameMapEntry[] mapEntries = mapCreator.createStackFrameMap();
@@ -174,6 +300,7 @@ public class JALMethodCompiler {
             AbstractInsnNode node = instruction.insn();
             this.method.instructions.insertBefore(node, frameNode);
         }
+        this.context.recordPhase(CompilePhase.FRAME_MAP, this.getMethodName(), phaseStart);
     }
 
     private void evaluateMethodParameters(@NotNull JALParser.MethodDefinitionContext method) {
@@ -242,7 +369,7 @@ public class JALMethodCompiler {
     }
 
     private void evaluateMethodBody(@NotNull JALParser.MethodBodyContext body) {
-        this.context.postInfo("Evaluating method body for " + this.method.name + this.method.desc);
+        this.context.postInfo(() -> "Evaluating method body for " + this.getMethodName());
 
         this.method.visitCode();
         this.evaluateLabels(body);
@@ -354,5 +481,13 @@ public class JALMethodCompiler {
             this.instructions.importInstruction(new InsnNode(EOpcodes.RETURN), labelAssignation, -1);
             this.labels.updateGlobalEndInstructionIndex(this.instructions.getSize());
         }
+
+        if ((this.compileFlags & CompileSettings.OPTIMISE_PEEPHOLE) != 0)
+            new PeepholeOptimiser(this.instructions, this.labels).optimise();
+        if ((this.compileFlags & CompileSettings.OPTIMISE_JUMPS) != 0)
+            new JumpOptimiser(this).optimise();
+
+        // 32 KB を超えて届かない分岐を，フレームを解析する前に幅広の分岐へ直しておく
+        this.instructions.relaxBranches();
     }
 }
@@ -0,0 +1,322 @@
+package tokyo.peya.langjal.compiler.member;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.InsnNode;
+import org.objectweb.asm.tree.JumpInsnNode;
+import org.objectweb.asm.tree.LabelNode;
+import org.objectweb.asm.tree.LookupSwitchInsnNode;
+import org.objectweb.asm.tree.TableSwitchInsnNode;
+import tokyo.peya.langjal.compiler.jvm.EOpcodes;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Simplifies the control flow of a method between its instruction sets, i.e. the blocks delimited by labels.
+ * <p>
+ * The following rewrites are made, in this order:
+ * <ul>
+ *     <li>A branch or switch to a {@code goto} jumps to the final target of the chain of {@code goto}s instead.</li>
+ *     <li>{@code if<cond> A; goto B; A:} becomes {@code if<!cond> B; A:}.</li>
+ *     <li>{@code goto} to a {@code return} becomes the {@code return} itself, and {@code goto} to the next instruction is removed.</li>
+ *     <li>A loop testing its condition at the top, {@code Loop: <cond>; if<cond> Exit; <body>; goto Loop},
+ *     is rotated so that the {@code goto} is replaced by a copy of the condition jumping back into the body,
+ *     {@code <cond>; if<!cond> Body}, which makes leaving the loop the fall-through path.
+ *     Only conditions of a few straight-line instructions outside exception handler ranges are copied.</li>
+ * </ul>
+ * As the rewrites can leave instruction sets which nothing jumps to any more,
+ * the method must be passed through {@link DeadCodeEliminator} afterwards.
+ */
+final class JumpOptimiser {
+    /**
+     * The maximum number of instructions of a loop condition to be copied, including its conditional branch.
+     */
+    private static final int MAX_ROTATED_CONDITION_SIZE = 12;
+
+    private final InstructionsHolder instructions;
+    private final LabelsHolder labels;
+    private final TryCatchDirectivesHolder tryCatchDirectives;
+
+    JumpOptimiser(@NotNull JALMethodCompiler compiler) {
+        this.instructions = compiler.getInstructions();
+        this.labels = compiler.getLabels();
+        this.tryCatchDirectives = compiler.getTryCatchDirectives();
+    }
+
+    /**
+     * Rewrites the jumps of the method.
+     *
+     * @return The number of rewritten jumps.
+     */
+    int optimise() {
+        int rewrites = this.threadJumps();
+        rewrites += this.simplifyJumps();
+        rewrites += this.rotateLoops();
+        return rewrites;
+    }
+
+    private int threadJumps() {
+        int threaded = 0;
+        for (int i = 0; i < this.instructions.getSize(); i++) {
+            switch (this.instructions.getInstruction(i).insn()) {
+                case JumpInsnNode jump when jump.getOpcode() != EOpcodes.JSR -> {
+                    LabelNode target = this.threadTarget(jump.label);
+                    if (target != jump.label) {
+                        jump.label = target;
+                        threaded++;
+                    }
+                }
+                case TableSwitchInsnNode tableSwitch -> {
+                    threaded += this.threadSwitchTargets(tableSwitch.labels);
+                    LabelNode target = this.threadTarget(tableSwitch.dflt);
+                    if (target != tableSwitch.dflt) {
+                        tableSwitch.dflt = target;
+                        threaded++;
+                    }
+                }
+                case LookupSwitchInsnNode lookupSwitch -> {
+                    threaded += this.threadSwitchTargets(lookupSwitch.labels);
+                    LabelNode target = this.threadTarget(lookupSwitch.dflt);
+                    if (target != lookupSwitch.dflt) {
+                        lookupSwitch.dflt = target;
+                        threaded++;
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+
+        return threaded;
+    }
+
+    private int threadSwitchTargets(@NotNull List<LabelNode> targets) {
+        int threaded = 0;
+        for (int i = 0; i < targets.size(); i++) {
+            LabelNode target = this.threadTarget(targets.get(i));
+            if (target != targets.get(i)) {
+                targets.set(i, target);
+                threaded++;
+            }
+        }
+        return threaded;
+    }
+
+    @NotNull
+    private LabelNode threadTarget(@NotNull LabelNode target) {
+        LabelNode threaded = target;
+        // goto 同士が輪になっていても止まるように，命令数で打ち切る
+        for (int hops = 0; hops < this.instructions.getSize(); hops++) {
+            InstructionInfo instruction = this.getTargetInstruction(threaded);
+            if (instruction == null || instruction.opcode() != EOpcodes.GOTO)
+                break;
+
+            LabelNode next = ((JumpInsnNode) instruction.insn()).label;
+            if (next == threaded)
+                break;
+            threaded = next;
+        }
+
+        return threaded;
+    }
+
+    private int simplifyJumps() {
+        int size = this.instructions.getSize();
+        List<InstructionInfo> simplified = new ArrayList<>(size);
+        int[] newIndices = new int[size + 1];
+        int rewrites = 0;
+        int index = 0;
+        while (index < size) {
+            InstructionInfo instruction = this.instructions.getInstruction(index);
+            InstructionInfo next = this.instructions.getInstruction(index + 1);
+            newIndices[index] = simplified.size();
+
+            if (next != null && this.isBranchOverGoto(instruction, next, index)) {
+                // goto を飛び越える分岐は，条件を反転して goto の行き先へ直接飛ばす
+                JumpInsnNode gotoInsn = (JumpInsnNode) next.insn();
+                simplified.add(this.instructions.replaceInstruction(
+                        instruction,
+                        new JumpInsnNode(InstructionsHolder.invertConditionalJump(instruction.opcode()), gotoInsn.label)
+                ));
+                newIndices[index + 1] = simplified.size();
+                index += 2;
+                rewrites++;
+                continue;
+            }
+
+            if (instruction.opcode() == EOpcodes.GOTO) {
+                LabelNode target = ((JumpInsnNode) instruction.insn()).label;
+                InstructionInfo targetInstruction = this.getTargetInstruction(target);
+                if (instruction.assignedLabel() == null && targetInstruction == next && next != null) {
+                    index++;
+                    rewrites++;
+                    continue;
+                }
+                if (targetInstruction != null && isReturn(targetInstruction.opcode())) {
+                    // return へ飛ぶだけなら，その場で return すればよい
+                    simplified.add(this.instructions.replaceInstruction(
+                            instruction,
+                            new InsnNode(targetInstruction.opcode())
+                    ));
+                    index++;
+                    rewrites++;
+                    continue;
+                }
+            }
+
+            simplified.add(instruction);
+            index++;
+        }
+        newIndices[size] = simplified.size();
+
+        if (rewrites > 0)
+            this.instructions.rewriteInstructions(simplified, newIndices);
+        return rewrites;
+    }
+
+    private boolean isBranchOverGoto(@NotNull InstructionInfo branch, @NotNull InstructionInfo next, int index) {
+        if (!InstructionsHolder.isConditionalJump(branch.opcode()))
+            return false;
+        if (next.opcode() != EOpcodes.GOTO || next.assignedLabel() != null)
+            return false;  // ラベル付きの goto は，他から飛んでくるかもしれない
+
+        LabelInfo target = this.labels.getLabelByNode(((JumpInsnNode) branch.insn()).label);
+        return target != null && target.instructionIndex() == index + 2;
+    }
+
+    private int rotateLoops() {
+        int size = this.instructions.getSize();
+        int[] conditionEnds = new int[size];
+        LabelInfo[] addedLabels = new LabelInfo[size];
+        int rotations = 0;
+        for (int i = 0; i < size; i++) {
+            conditionEnds[i] = this.findRotatableCondition(i);
+            if (conditionEnds[i] < 0)
+                continue;
+
+            // 本体の先頭へ戻れるように，ラベルがなければ付けておく。位置は書き換えで一緒に動く
+            int bodyStart = conditionEnds[i] + 1;
+            if (this.instructions.getInstruction(bodyStart).assignedLabel() == null && addedLabels[bodyStart] == null)
+                addedLabels[bodyStart] = this.labels.importASMLabel(new LabelNode(), bodyStart);
+            rotations++;
+        }
+        if (rotations == 0)
+            return 0;
+
+        List<InstructionInfo> rotated = new ArrayList<>(size);
+        int[] newIndices = new int[size + 1];
+        for (int i = 0; i < size; i++) {
+            newIndices[i] = rotated.size();
+            InstructionInfo instruction = this.instructions.getInstruction(i);
+            if (addedLabels[i] != null)
+                instruction = InstructionsHolder.withLabel(instruction, addedLabels[i]);
+            if (conditionEnds[i] < 0)
+                rotated.add(instruction);
+            else
+                this.addRotatedCondition(rotated, instruction, i, conditionEnds[i], addedLabels);
+        }
+        newIndices[size] = rotated.size();
+
+        this.instructions.rewriteInstructions(rotated, newIndices);
+        return rotations;
+    }
+
+    private int findRotatableCondition(int index) {
+        InstructionInfo instruction = this.instructions.getInstruction(index);
+        if (instruction.opcode() != EOpcodes.GOTO)
+            return -1;
+
+        LabelInfo header = this.labels.getLabelByNode(((JumpInsnNode) instruction.insn()).label);
+        if (header == null || header.instructionIndex() >= index)
+            return -1;  // 後ろ向きの goto だけがループの戻り
+
+        int conditionStart = header.instructionIndex();
+        int conditionEnd = -1;
+        for (int i = conditionStart; i < index - 1 && i < conditionStart + MAX_ROTATED_CONDITION_SIZE; i++) {
+            InstructionInfo conditionInstruction = this.instructions.getInstruction(i);
+            if (i > conditionStart && conditionInstruction.assignedLabel() != null)
+                return -1;  // 条件の途中に飛び込まれるかもしれない
+            if (InstructionsHolder.isConditionalJump(conditionInstruction.opcode())) {
+                conditionEnd = i;
+                break;
+            }
+            if (!isCopyable(conditionInstruction.insn()))
+                return -1;
+        }
+        if (conditionEnd < 0)
+            return -1;
+
+        // 例外ハンドラの範囲が変わらないように，範囲の外にあるものだけを回す
+        for (TryCatchDirective directive : this.tryCatchDirectives.getTryCatchDirectives()) {
+            int tryStart = directive.tryBlockStartLabel().instructionIndex();
+            int tryEnd = directive.tryBlockEndLabel().instructionIndex();
+            if ((tryStart <= conditionEnd && conditionStart < tryEnd) || (tryStart <= index && index < tryEnd))
+                return -1;
+        }
+
+        return conditionEnd;
+    }
+
+    private void addRotatedCondition(@NotNull List<InstructionInfo> rotated, @NotNull InstructionInfo backJump,
+                                     int index, int conditionEnd, @NotNull LabelInfo @NotNull [] addedLabels) {
+        LabelInfo header = this.labels.getLabelByNode(((JumpInsnNode) backJump.insn()).label);
+        assert header != null;
+
+        int conditionStart = header.instructionIndex();
+        for (int i = conditionStart; i < conditionEnd; i++) {
+            InstructionInfo conditionInstruction = this.instructions.getInstruction(i);
+            AbstractInsnNode copy = conditionInstruction.insn().clone(Collections.emptyMap());
+            // goto に付いていたラベルは，条件の写しの先頭が引き継ぐ
+            rotated.add(InstructionsHolder.withLabel(
+                    this.instructions.replaceInstruction(conditionInstruction, copy),
+                    i == conditionStart ? backJump.assignedLabel() : null
+            ));
+        }
+
+        InstructionInfo branch = this.instructions.getInstruction(conditionEnd);
+        LabelInfo bodyLabel = addedLabels[conditionEnd + 1] != null
+                ? addedLabels[conditionEnd + 1] : this.instructions.getInstruction(conditionEnd + 1).assignedLabel();
+        assert bodyLabel != null;
+        rotated.add(InstructionsHolder.withLabel(
+                this.instructions.replaceInstruction(
+                        branch,
+                        new JumpInsnNode(InstructionsHolder.invertConditionalJump(branch.opcode()), bodyLabel.node())
+                ),
+                conditionStart == conditionEnd ? backJump.assignedLabel() : null
+        ));
+
+        LabelNode exit = ((JumpInsnNode) branch.insn()).label;
+        if (this.getTargetInstruction(exit) != this.instructions.getInstruction(index + 1))
+            rotated.add(InstructionsHolder.withLabel(
+                    this.instructions.replaceInstruction(backJump, new JumpInsnNode(EOpcodes.GOTO, exit)),
+                    null
+            ));
+    }
+
+    @Nullable
+    private InstructionInfo getTargetInstruction(@NotNull LabelNode target) {
+        LabelInfo label = this.labels.getLabelByNode(target);
+        if (label == null)
+            return null;
+        return this.instructions.getInstruction(label.instructionIndex());
+    }
+
+    private static boolean isCopyable(@NotNull AbstractInsnNode insn) {
+        // 分岐や return を含まず，写しても結果が変わらない命令だけを条件として写す
+        if (insn instanceof JumpInsnNode || insn instanceof TableSwitchInsnNode || insn instanceof LookupSwitchInsnNode)
+            return false;
+
+        int opcode = insn.getOpcode();
+        return !isReturn(opcode)
+                && opcode != EOpcodes.ATHROW
+                && opcode != EOpcodes.RET
+                && opcode != EOpcodes.NEW;  // 未初期化の型は命令の位置で区別されるので，写せない
+    }
+
+    private static boolean isReturn(int opcode) {
+        return opcode >= EOpcodes.IRETURN && opcode <= EOpcodes.RETURN;
+    }
+}
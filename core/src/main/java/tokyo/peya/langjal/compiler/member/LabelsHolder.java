@@ -11,9 +11,16 @@ import tokyo.peya.langjal.compiler.JALParser;
 import tokyo.peya.langjal.compiler.exceptions.UnknownLabelException;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
 
 /**
  * Manages labels within a method, including registration, resolution, and scope checks.
@@ -22,12 +29,27 @@ import java.util.List;
  * Methods managed by this holder have a global start label (<code>MBEGIN</code>) and a global end label (<code>MEND</code>).
  * When a method explicitly defines a label as its start, it will be registered as the global start label,
  * replacing the default <code>MBEGIN</code>.
+ * <p>
+ * Labels are indexed by name and by ASM label, so resolving a label does not depend on the number of labels
+ * in the method, while {@link #getLabels()} keeps the order of the instructions.
  */
 public class LabelsHolder {
     /**
      * List of all labels registered in this holder.
      */
     private final List<LabelInfo> labels;
+    /**
+     * Labels indexed by their names.
+     */
+    private final Map<String, LabelInfo> labelsByName;
+    /**
+     * Labels indexed by their ASM labels, compared by identity.
+     */
+    private final Map<Label, LabelInfo> labelsByASMLabel;
+    /**
+     * The first label of each instruction index, built on demand for {@link #getNextBlock(LabelInfo)}.
+     */
+    private NavigableMap<Integer, LabelInfo> blockStarts;
     /**
      * The global end label for the method.
      */
@@ -50,6 +72,8 @@ public class LabelsHolder {
      */
     public LabelsHolder() {
         this.labels = new ArrayList<>();
+        this.labelsByName = new HashMap<>();
+        this.labelsByASMLabel = new IdentityHashMap<>();
 
         this.globalStart = this.currentLabel = new LabelInfo("MBEGIN", new Label(), 0);
         this.globalEnd = new LabelInfo("MEND", new Label(), Integer.MAX_VALUE);
@@ -115,12 +139,7 @@ public class LabelsHolder {
      */
     @Nullable
     public LabelInfo resolveSafe(@NotNull String labelName) {
-        for (LabelInfo existingLabel : this.labels) {
-            if (existingLabel.name().equals(labelName))
-                return existingLabel;  // すでに登録されているラベルを返す
-        }
-
-        return null;  // ラベルが見つからない場合は null を返す
+        return this.labelsByName.get(labelName);  // ラベルが見つからない場合は null
     }
 
     /**
@@ -144,8 +163,7 @@ public class LabelsHolder {
         // 新しいラベルを登録
         Label newLabel = new Label();
         LabelInfo labelInfo = new LabelInfo(labelName.getText(), newLabel, instructionIndex);
-        this.labels.add(labelInfo);
-        this.labels.sort(Comparator.comparingInt(LabelInfo::instructionIndex));
+        this.addLabelSorted(labelInfo);
 
         // メソッドへの登録はあと
         return labelInfo;
@@ -172,12 +190,33 @@ public class LabelsHolder {
         String labelName = asmLabelNode.getLabel().toString();  // ラベル名を取得
         Label newLabel = asmLabelNode.getLabel();
         LabelInfo labelInfo = new LabelInfo(labelName, newLabel, instructionIndex);
-        this.labels.add(labelInfo);
-        this.labels.sort(Comparator.comparingInt(LabelInfo::instructionIndex));
+        this.addLabelSorted(labelInfo);
 
         return labelInfo;  // 登録したラベル情報を返す
     }
 
+    private void addLabelSorted(@NotNull LabelInfo labelInfo) {
+        int size = this.labels.size();
+        boolean inOrder = size == 0
+                || this.labels.get(size - 1).instructionIndex() <= labelInfo.instructionIndex();
+        this.addLabel(labelInfo);
+        // ラベルは基本的に命令順に登録されるので，順序が崩れたときだけ並べ替える（安定ソートなので結果は同じ）
+        if (!inOrder)
+            this.labels.sort(Comparator.comparingInt(LabelInfo::instructionIndex));
+    }
+
+    private void addLabel(@NotNull LabelInfo labelInfo) {
+        this.labels.add(labelInfo);
+        this.labelsByName.putIfAbsent(labelInfo.name(), labelInfo);
+        this.labelsByASMLabel.putIfAbsent(labelInfo.label(), labelInfo);
+        this.labelsByASMLabel.putIfAbsent(labelInfo.node().getLabel(), labelInfo);
+        this.blockStarts = null;
+    }
+
+    private boolean isRegistered(@NotNull LabelInfo labelInfo) {
+        return this.labelsByASMLabel.get(labelInfo.label()) == labelInfo;
+    }
+
     /**
      * Checks if a label is in scope between two labels.
      *
@@ -196,11 +235,15 @@ public class LabelsHolder {
      * @return The next LabelInfo or null.
      */
     public LabelInfo getNextBlock(@NotNull LabelInfo label) {
-        int currentIndex = label.instructionIndex();
-        for (LabelInfo nextLabel : this.labels)
-            if (nextLabel.instructionIndex() > currentIndex)
-                return nextLabel;  // 次のラベルを返す
-        return null;  // 次のラベルが見つからない場合は null を返す
+        if (this.blockStarts == null) {
+            // 同じ位置に複数のラベルがある場合は，リストで先にあるものを返す
+            this.blockStarts = new TreeMap<>();
+            for (LabelInfo registered : this.labels)
+                this.blockStarts.putIfAbsent(registered.instructionIndex(), registered);
+        }
+
+        Map.Entry<Integer, LabelInfo> next = this.blockStarts.higherEntry(label.instructionIndex());
+        return next == null ? null : next.getValue();  // 次のラベルが見つからない場合は null を返す
     }
 
     /**
@@ -211,13 +254,75 @@ public class LabelsHolder {
     public void finalise(@NotNull MethodNode method) {
         LabelNode globalEndNode = this.globalEnd.node();
         method.instructions.add(globalEndNode);
-        if (!this.labels.contains(this.globalEnd))
-            this.labels.add(this.globalEnd);  // グローバル終了ラベルも登録
+        if (!this.isRegistered(this.globalEnd))
+            this.addLabel(this.globalEnd);  // グローバル終了ラベルも登録
         // ↑ END なので，いっちゃんさいご
     }
 
+    /**
+     * Moves every label to the new index of its instruction, after instructions were inserted into the method.
+     *
+     * @param newIndices The new index of each old instruction index,
+     *                   with one more element for the index just past the last instruction.
+     */
+    public void remapInstructionIndices(int @NotNull [] newIndices) {
+        for (LabelInfo label : this.labels)
+            label.setInstructionIndex(remapInstructionIndex(newIndices, label.instructionIndex()));
+        // 終了ラベルは finalise まで登録されていないので，別に動かす
+        if (!this.isRegistered(this.globalEnd))
+            this.globalEnd.setInstructionIndex(remapInstructionIndex(newIndices, this.globalEnd.instructionIndex()));
+        if (!this.isRegistered(this.globalStart))
+            this.globalStart.setInstructionIndex(remapInstructionIndex(newIndices, this.globalStart.instructionIndex()));
+        this.blockStarts = null;
+    }
+
+    private static int remapInstructionIndex(int @NotNull [] newIndices, int instructionIndex) {
+        if (instructionIndex < 0 || instructionIndex >= newIndices.length)
+            return instructionIndex;  // まだ位置が決まっていないラベル
+        return newIndices[instructionIndex];
+    }
+
+    /**
+     * Removes the labels placed after the given instruction index, when the instructions from there are moved to another method.
+     * The labels at the index itself, and the global start and end labels, are kept.
+     *
+     * @param instructionIndex The index of the first moved instruction.
+     * @return The removed labels, in order of their instructions.
+     */
+    /* non-public */ List<LabelInfo> removeLabelsAfter(int instructionIndex) {
+        List<LabelInfo> removed = new ArrayList<>();
+        for (LabelInfo label : this.labels)
+            if (!(label == this.globalStart || label == this.globalEnd || label.instructionIndex() <= instructionIndex))
+                removed.add(label);
+
+        this.removeLabels(removed);
+        return removed;
+    }
+
+    /**
+     * Removes the given labels, when no instruction, exception handler or local variable refers to them any more.
+     * The global start and end labels must not be removed.
+     *
+     * @param removedLabels The labels to remove.
+     */
+    /* non-public */ void removeLabels(@NotNull Collection<LabelInfo> removedLabels) {
+        if (removedLabels.isEmpty())
+            return;
+
+        Set<LabelInfo> removed = Collections.newSetFromMap(new IdentityHashMap<>());
+        removed.addAll(removedLabels);
+        this.labels.removeIf(removed::contains);
+        for (LabelInfo label : removed) {
+            this.labelsByName.remove(label.name(), label);
+            this.labelsByASMLabel.remove(label.label(), label);
+            this.labelsByASMLabel.remove(label.node().getLabel(), label);
+        }
+        this.blockStarts = null;
+    }
+
     public void updateGlobalEndInstructionIndex(int instructionIndex) {
         this.globalEnd.setInstructionIndex(instructionIndex);
+        this.blockStarts = null;
     }
 
     /**
@@ -228,8 +333,8 @@ public class LabelsHolder {
     public void registerGlobalStart(@NotNull MethodNode method) {
         LabelNode globalStartNode = this.globalStart.node();
         method.instructions.add(globalStartNode);
-        if (!this.labels.contains(this.globalStart))
-            this.labels.add(this.globalStart);  // グローバル開始ラベルも登録
+        if (!this.isRegistered(this.globalStart))
+            this.addLabel(this.globalStart);  // グローバル開始ラベルも登録
     }
 
     /**
@@ -250,17 +355,7 @@ public class LabelsHolder {
      */
     @Nullable
     public LabelInfo getLabelByNode(@NotNull LabelNode targetNode) {
-        Label targetLabel = targetNode.getLabel();
-
-        for (LabelInfo label : this.labels) {
-            LabelNode node = label.node();
-            Label asmLabel = label.label();
-            if (node.getLabel() == targetLabel
-                    || asmLabel == targetLabel
-                    || targetLabel.toString().equals(node.getLabel().toString()))
-                return label;  // ラベルノードが一致するものを返す
-        }
-
-        return null;  // 見つからなかった場合は null を返す
+        // ASM の Label#toString は同一性ハッシュ由来なので，同一性で引けば十分
+        return this.labelsByASMLabel.get(targetNode.getLabel());  // 見つからなかった場合は null
     }
 }
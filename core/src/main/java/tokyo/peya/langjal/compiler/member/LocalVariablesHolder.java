@@ -13,12 +13,18 @@ import tokyo.peya.langjal.compiler.jvm.TypeDescriptor;
 import tokyo.peya.langjal.compiler.utils.EvaluatorCommons;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Manages local variables for a method, including registration, resolution, and scope checks.
  * Handles both parameters and regular local variables, and finalizes them for ASM.
+ * <p>
+ * Local variables are indexed by name and by slot, so resolving a reference only visits the variables
+ * sharing its name or slot, while the local variable table is emitted in registration order.
  */
 public class LocalVariablesHolder {
     /**
@@ -34,6 +40,19 @@ public class LocalVariablesHolder {
      * List of all local variables registered.
      */
     private final List<LocalVariableInfo> locals;
+    /**
+     * Local variables indexed by their names, in registration order.
+     */
+    private final Map<String, List<LocalVariableInfo>> localsByName;
+    /**
+     * Local variables indexed by their slots, in registration order.
+     * Each list holds the live ranges the slot is used for.
+     */
+    private final Map<Integer, List<LocalVariableInfo>> localsBySlot;
+    /**
+     * The local variable with the highest slot, used to allocate slots for named variables.
+     */
+    private LocalVariableInfo highestLocal;
 
     /**
      * Constructs a LocalVariablesHolder for the given reporter and labels holder.
@@ -46,6 +65,8 @@ public class LocalVariablesHolder {
         this.labelsHolder = labelsHolder;
 
         this.locals = new ArrayList<>();
+        this.localsByName = new HashMap<>();
+        this.localsBySlot = new HashMap<>();
     }
 
     /**
@@ -67,7 +88,16 @@ public class LocalVariablesHolder {
                 index,
                 true
         );
-        this.locals.add(localVar);
+        this.addLocal(localVar);
+    }
+
+    private void addLocal(@NotNull LocalVariableInfo local) {
+        this.locals.add(local);
+        this.localsByName.computeIfAbsent(local.name(), k -> new ArrayList<>(1)).add(local);
+        this.localsBySlot.computeIfAbsent(local.index(), k -> new ArrayList<>(1)).add(local);
+        // 同じスロットの場合は先に登録されたものを優先する
+        if (this.highestLocal == null || local.index() > this.highestLocal.index())
+            this.highestLocal = local;
     }
 
     /**
@@ -79,7 +109,7 @@ public class LocalVariablesHolder {
         if (this.locals.isEmpty())
             return;  // ローカル変数がない場合は何もしない
 
-        this.reporter.postInfo("Finalising locals for method " + method.name + method.desc);
+        this.reporter.postInfo(() -> "Finalising locals for method " + method.name + method.desc);
         for (LocalVariableInfo local : this.locals) {
             if (local.isParameter())
                 continue;  // パラメータはローカル変数として登録しない
@@ -100,6 +130,79 @@ public class LocalVariablesHolder {
         }
     }
 
+    /**
+     * Cuts the scopes of the local variables at the given instruction index,
+     * when the instructions from there are moved to another method.
+     * Local variables starting at or after the index are removed, and the others reaching past it end with the method.
+     *
+     * @param instructionIndex The index of the first moved instruction.
+     * @return The local variables, other than parameters, whose scopes reached past the index, as they were before cut.
+     */
+    /* non-public */ List<LocalVariableInfo> splitScopesAt(int instructionIndex) {
+        List<LocalVariableInfo> moved = new ArrayList<>();
+        List<LocalVariableInfo> kept = new ArrayList<>(this.locals.size());
+        for (LocalVariableInfo local : this.locals) {
+            if (local.isParameter() || local.end().instructionIndex() <= instructionIndex) {
+                kept.add(local);
+                continue;
+            }
+
+            moved.add(local);
+            if (local.start().instructionIndex() < instructionIndex)
+                kept.add(new LocalVariableInfo(
+                        local.name(),
+                        local.type(),
+                        local.start(),
+                        this.labelsHolder.getGlobalEnd(),
+                        local.index()
+                ));
+        }
+
+        this.resetLocals(kept);
+        return moved;
+    }
+
+    /**
+     * Moves the scopes of the local variables from the given labels to their replacements,
+     * when the instructions of the labels are removed from the method.
+     *
+     * @param replacements The replacement of each removed label.
+     */
+    /* non-public */ void replaceScopeLabels(@NotNull Map<LabelInfo, LabelInfo> replacements) {
+        if (replacements.isEmpty())
+            return;
+
+        List<LocalVariableInfo> replaced = new ArrayList<>(this.locals.size());
+        for (LocalVariableInfo local : this.locals)
+            replaced.add(new LocalVariableInfo(
+                    local.name(),
+                    local.type(),
+                    replacements.getOrDefault(local.start(), local.start()),
+                    replacements.getOrDefault(local.end(), local.end()),
+                    local.index(),
+                    local.isParameter()
+            ));
+
+        this.resetLocals(replaced);
+    }
+
+    /**
+     * Returns an unmodifiable list of all local variables, including parameters, in registration order.
+     *
+     * @return The local variables.
+     */
+    /* non-public */ List<LocalVariableInfo> getLocalVariables() {
+        return Collections.unmodifiableList(this.locals);
+    }
+
+    private void resetLocals(@NotNull List<LocalVariableInfo> locals) {
+        this.locals.clear();
+        this.localsByName.clear();
+        this.localsBySlot.clear();
+        this.highestLocal = null;
+        locals.forEach(this::addLocal);
+    }
+
     /**
      * Resolves a local variable by its index, or returns null if not found.
      *
@@ -108,14 +211,16 @@ public class LocalVariablesHolder {
      */
     @Nullable
     public LocalVariableInfo resolveSafe(int localIndex) {
-        for (LocalVariableInfo foundLocal : this.locals)  // リストのサイズと index は無関係。
-            if (foundLocal.index() == localIndex && this.isLocalLiving(foundLocal))
-                return foundLocal;
+        // リストのサイズと index は無関係。
+        List<LocalVariableInfo> slotLocals = this.localsBySlot.get(localIndex);
+        if (slotLocals == null)
+            return null;
 
-        for (LocalVariableInfo foundLocal : this.locals)
-            if (foundLocal.index() == localIndex)
+        for (LocalVariableInfo foundLocal : slotLocals)
+            if (this.isLocalLiving(foundLocal))
                 return foundLocal;
-        return null;
+
+        return slotLocals.getFirst();
     }
 
     /**
@@ -151,8 +256,12 @@ public class LocalVariablesHolder {
      */
     @Nullable
     public LocalVariableInfo resolveSafe(@NotNull String localName) {
-        for (LocalVariableInfo localVar : this.locals)
-            if (localName.equals(localVar.name()) && this.isLocalLiving(localVar))
+        List<LocalVariableInfo> namedLocals = this.localsByName.get(localName);
+        if (namedLocals == null)
+            return null;
+
+        for (LocalVariableInfo localVar : namedLocals)
+            if (this.isLocalLiving(localVar))
                 return localVar;
 
         return null;
@@ -235,16 +344,10 @@ public class LocalVariablesHolder {
     }
 
     private int getNextLocalIndex() {
-        if (this.locals.isEmpty())
+        LocalVariableInfo maxLocalNum = this.highestLocal;
+        if (maxLocalNum == null)
             return 0;  // 最初のローカル変数はインデックス 0 から始まる
 
-        LocalVariableInfo maxLocalNum = this.locals.stream()
-                .max(Comparator.comparingInt(LocalVariableInfo::index))
-                .orElseThrow(
-                        () -> new IllegalStateException(
-                                "No local variables registered yet.")
-                );
-
         TypeDescriptor lastType = maxLocalNum.type();
         if (lastType.getBaseType().getCategory() == 2) {
             // カテゴリ２の型は２スロット使用するので、次のインデックスは +2
@@ -373,7 +476,7 @@ public class LocalVariablesHolder {
                 endLabel,
                 newLocalIndex
         );
-        this.locals.add(registeredLocal);
+        this.addLocal(registeredLocal);
         // メソッドへの登録は後ほど。
 
         return registeredLocal;
@@ -417,7 +520,7 @@ public class LocalVariablesHolder {
                 endLabel,
                 idx
         );
-        this.locals.add(newLocal);
+        this.addLocal(newLocal);
 
         // メソッドへの登録は後ほど。
         return newLocal;
@@ -429,14 +532,20 @@ public class LocalVariablesHolder {
                                                              @NotNull LabelInfo endLabel) {
         int newStartSlot = idx;
         int newEndSlot = idx + type.getBaseType().getCategory();
-        for (LocalVariableInfo local : this.locals) {
-            int existingStartSlot = local.index();
-            int existingEndSlot = local.index() + local.type().getBaseType().getCategory();
-            if (newStartSlot >= existingEndSlot || existingStartSlot >= newEndSlot)
+        // カテゴリ２の変数は前のスロットからはみ出してくるので，1 つ前のスロットから調べる
+        for (int slot = Math.max(0, newStartSlot - 1); slot < newEndSlot; slot++) {
+            List<LocalVariableInfo> slotLocals = this.localsBySlot.get(slot);
+            if (slotLocals == null)
                 continue;
 
-            if (scopesOverlap(startLabel, endLabel, local.start(), local.end()))
-                return local;
+            for (LocalVariableInfo local : slotLocals) {
+                int existingEndSlot = local.index() + local.type().getBaseType().getCategory();
+                if (newStartSlot >= existingEndSlot)
+                    continue;
+
+                if (scopesOverlap(startLabel, endLabel, local.start(), local.end()))
+                    return local;
+            }
         }
 
         return null;
@@ -512,7 +621,7 @@ public class LocalVariablesHolder {
         TypeDescriptor type = TypeDescriptor.parse(node.desc);
         int index = node.index;
 
-        this.locals.add(new LocalVariableInfo(
+        this.addLocal(new LocalVariableInfo(
                 name,
                 type,
                 startInfo,
@@ -0,0 +1,379 @@
+package tokyo.peya.langjal.compiler.member;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.InsnNode;
+import org.objectweb.asm.tree.JumpInsnNode;
+import org.objectweb.asm.tree.LabelNode;
+import org.objectweb.asm.tree.LocalVariableNode;
+import org.objectweb.asm.tree.LookupSwitchInsnNode;
+import org.objectweb.asm.tree.MethodInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.TableSwitchInsnNode;
+import org.objectweb.asm.tree.TryCatchBlockNode;
+import org.objectweb.asm.tree.VarInsnNode;
+import tokyo.peya.langjal.analyser.InstructionSetFrame;
+import tokyo.peya.langjal.analyser.MethodAnalysisResult;
+import tokyo.peya.langjal.analyser.StackElementUtils;
+import tokyo.peya.langjal.analyser.StackFrameMapCreator;
+import tokyo.peya.langjal.analyser.stack.LocalStackElement;
+import tokyo.peya.langjal.analyser.stack.ObjectElement;
+import tokyo.peya.langjal.analyser.stack.StackElement;
+import tokyo.peya.langjal.analyser.stack.StackElementType;
+import tokyo.peya.langjal.compiler.jvm.EOpcodes;
+import tokyo.peya.langjal.compiler.jvm.TypeDescriptor;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Splits a method whose code exceeds the size limit of the JVM into synthetic helper methods.
+ * <p>
+ * The method is cut at a label where the operand stack is empty and which is the only way into the code after it:
+ * no branch, switch or exception handler range crosses the cut, except branches from before it to the label itself.
+ * The code from the label on is moved to a {@code private static synthetic} method taking the local variables
+ * at the label as parameters in the same slots, and the method calls it and returns what it returns.
+ * Local variables which are not live at the label are passed as {@code 0}.
+ * The latest such label keeping the method within the limit is chosen, and the helper method is split again
+ * if it is still too large.
+ * <p>
+ * Constructors, class initialisers and methods using {@code jsr}, {@code ret}, {@code monitorenter}
+ * or {@code monitorexit} are not split.
+ */
+final class MethodSplitter {
+    /**
+     * The maximum size of the code of a method, in bytes.
+     */
+    static final int MAX_CODE_SIZE = 65535;
+    /**
+     * The maximum number of parameter slots of a static method.
+     */
+    private static final int MAX_PARAMETER_SLOTS = 255;
+
+    private final JALMethodCompiler compiler;
+    private final MethodNode method;
+    private final InstructionsHolder instructions;
+    private final LabelsHolder labels;
+    private final int[] offsets;
+
+    MethodSplitter(@NotNull JALMethodCompiler compiler) {
+        this.compiler = compiler;
+        this.method = compiler.getMethod();
+        this.instructions = compiler.getInstructions();
+        this.labels = compiler.getLabels();
+        this.offsets = this.instructions.measureOffsets();
+    }
+
+    /**
+     * Returns whether the code of the method may exceed the size limit.
+     *
+     * @return {@code true} if the method should be split.
+     */
+    boolean isTooLarge() {
+        return this.offsets[this.offsets.length - 1] > MAX_CODE_SIZE;
+    }
+
+    /**
+     * Moves the code after a split point to a helper method, and compiles it.
+     *
+     * @return The compiler of the helper method, or null if the method has no split point.
+     */
+    @Nullable
+    JALMethodCompiler split() {
+        String methodName = this.compiler.getMethodName();
+        if (this.method.name.equals("<init>") || this.method.name.equals("<clinit>")) {
+            this.compiler.getContext().postWarning("Cannot split " + methodName + ", as it is an initialiser.");
+            return null;
+        }
+        if (this.hasSubroutines()) {
+            this.compiler.getContext().postWarning("Cannot split " + methodName + ", as it uses jsr or ret.");
+            return null;
+        }
+        if (this.hasMonitors()) {
+            // 獲得したモニタを別のメソッドで解放すると，構造化ロックの規則に反する
+            this.compiler.getContext().postWarning(
+                    "Cannot split " + methodName + ", as it uses monitorenter or monitorexit."
+            );
+            return null;
+        }
+
+        MethodAnalysisResult analysisResult = this.compiler.analyseMethod();
+        StackFrameMapCreator frames = new StackFrameMapCreator(
+                this.compiler.getContext(),
+                this.method,
+                this.compiler.getHierarchy()
+        );
+        frames.updateFrames(analysisResult.propagations());
+
+        boolean[] crossed = this.findCrossedBoundaries();
+        for (int index = this.instructions.getSize() - 1; index > 0; index--) {
+            if (crossed[index])
+                continue;
+
+            LabelInfo label = this.instructions.getInstruction(index).assignedLabel();
+            if (label == null)
+                continue;
+            InstructionSetFrame frame = frames.getFrame(label);
+            if (frame == null || frame.stack().length != 0)
+                continue;  // 到達しないか，スタックに値が残っている
+
+            // 末尾の TOP は渡さなくてよい
+            LocalStackElement[] locals = StackElementUtils.cleanUpLocals(frame.locals());
+            TypeDescriptor[] parameters = toParameters(locals);
+            if (parameters == null || this.offsets[index] + calcCallSize(parameters) > MAX_CODE_SIZE)
+                continue;
+
+            if (this.compiler.getContext().isInfoEnabled())
+                this.compiler.getContext().postInfo("Splitting " + methodName + " at " + label.name());
+            return this.splitAt(index, locals, parameters);
+        }
+
+        this.compiler.getContext().postWarning(
+                "Cannot split " + methodName + ", as it has no label with an empty stack to split at."
+        );
+        return null;
+    }
+
+    private boolean hasSubroutines() {
+        for (int i = 0; i < this.instructions.getSize(); i++) {
+            int opcode = this.instructions.getInstruction(i).opcode();
+            if (opcode == EOpcodes.JSR || opcode == EOpcodes.JSR_W || opcode == EOpcodes.RET)
+                return true;
+        }
+        return false;
+    }
+
+    private boolean hasMonitors() {
+        for (int i = 0; i < this.instructions.getSize(); i++) {
+            int opcode = this.instructions.getInstruction(i).opcode();
+            if (opcode == EOpcodes.MONITORENTER || opcode == EOpcodes.MONITOREXIT)
+                return true;
+        }
+        return false;
+    }
+
+    private boolean[] findCrossedBoundaries() {
+        // crossed[k] は，命令 k の前で切ると分岐や例外ハンドラの範囲が跨ってしまうかどうか
+        int size = this.instructions.getSize();
+        int[] crossings = new int[size + 2];
+        for (int i = 0; i < size; i++)
+            for (LabelNode target : getBranchTargets(this.instructions.getInstruction(i).insn())) {
+                int targetIndex = this.indexOf(target);
+                if (i < targetIndex)
+                    markCrossed(crossings, i + 1, targetIndex - 1);  // 前方への分岐は，分岐先そのものでは切れる
+                else
+                    markCrossed(crossings, targetIndex, i);  // 後方への分岐は，分岐先でも切れない
+            }
+
+        // 例外ハンドラの範囲とハンドラは，全て前半に残す
+        int lastTryCatchIndex = 0;
+        if (this.method.tryCatchBlocks != null)
+            for (TryCatchBlockNode tryCatchBlock : this.method.tryCatchBlocks) {
+                lastTryCatchIndex = Math.max(lastTryCatchIndex, this.indexOf(tryCatchBlock.start));
+                lastTryCatchIndex = Math.max(lastTryCatchIndex, this.indexOf(tryCatchBlock.end));
+                lastTryCatchIndex = Math.max(lastTryCatchIndex, this.indexOf(tryCatchBlock.handler));
+            }
+        markCrossed(crossings, 0, lastTryCatchIndex - 1);
+
+        boolean[] crossed = new boolean[size + 1];
+        int crossing = 0;
+        for (int i = 0; i <= size; i++) {
+            crossing += crossings[i];
+            crossed[i] = crossing > 0;
+        }
+        return crossed;
+    }
+
+    private int indexOf(@NotNull LabelNode node) {
+        LabelInfo label = this.labels.getLabelByNode(node);
+        if (label == null)
+            return this.instructions.getSize();  // 分からないラベルは末尾として，その手前では切らない
+        return Math.min(label.instructionIndex(), this.instructions.getSize());
+    }
+
+    private static void markCrossed(int @NotNull [] crossings, int from, int to) {
+        if (from > to)
+            return;
+        crossings[from]++;
+        crossings[to + 1]--;
+    }
+
+    /**
+     * Returns the labels which the given instruction may jump to, other than the next instruction.
+     *
+     * @param insn The instruction.
+     * @return The target of a jump, or the targets of a switch including its default; empty for other instructions.
+     */
+    @NotNull
+    /* non-public */ static List<LabelNode> getBranchTargets(@NotNull AbstractInsnNode insn) {
+        return switch (insn) {
+            case JumpInsnNode jump -> List.of(jump.label);
+            case TableSwitchInsnNode tableSwitch -> {
+                List<LabelNode> targets = new ArrayList<>(tableSwitch.labels);
+                targets.add(tableSwitch.dflt);
+                yield targets;
+            }
+            case LookupSwitchInsnNode lookupSwitch -> {
+                List<LabelNode> targets = new ArrayList<>(lookupSwitch.labels);
+                targets.add(lookupSwitch.dflt);
+                yield targets;
+            }
+            default -> List.of();
+        };
+    }
+
+    @Nullable
+    private static TypeDescriptor[] toParameters(@NotNull LocalStackElement[] locals) {
+        if (locals.length > MAX_PARAMETER_SLOTS)
+            return null;
+
+        // スロット番号を変えずに済むよう，各スロットにその型の引数を置く。カテゴリ２の後ろ半分は null のまま
+        TypeDescriptor[] parameters = new TypeDescriptor[locals.length];
+        for (int i = 0; i < locals.length; i++) {
+            StackElement element = locals[i].stackElement();
+            TypeDescriptor type = switch (element.type()) {
+                case TOP, INTEGER -> TypeDescriptor.INTEGER;  // 死んでいるスロットは 0 で埋める
+                case FLOAT -> TypeDescriptor.FLOAT;
+                case LONG -> TypeDescriptor.LONG;
+                case DOUBLE -> TypeDescriptor.DOUBLE;
+                case OBJECT -> ((ObjectElement) element).content();
+                default -> null;  // null や未初期化の値は，引数の型に書けない
+            };
+            if (type == null)
+                return null;
+
+            parameters[i] = type;
+            if (type.getBaseType().getCategory() == 2)
+                i++;
+        }
+        return parameters;
+    }
+
+    private static int calcCallSize(@NotNull TypeDescriptor[] parameters) {
+        int size = 3 + 1;  // invokestatic + xreturn
+        for (int slot = 0; slot < parameters.length; slot++)
+            if (parameters[slot] != null)
+                size += slot <= 3 ? 1 : 2;  // xload_n か xload n（iconst_0 は１バイト）
+        return size;
+    }
+
+    @NotNull
+    private static String toDescriptor(@NotNull TypeDescriptor[] parameters, @NotNull String returnDescriptor) {
+        StringBuilder desc = new StringBuilder("(");
+        for (TypeDescriptor parameter : parameters)
+            if (parameter != null)
+                desc.append(parameter);
+        return desc.append(')').append(returnDescriptor).toString();
+    }
+
+    @NotNull
+    private String createHelperName(int index) {
+        // オーバーロードが同じ位置で分割されても衝突しないように，元のディスクリプタも混ぜる
+        String baseName = this.method.name + "$split$" + Integer.toHexString(this.method.desc.hashCode()) + "$" + index;
+        String helperName = baseName;
+        for (int suffix = 1; this.hasMethodNamed(helperName); suffix++)
+            helperName = baseName + "$" + suffix;
+        return helperName;
+    }
+
+    private boolean hasMethodNamed(@NotNull String name) {
+        // 並列にコンパイルする場合，メソッドは全て終わってから追加されるので，ここで読んでも競合しない
+        for (MethodNode existing : this.compiler.getClazz().methods)
+            if (existing.name.equals(name))
+                return true;
+        return false;
+    }
+
+    @NotNull
+    private JALMethodCompiler splitAt(int index, @NotNull LocalStackElement[] locals,
+                                      @NotNull TypeDescriptor[] parameters) {
+        Type returnType = Type.getReturnType(this.method.desc);
+        String helperName = this.createHelperName(index);
+        String helperDesc = toDescriptor(parameters, returnType.getDescriptor());
+
+        // 後半の命令・ラベル・ローカル変数を取り外す
+        List<InstructionInfo> movedCode = this.instructions.removeFrom(index);
+        List<LabelInfo> movedLabels = this.labels.removeLabelsAfter(index);
+        List<LocalVariableInfo> movedLocals = this.compiler.getLocals().splitScopesAt(index);
+
+        // 代わりに，ローカル変数を渡してヘルパを呼び，その値を返す
+        LabelInfo splitLabel = movedCode.getFirst().assignedLabel();
+        for (int slot = 0; slot < parameters.length; slot++) {
+            TypeDescriptor parameter = parameters[slot];
+            if (parameter == null)
+                continue;
+
+            AbstractInsnNode load = locals[slot].stackElement().type() == StackElementType.TOP
+                    ? new InsnNode(EOpcodes.ICONST_0)
+                    : new VarInsnNode(Type.getType(parameter.toString()).getOpcode(EOpcodes.ILOAD), slot);
+            this.instructions.importInstruction(load, splitLabel, -1);
+            splitLabel = null;
+        }
+        boolean isInterface = (this.compiler.getClazz().access & EOpcodes.ACC_INTERFACE) != 0;
+        this.instructions.importInstruction(
+                new MethodInsnNode(EOpcodes.INVOKESTATIC, this.compiler.getClazz().name, helperName, helperDesc, isInterface),
+                splitLabel,
+                -1
+        );
+        this.instructions.importInstruction(new InsnNode(returnType.getOpcode(EOpcodes.IRETURN)), null, -1);
+        this.labels.updateGlobalEndInstructionIndex(this.instructions.getSize());
+        this.compiler.refinaliseMethod();
+
+        JALMethodCompiler helper = new JALMethodCompiler(
+                this.compiler.getContext(),
+                this.compiler.getClazz(),
+                this.compiler.getCompileFlags(),
+                this.compiler.getHierarchy()
+        );
+        MethodNode helperMethod = helper.getMethod();
+        helperMethod.name = helperName;
+        helperMethod.desc = helperDesc;
+        helperMethod.access = EOpcodes.ACC_PRIVATE | EOpcodes.ACC_STATIC | EOpcodes.ACC_SYNTHETIC;
+        helperMethod.visitCode();
+        for (int slot = 0; slot < parameters.length; slot++)
+            if (parameters[slot] != null)
+                helper.getLocals().registerParameter(String.format("arg%05d", slot), parameters[slot], slot);
+
+        importMovedCode(helper, index, movedCode, movedLabels, movedLocals);
+        helper.finaliseSplitMethod();
+        return helper;
+    }
+
+    private static void importMovedCode(@NotNull JALMethodCompiler helper, int firstIndex,
+                                        @NotNull List<InstructionInfo> movedCode,
+                                        @NotNull List<LabelInfo> movedLabels,
+                                        @NotNull List<LocalVariableInfo> movedLocals) {
+        LabelsHolder labels = helper.getLabels();
+        Map<LabelInfo, LabelInfo> importedLabels = new IdentityHashMap<>();
+        for (LabelInfo label : movedLabels)
+            importedLabels.put(label, labels.importASMLabel(label.node(), label.instructionIndex() - firstIndex));
+        labels.registerGlobalStart(helper.getMethod());
+
+        // 先頭の命令は，分割したラベルの代わりにヘルパの開始ラベルから始まる
+        InstructionsHolder instructions = helper.getInstructions();
+        LabelInfo labelAssignation = labels.getGlobalStart();
+        for (InstructionInfo instruction : movedCode) {
+            if (instruction.assignedLabel() != null && importedLabels.containsKey(instruction.assignedLabel()))
+                labelAssignation = importedLabels.get(instruction.assignedLabel());
+            instructions.importInstruction(instruction.insn(), labelAssignation, instruction.sourceLine());
+            labelAssignation = null;
+        }
+        labels.updateGlobalEndInstructionIndex(instructions.getSize());
+        // switch のパディングが変わって届かなくなる分岐があるかもしれない
+        instructions.relaxBranches();
+
+        for (LocalVariableInfo local : movedLocals)
+            helper.getLocals().importLocalVariable(new LocalVariableNode(
+                    local.name(),
+                    local.type().toString(),
+                    null,
+                    local.start().node(),
+                    local.end().node(),
+                    local.index()
+            ));
+    }
+}
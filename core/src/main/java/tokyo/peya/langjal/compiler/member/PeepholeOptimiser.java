@@ -0,0 +1,188 @@
+package tokyo.peya.langjal.compiler.member;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.InsnNode;
+import org.objectweb.asm.tree.IntInsnNode;
+import org.objectweb.asm.tree.JumpInsnNode;
+import org.objectweb.asm.tree.LdcInsnNode;
+import org.objectweb.asm.tree.VarInsnNode;
+import tokyo.peya.langjal.compiler.jvm.EOpcodes;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rewrites redundant instruction sequences of a method into shorter equivalents.
+ * <p>
+ * The following rewrites are made, until none of them applies:
+ * <ul>
+ *     <li>{@code xstore n; xload n} becomes {@code dup; xstore n} ({@code dup2} for {@code long}/{@code double}).</li>
+ *     <li>A value pushed by {@code dup}, a local variable load or a constant and then popped is not pushed at all.</li>
+ *     <li>{@code goto} to the next instruction is removed.</li>
+ *     <li>Integer constants use {@code iconst_n}, {@code bipush} or {@code sipush} instead of {@code ldc} or a wider push,
+ *     and {@code ldc} of {@code 0L}, {@code 1L}, {@code 0.0f} to {@code 2.0f}, {@code 0.0} and {@code 1.0}
+ *     use the matching {@code xconst_n}.</li>
+ * </ul>
+ * A sequence is only rewritten when no instruction but its first has a label,
+ * as a labelled instruction may be the target of a branch or the boundary of an exception handler range,
+ * and a labelled instruction is never removed.
+ * The other labels are moved with their instructions.
+ */
+final class PeepholeOptimiser {
+    private final InstructionsHolder instructions;
+    private final LabelsHolder labels;
+
+    PeepholeOptimiser(@NotNull InstructionsHolder instructions, @NotNull LabelsHolder labels) {
+        this.instructions = instructions;
+        this.labels = labels;
+    }
+
+    /**
+     * Rewrites the instructions of the method.
+     *
+     * @return The number of rewritten sequences.
+     */
+    int optimise() {
+        int rewrites = 0;
+        int passRewrites;
+        do {
+            // 消した命令の前後が新しく組になることがあるので，変わらなくなるまで繰り返す
+            passRewrites = this.optimisePass();
+            rewrites += passRewrites;
+        } while (passRewrites > 0);
+
+        return rewrites;
+    }
+
+    private int optimisePass() {
+        int size = this.instructions.getSize();
+        List<InstructionInfo> optimised = new ArrayList<>(size);
+        int[] newIndices = new int[size + 1];
+        int rewrites = 0;
+        int index = 0;
+        while (index < size) {
+            InstructionInfo instruction = this.instructions.getInstruction(index);
+            InstructionInfo next = this.instructions.getInstruction(index + 1);
+            newIndices[index] = optimised.size();
+            assert instruction != null;
+
+            boolean removable = instruction.assignedLabel() == null;
+            if (next != null && next.assignedLabel() == null) {
+                if (removable && isPushThenPop(instruction.insn(), next.insn())) {
+                    newIndices[index + 1] = optimised.size();
+                    index += 2;
+                    rewrites++;
+                    continue;
+                }
+
+                int dupOpcode = getDupOfStoreThenLoad(instruction.insn(), next.insn());
+                if (dupOpcode != -1) {
+                    // ストアした値を読み直すのではなく，ストアする前に複製しておく
+                    optimised.add(this.instructions.replaceInstruction(instruction, new InsnNode(dupOpcode)));
+                    newIndices[index + 1] = optimised.size();
+                    optimised.add(this.instructions.replaceInstruction(next, instruction.insn()));
+                    index += 2;
+                    rewrites++;
+                    continue;
+                }
+            }
+
+            if (removable && this.isJumpToNext(instruction.insn(), index)) {
+                index++;
+                rewrites++;
+                continue;
+            }
+
+            AbstractInsnNode constant = toShorterConstant(instruction.insn());
+            if (constant != null) {
+                optimised.add(this.instructions.replaceInstruction(instruction, constant));
+                rewrites++;
+            } else
+                optimised.add(instruction);
+            index++;
+        }
+        newIndices[size] = optimised.size();
+
+        if (rewrites > 0)
+            this.instructions.rewriteInstructions(optimised, newIndices);
+        return rewrites;
+    }
+
+    private boolean isJumpToNext(@NotNull AbstractInsnNode insn, int index) {
+        if (insn.getOpcode() != EOpcodes.GOTO)
+            return false;
+
+        LabelInfo target = this.labels.getLabelByNode(((JumpInsnNode) insn).label);
+        return target != null && target.instructionIndex() == index + 1;
+    }
+
+    private static boolean isPushThenPop(@NotNull AbstractInsnNode push, @NotNull AbstractInsnNode pop) {
+        int popOpcode = pop.getOpcode();
+        if (popOpcode != EOpcodes.POP && popOpcode != EOpcodes.POP2)
+            return false;
+
+        // 副作用がなく，ちょうど pop（pop2）の分だけ積む命令
+        int pushedCategory = switch (push.getOpcode()) {
+            case EOpcodes.DUP, EOpcodes.ILOAD, EOpcodes.FLOAD, EOpcodes.ALOAD,
+                 EOpcodes.ACONST_NULL, EOpcodes.ICONST_M1, EOpcodes.ICONST_0, EOpcodes.ICONST_1,
+                 EOpcodes.ICONST_2, EOpcodes.ICONST_3, EOpcodes.ICONST_4, EOpcodes.ICONST_5,
+                 EOpcodes.FCONST_0, EOpcodes.FCONST_1, EOpcodes.FCONST_2,
+                 EOpcodes.BIPUSH, EOpcodes.SIPUSH -> 1;
+            case EOpcodes.DUP2, EOpcodes.LLOAD, EOpcodes.DLOAD,
+                 EOpcodes.LCONST_0, EOpcodes.LCONST_1, EOpcodes.DCONST_0, EOpcodes.DCONST_1 -> 2;
+            default -> 0;
+        };
+        return pushedCategory == (popOpcode == EOpcodes.POP ? 1 : 2);
+    }
+
+    private static int getDupOfStoreThenLoad(@NotNull AbstractInsnNode store, @NotNull AbstractInsnNode load) {
+        if (!(store instanceof VarInsnNode storeInsn && load instanceof VarInsnNode loadInsn))
+            return -1;
+        if (storeInsn.var != loadInsn.var)
+            return -1;
+
+        return switch (storeInsn.getOpcode()) {
+            case EOpcodes.ISTORE -> loadInsn.getOpcode() == EOpcodes.ILOAD ? EOpcodes.DUP : -1;
+            case EOpcodes.FSTORE -> loadInsn.getOpcode() == EOpcodes.FLOAD ? EOpcodes.DUP : -1;
+            case EOpcodes.ASTORE -> loadInsn.getOpcode() == EOpcodes.ALOAD ? EOpcodes.DUP : -1;
+            case EOpcodes.LSTORE -> loadInsn.getOpcode() == EOpcodes.LLOAD ? EOpcodes.DUP2 : -1;
+            case EOpcodes.DSTORE -> loadInsn.getOpcode() == EOpcodes.DLOAD ? EOpcodes.DUP2 : -1;
+            default -> -1;
+        };
+    }
+
+    @Nullable
+    private static AbstractInsnNode toShorterConstant(@NotNull AbstractInsnNode insn) {
+        return switch (insn) {
+            case LdcInsnNode ldc -> switch (ldc.cst) {
+                case Integer value -> toIntConstant(value);
+                case Long value when value == 0L || value == 1L ->
+                        new InsnNode(EOpcodes.LCONST_0 + value.intValue());
+                // -0.0 は xconst_0 にできないので，ビット列で比べる
+                case Float value when Float.floatToRawIntBits(value) == Float.floatToRawIntBits(0.0f)
+                        || value == 1.0f || value == 2.0f -> new InsnNode(EOpcodes.FCONST_0 + value.intValue());
+                case Double value when Double.doubleToRawLongBits(value) == Double.doubleToRawLongBits(0.0)
+                        || value == 1.0 -> new InsnNode(EOpcodes.DCONST_0 + value.intValue());
+                default -> null;
+            };
+            case IntInsnNode push when push.getOpcode() == EOpcodes.BIPUSH || push.getOpcode() == EOpcodes.SIPUSH -> {
+                AbstractInsnNode shorter = toIntConstant(push.operand);
+                yield shorter == null || shorter.getOpcode() == push.getOpcode() ? null : shorter;
+            }
+            default -> null;
+        };
+    }
+
+    @Nullable
+    private static AbstractInsnNode toIntConstant(int value) {
+        if (value >= -1 && value <= 5)
+            return new InsnNode(EOpcodes.ICONST_0 + value);
+        else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE)
+            return new IntInsnNode(EOpcodes.BIPUSH, value);
+        else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE)
+            return new IntInsnNode(EOpcodes.SIPUSH, value);
+        return null;
+    }
+}
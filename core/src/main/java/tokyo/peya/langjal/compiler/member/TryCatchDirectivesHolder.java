@@ -10,7 +10,9 @@ import tokyo.peya.langjal.compiler.jvm.ClassReferenceType;
 import tokyo.peya.langjal.compiler.jvm.TypeDescriptor;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.function.UnaryOperator;
 
 /**
  * Holds and manages try-catch(-finally) directives for a method during compilation.
@@ -82,7 +84,7 @@ public class TryCatchDirectivesHolder {
         if (this.tryCatchDirectives.isEmpty())
             return;  // トライキャッチディレクティブがない場合は何もしない
 
-        this.context.postInfo("Finalising try-catch directives for method " + method.name + method.desc);
+        this.context.postInfo(() -> "Finalising try-catch directives for method " + method.name + method.desc);
         if (method.tryCatchBlocks == null)
             method.tryCatchBlocks = new ArrayList<>();
         for (TryCatchDirective directive : this.tryCatchDirectives) {
@@ -114,6 +116,32 @@ public class TryCatchDirectivesHolder {
         }
     }
 
+    /**
+     * Rewrites every directive with the given function, when the labels of the method have changed.
+     *
+     * @param rewriter The function returning the rewritten directive, or null to remove the directive.
+     */
+    /* non-public */ void rewriteTryCatchDirectives(@NotNull UnaryOperator<TryCatchDirective> rewriter) {
+        List<TryCatchDirective> rewritten = new ArrayList<>(this.tryCatchDirectives.size());
+        for (TryCatchDirective directive : this.tryCatchDirectives) {
+            TryCatchDirective rewrittenDirective = rewriter.apply(directive);
+            if (rewrittenDirective != null)
+                rewritten.add(rewrittenDirective);
+        }
+
+        this.tryCatchDirectives.clear();
+        this.tryCatchDirectives.addAll(rewritten);
+    }
+
+    /**
+     * Returns an unmodifiable list of the directives, in the order they were added.
+     *
+     * @return The directives.
+     */
+    /* non-public */ List<TryCatchDirective> getTryCatchDirectives() {
+        return Collections.unmodifiableList(this.tryCatchDirectives);
+    }
+
     private static @NotNull String toExceptionInternalName(@NotNull TypeDescriptor exceptionType) {
         if (exceptionType.getBaseType() instanceof ClassReferenceType classType && !exceptionType.isArray())
             return classType.getInternalName();
@@ -0,0 +1,31 @@
+package tokyo.peya.langjal.compiler.metrics;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Counters of work done while compiling a method.
+ */
+@Getter
+@AllArgsConstructor
+public enum CompileCounter {
+    /**
+     * Instructions emitted to the method, including the implicit trailing return.
+     */
+    INSTRUCTIONS("instructions"),
+    /**
+     * Frame propagations processed by the analyser, i.e. the number of times an instruction set has been analysed.
+     */
+    PROPAGATIONS("propagations"),
+    /**
+     * Propagations merged into a frame which an instruction set had already received.
+     */
+    MERGES("merges");
+
+    /**
+     * The name of the counter used in summaries and JSON dumps.
+     */
+    @NotNull
+    private final String key;
+}
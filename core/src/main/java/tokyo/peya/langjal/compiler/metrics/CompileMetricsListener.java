@@ -0,0 +1,55 @@
+package tokyo.peya.langjal.compiler.metrics;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import tokyo.peya.langjal.compiler.CompileReporter;
+
+import java.nio.file.Path;
+
+/**
+ * Receives wall times of compile phases and counters of work done by the compiler.
+ * <p>
+ * A listener is provided by {@link CompileReporter#getMetricsListener()}.
+ * When files are compiled in parallel, it is called from several threads at once.
+ *
+ * @see CompileStatistics
+ */
+public interface CompileMetricsListener {
+    /**
+     * A listener which discards every metric.
+     * The compiler skips measuring when the reporter returns this listener.
+     */
+    CompileMetricsListener NONE = new CompileMetricsListener() {
+        @Override
+        public void phaseCompleted(@Nullable Path sourcePath, @Nullable String methodName,
+                                   @NotNull CompilePhase phase, long elapsedNanos) {
+        }
+
+        @Override
+        public void counted(@Nullable Path sourcePath, @Nullable String methodName,
+                            @NotNull CompileCounter counter, long amount) {
+        }
+    };
+
+    /**
+     * Called when a phase of a file or a method has completed.
+     *
+     * @param sourcePath   The source file path, or null if the source is not a file.
+     * @param methodName   The name and descriptor of the method, or null for file phases.
+     * @param phase        The completed phase.
+     * @param elapsedNanos The wall time the phase took, in nanoseconds.
+     */
+    void phaseCompleted(@Nullable Path sourcePath, @Nullable String methodName,
+                        @NotNull CompilePhase phase, long elapsedNanos);
+
+    /**
+     * Called when work of a method has been counted.
+     *
+     * @param sourcePath The source file path, or null if the source is not a file.
+     * @param methodName The name and descriptor of the method, or null if not applicable.
+     * @param counter    The counter to add to.
+     * @param amount     The amount to add.
+     */
+    void counted(@Nullable Path sourcePath, @Nullable String methodName,
+                 @NotNull CompileCounter counter, long amount);
+}
@@ -0,0 +1,54 @@
+package tokyo.peya.langjal.compiler.metrics;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Phases of a compilation whose wall time is measured.
+ * <p>
+ * File phases are measured once per source file,
+ * while method phases are measured for each method and reported with the name of the method.
+ */
+@Getter
+@AllArgsConstructor
+public enum CompilePhase {
+    /**
+     * Expanding macros of the source code.
+     */
+    PREPROCESS("preprocess", false),
+    /**
+     * Tokenising the preprocessed source code.
+     */
+    LEX("lex", false),
+    /**
+     * Building the parse tree from the tokens.
+     */
+    PARSE("parse", false),
+    /**
+     * Evaluating the instructions, labels, local variables and try-catch directives of a method.
+     */
+    EVALUATE("evaluate", true),
+    /**
+     * Simulating the stack and the local variables of a method.
+     */
+    ANALYSIS("analysis", true),
+    /**
+     * Creating the stack map frames of a method from its analysis result.
+     */
+    FRAME_MAP("frame_map", true),
+    /**
+     * Serialising the class and writing it to the sink.
+     */
+    CLASS_WRITE("class_write", false);
+
+    /**
+     * The name of the phase used in summaries and JSON dumps.
+     */
+    @NotNull
+    private final String key;
+    /**
+     * Whether the phase is measured per method.
+     */
+    private final boolean methodPhase;
+}
@@ -0,0 +1,382 @@
+package tokyo.peya.langjal.compiler.metrics;
+
+import lombok.Getter;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * A thread-safe {@link CompileMetricsListener} which aggregates metrics per file and per method.
+ * <p>
+ * Method phases and counters are also added to the totals of their file,
+ * so the statistics of a file cover the whole compilation of it.
+ * Files are kept sorted by their paths, so summaries and JSON dumps are stable between runs.
+ * <br>
+ * <b>Usage Example:</b>
+ * <pre>{@code
+ * CompileStatistics statistics = new CompileStatistics();
+ * CompileReporter reporter = ...; // returns statistics from getMetricsListener()
+ * new JALFileCompiler(reporter, sink, CompileSettings.FULL).compile(sourceFile);
+ * statistics.printSummary(System.out, 10);
+ * }</pre>
+ */
+public class CompileStatistics implements CompileMetricsListener {
+    /**
+     * The name under which sources without a file path are recorded.
+     */
+    public static final String IN_MEMORY_SOURCE = "<memory>";
+
+    private final Map<String, FileStatistics> files;
+
+    public CompileStatistics() {
+        this.files = new ConcurrentSkipListMap<>();
+    }
+
+    private static void appendJsonString(@NotNull StringBuilder sb, @NotNull String value) {
+        sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20)
+                        sb.append(String.format("\\u%04x", (int) c));
+                    else
+                        sb.append(c);
+                }
+            }
+        }
+        sb.append('"');
+    }
+
+    private static void appendJsonMeasurements(@NotNull StringBuilder sb, @NotNull Measurements measurements) {
+        sb.append("\"phaseNanos\":{");
+        CompilePhase[] phases = CompilePhase.values();
+        for (int i = 0; i < phases.length; i++) {
+            if (i > 0)
+                sb.append(',');
+            appendJsonString(sb, phases[i].getKey());
+            sb.append(':').append(measurements.getNanos(phases[i]));
+        }
+        sb.append("},\"counters\":{");
+        CompileCounter[] counters = CompileCounter.values();
+        for (int i = 0; i < counters.length; i++) {
+            if (i > 0)
+                sb.append(',');
+            appendJsonString(sb, counters[i].getKey());
+            sb.append(':').append(measurements.getCount(counters[i]));
+        }
+        sb.append('}');
+    }
+
+    private static String toMillis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1_000_000.0);
+    }
+
+    @Override
+    public void phaseCompleted(@Nullable Path sourcePath, @Nullable String methodName,
+                               @NotNull CompilePhase phase, long elapsedNanos) {
+        this.getFile(sourcePath).addNanos(methodName, phase, elapsedNanos);
+    }
+
+    @Override
+    public void counted(@Nullable Path sourcePath, @Nullable String methodName,
+                        @NotNull CompileCounter counter, long amount) {
+        this.getFile(sourcePath).addCount(methodName, counter, amount);
+    }
+
+    @NotNull
+    private FileStatistics getFile(@Nullable Path sourcePath) {
+        String name = sourcePath == null ? IN_MEMORY_SOURCE : sourcePath.toString();
+        return this.files.computeIfAbsent(name, FileStatistics::new);
+    }
+
+    /**
+     * Returns the statistics of every recorded file, sorted by path.
+     *
+     * @return The statistics of the files.
+     */
+    @NotNull
+    public List<FileStatistics> getFiles() {
+        return List.copyOf(this.files.values());
+    }
+
+    /**
+     * Returns the wall time of the given phase summed over all files.
+     *
+     * @param phase The phase.
+     * @return The total time in nanoseconds.
+     */
+    public long getTotalNanos(@NotNull CompilePhase phase) {
+        return this.files.values().stream()
+                .mapToLong(file -> file.getNanos(phase))
+                .sum();
+    }
+
+    /**
+     * Returns the given counter summed over all files.
+     *
+     * @param counter The counter.
+     * @return The total count.
+     */
+    public long getTotalCount(@NotNull CompileCounter counter) {
+        return this.files.values().stream()
+                .mapToLong(file -> file.getCount(counter))
+                .sum();
+    }
+
+    /**
+     * Returns the methods which took the longest time, over all files.
+     *
+     * @param limit The maximum number of methods to return.
+     * @return The slowest methods, slowest first.
+     */
+    @NotNull
+    public List<MethodStatistics> getSlowestMethods(int limit) {
+        return this.files.values().stream()
+                .flatMap(file -> file.getMethods().stream())
+                .sorted(Comparator.comparingLong(MethodStatistics::getTotalNanos).reversed())
+                .limit(limit)
+                .toList();
+    }
+
+    /**
+     * Prints a human-readable summary: the time of each phase, the counters and the slowest methods.
+     *
+     * @param out         The stream to print to.
+     * @param methodLimit The number of slowest methods to list.
+     */
+    public void printSummary(@NotNull PrintStream out, int methodLimit) {
+        List<FileStatistics> files = this.getFiles();
+        int methods = files.stream().mapToInt(file -> file.getMethods().size()).sum();
+        out.println("Compilation statistics (" + files.size() + " file(s), " + methods + " method(s)):");
+
+        long total = 0;
+        for (CompilePhase phase : CompilePhase.values()) {
+            long nanos = this.getTotalNanos(phase);
+            total += nanos;
+            out.printf(Locale.ROOT, "  %-12s %12s ms%n", phase.getKey(), toMillis(nanos));
+        }
+        out.printf(Locale.ROOT, "  %-12s %12s ms%n", "total", toMillis(total));
+
+        for (CompileCounter counter : CompileCounter.values())
+            out.printf(Locale.ROOT, "  %-12s %12d%n", counter.getKey(), this.getTotalCount(counter));
+
+        List<MethodStatistics> slowest = this.getSlowestMethods(methodLimit);
+        if (slowest.isEmpty())
+            return;
+
+        out.println("Slowest methods:");
+        for (MethodStatistics method : slowest)
+            out.printf(
+                    Locale.ROOT,
+                    "  %12s ms  %s %s (%d instructions, %d propagations)%n",
+                    toMillis(method.getTotalNanos()),
+                    method.getFileName(),
+                    method.getName(),
+                    method.getCount(CompileCounter.INSTRUCTIONS),
+                    method.getCount(CompileCounter.PROPAGATIONS)
+            );
+    }
+
+    /**
+     * Serialises the statistics to JSON, with totals and the per-file and per-method breakdown.
+     * Times are in nanoseconds.
+     *
+     * @return The JSON document.
+     */
+    @NotNull
+    public String toJson() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"totals\":");
+        Measurements totals = new Measurements();
+        for (FileStatistics file : this.files.values())
+            totals.addAll(file);
+        sb.append('{');
+        appendJsonMeasurements(sb, totals);
+        sb.append("},\"files\":[");
+
+        boolean firstFile = true;
+        for (FileStatistics file : this.files.values()) {
+            if (!firstFile)
+                sb.append(',');
+            firstFile = false;
+
+            sb.append("{\"path\":");
+            appendJsonString(sb, file.getName());
+            sb.append(',');
+            appendJsonMeasurements(sb, file);
+            sb.append(",\"methods\":[");
+            boolean firstMethod = true;
+            for (MethodStatistics method : file.getMethods()) {
+                if (!firstMethod)
+                    sb.append(',');
+                firstMethod = false;
+
+                sb.append("{\"name\":");
+                appendJsonString(sb, method.getName());
+                sb.append(',');
+                appendJsonMeasurements(sb, method);
+                sb.append('}');
+            }
+            sb.append("]}");
+        }
+        sb.append("]}");
+        return sb.toString();
+    }
+
+    /**
+     * Writes the JSON document of {@link #toJson()} to the given appendable.
+     *
+     * @param out The destination.
+     */
+    public void writeJson(@NotNull Appendable out) {
+        try {
+            out.append(this.toJson());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Wall times per phase and counters, safe to update from several threads.
+     */
+    public static class Measurements {
+        private final long[] phaseNanos;
+        private final long[] counts;
+
+        Measurements() {
+            this.phaseNanos = new long[CompilePhase.values().length];
+            this.counts = new long[CompileCounter.values().length];
+        }
+
+        synchronized void addNanos(@NotNull CompilePhase phase, long nanos) {
+            this.phaseNanos[phase.ordinal()] += nanos;
+        }
+
+        synchronized void addCount(@NotNull CompileCounter counter, long amount) {
+            this.counts[counter.ordinal()] += amount;
+        }
+
+        synchronized void addAll(@NotNull Measurements other) {
+            for (CompilePhase phase : CompilePhase.values())
+                this.phaseNanos[phase.ordinal()] += other.getNanos(phase);
+            for (CompileCounter counter : CompileCounter.values())
+                this.counts[counter.ordinal()] += other.getCount(counter);
+        }
+
+        /**
+         * Returns the wall time spent in the given phase.
+         *
+         * @param phase The phase.
+         * @return The time in nanoseconds.
+         */
+        public synchronized long getNanos(@NotNull CompilePhase phase) {
+            return this.phaseNanos[phase.ordinal()];
+        }
+
+        /**
+         * Returns the value of the given counter.
+         *
+         * @param counter The counter.
+         * @return The count.
+         */
+        public synchronized long getCount(@NotNull CompileCounter counter) {
+            return this.counts[counter.ordinal()];
+        }
+
+        /**
+         * Returns the wall time summed over all phases.
+         *
+         * @return The time in nanoseconds.
+         */
+        public synchronized long getTotalNanos() {
+            long total = 0;
+            for (long nanos : this.phaseNanos)
+                total += nanos;
+            return total;
+        }
+    }
+
+    /**
+     * Statistics of one source file, including the phases and counters of its methods.
+     */
+    public static class FileStatistics extends Measurements {
+        /**
+         * The path of the source file, or {@link #IN_MEMORY_SOURCE}.
+         */
+        @Getter
+        @NotNull
+        private final String name;
+        private final Map<String, MethodStatistics> methods;
+
+        FileStatistics(@NotNull String name) {
+            this.name = name;
+            this.methods = new LinkedHashMap<>();
+        }
+
+        void addNanos(@Nullable String methodName, @NotNull CompilePhase phase, long nanos) {
+            this.addNanos(phase, nanos);
+            if (methodName != null)
+                this.getMethod(methodName).addNanos(phase, nanos);
+        }
+
+        void addCount(@Nullable String methodName, @NotNull CompileCounter counter, long amount) {
+            this.addCount(counter, amount);
+            if (methodName != null)
+                this.getMethod(methodName).addCount(counter, amount);
+        }
+
+        @NotNull
+        private synchronized MethodStatistics getMethod(@NotNull String methodName) {
+            return this.methods.computeIfAbsent(methodName, name -> new MethodStatistics(this.name, name));
+        }
+
+        /**
+         * Returns the statistics of the methods of this file, in the order they were first recorded.
+         *
+         * @return The statistics of the methods.
+         */
+        @NotNull
+        public synchronized List<MethodStatistics> getMethods() {
+            return new ArrayList<>(this.methods.values());
+        }
+    }
+
+    /**
+     * Statistics of one method.
+     */
+    @Getter
+    public static class MethodStatistics extends Measurements {
+        /**
+         * The path of the source file which declares the method, or {@link #IN_MEMORY_SOURCE}.
+         */
+        @NotNull
+        private final String fileName;
+        /**
+         * The name and descriptor of the method.
+         */
+        @NotNull
+        private final String name;
+
+        MethodStatistics(@NotNull String fileName, @NotNull String name) {
+            this.fileName = fileName;
+            this.name = name;
+        }
+    }
+}
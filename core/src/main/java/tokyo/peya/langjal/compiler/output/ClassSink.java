@@ -0,0 +1,25 @@
+package tokyo.peya.langjal.compiler.output;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+
+/**
+ * Destination of the class files produced by {@link tokyo.peya.langjal.compiler.JALFileCompiler}.
+ * <p>
+ * Implementations must be thread-safe, as one sink may be shared by files compiled in parallel.
+ *
+ * @see DirectoryClassSink
+ * @see JarClassSink
+ */
+@FunctionalInterface
+public interface ClassSink {
+    /**
+     * Writes a compiled class.
+     *
+     * @param internalName The internal name of the class, e.g. {@code com/example/Main}.
+     * @param classFile    The bytes of the class file.
+     * @throws IOException If the class cannot be written.
+     */
+    void write(@NotNull String internalName, byte @NotNull [] classFile) throws IOException;
+}
@@ -0,0 +1,33 @@
+package tokyo.peya.langjal.compiler.output;
+
+import lombok.Getter;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A {@link ClassSink} which writes each class to {@code <root>/<internal name>.class}.
+ */
+@Getter
+public class DirectoryClassSink implements ClassSink {
+    private final Path root;
+
+    public DirectoryClassSink(@NotNull Path root) {
+        this.root = root;
+    }
+
+    @Override
+    public void write(@NotNull String internalName, byte @NotNull [] classFile) throws IOException {
+        Path outputFile = this.root.resolve(internalName + ".class");
+        Files.createDirectories(outputFile.getParent());
+
+        Files.write(outputFile, classFile);
+    }
+
+    @Override
+    public String toString() {
+        return this.root.toString();
+    }
+}
@@ -0,0 +1,70 @@
+package tokyo.peya.langjal.compiler.output;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A class loader which defines classes from class files held in memory.
+ * <p>
+ * Classes are defined lazily when they are first loaded, so classes given together may reference each other
+ * regardless of their order. Their class files are also visible through {@link #getResourceAsStream(String)},
+ * so that tools reading classes as resources, e.g. a
+ * {@link tokyo.peya.langjal.analyser.hierarchy.ClassLoaderClassFileSource}, can find them.
+ */
+public class InMemoryClassLoader extends ClassLoader {
+    static {
+        registerAsParallelCapable();
+    }
+
+    /**
+     * Class files keyed by their internal names.
+     */
+    private final Map<String, byte[]> classFiles;
+
+    /**
+     * Creates a class loader.
+     *
+     * @param parent     The parent class loader, which classes not in {@code classFiles} are delegated to.
+     * @param classFiles The class files keyed by the internal names of their classes.
+     */
+    public InMemoryClassLoader(@Nullable ClassLoader parent, @NotNull Map<String, byte[]> classFiles) {
+        super(parent);
+        this.classFiles = new HashMap<>(classFiles);
+    }
+
+    /**
+     * Returns the internal names of the classes this loader can define.
+     *
+     * @return An unmodifiable set of internal names.
+     */
+    @NotNull
+    public Set<String> getClassNames() {
+        return Set.copyOf(this.classFiles.keySet());
+    }
+
+    @Override
+    protected Class<?> findClass(String name) throws ClassNotFoundException {
+        byte[] classFile = this.classFiles.get(name.replace('.', '/'));
+        if (classFile == null)
+            throw new ClassNotFoundException(name);
+
+        return this.defineClass(name, classFile, 0, classFile.length);
+    }
+
+    @Override
+    public InputStream getResourceAsStream(String name) {
+        if (name.endsWith(".class")) {
+            byte[] classFile = this.classFiles.get(name.substring(0, name.length() - ".class".length()));
+            if (classFile != null)
+                return new ByteArrayInputStream(classFile);
+        }
+
+        return super.getResourceAsStream(name);
+    }
+}
@@ -0,0 +1,184 @@
+package tokyo.peya.langjal.compiler.output;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * A {@link ClassSink} which keeps compiled classes in memory and writes them into a jar archive at once.
+ * <p>
+ * The archive is reproducible: the manifest comes first, followed by the package directories and classes
+ * sorted by name, and every entry has the same fixed timestamp,
+ * so the same classes always produce the same bytes regardless of the order they were compiled in.
+ * <br>
+ * <b>Usage Example:</b>
+ * <pre>{@code
+ * JarClassSink sink = new JarClassSink(Deflater.BEST_COMPRESSION, JarClassSink.createManifest("com/example/Main"));
+ * JALFileCompiler compiler = new JALFileCompiler(reporter, sink, settings, hierarchy);
+ * compiler.compile(sourceFile);
+ * sink.writeTo(Path.of("out.jar"));
+ * }</pre>
+ */
+public class JarClassSink implements ClassSink {
+    /**
+     * The compression level which stores entries without compression.
+     */
+    public static final int STORED = Deflater.NO_COMPRESSION;
+    /**
+     * The timestamp of every entry, which is the earliest date that can be stored in a zip file.
+     */
+    private static final LocalDateTime ENTRY_TIME = LocalDateTime.of(1980, 1, 1, 0, 0);
+    private static final String META_INF = "META-INF/";
+
+    private final int compressionLevel;
+    private final Manifest manifest;
+    /**
+     * The entry names (e.g. {@code com/example/Main.class}) and their contents, sorted by name.
+     */
+    private final Map<String, byte[]> classes;
+
+    /**
+     * Creates a sink which uses the default compression level and {@link #createManifest(String)} without a main class.
+     */
+    public JarClassSink() {
+        this(Deflater.DEFAULT_COMPRESSION, createManifest(null));
+    }
+
+    /**
+     * Creates a sink.
+     *
+     * @param compressionLevel The compression level from {@link Deflater#DEFAULT_COMPRESSION} to {@link Deflater#BEST_COMPRESSION}.
+     *                         {@link #STORED} stores entries without compression.
+     * @param manifest         The manifest written to the archive.
+     * @throws IllegalArgumentException If the compression level is out of range.
+     */
+    public JarClassSink(int compressionLevel, @NotNull Manifest manifest) {
+        if (compressionLevel < Deflater.DEFAULT_COMPRESSION || compressionLevel > Deflater.BEST_COMPRESSION)
+            throw new IllegalArgumentException("Invalid compression level: " + compressionLevel);
+
+        this.compressionLevel = compressionLevel;
+        this.manifest = manifest;
+        this.classes = new ConcurrentSkipListMap<>();
+    }
+
+    /**
+     * Creates a manifest with the {@code Manifest-Version} and {@code Created-By} attributes.
+     *
+     * @param mainClass The internal or binary name of the main class, or null to omit {@code Main-Class}.
+     * @return The created manifest.
+     */
+    @NotNull
+    public static Manifest createManifest(@Nullable String mainClass) {
+        Manifest manifest = new Manifest();
+        Attributes attributes = manifest.getMainAttributes();
+        attributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        attributes.put(new Attributes.Name("Created-By"), "LangJAL");
+        if (mainClass != null)
+            attributes.put(Attributes.Name.MAIN_CLASS, mainClass.replace('/', '.'));
+
+        return manifest;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The given array is kept as is until the archive is written, so it must not be modified afterwards.
+     */
+    @Override
+    public void write(@NotNull String internalName, byte @NotNull [] classFile) {
+        this.classes.put(internalName + ".class", classFile);
+    }
+
+    /**
+     * Returns the number of classes written to this sink.
+     *
+     * @return The number of classes.
+     */
+    public int size() {
+        return this.classes.size();
+    }
+
+    /**
+     * Writes the archive to the given file, replacing it if it exists.
+     *
+     * @param output The path of the archive.
+     * @throws IOException If the file cannot be written.
+     */
+    public void writeTo(@NotNull Path output) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(output))) {
+            this.writeTo(out);
+        }
+    }
+
+    /**
+     * Writes the archive to the given stream. The stream is not closed.
+     *
+     * @param out The stream to write to.
+     * @throws IOException If the stream cannot be written.
+     */
+    public void writeTo(@NotNull OutputStream out) throws IOException {
+        ZipOutputStream zip = new ZipOutputStream(out);
+        if (this.compressionLevel != STORED)
+            zip.setLevel(this.compressionLevel);
+
+        // マニフェストは，必ず先頭に置く
+        ByteArrayOutputStream manifestBytes = new ByteArrayOutputStream();
+        this.manifest.write(manifestBytes);
+        this.putEntry(zip, META_INF, new byte[0]);
+        this.putEntry(zip, JarFile.MANIFEST_NAME, manifestBytes.toByteArray());
+
+        // パッケージのディレクトリとクラスを，名前順に並べる
+        Map<String, byte[]> entries = new TreeMap<>();
+        for (Map.Entry<String, byte[]> clazz : this.classes.entrySet()) {
+            String name = clazz.getKey();
+            entries.put(name, clazz.getValue());
+            for (int slash = name.indexOf('/'); slash >= 0; slash = name.indexOf('/', slash + 1))
+                entries.putIfAbsent(name.substring(0, slash + 1), new byte[0]);
+        }
+
+        for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+            if (entry.getKey().equals(META_INF))
+                continue;
+            this.putEntry(zip, entry.getKey(), entry.getValue());
+        }
+
+        zip.finish();
+        zip.flush();
+    }
+
+    private void putEntry(@NotNull ZipOutputStream zip, @NotNull String name, byte @NotNull [] content)
+            throws IOException {
+        ZipEntry entry = new ZipEntry(name);
+        entry.setTimeLocal(ENTRY_TIME);
+        if (this.compressionLevel == STORED) {
+            // STORED では，サイズと CRC を先に書く必要がある
+            CRC32 crc = new CRC32();
+            crc.update(content);
+            entry.setMethod(ZipEntry.STORED);
+            entry.setSize(content.length);
+            entry.setCompressedSize(content.length);
+            entry.setCrc(crc.getValue());
+        }
+
+        zip.putNextEntry(entry);
+        zip.write(content);
+        zip.closeEntry();
+    }
+}
@@ -0,0 +1,46 @@
+package tokyo.peya.langjal.compiler.output;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A {@link ClassSink} which keeps compiled classes in memory, in the order they were written.
+ */
+public class MemoryClassSink implements ClassSink {
+    private final Map<String, byte[]> classes;
+
+    public MemoryClassSink() {
+        this.classes = Collections.synchronizedMap(new LinkedHashMap<>());
+    }
+
+    @Override
+    public void write(@NotNull String internalName, byte @NotNull [] classFile) {
+        this.classes.put(internalName, classFile);
+    }
+
+    /**
+     * Returns the class file of the given class.
+     *
+     * @param internalName The internal name of the class.
+     * @return The class file, or null if no such class has been written.
+     */
+    public byte @Nullable [] getClassFile(@NotNull String internalName) {
+        return this.classes.get(internalName);
+    }
+
+    /**
+     * Returns all written classes.
+     *
+     * @return An unmodifiable map from internal names to class files, in the order they were written.
+     */
+    @NotNull
+    public Map<String, byte[]> getClasses() {
+        synchronized (this.classes) {
+            return Collections.unmodifiableMap(new LinkedHashMap<>(this.classes));
+        }
+    }
+}
@@ -2,37 +2,30 @@ package tokyo.peya.langjal.compiler.preprocessor;
 
 import org.jetbrains.annotations.NotNull;
 
+import java.io.IOException;
+
 record ContinuedLine(@NotNull String text,
                      @NotNull String removedLineEndings,
-                     int nextIndex,
                      int lineCount) {
     @NotNull
-    static ContinuedLine read(@NotNull String sourceCode,
-                              @NotNull String firstLine,
-                              @NotNull String firstLineEnding,
-                              int firstNextLine) {
-        StringBuilder text = new StringBuilder(removeLineContinuation(firstLine));
-        StringBuilder removedLineEndings = new StringBuilder(firstLineEnding);
-        int index = firstNextLine;
+    static ContinuedLine read(@NotNull SourceLineReader lines,
+                              @NotNull SourceLineReader.SourceLine firstLine) throws IOException {
+        StringBuilder text = new StringBuilder(removeLineContinuation(firstLine.text()));
+        StringBuilder removedLineEndings = new StringBuilder(firstLine.ending());
         int lineCount = 1;
 
-        String previousLine = firstLine;
-        while (hasLineContinuation(previousLine) && index < sourceCode.length()) {
-            int lineEnd = PreprocessorSyntax.findLineEnd(sourceCode, index);
-            int nextLine = PreprocessorSyntax.nextLineStart(sourceCode, lineEnd);
-            String sourceLine = sourceCode.substring(index, lineEnd);
-            String lineEnding = sourceCode.substring(lineEnd, nextLine);
-
+        String previousLine = firstLine.text();
+        SourceLineReader.SourceLine sourceLine;
+        while (hasLineContinuation(previousLine) && (sourceLine = lines.readLine()) != null) {
             text.append('\n');
-            text.append(removeLineContinuation(sourceLine));
-            removedLineEndings.append(lineEnding);
+            text.append(removeLineContinuation(sourceLine.text()));
+            removedLineEndings.append(sourceLine.ending());
 
-            previousLine = sourceLine;
-            index = nextLine;
+            previousLine = sourceLine.text();
             lineCount++;
         }
 
-        return new ContinuedLine(text.toString(), removedLineEndings.toString(), index, lineCount);
+        return new ContinuedLine(text.toString(), removedLineEndings.toString(), lineCount);
     }
 
     private static boolean hasLineContinuation(@NotNull String line) {
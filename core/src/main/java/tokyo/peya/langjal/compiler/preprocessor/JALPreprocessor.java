@@ -1,10 +1,19 @@
 package tokyo.peya.langjal.compiler.preprocessor;
 
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CommonTokenFactory;
+import org.antlr.v4.runtime.UnbufferedCharStream;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import tokyo.peya.langjal.compiler.exceptions.CompileErrorException;
 
-import java.util.LinkedHashMap;
-import java.util.Map;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
 
 public final class JALPreprocessor {
     private JALPreprocessor() {
@@ -12,32 +21,60 @@ public final class JALPreprocessor {
 
     @NotNull
     public static String preprocess(@NotNull String sourceCode) throws CompileErrorException {
-        Map<String, Macro> defines = new LinkedHashMap<>();
         StringBuilder result = new StringBuilder(sourceCode.length());
-        boolean[] inBlockComment = {false};
-
-        int line = 1;
-        int index = 0;
-        while (index < sourceCode.length()) {
-            int lineEnd = PreprocessorSyntax.findLineEnd(sourceCode, index);
-            int nextLine = PreprocessorSyntax.nextLineStart(sourceCode, lineEnd);
-            String sourceLine = sourceCode.substring(index, lineEnd);
-            String lineEnding = sourceCode.substring(lineEnd, nextLine);
-
-            if (!inBlockComment[0] && PreprocessorSyntax.isPreprocessorDirective(sourceLine)) {
-                ContinuedLine directive = ContinuedLine.read(sourceCode, sourceLine, lineEnding, nextLine);
-                MacroDirectiveParser.process(defines, directive.text(), line);
-                result.append(directive.removedLineEndings());
-                index = directive.nextIndex();
-                line += directive.lineCount();
-            } else {
-                result.append(MacroExpander.expandLine(sourceLine, defines, inBlockComment));
-                result.append(lineEnding);
-                index = nextLine;
-                line++;
-            }
+        char[] buffer = new char[8192];
+        try (PreprocessingReader reader = preprocess(new StringReader(sourceCode))) {
+            int read;
+            while ((read = reader.read(buffer, 0, buffer.length)) != -1)
+                result.append(buffer, 0, read);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);  // StringReader からは投げられない
         }
 
         return result.toString();
     }
+
+    /**
+     * Returns a reader which preprocesses the given source while it is read,
+     * without reading the whole source into memory.
+     *
+     * @param source The source code. It is closed when the returned reader is closed.
+     * @return The reader of the preprocessed source code.
+     */
+    @NotNull
+    public static PreprocessingReader preprocess(@NotNull Reader source) {
+        return new PreprocessingReader(source);
+    }
+
+    /**
+     * Returns a reader which preprocesses the source read from the given channel while it is read.
+     *
+     * @param source  The channel to read the source code from. It is closed when the returned reader is closed.
+     * @param charset The charset of the source code.
+     * @return The reader of the preprocessed source code.
+     */
+    @NotNull
+    public static PreprocessingReader preprocess(@NotNull ReadableByteChannel source, @NotNull Charset charset) {
+        return new PreprocessingReader(Channels.newReader(source, charset));
+    }
+
+    /**
+     * Wraps the preprocessed source into a {@link CharStream} which keeps only the characters of the token being lexed.
+     * <p>
+     * Since the stream discards the characters once they are lexed,
+     * the lexer must copy the text of its tokens, with {@code lexer.setTokenFactory(new CommonTokenFactory(true))}.
+     *
+     * @param source     The preprocessed source code.
+     * @param sourceName The name of the source reported by the stream, or null if unknown.
+     * @return The character stream.
+     * @see CommonTokenFactory
+     */
+    @NotNull
+    public static CharStream toCharStream(@NotNull PreprocessingReader source, @Nullable String sourceName) {
+        UnbufferedCharStream charStream = new UnbufferedCharStream(source);
+        if (sourceName != null)
+            charStream.name = sourceName;
+
+        return charStream;
+    }
 }
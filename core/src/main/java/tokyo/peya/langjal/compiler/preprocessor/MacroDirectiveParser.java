@@ -5,13 +5,12 @@ import tokyo.peya.langjal.compiler.exceptions.CompileErrorException;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 
 final class MacroDirectiveParser {
     private MacroDirectiveParser() {
     }
 
-    static void process(@NotNull Map<String, Macro> defines,
+    static void process(@NotNull MacroTable macros,
                         @NotNull String line,
                         int lineNumber) throws CompileErrorException {
         int index = PreprocessorSyntax.skipHorizontalSpaces(line, 0);
@@ -21,7 +20,8 @@ final class MacroDirectiveParser {
 
         int directiveEnd = PreprocessorSyntax.readIdentifierEnd(line, index);
         String directive = line.substring(index, directiveEnd);
-        if (!"define".equals(directive))
+        boolean isUndef = "undef".equals(directive);
+        if (!("define".equals(directive) || isUndef))
             throw new CompileErrorException(
                     "Unsupported preprocessor directive: #" + directive,
                     lineNumber,
@@ -32,16 +32,27 @@ final class MacroDirectiveParser {
         index = PreprocessorSyntax.skipHorizontalSpaces(line, directiveEnd);
         int nameEnd = PreprocessorSyntax.readIdentifierEnd(line, index);
         if (nameEnd == index)
-            throw new CompileErrorException("Expected macro name after #define", lineNumber, index, 1);
+            throw new CompileErrorException("Expected macro name after #" + directive, lineNumber, index, 1);
 
         String name = line.substring(index, nameEnd);
         index = nameEnd;
-        if (index < line.length() && line.charAt(index) == '(') {
+        if (isUndef) {
+            index = PreprocessorSyntax.skipHorizontalSpaces(line, index);
+            if (index < line.length())
+                throw new CompileErrorException(
+                        "Unexpected tokens after #undef " + name,
+                        lineNumber,
+                        index,
+                        line.length() - index
+                );
+
+            macros.undefine(name);
+        } else if (index < line.length() && line.charAt(index) == '(') {
             MacroDefinition definition = readFunctionLikeMacroDefinition(line, index, lineNumber);
-            defines.put(name, new Macro(definition.parameters(), definition.replacement()));
+            macros.define(name, new Macro(definition.parameters(), definition.replacement()));
         } else {
             index = PreprocessorSyntax.skipHorizontalSpaces(line, index);
-            defines.put(name, new Macro(null, line.substring(index)));
+            macros.define(name, new Macro(null, line.substring(index)));
         }
     }
 
@@ -1,12 +1,12 @@
 package tokyo.peya.langjal.compiler.preprocessor;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
-import java.util.HashSet;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
 final class MacroExpander {
     private static final int MAX_EXPANSION_DEPTH = 64;
@@ -16,66 +16,49 @@ final class MacroExpander {
 
     @NotNull
     static String expandLine(@NotNull String line,
-                             @NotNull Map<String, Macro> defines,
+                             @NotNull MacroTable macros,
                              boolean @NotNull [] inBlockComment) {
-        return expandLine(line, defines, inBlockComment, new HashSet<>());
+        return expandLine(line, macros, inBlockComment, null);
     }
 
     @NotNull
     private static String expandLine(@NotNull String line,
-                                     @NotNull Map<String, Macro> defines,
+                                     @NotNull MacroTable macros,
                                      boolean @NotNull [] inBlockComment,
-                                     @NotNull Set<String> expanding) {
-        StringBuilder result = new StringBuilder(line.length());
+                                     @Nullable List<MacroTable.Entry> expanding) {
+        // 展開しない部分はまとめて写すので，マクロを含まない行はそのまま返る
+        StringBuilder result = null;
+        int copied = 0;
         boolean inString = false;
-        boolean inLineComment = false;
 
         int index = 0;
         while (index < line.length()) {
-            char c = line.charAt(index);
-
-            if (inLineComment) {
-                result.append(c);
-                index++;
-                continue;
-            }
-
             if (inBlockComment[0]) {
-                result.append(c);
-                if (c == '*' && index + 1 < line.length() && line.charAt(index + 1) == '/') {
-                    result.append('/');
-                    inBlockComment[0] = false;
-                    index += 2;
-                } else {
-                    index++;
-                }
+                int commentEnd = line.indexOf("*/", index);
+                if (commentEnd < 0)
+                    break;
+
+                inBlockComment[0] = false;
+                index = commentEnd + 2;
                 continue;
             }
 
+            char c = line.charAt(index);
             if (inString) {
-                result.append(c);
-                if (c == '\\' && index + 1 < line.length()) {
-                    result.append(line.charAt(index + 1));
-                    index += 2;
-                } else {
-                    if (c == '"')
-                        inString = false;
+                if (c == '\\')
                     index++;
-                }
+                else if (c == '"')
+                    inString = false;
+                index++;
                 continue;
             }
 
             if (c == '/' && index + 1 < line.length()) {
                 char next = line.charAt(index + 1);
-                if (next == '/') {
-                    result.append("//");
-                    inLineComment = true;
-                    index += 2;
-                    continue;
-                }
+                if (next == '/')
+                    break;  // 行末までコメント
 
                 if (next == '*') {
-                    result.append("/*");
                     inBlockComment[0] = true;
                     index += 2;
                     continue;
@@ -83,67 +66,88 @@ final class MacroExpander {
             }
 
             if (c == '"') {
-                result.append(c);
                 inString = true;
                 index++;
                 continue;
             }
 
-            if (PreprocessorSyntax.isIdentifierStart(c)) {
-                int end = PreprocessorSyntax.readIdentifierEnd(line, index);
-                String identifier = line.substring(index, end);
-                Macro macro = defines.get(identifier);
-                index = expandMacro(line, defines, expanding, result, end, identifier, macro);
+            if (!PreprocessorSyntax.isIdentifierStart(c)) {
+                index++;
                 continue;
             }
 
-            result.append(c);
-            index++;
-        }
-
-        return result.toString();
-    }
+            int end = PreprocessorSyntax.readIdentifierEnd(line, index);
+            MacroTable.Entry entry = macros.lookup(line, index, end);
+            if (entry == null || (expanding != null && expanding.contains(entry))) {
+                index = end;
+                continue;
+            }
 
-    private static int expandMacro(@NotNull String line,
-                                   @NotNull Map<String, Macro> defines,
-                                   @NotNull Set<String> expanding,
-                                   @NotNull StringBuilder result,
-                                   int end,
-                                   @NotNull String identifier,
-                                   Macro macro) {
-        if (macro == null || expanding.contains(identifier)) {
-            result.append(identifier);
-            return end;
-        }
+            Macro macro = entry.macro();
+            String expanded;
+            int nextIndex;
+            if (macro.isFunctionLike()) {
+                MacroInvocation invocation = MacroInvocation.read(line, end);
+                if (invocation == null) {
+                    index = end;
+                    continue;
+                }
 
-        if (macro.isFunctionLike()) {
-            MacroInvocation invocation = MacroInvocation.read(line, end);
-            if (invocation == null) {
-                result.append(identifier);
-                return end;
+                expanded = expandReplacement(
+                        macros,
+                        expanding,
+                        entry,
+                        applyMacroArguments(macro, invocation.arguments())
+                );
+                nextIndex = invocation.nextIndex();
+            } else {
+                expanded = expandParameterlessMacro(macros, expanding, entry);
+                nextIndex = end;
             }
 
-            appendExpandedReplacement(defines, expanding, result, identifier, applyMacroArguments(macro, invocation.arguments()));
-            return invocation.nextIndex();
+            if (result == null)
+                result = new StringBuilder(line.length() + expanded.length());
+            result.append(line, copied, index).append(expanded);
+            index = copied = nextIndex;
         }
 
-        appendExpandedReplacement(defines, expanding, result, identifier, macro.replacement());
-        return end;
+        if (result == null)
+            return line;
+        return result.append(line, copied, line.length()).toString();
     }
 
-    private static void appendExpandedReplacement(@NotNull Map<String, Macro> defines,
-                                                  @NotNull Set<String> expanding,
-                                                  @NotNull StringBuilder result,
-                                                  @NotNull String identifier,
-                                                  @NotNull String replacement) {
-        if (expanding.size() >= MAX_EXPANSION_DEPTH) {
-            result.append(replacement);
-            return;
+    @NotNull
+    private static String expandParameterlessMacro(@NotNull MacroTable macros,
+                                                   @Nullable List<MacroTable.Entry> expanding,
+                                                   @NotNull MacroTable.Entry entry) {
+        String replacement = entry.macro().replacement();
+        if (expanding != null)
+            return expandReplacement(macros, expanding, entry, replacement);
+
+        // 展開中のマクロが無いときの展開結果は，マクロの定義が変わるまで同じ
+        String expanded = macros.getCachedExpansion(entry);
+        if (expanded == null) {
+            expanded = expandReplacement(macros, null, entry, replacement);
+            macros.cacheExpansion(entry, expanded);
         }
 
-        expanding.add(identifier);
-        result.append(expandLine(replacement, defines, new boolean[]{false}, expanding));
-        expanding.remove(identifier);
+        return expanded;
+    }
+
+    @NotNull
+    private static String expandReplacement(@NotNull MacroTable macros,
+                                            @Nullable List<MacroTable.Entry> expanding,
+                                            @NotNull MacroTable.Entry entry,
+                                            @NotNull String replacement) {
+        if (expanding == null)
+            expanding = new ArrayList<>();
+        else if (expanding.size() >= MAX_EXPANSION_DEPTH)
+            return replacement;
+
+        expanding.add(entry);
+        String expanded = expandLine(replacement, macros, new boolean[]{false}, expanding);
+        expanding.remove(expanding.size() - 1);
+        return expanded;
     }
 
     @NotNull
@@ -0,0 +1,160 @@
+package tokyo.peya.langjal.compiler.preprocessor;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * The macros defined so far, indexed by a trie over their names.
+ * <p>
+ * An identifier in a line is looked up by walking the trie over its characters in place,
+ * so identifiers which are not macros are rejected without creating a string or hashing it.
+ * Most of them are rejected by their first character or length alone.
+ * <p>
+ * The fully expanded replacement of a parameterless macro can be cached in the table.
+ * Since an expansion depends on the other macros it refers to, every cached expansion is invalidated
+ * whenever a macro is defined or undefined.
+ */
+final class MacroTable {
+    // 識別子に使える文字は [_$a-zA-Z0-9] のちょうど 64 文字
+    private static final int ALPHABET_SIZE = 64;
+
+    private final Entry root;
+    private final int[] namesByFirstChar;
+
+    private int minNameLength;
+    private int maxNameLength;
+    private int generation;
+
+    MacroTable() {
+        this.root = new Entry();
+        this.namesByFirstChar = new int[ALPHABET_SIZE];
+        this.minNameLength = Integer.MAX_VALUE;
+    }
+
+    /**
+     * Defines a macro, replacing the macro of the same name if it is already defined.
+     *
+     * @param name  The name of the macro.
+     * @param macro The macro.
+     */
+    void define(@NotNull String name, @NotNull Macro macro) {
+        Entry node = this.root;
+        for (int i = 0; i < name.length(); i++)
+            node = node.child(indexOf(name.charAt(i)));
+
+        if (node.macro == null)
+            this.namesByFirstChar[indexOf(name.charAt(0))]++;
+        node.macro = macro;
+        this.minNameLength = Math.min(this.minNameLength, name.length());
+        this.maxNameLength = Math.max(this.maxNameLength, name.length());
+        this.generation++;
+    }
+
+    /**
+     * Undefines a macro. Nothing happens if no macro of the name is defined.
+     *
+     * @param name The name of the macro.
+     */
+    void undefine(@NotNull String name) {
+        Entry node = this.find(name, 0, name.length());
+        if (node == null || node.macro == null)
+            return;
+
+        // 長さの範囲は広いままでも，引くのが少し遅くなるだけなので縮めない
+        node.macro = null;
+        node.expansion = null;
+        this.namesByFirstChar[indexOf(name.charAt(0))]--;
+        this.generation++;
+    }
+
+    /**
+     * Looks up the macro named by the identifier {@code source[start, end)}.
+     *
+     * @param source The text containing the identifier.
+     * @param start  The start index of the identifier.
+     * @param end    The end index of the identifier, exclusive.
+     * @return The entry of the macro, or null if the identifier is not a macro.
+     */
+    @Nullable
+    Entry lookup(@NotNull CharSequence source, int start, int end) {
+        Entry entry = this.find(source, start, end);
+        return entry == null || entry.macro == null ? null : entry;
+    }
+
+    /**
+     * Returns the cached full expansion of the parameterless macro of the entry.
+     *
+     * @param entry The entry of the macro.
+     * @return The expansion, or null if it is not cached or has been invalidated.
+     */
+    @Nullable
+    String getCachedExpansion(@NotNull Entry entry) {
+        return entry.expansionGeneration == this.generation ? entry.expansion : null;
+    }
+
+    /**
+     * Caches the full expansion of the parameterless macro of the entry, until a macro is defined or undefined.
+     *
+     * @param entry     The entry of the macro.
+     * @param expansion The replacement with every macro in it expanded.
+     */
+    void cacheExpansion(@NotNull Entry entry, @NotNull String expansion) {
+        entry.expansion = expansion;
+        entry.expansionGeneration = this.generation;
+    }
+
+    @Nullable
+    private Entry find(@NotNull CharSequence source, int start, int end) {
+        int length = end - start;
+        if (length < this.minNameLength || length > this.maxNameLength)
+            return null;
+        if (this.namesByFirstChar[indexOf(source.charAt(start))] == 0)
+            return null;
+
+        Entry node = this.root;
+        for (int i = start; i < end && node != null; i++)
+            node = node.children == null ? null : node.children[indexOf(source.charAt(i))];
+        return node;
+    }
+
+    private static int indexOf(char c) {
+        if (c >= 'a' && c <= 'z')
+            return c - 'a';
+        if (c >= 'A' && c <= 'Z')
+            return 26 + (c - 'A');
+        if (c >= '0' && c <= '9')
+            return 52 + (c - '0');
+        if (c == '_')
+            return 62;
+        if (c == '$')
+            return 63;
+
+        throw new IllegalArgumentException("Not an identifier character: " + c);
+    }
+
+    /**
+     * A node of the trie, which is the entry of a macro if a macro of its name is defined.
+     */
+    static final class Entry {
+        private Entry[] children;
+        private Macro macro;
+        private String expansion;
+        private int expansionGeneration;
+
+        @NotNull
+        Macro macro() {
+            return this.macro;
+        }
+
+        @NotNull
+        private Entry child(int index) {
+            if (this.children == null)
+                this.children = new Entry[ALPHABET_SIZE];
+
+            Entry child = this.children[index];
+            if (child == null)
+                child = this.children[index] = new Entry();
+            return child;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package tokyo.peya.langjal.compiler.preprocessor;
+
+import org.jetbrains.annotations.NotNull;
+import tokyo.peya.langjal.compiler.exceptions.CompileErrorException;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * A reader which preprocesses its source line by line while it is read.
+ * <p>
+ * Only the line being expanded is held in memory, so sources of any size can be preprocessed.
+ * Directive lines are replaced with their line endings, so every line of the output is at the line of its source.
+ * {@link CompileErrorException}s of invalid directives are thrown from the read methods.
+ *
+ * @see JALPreprocessor#preprocess(Reader)
+ */
+public final class PreprocessingReader extends Reader {
+    private final SourceLineReader lines;
+    private final MacroTable macros;
+    private final boolean[] inBlockComment;
+
+    private int line;
+    private String chunk;
+    private int chunkPosition;
+    private long elapsedNanos;
+
+    PreprocessingReader(@NotNull Reader source) {
+        this.lines = new SourceLineReader(source);
+        this.macros = new MacroTable();
+        this.inBlockComment = new boolean[]{false};
+
+        this.line = 1;
+        this.chunk = "";
+    }
+
+    /**
+     * Returns the time spent reading and expanding lines so far.
+     *
+     * @return The time in nanoseconds.
+     */
+    public long getElapsedNanos() {
+        return this.elapsedNanos;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (this.chunkPosition >= this.chunk.length() && !this.nextChunk())
+            return -1;
+
+        return this.chunk.charAt(this.chunkPosition++);
+    }
+
+    @Override
+    public int read(char @NotNull [] buffer, int offset, int length) throws IOException {
+        if (length == 0)
+            return 0;
+        if (this.chunkPosition >= this.chunk.length() && !this.nextChunk())
+            return -1;
+
+        int count = Math.min(length, this.chunk.length() - this.chunkPosition);
+        this.chunk.getChars(this.chunkPosition, this.chunkPosition + count, buffer, offset);
+        this.chunkPosition += count;
+        return count;
+    }
+
+    private boolean nextChunk() throws IOException {
+        long start = System.nanoTime();
+        try {
+            // 空行は空の塊になるので，中身のある塊か入力の終わりまで読み進める
+            do {
+                SourceLineReader.SourceLine sourceLine = this.lines.readLine();
+                if (sourceLine == null)
+                    return false;
+
+                this.chunk = this.preprocessLine(sourceLine);
+                this.chunkPosition = 0;
+            } while (this.chunk.isEmpty());
+
+            return true;
+        } finally {
+            this.elapsedNanos += System.nanoTime() - start;
+        }
+    }
+
+    @NotNull
+    private String preprocessLine(@NotNull SourceLineReader.SourceLine sourceLine) throws IOException {
+        if (!this.inBlockComment[0] && PreprocessorSyntax.isPreprocessorDirective(sourceLine.text())) {
+            ContinuedLine directive = ContinuedLine.read(this.lines, sourceLine);
+            MacroDirectiveParser.process(this.macros, directive.text(), this.line);
+            this.line += directive.lineCount();
+            return directive.removedLineEndings();  // 行番号を保つため，改行だけ残す
+        }
+
+        this.line++;
+        String expanded = MacroExpander.expandLine(sourceLine.text(), this.macros, this.inBlockComment);
+        return sourceLine.ending().isEmpty() ? expanded : expanded + sourceLine.ending();
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.lines.close();
+    }
+}
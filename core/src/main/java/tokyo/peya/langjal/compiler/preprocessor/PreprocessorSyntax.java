@@ -6,30 +6,6 @@ final class PreprocessorSyntax {
     private PreprocessorSyntax() {
     }
 
-    static int findLineEnd(@NotNull String sourceCode, int start) {
-        int index = start;
-        while (index < sourceCode.length()) {
-            char c = sourceCode.charAt(index);
-            if (c == '\r' || c == '\n')
-                break;
-            index++;
-        }
-
-        return index;
-    }
-
-    static int nextLineStart(@NotNull String sourceCode, int lineEnd) {
-        if (lineEnd >= sourceCode.length())
-            return lineEnd;
-
-        if (sourceCode.charAt(lineEnd) == '\r'
-                && lineEnd + 1 < sourceCode.length()
-                && sourceCode.charAt(lineEnd + 1) == '\n')
-            return lineEnd + 2;
-
-        return lineEnd + 1;
-    }
-
     static boolean isPreprocessorDirective(@NotNull String line) {
         int index = skipHorizontalSpaces(line, 0);
         return index < line.length() && line.charAt(index) == '#';
@@ -0,0 +1,95 @@
+package tokyo.peya.langjal.compiler.preprocessor;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Reads a source line by line, keeping the line endings as they are ({@code \n}, {@code \r\n} or {@code \r}),
+ * so that the preprocessed output has exactly the lines of the input.
+ */
+final class SourceLineReader {
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Reader source;
+    private final char[] buffer;
+    private int position;
+    private int limit;
+
+    SourceLineReader(@NotNull Reader source) {
+        this.source = source;
+        this.buffer = new char[BUFFER_SIZE];
+    }
+
+    /**
+     * Reads the next line.
+     *
+     * @return The line, or null at the end of the source.
+     * @throws IOException If the source could not be read.
+     */
+    @Nullable
+    SourceLine readLine() throws IOException {
+        StringBuilder text = null;
+        while (true) {
+            if (this.position >= this.limit && !this.fill()) {
+                // 改行で終わらない最後の行
+                return text == null ? null : new SourceLine(text.toString(), "");
+            }
+
+            int start = this.position;
+            while (this.position < this.limit) {
+                char c = this.buffer[this.position];
+                if (c == '\r' || c == '\n')
+                    break;
+                this.position++;
+            }
+
+            if (text == null)
+                text = new StringBuilder(this.position - start);
+            text.append(this.buffer, start, this.position - start);
+            if (this.position < this.limit)
+                return new SourceLine(text.toString(), this.readLineEnding());
+        }
+    }
+
+    @NotNull
+    private String readLineEnding() throws IOException {
+        char c = this.buffer[this.position++];
+        if (c == '\n')
+            return "\n";
+
+        // \r\n がバッファの境目で分かれている場合もある
+        if ((this.position < this.limit || this.fill()) && this.buffer[this.position] == '\n') {
+            this.position++;
+            return "\r\n";
+        }
+
+        return "\r";
+    }
+
+    private boolean fill() throws IOException {
+        int read;
+        do
+            read = this.source.read(this.buffer, 0, this.buffer.length);
+        while (read == 0);
+
+        this.position = 0;
+        this.limit = Math.max(read, 0);
+        return read > 0;
+    }
+
+    void close() throws IOException {
+        this.source.close();
+    }
+
+    /**
+     * A line of the source.
+     *
+     * @param text   The content of the line, without the line ending.
+     * @param ending The line ending, or an empty string for the last line without one.
+     */
+    record SourceLine(@NotNull String text, @NotNull String ending) {
+    }
+}
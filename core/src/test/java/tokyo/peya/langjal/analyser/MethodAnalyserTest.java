@@ -251,4 +251,31 @@ class MethodAnalyserTest {
 
         assertEquals(0, result.maxStack());
     }
+
+    @Test
+    void analysesEachFallThroughLabelExactlyOnce() throws CompileErrorException {
+        int labelCount = 200;
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < labelCount; i++)
+            body.append("L").append(i).append(":\n")
+                .append("    iinc 0 1\n");
+
+        MethodAnalysisResult result = analyse(
+                "public class Test {\n" +
+                "    public static demo(I)I {\n" +
+                body +
+                "        iload_0\n" +
+                "        ireturn\n" +
+                "    }\n" +
+                "}\n"
+        );
+
+        long receivers = Arrays.stream(result.propagations())
+                .map(FramePropagation::receiver)
+                .distinct()
+                .count();
+        assertEquals(labelCount, result.propagations().length);
+        assertEquals(labelCount, receivers);
+        assertEquals(1, result.maxStack());
+    }
 }
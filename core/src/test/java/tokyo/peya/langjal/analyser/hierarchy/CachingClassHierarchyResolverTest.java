@@ -0,0 +1,143 @@
+package tokyo.peya.langjal.analyser.hierarchy;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CachingClassHierarchyResolverTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void resolvesPlatformClassesFromRuntimeImage() throws IOException {
+        try (CachingClassHierarchyResolver resolver = CachingClassHierarchyResolver.ofClasspath(List.of())) {
+            ClassHierarchyInfo info = resolver.resolve("java/lang/String");
+
+            assertNotNull(info);
+            assertEquals("java/lang/Object", info.superName());
+            assertTrue(info.interfaces().contains("java/lang/CharSequence"));
+            assertTrue(resolver.isAssignableFrom("java/lang/CharSequence", "java/lang/String"));
+            assertFalse(resolver.isAssignableFrom("java/lang/String", "java/lang/CharSequence"));
+        }
+    }
+
+    @Test
+    void defaultResolversShareThePlatformClasses() {
+        ClassHierarchyInfo platform = CachingClassHierarchyResolver.getPlatform().resolve("java/lang/String");
+
+        assertNotNull(platform);
+        assertSame(platform, CachingClassHierarchyResolver.createDefault().resolve("java/lang/String"));
+        assertSame(platform, CachingClassHierarchyResolver.createDefault().resolve("java/lang/String"));
+    }
+
+    @Test
+    void commonSuperClassFollowsSuperClassChain() throws IOException {
+        try (CachingClassHierarchyResolver resolver = CachingClassHierarchyResolver.ofClasspath(List.of())) {
+            assertEquals("java/lang/Number", resolver.getCommonSuperClass("java/lang/Integer", "java/lang/Long"));
+            assertEquals("java/lang/Object", resolver.getCommonSuperClass("java/lang/String", "java/lang/Integer"));
+            assertEquals("java/lang/Object", resolver.getCommonSuperClass("java/lang/Runnable", "java/lang/String"));
+        }
+    }
+
+    @Test
+    void unresolvableClassHasNoCommonSuperClass() throws IOException {
+        try (CachingClassHierarchyResolver resolver = CachingClassHierarchyResolver.ofClasspath(List.of())) {
+            assertNull(resolver.resolve("does/not/Exist"));
+            assertNull(resolver.getCommonSuperClass("does/not/Exist", "java/lang/String"));
+        }
+    }
+
+    @Test
+    void registeredClassesTakePrecedence() throws IOException {
+        try (CachingClassHierarchyResolver resolver = CachingClassHierarchyResolver.ofClasspath(List.of())) {
+            assertFalse(resolver.isAssignableFrom("java/lang/Number", "test/MyNumber"));
+
+            resolver.register(new ClassHierarchyInfo("test/MyNumber", "java/lang/Number", List.of(), false));
+
+            assertTrue(resolver.isAssignableFrom("java/lang/Number", "test/MyNumber"));
+            assertEquals("java/lang/Number", resolver.getCommonSuperClass("test/MyNumber", "java/lang/Integer"));
+        }
+    }
+
+    @Test
+    void classRegisteredAfterFailedLookupIsResolved() throws IOException {
+        try (CachingClassHierarchyResolver resolver = CachingClassHierarchyResolver.ofClasspath(List.of())) {
+            assertNull(resolver.resolve("test/Late"));
+            assertEquals("java/lang/Object", resolver.getCommonSuperClass("test/Late", "java/lang/Integer"));
+
+            resolver.register(new ClassHierarchyInfo("test/Late", "java/lang/Number", List.of(), false));
+
+            assertNotNull(resolver.resolve("test/Late"));
+            assertEquals("java/lang/Number", resolver.getCommonSuperClass("test/Late", "java/lang/Integer"));
+        }
+    }
+
+    @Test
+    void registrationDuringLookupDoesNotLeaveStaleSuperTypes() throws Exception {
+        for (int round = 0; round < 200; round++) {
+            try (CachingClassHierarchyResolver resolver = CachingClassHierarchyResolver.ofClasspath(List.of())) {
+                resolver.register(new ClassHierarchyInfo("test/A", "java/lang/Object", List.of(), false));
+                resolver.register(new ClassHierarchyInfo("test/B", "java/lang/Number", List.of(), false));
+                resolver.register(new ClassHierarchyInfo("test/C", "test/A", List.of(), false));
+
+                // 上位型を引き続けるスレッドがいる間に，C の親を B に付け替える
+                AtomicBoolean running = new AtomicBoolean(true);
+                CountDownLatch started = new CountDownLatch(4);
+                List<Thread> readers = new ArrayList<>();
+                for (int i = 0; i < 4; i++) {
+                    Thread reader = new Thread(() -> {
+                        started.countDown();
+                        while (running.get())
+                            resolver.getSuperTypes("test/C");
+                    });
+                    reader.start();
+                    readers.add(reader);
+                }
+
+                started.await();
+                resolver.register(new ClassHierarchyInfo("test/C", "test/B", List.of(), false));
+                running.set(false);
+                for (Thread reader : readers)
+                    reader.join();
+
+                assertTrue(resolver.getSuperTypes("test/C").contains("test/B"));
+                assertFalse(resolver.getSuperTypes("test/C").contains("test/A"));
+            }
+        }
+    }
+
+    @Test
+    void readsClassesFromDirectory() throws IOException {
+        ClassWriter writer = new ClassWriter(0);
+        writer.visit(
+                Opcodes.V11, Opcodes.ACC_PUBLIC, "pkg/MyList", null,
+                "java/util/AbstractList", new String[]{"java/util/RandomAccess"}
+        );
+        writer.visitEnd();
+        Path classFile = this.tempDir.resolve("pkg/MyList.class");
+        Files.createDirectories(classFile.getParent());
+        Files.write(classFile, writer.toByteArray());
+
+        try (CachingClassHierarchyResolver resolver = CachingClassHierarchyResolver.ofClasspath(List.of(this.tempDir))) {
+            assertTrue(resolver.isAssignableFrom("java/util/List", "pkg/MyList"));
+            assertTrue(resolver.isAssignableFrom("java/util/RandomAccess", "pkg/MyList"));
+            assertEquals("java/util/AbstractList", resolver.getCommonSuperClass("pkg/MyList", "java/util/ArrayList"));
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package tokyo.peya.langjal.analyser.hierarchy;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ClasspathIndexTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void firstClasspathEntryWins() throws IOException {
+        Path classes = this.tempDir.resolve("classes");
+        writeFile(classes.resolve("pkg/A.class"), new byte[]{1});
+        Path jar = this.createJar("lib.jar", "pkg/A.class", "pkg/B.class");
+
+        try (ClasspathIndex index = ClasspathIndex.build(List.of(classes, jar), false)) {
+            ClassLocation a = index.find("pkg/A");
+            ClassLocation b = index.find("pkg/B");
+
+            assertNotNull(a);
+            assertEquals(ClassLocation.Kind.DIRECTORY, a.kind());
+            assertArrayEquals(new byte[]{1}, index.readClassFile("pkg/A"));
+            assertNotNull(b);
+            assertEquals(ClassLocation.Kind.ARCHIVE, b.kind());
+            assertEquals(jar, b.path());
+            assertArrayEquals("pkg/B.class".getBytes(), index.readClassFile("pkg/B"));
+        }
+    }
+
+    @Test
+    void archivesAreOpenedOnceAndShared() throws IOException {
+        Path jar = this.createJar("lib.jar", "pkg/A.class", "pkg/B.class");
+
+        try (ClasspathIndex index = ClasspathIndex.build(List.of(jar), false)) {
+            ClassLocation a = index.find("pkg/A");
+            ClassLocation b = index.find("pkg/B");
+
+            assertNotNull(a);
+            assertNotNull(b);
+            assertSame(a.archive(), b.archive());
+        }
+    }
+
+    @Test
+    void classNamesExcludeMetaInfAndNonClassEntries() throws IOException {
+        Path jar = this.createJar("lib.jar", "pkg/A.class", "META-INF/versions/11/pkg/A.class", "pkg/readme.txt");
+
+        try (ClasspathIndex index = ClasspathIndex.build(List.of(jar), false)) {
+            assertEquals(Set.of("pkg/A"), index.getClassNames());
+            assertNull(index.find("META-INF/versions/11/pkg/A"));
+        }
+    }
+
+    @Test
+    void missingEntriesAreIgnored() throws IOException {
+        try (ClasspathIndex index = ClasspathIndex.build(List.of(this.tempDir.resolve("missing")), false)) {
+            assertTrue(index.getClassNames().isEmpty());
+            assertNull(index.find("pkg/A"));
+        }
+    }
+
+    @Test
+    void platformClassesAreFoundInRuntimeImage() throws IOException {
+        try (ClasspathIndex index = ClasspathIndex.build(List.of(), true)) {
+            ClassLocation location = index.find("java/lang/String");
+            byte[] bytes = index.readClassFile("java/lang/String");
+
+            assertNotNull(location);
+            assertEquals(ClassLocation.Kind.RUNTIME_IMAGE, location.kind());
+            assertNotNull(bytes);
+            assertEquals((byte) 0xCA, bytes[0]);
+            assertNull(index.find("does/not/Exist"));
+        }
+    }
+
+    @Test
+    void addingClassMakesIndexStale() throws IOException {
+        Path classes = this.tempDir.resolve("classes");
+        writeFile(classes.resolve("pkg/A.class"), new byte[]{1});
+
+        try (ClasspathIndex index = ClasspathIndex.build(List.of(classes), false)) {
+            assertFalse(index.isStale());
+
+            writeFile(classes.resolve("other/B.class"), new byte[]{2});
+
+            assertTrue(index.isStale());
+            assertNull(index.find("other/B"));
+        }
+    }
+
+    private Path createJar(String name, String... entries) throws IOException {
+        Path jar = this.tempDir.resolve(name);
+        try (ZipOutputStream output = new ZipOutputStream(Files.newOutputStream(jar))) {
+            for (String entry : entries) {
+                output.putNextEntry(new ZipEntry(entry));
+                output.write(entry.getBytes());
+                output.closeEntry();
+            }
+        }
+        return jar;
+    }
+
+    private static void writeFile(Path file, byte[] bytes) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.write(file, bytes);
+    }
+}
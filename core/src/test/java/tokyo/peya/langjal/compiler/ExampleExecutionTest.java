@@ -28,8 +28,30 @@ class ExampleExecutionTest {
     @ParameterizedTest(name = "{0}")
     @MethodSource("examples")
     void examplesProduceExpectedOutput(ExampleCase example) throws Exception {
+        this.assertExpectedOutput(example, CompileSettings.FULL);
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("examples")
+    void peepholeOptimisedExamplesProduceExpectedOutput(ExampleCase example) throws Exception {
+        this.assertExpectedOutput(example, CompileSettings.FULL | CompileSettings.OPTIMISE_PEEPHOLE);
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("examples")
+    void deadCodeEliminatedExamplesProduceExpectedOutput(ExampleCase example) throws Exception {
+        this.assertExpectedOutput(example, CompileSettings.FULL | CompileSettings.ELIMINATE_DEAD_CODE);
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("examples")
+    void jumpOptimisedExamplesProduceExpectedOutput(ExampleCase example) throws Exception {
+        this.assertExpectedOutput(example, CompileSettings.FULL | CompileSettings.OPTIMISE_JUMPS);
+    }
+
+    private void assertExpectedOutput(ExampleCase example, int compileFlags) throws Exception {
         Path outputDir = this.tempDir.resolve(example.name());
-        JALFileCompiler compiler = new JALFileCompiler(new TestCompileReporter(), outputDir, CompileSettings.FULL);
+        JALFileCompiler compiler = new JALFileCompiler(new TestCompileReporter(), outputDir, compileFlags);
         ClassNode compiledClass = compiler.compile(Files.readString(example.source(), StandardCharsets.UTF_8));
 
         String actual = runCompiledClass(outputDir, compiledClass.name.replace('/', '.'));
@@ -0,0 +1,101 @@
+package tokyo.peya.langjal.compiler;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.junit.jupiter.api.Test;
+import tokyo.peya.langjal.compiler.instructions.utils.TestCompileReporter;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FileEvaluatingReporterTest {
+    private static final Path SOURCE = Path.of("Example.jal");
+
+    @Test
+    void suppliersAreNotEvaluatedWhenLevelsAreDisabled() {
+        RecordingReporter delegate = new RecordingReporter(false);
+        FileEvaluatingReporter reporter = new FileEvaluatingReporter(delegate, SOURCE);
+
+        reporter.postInfo(() -> {
+            throw new AssertionError("Info message must not be built");
+        });
+        reporter.postDebug(() -> {
+            throw new AssertionError("Debug message must not be built");
+        });
+
+        assertFalse(reporter.isInfoEnabled());
+        assertFalse(reporter.isDebugEnabled());
+        assertTrue(delegate.messages.isEmpty());
+    }
+
+    @Test
+    void suppliersAreEvaluatedWhenLevelsAreEnabled() {
+        RecordingReporter delegate = new RecordingReporter(true);
+        FileEvaluatingReporter reporter = new FileEvaluatingReporter(delegate, SOURCE);
+
+        reporter.postInfo(() -> "info");
+        reporter.postDebug(() -> "debug");
+
+        assertEquals(List.of("INFO info", "DEBUG debug"), delegate.messages);
+    }
+
+    @Test
+    void quietCompilationSkipsComputedDiagnostics() {
+        RecordingReporter delegate = new RecordingReporter(false);
+
+        JALFileCompiler.compileOnly("""
+                public class Quiet (major_version=55, minor_version=0) {
+                  public static run(I)I {
+                    iload_0
+                    ifle negative
+                    iconst_1
+                    ireturn
+                  negative:
+                    iconst_0
+                    ireturn
+                  }
+                }
+                """, delegate, CompileSettings.FULL);
+
+        // 計算が必要なメッセージは全て抑止され，定数のメッセージだけが届き得る
+        assertTrue(
+                delegate.messages.stream().noneMatch(message -> message.contains("Analysing")),
+                delegate.messages::toString
+        );
+    }
+
+    private static class RecordingReporter extends TestCompileReporter {
+        private final boolean enabled;
+        private final List<String> messages;
+
+        RecordingReporter(boolean enabled) {
+            this.enabled = enabled;
+            this.messages = new ArrayList<>();
+        }
+
+        @Override
+        public void postInfo(@NotNull String message, @Nullable Path sourcePath) {
+            this.messages.add("INFO " + message);
+        }
+
+        @Override
+        public void postDebug(@NotNull String message, @Nullable Path sourcePath) {
+            this.messages.add("DEBUG " + message);
+        }
+
+        @Override
+        public boolean isInfoEnabled() {
+            return this.enabled;
+        }
+
+        @Override
+        public boolean isDebugEnabled() {
+            return this.enabled;
+        }
+    }
+}
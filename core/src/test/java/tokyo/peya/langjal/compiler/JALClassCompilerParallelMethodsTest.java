@@ -0,0 +1,118 @@
+package tokyo.peya.langjal.compiler;
+
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.MethodNode;
+import tokyo.peya.langjal.compiler.exceptions.CompileErrorException;
+import tokyo.peya.langjal.compiler.instructions.utils.TestCompileReporter;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class JALClassCompilerParallelMethodsTest {
+    private static final int METHODS = 16;
+
+    private static String source(int... brokenMethods) {
+        Set<Integer> broken = new HashSet<>();
+        for (int brokenMethod : brokenMethods)
+            broken.add(brokenMethod);
+
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("public class parallel/Methods (major_version=55, minor_version=0) {\n");
+        for (int i = 0; i < METHODS; i++) {
+            String target = broken.contains(i) ? "Missing" + i : "Loop";
+            sb.append("  public static m").append(i).append("(I)I {\n")
+                    .append("    iconst_0\n")
+                    .append("    istore 1 [I -> sum]\n")
+                    .append("  Loop:\n")
+                    .append("    iload sum\n")
+                    .append("    iload_0\n")
+                    .append("    iadd\n")
+                    .append("    istore sum\n")
+                    .append("    iload_0\n")
+                    .append("    iconst_1\n")
+                    .append("    isub\n")
+                    .append("    dup\n")
+                    .append("    istore_0\n")
+                    .append("    ifgt ").append(target).append('\n')
+                    .append("    iload sum\n")
+                    .append("    ireturn\n")
+                    .append("  }\n");
+        }
+        sb.append("}\n");
+        return sb.toString();
+    }
+
+    @Test
+    void producesSameClassAsSequentialCompilation() {
+        String source = source(-1);
+        Map<String, byte[]> sequential = new JALMemoryCompiler(new TestCompileReporter(), CompileSettings.FULL)
+                .compileToBytes(List.of(source));
+        Map<String, byte[]> parallel = new JALMemoryCompiler(
+                new TestCompileReporter(),
+                CompileSettings.FULL | CompileSettings.PARALLEL_METHODS
+        ).compileToBytes(List.of(source));
+
+        assertArrayEquals(sequential.get("parallel/Methods"), parallel.get("parallel/Methods"));
+    }
+
+    @Test
+    void addsMethodsInSourceOrder() {
+        JALClassCompiler compiler = JALFileCompiler.compileOnly(
+                source(-1),
+                new TestCompileReporter(),
+                CompileSettings.REQUIRED_ONLY | CompileSettings.PARALLEL_METHODS
+        );
+
+        ClassNode compiled = compiler.getCompiledClass();
+        assertEquals(METHODS, compiled.methods.size());
+        for (int i = 0; i < METHODS; i++) {
+            MethodNode method = compiled.methods.get(i);
+            assertEquals("m" + i, method.name);
+            assertEquals(method, compiler.getMethodCompilers().get(i).getMethod());
+        }
+    }
+
+    @Test
+    void throwsErrorOfFirstFailingMethod() {
+        CompileErrorException error = assertThrows(
+                CompileErrorException.class,
+                () -> JALFileCompiler.compileOnly(
+                        source(3),
+                        new TestCompileReporter(),
+                        CompileSettings.REQUIRED_ONLY | CompileSettings.PARALLEL_METHODS
+                )
+        );
+
+        assertTrue(error.getMessage().contains("Missing3"), error.getMessage());
+    }
+
+    @Test
+    void suppressesErrorsOfOtherFailingMethods() {
+        // 共有プールが一つのスレッドしか持たない環境では，順番にコンパイルされて最初のエラーで止まる
+        assumeTrue(ForkJoinPool.getCommonPoolParallelism() > 1);
+
+        CompileErrorException error = assertThrows(
+                CompileErrorException.class,
+                () -> JALFileCompiler.compileOnly(
+                        source(3, 9),
+                        new TestCompileReporter(),
+                        CompileSettings.REQUIRED_ONLY | CompileSettings.PARALLEL_METHODS
+                )
+        );
+
+        assertTrue(error.getMessage().contains("Missing3"), error.getMessage());
+        assertEquals(1, error.getSuppressed().length);
+        assertTrue(error.getSuppressed()[0].getMessage().contains("Missing9"), error.getSuppressed()[0].getMessage());
+    }
+}
@@ -0,0 +1,152 @@
+package tokyo.peya.langjal.compiler;
+
+import org.junit.jupiter.api.Test;
+import tokyo.peya.langjal.analyser.hierarchy.ClassHierarchyInfo;
+import tokyo.peya.langjal.compiler.instructions.utils.TestCompileReporter;
+import tokyo.peya.langjal.compiler.output.InMemoryClassLoader;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JALMemoryCompilerTest {
+    private static final String CALLER = """
+            public class memory/Caller (major_version=55, minor_version=0) {
+              public static run(I)I {
+                iload_0
+                invokestatic memory/Twice->apply(I)I
+                iconst_1
+                iadd
+                ireturn
+              }
+            }
+            """;
+    private static final String TWICE = """
+            public class memory/Twice (major_version=55, minor_version=0) {
+              public static apply(I)I {
+                iload_0
+                iconst_2
+                imul
+                ireturn
+              }
+            }
+            """;
+
+    // memory/Left と memory/Right の合流点のフレームには，共通の親である memory/Base が必要
+    private static final String PICKER = """
+            public class memory/Picker (major_version=55, minor_version=0) {
+              public static pick(ZLmemory/Left;Lmemory/Right;)I {
+                iload_0
+                ifeq PickRight
+                aload_1
+                goto Picked
+              PickRight:
+                aload_2
+              Picked:
+                invokevirtual memory/Base->value()I
+                ireturn
+              }
+            }
+            """;
+    private static final String LEFT = """
+            public class memory/Left (major_version=55, minor_version=0, super_class=memory/Base) {
+            }
+            """;
+    private static final String RIGHT = """
+            public class memory/Right (major_version=55, minor_version=0, super_class=memory/Base) {
+            }
+            """;
+    private static final String BASE = """
+            public class memory/Base (major_version=55, minor_version=0) {
+              public value()I {
+                iconst_1
+                ireturn
+              }
+            }
+            """;
+
+    private final JALMemoryCompiler compiler = new JALMemoryCompiler(new TestCompileReporter(), CompileSettings.FULL);
+
+    @Test
+    void compilesBatchToClassFilesInSourceOrder() throws Exception {
+        Map<String, byte[]> classes = this.compiler.compileToBytes(List.of(CALLER, TWICE));
+
+        assertEquals(List.of("memory/Caller", "memory/Twice"), List.copyOf(classes.keySet()));
+        assertEquals(0xCAFEBABE, readMagic(classes.get("memory/Twice")));
+    }
+
+    @Test
+    void classesOfOneBatchReferenceEachOther() throws Exception {
+        InMemoryClassLoader loader = this.compiler.compileToClassLoader(
+                List.of(CALLER, TWICE),
+                JALMemoryCompilerTest.class.getClassLoader()
+        );
+
+        Class<?> caller = loader.loadClass("memory.Caller");
+
+        assertSame(loader, caller.getClassLoader());
+        assertEquals(43, caller.getMethod("run", int.class).invoke(null, 21));
+        assertNotNull(loader.getResourceAsStream("memory/Twice.class"));
+    }
+
+    @Test
+    void framesDoNotDependOnSourceOrder() throws Exception {
+        // 親クラスのソースが後ろにあっても，先に全ソースの階層が登録されている
+        InMemoryClassLoader loader = new JALMemoryCompiler(new TestCompileReporter(), CompileSettings.FULL)
+                .compileToClassLoader(
+                        List.of(PICKER, LEFT, RIGHT, BASE),
+                        JALMemoryCompilerTest.class.getClassLoader()
+                );
+
+        // 初期化時に検証されるので，合流点の型が誤っていれば VerifyError になる
+        Class<?> picker = Class.forName("memory.Picker", true, loader);
+        assertNotNull(picker.getMethod("pick", boolean.class, loader.loadClass("memory.Left"),
+                loader.loadClass("memory.Right")));
+    }
+
+    @Test
+    void readsClassHierarchyFromHeader() {
+        ClassHierarchyInfo info = JALFileCompiler.readClassHierarchy(LEFT);
+
+        assertEquals(new ClassHierarchyInfo("memory/Left", "memory/Base", List.of(), false), info);
+        assertEquals(info, ClassHierarchyInfo.of(
+                JALFileCompiler.compileOnly(LEFT, new TestCompileReporter(), CompileSettings.FULL).getCompiledClass()
+        ));
+    }
+
+    @Test
+    void definesClassInLookupPackage() throws Exception {
+        Class<?> defined = this.compiler.compileAndDefine(
+                TWICE.replace("memory/Twice", "tokyo/peya/langjal/compiler/GeneratedTwice"),
+                MethodHandles.lookup()
+        );
+
+        assertSame(JALMemoryCompilerTest.class.getClassLoader(), defined.getClassLoader());
+        assertEquals(10, defined.getMethod("apply", int.class).invoke(null, 5));
+    }
+
+    @Test
+    void definesHiddenClass() throws Throwable {
+        MethodHandles.Lookup hidden = this.compiler.compileAndDefineHidden(
+                TWICE.replace("memory/Twice", "tokyo/peya/langjal/compiler/HiddenTwice"),
+                MethodHandles.lookup(),
+                true
+        );
+
+        assertTrue(hidden.lookupClass().isHidden());
+        int result = (int) hidden.findStatic(hidden.lookupClass(), "apply", MethodType.methodType(int.class, int.class))
+                .invokeExact(7);
+        assertEquals(14, result);
+    }
+
+    private static int readMagic(byte[] classFile) {
+        return ((classFile[0] & 0xFF) << 24) | ((classFile[1] & 0xFF) << 16)
+                | ((classFile[2] & 0xFF) << 8) | (classFile[3] & 0xFF);
+    }
+}
@@ -12,6 +12,8 @@ import tokyo.peya.langjal.compiler.instructions.utils.TestCompileReporter;
 import tokyo.peya.langjal.compiler.jvm.EOpcodes;
 import tokyo.peya.langjal.compiler.preprocessor.JALPreprocessor;
 
+import java.io.Reader;
+import java.io.StringReader;
 import java.util.Arrays;
 import java.util.Objects;
 
@@ -116,6 +118,62 @@ class JALPreprocessorTest {
         );
     }
 
+    @Test
+    void preprocessReexpandsDefineAfterNestedDefineIsRedefined() throws CompileErrorException {
+        assertEquals(
+                "\n\niconst_1\n\niconst_2\niconst_2\n",
+                JALPreprocessor.preprocess("""
+                        #define ONE ICONST
+                        #define ICONST iconst_1
+                        ONE
+                        #define ICONST iconst_2
+                        ONE
+                        ONE
+                        """)
+        );
+    }
+
+    @Test
+    void preprocessStopsExpandingUndefinedDefine() throws CompileErrorException {
+        assertEquals(
+                "\n\niconst_1\n\nICONST\n\nONE\n",
+                JALPreprocessor.preprocess("""
+                        #define ONE ICONST
+                        #define ICONST iconst_1
+                        ONE
+                        #undef ICONST
+                        ONE
+                        #undef ONE
+                        ONE
+                        """)
+        );
+    }
+
+    @Test
+    void preprocessKeepsIdentifiersSharingPrefixWithDefine() throws CompileErrorException {
+        assertEquals(
+                "\n\nFO iconst_1 FOOO iconst_2 xFOO\n",
+                JALPreprocessor.preprocess("""
+                        #define FOO iconst_1
+                        #define FOOBAR iconst_2
+                        FO FOO FOOO FOOBAR xFOO
+                        """)
+        );
+    }
+
+    @Test
+    void preprocessDoesNotExpandRecursiveDefine() throws CompileErrorException {
+        assertEquals(
+                "\n\nA A B\nA B B\n",
+                JALPreprocessor.preprocess("""
+                        #define A A B
+                        #define B A B
+                        A
+                        B
+                        """)
+        );
+    }
+
     @Test
     void preprocessRejectsUnsupportedDirective() {
         CompileErrorException exception = assertThrows(
@@ -139,6 +197,42 @@ class JALPreprocessorTest {
         assertEquals(1, exception.getLine());
     }
 
+    @Test
+    void preprocessReaderKeepsEveryLineEnding() throws Exception {
+        String head = "#define ONE iconst_1 \\\r\n  pop\r" + "ONE\r\n";
+        String longLine = "x".repeat(8191 - head.length());  // \r\n が読み込みバッファの境目をまたぐ
+        String source = head + longLine + "\r\n" + "ONE";
+
+        StringBuilder result = new StringBuilder();
+        try (Reader reader = JALPreprocessor.preprocess(new StringReader(source))) {
+            int c;
+            while ((c = reader.read()) != -1)
+                result.append((char) c);
+        }
+
+        assertEquals("\r\n\r" + "iconst_1 \n  pop\r\n" + longLine + "\r\n" + "iconst_1 \n  pop", result.toString());
+        assertEquals(result.toString(), JALPreprocessor.preprocess(source));
+    }
+
+    @Test
+    void compiledSourceKeepsLineNumbersAfterMultilineDefine() {
+        CompileErrorException exception = assertThrows(
+                CompileErrorException.class,
+                () -> compile("""
+                        #define BODY iconst_1 \\
+                          pop
+                        public class Test {
+                            public static demo()V {
+                                BODY
+                                goto Missing
+                            }
+                        }
+                        """)
+        );
+
+        assertEquals(6, exception.getLine());
+    }
+
     private static ClassNode compile(String source) throws CompileErrorException {
         return JALFileCompiler.compileOnly(
                 source,
@@ -0,0 +1,61 @@
+package tokyo.peya.langjal.compiler;
+
+import org.antlr.v4.runtime.CharStreams;
+import org.junit.jupiter.api.Test;
+import tokyo.peya.langjal.compiler.exceptions.CompileErrorException;
+import tokyo.peya.langjal.compiler.instructions.utils.TestCompileReporter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class JALSourceParserTest {
+    private static final String FIRST = """
+            public class parser/First (major_version=55, minor_version=0) {
+              public static run(I)I {
+                iload_0
+                ireturn
+              }
+            }
+            """;
+    private static final String SECOND = """
+            public class parser/Second (major_version=55, minor_version=0) {
+              public static run(I)I {
+                iload_0
+                iconst_1
+                iadd
+                ireturn
+              }
+            }
+            """;
+
+    private static JALParser.RootContext parse(String source) {
+        return JALSourceParser.parse(CharStreams.fromString(source), new TestCompileReporter(), null);
+    }
+
+    @Test
+    void reusedParserKeepsEarlierTrees() {
+        JALParser.RootContext first = parse(FIRST);
+        JALParser.RootContext second = parse(SECOND);
+
+        assertEquals("parser/First", first.classDefinition().className().getText());
+        assertEquals("parser/Second", second.classDefinition().className().getText());
+    }
+
+    @Test
+    void reportsSyntaxErrorsAfterFallingBackToLL() {
+        String broken = FIRST.replace("(I)I {", "(I)I");
+
+        assertThrows(CompileErrorException.class, () -> parse(broken));
+        // 失敗した解析のあとでも，同じスレッドの解析器で読み直せる
+        assertEquals("parser/Second", parse(SECOND).classDefinition().className().getText());
+    }
+
+    @Test
+    void compilesThroughSharedParser() {
+        assertEquals(
+                "parser/Second",
+                JALFileCompiler.compileOnly(SECOND, new TestCompileReporter(), CompileSettings.FULL)
+                        .getCompiledClass().name
+        );
+    }
+}
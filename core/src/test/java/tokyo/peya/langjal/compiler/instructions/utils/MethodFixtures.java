@@ -0,0 +1,82 @@
+package tokyo.peya.langjal.compiler.instructions.utils;
+
+import org.jetbrains.annotations.NotNull;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+import tokyo.peya.langjal.compiler.JALFileCompiler;
+import tokyo.peya.langjal.compiler.JALMemoryCompiler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public final class MethodFixtures {
+    private MethodFixtures() {
+    }
+
+    /**
+     * Wraps the body in a public static method of a public class of major version 55.
+     *
+     * @param className The internal name of the class.
+     * @param signature The name and descriptor of the method, e.g. {@code run(I)I}.
+     * @param body      The body of the method.
+     * @return The source of the class.
+     */
+    @NotNull
+    public static String method(@NotNull String className, @NotNull String signature, @NotNull String body) {
+        return """
+                public class %s (major_version=55, minor_version=0) {
+                    public static %s {
+                %s
+                    }
+                }
+                """.formatted(className, signature, body);
+    }
+
+    @NotNull
+    public static MethodNode compileFirstMethod(@NotNull String source, int flags) {
+        return JALFileCompiler.compileOnly(
+                source,
+                new TestCompileReporter(),
+                flags
+        ).getCompiledClass().methods.getFirst();
+    }
+
+    @NotNull
+    public static List<Integer> compileOpcodes(@NotNull String source, int flags) {
+        return opcodesOf(compileFirstMethod(source, flags));
+    }
+
+    /**
+     * Returns the opcodes of the method, without labels, line numbers and frames.
+     *
+     * @param method The method.
+     * @return The opcodes in order.
+     */
+    @NotNull
+    public static List<Integer> opcodesOf(@NotNull MethodNode method) {
+        List<Integer> opcodes = new ArrayList<>();
+        for (AbstractInsnNode insn : method.instructions)
+            if (insn.getOpcode() != -1)
+                opcodes.add(insn.getOpcode());
+        return opcodes;
+    }
+
+    public static long countOpcodes(@NotNull MethodNode method, int opcode) {
+        return opcodesOf(method).stream()
+                .filter(actual -> actual == opcode)
+                .count();
+    }
+
+    /**
+     * Compiles the source in memory and loads its class. The class is verified by the JVM when it is first used.
+     *
+     * @param source The source of the class.
+     * @param flags  The compile settings.
+     * @return The loaded class.
+     */
+    @NotNull
+    public static Class<?> compileAndLoad(@NotNull String source, int flags) {
+        return new JALMemoryCompiler(new TestCompileReporter(), flags)
+                .compileAndLoad(source, MethodFixtures.class.getClassLoader());
+    }
+}
@@ -140,4 +140,102 @@ class InstructionsHolderTest {
         assertThrows(UnsupportedOperationException.class, () -> instructions.add(first));
         assertThrows(IndexOutOfBoundsException.class, () -> holder.getInstructions(label("BAD", 3)));
     }
+
+    @Test
+    void relaxBranchesKeepsBranchesWithinShortRange() {
+        LabelsHolder labels = new LabelsHolder();
+        InstructionsHolder holder = newHolder(new MethodNode(), labels);
+        LabelInfo target = labels.importASMLabel(new LabelNode(), 2);
+        holder.addInstruction(jump(EOpcodes.GOTO, target), null, 1);
+        holder.addInstruction(nop(), null, 2);
+        holder.addInstruction(nop(), target, 3);
+
+        assertEquals(0, holder.relaxBranches());
+        assertEquals(3, holder.getSize());
+        assertEquals(EOpcodes.GOTO, holder.getInstruction(0).opcode());
+        assertEquals(2, target.instructionIndex());
+    }
+
+    @Test
+    void relaxBranchesPromotesFarGotoToGotoW() {
+        LabelsHolder labels = new LabelsHolder();
+        InstructionsHolder holder = newHolder(new MethodNode(), labels);
+        LabelInfo start = labels.importASMLabel(new LabelNode(), 0);
+        holder.addInstruction(nop(), start, 1);
+        addNops(holder, Short.MAX_VALUE + 1);
+        holder.addInstruction(jump(EOpcodes.GOTO, start), null, 2);
+
+        assertEquals(1, holder.relaxBranches());
+
+        InstructionInfo promoted = holder.getLastInstruction();
+        assertEquals(EOpcodes.GOTO_W, promoted.opcode());
+        assertEquals(5, promoted.instructionSize());
+        assertSame(evaluator(EOpcodes.GOTO_W), promoted.producer());
+        assertSame(start.node(), ((JumpInsnNode) promoted.insn()).label);
+        assertEquals(promoted.bytecodeOffset() + 5, holder.getBytecodeOffset());
+    }
+
+    @Test
+    void relaxBranchesInvertsFarConditionalBranchOverGotoW() {
+        LabelsHolder labels = new LabelsHolder();
+        InstructionsHolder holder = newHolder(new MethodNode(), labels);
+        LabelInfo target = labels.importASMLabel(new LabelNode(), Short.MAX_VALUE + 2);
+        holder.addInstruction(jump(EOpcodes.IFNULL, target), null, 1);
+        addNops(holder, Short.MAX_VALUE + 1);
+        holder.addInstruction(nop(), target, 2);
+        labels.updateGlobalEndInstructionIndex(holder.getSize());
+
+        assertEquals(1, holder.relaxBranches());
+
+        // ifnonnull SKIP; goto_w TARGET; SKIP: nop ...
+        InstructionInfo inverted = holder.getInstruction(0);
+        InstructionInfo gotoW = holder.getInstruction(1);
+        InstructionInfo skipped = holder.getInstruction(2);
+        assertEquals(EOpcodes.IFNONNULL, inverted.opcode());
+        assertEquals(EOpcodes.GOTO_W, gotoW.opcode());
+        assertSame(target.node(), ((JumpInsnNode) gotoW.insn()).label);
+        assertNotNull(gotoW.assignedLabel());
+        assertEquals(1, gotoW.assignedLabel().instructionIndex());
+        assertNotNull(skipped.assignedLabel());
+        assertEquals(2, skipped.assignedLabel().instructionIndex());
+        assertSame(skipped.assignedLabel().node(), ((JumpInsnNode) inverted.insn()).label);
+
+        // 後ろのラベルと命令のオフセットは，挿入した goto_w の分だけずれる
+        assertEquals(Short.MAX_VALUE + 3, target.instructionIndex());
+        assertEquals(holder.getSize(), labels.getGlobalEnd().instructionIndex());
+        assertEquals(8, skipped.bytecodeOffset());
+        assertEquals(EOpcodes.NOP, holder.getInstruction(target.instructionIndex()).opcode());
+        assertSame(target, holder.getInstruction(target.instructionIndex()).assignedLabel());
+    }
+
+    @Test
+    void relaxBranchesRepadsSwitchesMovedByPromotedBranches() {
+        LabelsHolder labels = new LabelsHolder();
+        InstructionsHolder holder = newHolder(new MethodNode(), labels);
+        LabelInfo target = labels.importASMLabel(new LabelNode(), Short.MAX_VALUE + 2);
+        holder.addInstruction(jump(EOpcodes.GOTO, target), null, 1);
+        addNops(holder, Short.MAX_VALUE + 1);
+        InstructionInfo switchBefore = holder.importInstruction(
+                new TableSwitchInsnNode(0, 0, target.node(), target.node()),
+                target,
+                2
+        );
+
+        holder.relaxBranches();
+
+        InstructionInfo switchAfter = holder.getLastInstruction();
+        assertEquals(switchBefore.bytecodeOffset() + 2, switchAfter.bytecodeOffset());
+        int padding = switchAfter.instructionSize() - (1 + 4 + 4 + 4 + 4);
+        assertEquals(0, (switchAfter.bytecodeOffset() + 1 + padding) % 4);
+        assertEquals(switchAfter.bytecodeOffset() + switchAfter.instructionSize(), holder.getBytecodeOffset());
+    }
+
+    private static EvaluatedInstruction jump(int opcode, LabelInfo target) {
+        return EvaluatedInstruction.of(evaluator(opcode), new JumpInsnNode(opcode, target.node()));
+    }
+
+    private static void addNops(InstructionsHolder holder, int count) {
+        for (int i = 0; i < count; i++)
+            holder.addInstruction(nop(), null, -1);
+    }
 }
@@ -0,0 +1,61 @@
+package tokyo.peya.langjal.compiler.member;
+
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.tree.MethodNode;
+import tokyo.peya.langjal.compiler.CompileSettings;
+import tokyo.peya.langjal.compiler.jvm.EOpcodes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static tokyo.peya.langjal.compiler.instructions.utils.MethodFixtures.compileAndLoad;
+import static tokyo.peya.langjal.compiler.instructions.utils.MethodFixtures.compileFirstMethod;
+import static tokyo.peya.langjal.compiler.instructions.utils.MethodFixtures.countOpcodes;
+import static tokyo.peya.langjal.compiler.instructions.utils.MethodFixtures.method;
+
+class JALMethodCompilerBranchRelaxationTest {
+    // ループ本体が 32 KB を超えるので，前方の ifeq と後方の goto はどちらも 16 ビットのオフセットで届かない
+    private static final String FAR_LOOP = farLoop(Short.MAX_VALUE + 1);
+
+    private static String farLoop(int bodySize) {
+        StringBuilder body = new StringBuilder("""
+                    Loop:
+                        iload_0
+                        ifeq Done
+                """);
+        for (int i = 0; i < bodySize; i++)
+            body.append("        nop\n");
+        body.append("""
+                        iinc 0 -1
+                        goto Loop
+                    Done:
+                        iload_0
+                        ireturn
+                """);
+        return method("relax/FarLoop", "countDown(I)I", body.toString());
+    }
+
+    @Test
+    void promotesBranchesFartherThanShortOffset() throws Exception {
+        MethodNode method = compileFirstMethod(FAR_LOOP, CompileSettings.FULL);
+
+        assertEquals(2, countOpcodes(method, EOpcodes.GOTO_W));
+        assertEquals(1, countOpcodes(method, EOpcodes.IFNE));
+        assertEquals(0, countOpcodes(method, EOpcodes.IFEQ));
+        assertEquals(0, countOpcodes(method, EOpcodes.GOTO));
+    }
+
+    @Test
+    void keepsNearBranches() throws Exception {
+        MethodNode method = compileFirstMethod(farLoop(16), CompileSettings.FULL);
+
+        assertEquals(0, countOpcodes(method, EOpcodes.GOTO_W));
+        assertEquals(1, countOpcodes(method, EOpcodes.IFEQ));
+        assertEquals(1, countOpcodes(method, EOpcodes.GOTO));
+    }
+
+    @Test
+    void relaxedMethodPassesVerification() throws Exception {
+        Class<?> farLoop = compileAndLoad(FAR_LOOP, CompileSettings.FULL);
+
+        assertEquals(0, farLoop.getMethod("countDown", int.class).invoke(null, 3));
+    }
+}
@@ -0,0 +1,115 @@
+package tokyo.peya.langjal.compiler.member;
+
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.FrameNode;
+import org.objectweb.asm.tree.MethodNode;
+import tokyo.peya.langjal.compiler.CompileSettings;
+import tokyo.peya.langjal.compiler.instructions.utils.MethodFixtures;
+import tokyo.peya.langjal.compiler.jvm.EOpcodes;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static tokyo.peya.langjal.compiler.instructions.utils.MethodFixtures.compileAndLoad;
+import static tokyo.peya.langjal.compiler.instructions.utils.MethodFixtures.compileFirstMethod;
+import static tokyo.peya.langjal.compiler.instructions.utils.MethodFixtures.opcodesOf;
+
+class JALMethodCompilerDeadCodeTest {
+    private static final int ELIMINATING_FLAGS = CompileSettings.FULL | CompileSettings.ELIMINATE_DEAD_CODE;
+
+    private static MethodNode compile(String body, int flags) {
+        return compileFirstMethod(method(body), flags);
+    }
+
+    private static String method(String body) {
+        return MethodFixtures.method("dead/Code", "run(I)I", body);
+    }
+
+    private static long countFrames(MethodNode method) {
+        long count = 0;
+        for (AbstractInsnNode insn : method.instructions)
+            if (insn instanceof FrameNode)
+                count++;
+        return count;
+    }
+
+    @Test
+    void removesUnreachedInstructionSets() throws Exception {
+        MethodNode method = compile("""
+                        iload_0
+                        ireturn
+                    Dead:
+                        iconst_1
+                        ireturn
+                """, ELIMINATING_FLAGS);
+
+        assertEquals(List.of(EOpcodes.ILOAD, EOpcodes.IRETURN), opcodesOf(method));
+    }
+
+    @Test
+    void removesInstructionsAfterReturnInSameSet() throws Exception {
+        MethodNode method = compile("""
+                        iload_0
+                        ireturn
+                        iconst_2
+                        ireturn
+                """, ELIMINATING_FLAGS);
+
+        assertEquals(List.of(EOpcodes.ILOAD, EOpcodes.IRETURN), opcodesOf(method));
+    }
+
+    @Test
+    void removesUnusedLabelsAndTheirFrames() throws Exception {
+        String body = """
+                        iload_0
+                    Unused:
+                        iconst_1
+                        iadd
+                        ireturn
+                """;
+
+        assertEquals(1, countFrames(compile(body, CompileSettings.FULL)));
+        assertEquals(0, countFrames(compile(body, ELIMINATING_FLAGS)));
+    }
+
+    @Test
+    void dropsExceptionHandlersOfRemovedRanges() throws Exception {
+        MethodNode method = compile("""
+                        iload_0
+                        ireturn
+                    DeadTry: [~Handler, java/lang/RuntimeException: Handler]
+                        iconst_1
+                        ireturn
+                    Handler:
+                        pop
+                        iconst_0
+                        ireturn
+                """, ELIMINATING_FLAGS);
+
+        assertEquals(List.of(EOpcodes.ILOAD, EOpcodes.IRETURN), opcodesOf(method));
+        assertTrue(method.tryCatchBlocks == null || method.tryCatchBlocks.isEmpty());
+    }
+
+    @Test
+    void eliminatedMethodPassesVerification() throws Exception {
+        Class<?> code = compileAndLoad(method("""
+                        iload_0
+                        ifeq Zero
+                        iload_0
+                        ireturn
+                        iconst_m1
+                        ireturn
+                    Zero:
+                        bipush 42
+                        ireturn
+                    Dead:
+                        aconst_null
+                        athrow
+                """), ELIMINATING_FLAGS);
+
+        assertEquals(42, code.getMethod("run", int.class).invoke(null, 0));
+        assertEquals(7, code.getMethod("run", int.class).invoke(null, 7));
+    }
+}
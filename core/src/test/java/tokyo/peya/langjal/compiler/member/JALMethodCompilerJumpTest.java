@@ -0,0 +1,125 @@
+package tokyo.peya.langjal.compiler.member;
+
+import org.junit.jupiter.api.Test;
+import tokyo.peya.langjal.compiler.CompileSettings;
+import tokyo.peya.langjal.compiler.instructions.utils.MethodFixtures;
+import tokyo.peya.langjal.compiler.jvm.EOpcodes;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static tokyo.peya.langjal.compiler.instructions.utils.MethodFixtures.compileAndLoad;
+import static tokyo.peya.langjal.compiler.instructions.utils.MethodFixtures.compileOpcodes;
+
+class JALMethodCompilerJumpTest {
+    private static final int JUMP_FLAGS = CompileSettings.FULL | CompileSettings.OPTIMISE_JUMPS;
+
+    private static final String SUM_LOOP = """
+                    iconst_0
+                    istore_1
+                Loop:
+                    iload_0
+                    ifle Done
+                    iload_1
+                    iload_0
+                    iadd
+                    istore_1
+                    iinc 0 -1
+                    goto Loop
+                Done:
+                    iload_1
+                    ireturn
+            """;
+
+    private static String method(String body) {
+        return MethodFixtures.method("jump/Flow", "run(I)I", body);
+    }
+
+    @Test
+    void threadsGotoChains() throws Exception {
+        List<Integer> opcodes = compileOpcodes(method("""
+                        iload_0
+                        ifeq First
+                        iload_0
+                        ireturn
+                    First:
+                        goto Second
+                    Unused:
+                        iconst_m1
+                        ireturn
+                    Second:
+                        goto Zero
+                    Zero:
+                        iconst_0
+                        ireturn
+                """), JUMP_FLAGS);
+
+        assertEquals(
+                List.of(EOpcodes.ILOAD, EOpcodes.IFEQ, EOpcodes.ILOAD, EOpcodes.IRETURN, EOpcodes.ICONST_0, EOpcodes.IRETURN),
+                opcodes
+        );
+    }
+
+    @Test
+    void invertsBranchOverGoto() throws Exception {
+        List<Integer> opcodes = compileOpcodes(method("""
+                        iload_0
+                        ifeq Zero
+                        goto NonZero
+                    Zero:
+                        iconst_0
+                        ireturn
+                    NonZero:
+                        iload_0
+                        ireturn
+                """), JUMP_FLAGS);
+
+        assertEquals(
+                List.of(EOpcodes.ILOAD, EOpcodes.IFNE, EOpcodes.ICONST_0, EOpcodes.IRETURN, EOpcodes.ILOAD, EOpcodes.IRETURN),
+                opcodes
+        );
+    }
+
+    @Test
+    void returnsInsteadOfJumpingToReturn() throws Exception {
+        List<Integer> opcodes = compileOpcodes(method("""
+                        iload_0
+                        ifeq Zero
+                        iload_0
+                        goto Done
+                    Zero:
+                        iconst_0
+                    Done:
+                        ireturn
+                """), JUMP_FLAGS);
+
+        assertEquals(
+                List.of(EOpcodes.ILOAD, EOpcodes.IFEQ, EOpcodes.ILOAD, EOpcodes.IRETURN, EOpcodes.ICONST_0, EOpcodes.IRETURN),
+                opcodes
+        );
+    }
+
+    @Test
+    void rotatesLoopsTestedAtTop() throws Exception {
+        List<Integer> opcodes = compileOpcodes(method(SUM_LOOP), JUMP_FLAGS);
+
+        assertEquals(
+                List.of(
+                        EOpcodes.ICONST_0, EOpcodes.ISTORE,
+                        EOpcodes.ILOAD, EOpcodes.IFLE,
+                        EOpcodes.ILOAD, EOpcodes.ILOAD, EOpcodes.IADD, EOpcodes.ISTORE, EOpcodes.IINC,
+                        EOpcodes.ILOAD, EOpcodes.IFGT,
+                        EOpcodes.ILOAD, EOpcodes.IRETURN
+                ),
+                opcodes
+        );
+    }
+
+    @Test
+    void optimisedMethodPassesVerification() throws Exception {
+        Class<?> flow = compileAndLoad(method(SUM_LOOP), JUMP_FLAGS);
+
+        assertEquals(55, flow.getMethod("run", int.class).invoke(null, 10));
+        assertEquals(0, flow.getMethod("run", int.class).invoke(null, 0));
+    }
+}
@@ -0,0 +1,130 @@
+package tokyo.peya.langjal.compiler.member;
+
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.MethodNode;
+import tokyo.peya.langjal.compiler.CompileSettings;
+import tokyo.peya.langjal.compiler.JALFileCompiler;
+import tokyo.peya.langjal.compiler.instructions.utils.TestCompileReporter;
+import tokyo.peya.langjal.compiler.jvm.EOpcodes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static tokyo.peya.langjal.compiler.instructions.utils.MethodFixtures.compileAndLoad;
+import static tokyo.peya.langjal.compiler.instructions.utils.MethodFixtures.method;
+
+class JALMethodCompilerMethodSplitTest {
+    private static final int SPLIT_FLAGS = CompileSettings.FULL | CompileSettings.SPLIT_LARGE_METHODS;
+    // 前後半がそれぞれ 40 KB なので，合わせると 64 KB を超える
+    private static final String LARGE_METHOD = largeMethod(40000);
+
+    private static String largeMethod(int halfSize) {
+        return method("split/Large", "increment(I)I", largeBody("""
+                        iload_0
+                """, halfSize));
+    }
+
+    private static String largeBody(String load, int halfSize) {
+        StringBuilder body = new StringBuilder(load).append("""
+                        istore_1
+                """);
+        for (int i = 0; i < halfSize; i++)
+            body.append("        nop\n");
+        body.append("""
+                    Middle:
+                        iinc 1 1
+                """);
+        for (int i = 0; i < halfSize; i++)
+            body.append("        nop\n");
+        body.append("""
+                        iload_1
+                        ireturn
+                """);
+        return body.toString();
+    }
+
+    @Test
+    void movesCodeAfterEmptyStackLabelToSyntheticHelper() throws Exception {
+        ClassNode clazz = JALFileCompiler.compileOnly(
+                LARGE_METHOD,
+                new TestCompileReporter(),
+                SPLIT_FLAGS
+        ).getCompiledClass();
+
+        assertEquals(2, clazz.methods.size());
+        MethodNode helper = clazz.methods.get(1);
+        assertTrue(helper.name.startsWith("increment$split$"));
+        assertEquals("(II)I", helper.desc);
+        assertEquals(EOpcodes.ACC_PRIVATE | EOpcodes.ACC_STATIC | EOpcodes.ACC_SYNTHETIC, helper.access);
+    }
+
+    @Test
+    void keepsMethodsWithinLimit() throws Exception {
+        ClassNode clazz = JALFileCompiler.compileOnly(
+                largeMethod(16),
+                new TestCompileReporter(),
+                SPLIT_FLAGS
+        ).getCompiledClass();
+
+        assertEquals(1, clazz.methods.size());
+    }
+
+    @Test
+    void doesNotSplitAcrossMonitors() throws Exception {
+        // 前半で獲得したモニタを後半で解放するので，どこで切っても別のメソッドで解放することになる
+        String synchronised = LARGE_METHOD
+                .replace("istore_1\n", "istore_1\n        ldc \"lock\"\n        monitorenter\n")
+                .replace("iload_1\n        ireturn", "ldc \"lock\"\n        monitorexit\n        iload_1\n        ireturn");
+        ClassNode clazz = JALFileCompiler.compileOnly(
+                synchronised,
+                new TestCompileReporter(),
+                SPLIT_FLAGS
+        ).getCompiledClass();
+
+        assertEquals(1, clazz.methods.size());
+    }
+
+    @Test
+    void splitMethodPassesVerification() throws Exception {
+        Class<?> large = compileAndLoad(LARGE_METHOD, SPLIT_FLAGS);
+
+        assertEquals(42, large.getMethod("increment", int.class).invoke(null, 41));
+    }
+
+    @Test
+    void splitOverloadsHaveDistinctHelpers() throws Exception {
+        // 引数は分割位置で使われないので，どちらのヘルパも同じ位置・同じディスクリプタになる
+        String overloads = """
+                public class split/Overloads (major_version=55, minor_version=0) {
+                    public static increment(I)I {
+                %s
+                    }
+                    public static increment(F)I {
+                %s
+                    }
+                }
+                """.formatted(
+                largeBody("""
+                                iload_0
+                                nop
+                        """, 40000),
+                largeBody("""
+                                fload_0
+                                f2i
+                        """, 40000)
+        );
+        ClassNode clazz = JALFileCompiler.compileOnly(
+                overloads,
+                new TestCompileReporter(),
+                SPLIT_FLAGS
+        ).getCompiledClass();
+
+        assertEquals(4, clazz.methods.size());
+        assertNotEquals(clazz.methods.get(1).name, clazz.methods.get(3).name);
+
+        Class<?> loaded = compileAndLoad(overloads, SPLIT_FLAGS);
+        assertEquals(42, loaded.getMethod("increment", int.class).invoke(null, 41));
+        assertEquals(42, loaded.getMethod("increment", float.class).invoke(null, 41.0f));
+    }
+}
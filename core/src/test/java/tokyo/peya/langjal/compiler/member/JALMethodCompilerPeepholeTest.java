@@ -0,0 +1,106 @@
+package tokyo.peya.langjal.compiler.member;
+
+import org.junit.jupiter.api.Test;
+import tokyo.peya.langjal.compiler.CompileSettings;
+import tokyo.peya.langjal.compiler.instructions.utils.MethodFixtures;
+import tokyo.peya.langjal.compiler.jvm.EOpcodes;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static tokyo.peya.langjal.compiler.instructions.utils.MethodFixtures.compileAndLoad;
+import static tokyo.peya.langjal.compiler.instructions.utils.MethodFixtures.compileOpcodes;
+
+class JALMethodCompilerPeepholeTest {
+    private static final int PEEPHOLE_FLAGS = CompileSettings.FULL | CompileSettings.OPTIMISE_PEEPHOLE;
+
+    private static String method(String body) {
+        return MethodFixtures.method("peephole/Redundant", "run(I)I", body);
+    }
+
+    @Test
+    void duplicatesInsteadOfReloadingStoredValue() throws Exception {
+        List<Integer> opcodes = compileOpcodes(method("""
+                        iload_0
+                        istore_1
+                        iload_1
+                        ireturn
+                """), PEEPHOLE_FLAGS);
+
+        assertEquals(List.of(EOpcodes.ILOAD, EOpcodes.DUP, EOpcodes.ISTORE, EOpcodes.IRETURN), opcodes);
+    }
+
+    @Test
+    void removesPushesPoppedAtOnce() throws Exception {
+        List<Integer> opcodes = compileOpcodes(method("""
+                        iload_0
+                        dup
+                        pop
+                        iconst_1
+                        pop
+                        ireturn
+                """), PEEPHOLE_FLAGS);
+
+        assertEquals(List.of(EOpcodes.ILOAD, EOpcodes.IRETURN), opcodes);
+    }
+
+    @Test
+    void removesGotoToNextInstruction() throws Exception {
+        List<Integer> opcodes = compileOpcodes(method("""
+                        iload_0
+                        goto Next
+                    Next:
+                        ireturn
+                """), PEEPHOLE_FLAGS);
+
+        assertEquals(List.of(EOpcodes.ILOAD, EOpcodes.IRETURN), opcodes);
+    }
+
+    @Test
+    void shortensConstantLoads() throws Exception {
+        List<Integer> opcodes = compileOpcodes(method("""
+                        ldc 3
+                        ldc 100
+                        iadd
+                        sipush 4
+                        iadd
+                        ireturn
+                """), PEEPHOLE_FLAGS);
+
+        assertEquals(
+                List.of(EOpcodes.ICONST_3, EOpcodes.BIPUSH, EOpcodes.IADD, EOpcodes.ICONST_4, EOpcodes.IADD, EOpcodes.IRETURN),
+                opcodes
+        );
+    }
+
+    @Test
+    void keepsLabelledInstructions() throws Exception {
+        String body = """
+                        iload_0
+                        iconst_1
+                    Pop:
+                        pop
+                        ireturn
+                """;
+
+        assertEquals(compileOpcodes(method(body), CompileSettings.FULL), compileOpcodes(method(body), PEEPHOLE_FLAGS));
+    }
+
+    @Test
+    void optimisedMethodPassesVerification() throws Exception {
+        Class<?> redundant = compileAndLoad(method("""
+                        iload_0
+                        istore_1
+                        iload_1
+                        dup
+                        pop
+                        ldc 2
+                        imul
+                        goto Done
+                    Done:
+                        ireturn
+                """), PEEPHOLE_FLAGS);
+
+        assertEquals(42, redundant.getMethod("run", int.class).invoke(null, 21));
+    }
+}
@@ -103,6 +103,21 @@ class LabelsHolderTest {
         assertNull(holder.getNextBlock(end));
     }
 
+    @Test
+    void nextBlockPrefersFirstLabelAtIndexAndIgnoresAppendedGlobalStart() {
+        LabelsHolder holder = new LabelsHolder();
+        LabelInfo first = holder.importASMLabel(new LabelNode(new Label()), 10);
+        LabelInfo second = holder.importASMLabel(new LabelNode(new Label()), 10);
+        LabelInfo last = holder.importASMLabel(new LabelNode(new Label()), 20);
+
+        holder.registerGlobalStart(new MethodNode());
+
+        assertEquals(List.of(first, second, last, holder.getGlobalStart()), holder.getLabels());
+        assertSame(first, holder.getNextBlock(holder.getGlobalStart()));
+        assertSame(last, holder.getNextBlock(second));
+        assertSame(holder.getGlobalStart(), holder.resolveSafe("MBEGIN"));
+    }
+
     @ParameterizedTest
     @CsvSource(
             {
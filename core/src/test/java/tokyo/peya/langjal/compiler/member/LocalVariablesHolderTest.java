@@ -148,6 +148,20 @@ class LocalVariablesHolderTest {
         assertDoesNotThrow(() -> holder.register(0, TypeDescriptor.FLOAT, "second", firstEnd, secondEnd));
     }
 
+    @Test
+    void rejectsSlotOverlappingWideLocalOfPreviousSlot() {
+        LabelsHolder labels = new LabelsHolder();
+        LocalVariablesHolder holder = newHolder(labels);
+
+        holder.register(1, TypeDescriptor.LONG, "wide");
+
+        assertThrows(
+                UnknownLocalVariableException.class,
+                () -> holder.register(2, TypeDescriptor.INTEGER, "overlapping")
+        );
+        assertDoesNotThrow(() -> holder.register(3, TypeDescriptor.INTEGER, "next"));
+    }
+
     @Test
     void importLocalVariableUsesKnownLabelsOrGlobalFallback() {
         LabelsHolder labels = new LabelsHolder();
@@ -0,0 +1,93 @@
+package tokyo.peya.langjal.compiler.metrics;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+import tokyo.peya.langjal.compiler.CompileSettings;
+import tokyo.peya.langjal.compiler.JALMemoryCompiler;
+import tokyo.peya.langjal.compiler.instructions.utils.TestCompileReporter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompileStatisticsTest {
+    private static final String SOURCE = """
+            public class metrics/Sign (major_version=55, minor_version=0) {
+              public static run(I)I {
+                iload_0
+                ifle negative
+                iconst_1
+                goto done
+              negative:
+                iconst_0
+              done:
+                ireturn
+              }
+            }
+            """;
+
+    private static CompileStatistics compile() throws Exception {
+        CompileStatistics statistics = new CompileStatistics();
+        TestCompileReporter reporter = new TestCompileReporter() {
+            @Override
+            public @NotNull CompileMetricsListener getMetricsListener() {
+                return statistics;
+            }
+        };
+
+        new JALMemoryCompiler(reporter, CompileSettings.FULL).compileToBytes(SOURCE);
+        return statistics;
+    }
+
+    @Test
+    void recordsEveryPhaseOfFileAndMethod() throws Exception {
+        CompileStatistics statistics = compile();
+
+        List<CompileStatistics.FileStatistics> files = statistics.getFiles();
+        assertEquals(1, files.size());
+        CompileStatistics.FileStatistics file = files.getFirst();
+        assertEquals(CompileStatistics.IN_MEMORY_SOURCE, file.getName());
+        for (CompilePhase phase : CompilePhase.values())
+            assertTrue(file.getNanos(phase) > 0, "No time recorded for " + phase);
+
+        List<CompileStatistics.MethodStatistics> methods = file.getMethods();
+        assertEquals(1, methods.size());
+        CompileStatistics.MethodStatistics method = methods.getFirst();
+        assertEquals("run(I)I", method.getName());
+        for (CompilePhase phase : CompilePhase.values())
+            assertEquals(phase.isMethodPhase(), method.getNanos(phase) > 0, "Unexpected time for " + phase);
+    }
+
+    @Test
+    void countsInstructionsPropagationsAndMerges() throws Exception {
+        CompileStatistics statistics = compile();
+        CompileStatistics.MethodStatistics method = statistics.getSlowestMethods(1).getFirst();
+
+        assertEquals(6, method.getCount(CompileCounter.INSTRUCTIONS));
+        // done には２つの経路から伝播するため，少なくとも１回はマージされる
+        assertTrue(method.getCount(CompileCounter.PROPAGATIONS) >= 3);
+        assertTrue(method.getCount(CompileCounter.MERGES) >= 1);
+        assertEquals(method.getCount(CompileCounter.MERGES), statistics.getTotalCount(CompileCounter.MERGES));
+    }
+
+    @Test
+    void dumpsSummaryAndJson() throws Exception {
+        CompileStatistics statistics = compile();
+
+        ByteArrayOutputStream summary = new ByteArrayOutputStream();
+        statistics.printSummary(new PrintStream(summary, true, StandardCharsets.UTF_8), 10);
+        String printed = summary.toString(StandardCharsets.UTF_8);
+        assertTrue(printed.contains("1 file(s), 1 method(s)"), printed);
+        assertTrue(printed.contains("run(I)I"), printed);
+
+        String json = statistics.toJson();
+        assertTrue(json.startsWith("{\"totals\":{\"phaseNanos\":{\"preprocess\":"), json);
+        assertTrue(json.contains("\"path\":\"<memory>\""), json);
+        assertTrue(json.contains("\"name\":\"run(I)I\""), json);
+        assertTrue(json.contains("\"instructions\":6"), json);
+    }
+}
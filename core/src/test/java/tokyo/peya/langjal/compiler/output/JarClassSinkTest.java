@@ -0,0 +1,82 @@
+package tokyo.peya.langjal.compiler.output;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.jar.JarFile;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class JarClassSinkTest {
+    private static byte[] archive(JarClassSink sink) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        sink.writeTo(out);
+        return out.toByteArray();
+    }
+
+    private static List<ZipEntry> readEntries(byte[] archive) throws IOException {
+        List<ZipEntry> entries = new ArrayList<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(archive))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null)
+                entries.add(entry);
+        }
+
+        return entries;
+    }
+
+    @Test
+    void entriesAreSortedAfterManifest() throws IOException {
+        JarClassSink sink = new JarClassSink();
+        sink.write("b/B", new byte[]{0x02});
+        sink.write("a/A", new byte[]{0x01});
+        sink.write("Main", new byte[]{0x03});
+
+        List<String> names = readEntries(archive(sink)).stream()
+                .map(ZipEntry::getName)
+                .toList();
+
+        assertEquals(
+                List.of("META-INF/", JarFile.MANIFEST_NAME, "Main.class", "a/", "a/A.class", "b/", "b/B.class"),
+                names
+        );
+    }
+
+    @Test
+    void archiveDoesNotDependOnWriteOrder() throws IOException {
+        JarClassSink first = new JarClassSink();
+        first.write("a/A", new byte[]{0x01});
+        first.write("b/B", new byte[]{0x02});
+        JarClassSink second = new JarClassSink();
+        second.write("b/B", new byte[]{0x02});
+        second.write("a/A", new byte[]{0x01});
+
+        assertArrayEquals(archive(first), archive(second));
+    }
+
+    @Test
+    void storedEntriesAreNotCompressed() throws IOException {
+        JarClassSink sink = new JarClassSink(JarClassSink.STORED, JarClassSink.createManifest(null));
+        sink.write("a/A", new byte[]{0x01, 0x02, 0x03});
+
+        for (ZipEntry entry : readEntries(archive(sink)))
+            assertEquals(ZipEntry.STORED, entry.getMethod());
+    }
+
+    @Test
+    void rejectsInvalidCompressionLevel() {
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> new JarClassSink(Deflater.BEST_COMPRESSION + 1, JarClassSink.createManifest(null))
+        );
+    }
+}
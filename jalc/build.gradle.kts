@@ -18,6 +18,7 @@ dependencies {
 
     implementation("org.antlr:antlr4-runtime:4.13.2")
     implementation("net.sf.jopt-simple:jopt-simple:5.0.4")
+    implementation("org.ow2.asm:asm-tree:9.8")
     implementation(project(":langjal"))
 }
 
@@ -0,0 +1,16 @@
+package tokyo.peya.langjal.cli;
+
+import org.jetbrains.annotations.Nullable;
+import tokyo.peya.langjal.compiler.output.JarClassSink;
+
+import java.util.zip.Deflater;
+
+/**
+ * Options of the output archive, used only when the output is a {@code .jar} or {@code .zip} file.
+ *
+ * @param compressionLevel The compression level of the entries, or {@link JarClassSink#STORED} to store them uncompressed.
+ * @param mainClass        The {@code Main-Class} written to the manifest, or null to omit it.
+ */
+public record ArchiveOptions(int compressionLevel, @Nullable String mainClass) {
+    public static final ArchiveOptions DEFAULT = new ArchiveOptions(Deflater.DEFAULT_COMPRESSION, null);
+}
@@ -0,0 +1,84 @@
+package tokyo.peya.langjal.cli;
+
+import org.jetbrains.annotations.NotNull;
+import tokyo.peya.langjal.compiler.metrics.CompileMetricsListener;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+
+/**
+ * A reporter which keeps every message of one compilation unit in memory,
+ * so that reports of files compiled concurrently can be written out in one piece, without interleaving.
+ */
+public class BufferedCompilerReporter extends JALCompilerReporter {
+    private final ByteArrayOutputStream outBuffer;
+    private final ByteArrayOutputStream errBuffer;
+    private final PrintStream out;
+    private final PrintStream err;
+
+    private BufferedCompilerReporter(boolean verbose,
+                                     @NotNull ByteArrayOutputStream outBuffer, @NotNull PrintStream out,
+                                     @NotNull ByteArrayOutputStream errBuffer, @NotNull PrintStream err,
+                                     @NotNull CompileMetricsListener metrics) {
+        super(verbose, out, err, metrics);
+        this.outBuffer = outBuffer;
+        this.errBuffer = errBuffer;
+        this.out = out;
+        this.err = err;
+    }
+
+    public static BufferedCompilerReporter create(boolean verbose) {
+        return create(verbose, CompileMetricsListener.NONE);
+    }
+
+    public static BufferedCompilerReporter create(boolean verbose, @NotNull CompileMetricsListener metrics) {
+        ByteArrayOutputStream outBuffer = new ByteArrayOutputStream();
+        ByteArrayOutputStream errBuffer = new ByteArrayOutputStream();
+        return new BufferedCompilerReporter(
+                verbose,
+                outBuffer, new PrintStream(outBuffer, true),
+                errBuffer, new PrintStream(errBuffer, true),
+                metrics
+        );
+    }
+
+    /**
+     * Returns the stream that buffers the standard output of this report.
+     *
+     * @return The buffered standard output.
+     */
+    public @NotNull PrintStream getOut() {
+        return this.out;
+    }
+
+    /**
+     * Returns the stream that buffers the error output of this report.
+     *
+     * @return The buffered error output.
+     */
+    public @NotNull PrintStream getErr() {
+        return this.err;
+    }
+
+    /**
+     * Writes all buffered messages to the given streams and clears the buffers.
+     *
+     * @param out The stream to write standard messages to.
+     * @param err The stream to write errors and warnings to.
+     */
+    public synchronized void flushTo(@NotNull PrintStream out, @NotNull PrintStream err) {
+        try {
+            this.outBuffer.writeTo(out);
+            this.errBuffer.writeTo(err);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        out.flush();
+        err.flush();
+        this.outBuffer.reset();
+        this.errBuffer.reset();
+    }
+}
@@ -0,0 +1,343 @@
+package tokyo.peya.langjal.cli;
+
+import org.intellij.lang.annotations.MagicConstant;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import tokyo.peya.langjal.analyser.hierarchy.ClassHierarchyInfo;
+import tokyo.peya.langjal.analyser.hierarchy.ClassHierarchyResolver;
+import tokyo.peya.langjal.compiler.CompileSettings;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * Persistent state of incremental compilation.
+ * <p>
+ * The cache is stored next to the output directory and records, for each source file,
+ * the hash of its content, the class file produced from it,
+ * and the classes whose hierarchies its stack frames were computed from, with a hash of those hierarchies.
+ * A source is compiled again when its content or any of these hierarchies changes.
+ * The whole cache is invalidated when the compile flags, the compiler version or the class path change.
+ * <p>
+ * The preprocessed source is a function of the source and the compiler version,
+ * so the content of the source itself is hashed, and the compiler hashes it while reading it.
+ */
+public class BuildCache {
+    public static final String CACHE_FILE_SUFFIX = ".jalc-cache";
+
+    private static final String HEADER = "# jalc build cache";
+    private static final String KEY_VERSION = "version=";
+    private static final String KEY_FLAGS = "flags=";
+    private static final String KEY_CLASSPATH = "classpath=";
+
+    private final Path cacheFile;
+    private final String compilerVersion;
+    @MagicConstant(valuesFromClass = CompileSettings.class)
+    private final int compileFlags;
+    private final String classpathHash;
+    private final Map<String, Entry> entries;
+    /**
+     * Whether the loaded entries were produced by the same compiler with the same flags.
+     * If not, every source must be recompiled, but the entries are still used to prune stale outputs.
+     */
+    private final boolean compatible;
+
+    private BuildCache(@NotNull Path cacheFile, @NotNull String compilerVersion,
+                       @MagicConstant(valuesFromClass = CompileSettings.class) int compileFlags,
+                       @NotNull String classpathHash,
+                       @NotNull Map<String, Entry> entries, boolean compatible) {
+        this.cacheFile = cacheFile;
+        this.compilerVersion = compilerVersion;
+        this.compileFlags = compileFlags;
+        this.classpathHash = classpathHash;
+        this.entries = entries;
+        this.compatible = compatible;
+    }
+
+    /**
+     * Loads the cache of the given output directory.
+     * A missing or unreadable cache results in an empty one.
+     *
+     * @param outputDirectory The output directory of the compilation.
+     * @param compileFlags    The compile flags of the current compilation.
+     * @return The loaded cache.
+     */
+    public static BuildCache load(@NotNull Path outputDirectory,
+                                  @MagicConstant(valuesFromClass = CompileSettings.class) int compileFlags) {
+        return load(outputDirectory, compileFlags, List.of());
+    }
+
+    /**
+     * Loads the cache of the given output directory.
+     * A missing or unreadable cache results in an empty one.
+     *
+     * @param outputDirectory The output directory of the compilation.
+     * @param compileFlags    The compile flags of the current compilation.
+     * @param classpath       The class path of the current compilation.
+     * @return The loaded cache.
+     */
+    public static BuildCache load(@NotNull Path outputDirectory,
+                                  @MagicConstant(valuesFromClass = CompileSettings.class) int compileFlags,
+                                  @NotNull List<Path> classpath) {
+        // 出力に影響しないフラグでは，キャッシュを無効にしない
+        compileFlags &= ~CompileSettings.PARALLEL_METHODS;
+        Path cacheFile = getCacheFile(outputDirectory);
+        String compilerVersion = getCompilerVersion();
+        String classpathHash = hashClasspath(classpath);
+        Map<String, Entry> entries = new TreeMap<>();
+        if (!Files.isRegularFile(cacheFile))
+            return new BuildCache(cacheFile, compilerVersion, compileFlags, classpathHash, entries, true);
+
+        String cachedVersion = null;
+        String cachedFlags = null;
+        String cachedClasspath = null;
+        try (BufferedReader reader = Files.newBufferedReader(cacheFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty() || line.startsWith("#"))
+                    continue;
+
+                if (line.startsWith(KEY_VERSION))
+                    cachedVersion = line.substring(KEY_VERSION.length());
+                else if (line.startsWith(KEY_FLAGS))
+                    cachedFlags = line.substring(KEY_FLAGS.length());
+                else if (line.startsWith(KEY_CLASSPATH))
+                    cachedClasspath = line.substring(KEY_CLASSPATH.length());
+                else {
+                    // source \t hash \t output \t hierarchy hash \t dependencies
+                    String[] columns = line.split("\t", -1);
+                    if (columns.length == 5)
+                        entries.put(
+                                columns[0],
+                                new Entry(columns[1], columns[2], columns[3], parseDependencies(columns[4]))
+                        );
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to read build cache " + cacheFile + ", performing a full build: " + e.getMessage());
+            return new BuildCache(cacheFile, compilerVersion, compileFlags, classpathHash, new TreeMap<>(), false);
+        }
+
+        boolean compatible = compilerVersion.equals(cachedVersion)
+                && String.valueOf(compileFlags).equals(cachedFlags)
+                && classpathHash.equals(cachedClasspath);
+        return new BuildCache(cacheFile, compilerVersion, compileFlags, classpathHash, entries, compatible);
+    }
+
+    private static List<String> parseDependencies(@NotNull String column) {
+        return column.isEmpty() ? List.of() : List.of(column.split(","));
+    }
+
+    /**
+     * Returns the path of the cache file for the given output directory.
+     *
+     * @param outputDirectory The output directory.
+     * @return The cache file path, placed next to the output directory.
+     */
+    public static Path getCacheFile(@NotNull Path outputDirectory) {
+        Path fileName = outputDirectory.getFileName();
+        String name = fileName == null ? "output" : fileName.toString();
+        return outputDirectory.resolveSibling(name + CACHE_FILE_SUFFIX);
+    }
+
+    /**
+     * Computes the content hash of a source.
+     *
+     * @param source The source code.
+     * @return The hex encoded SHA-256 hash, which is equal to the hash of a file of the source in UTF-8.
+     */
+    public static String hash(@NotNull String source) {
+        return hash(source.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Computes the content hash of a source file.
+     *
+     * @param source The bytes of the source file.
+     * @return The hex encoded SHA-256 hash.
+     */
+    public static String hash(byte @NotNull [] source) {
+        MessageDigest digest = newDigest();
+        digest.update(source);
+        return hash(digest);
+    }
+
+    /**
+     * Finishes the digest created by {@link #newDigest()}.
+     *
+     * @param digest The digest updated with the content of a source.
+     * @return The hex encoded hash.
+     */
+    public static String hash(@NotNull MessageDigest digest) {
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Creates a digest for the content hash, which can be updated while the source is read.
+     *
+     * @return A new SHA-256 digest.
+     */
+    public static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static String hashHierarchies(@NotNull Collection<String> classes, @NotNull ClassHierarchyResolver hierarchy) {
+        MessageDigest digest = newDigest();
+        for (String className : classes) {
+            ClassHierarchyInfo info = hierarchy.resolve(className);
+            String line = info == null
+                    ? className + "\n"  // 見つからないことも，階層の一部として扱う
+                    : className + ":" + info.superName() + ":" + info.interfaces() + ":" + info.isInterface() + "\n";
+            digest.update(line.getBytes(StandardCharsets.UTF_8));
+        }
+        return hash(digest);
+    }
+
+    private static String hashClasspath(@NotNull List<Path> classpath) {
+        // ディレクトリの更新日時は中のファイルを書き換えても変わらないので，ファイル毎に見る
+        MessageDigest digest = newDigest();
+        for (Path entry : classpath) {
+            Path root = entry.toAbsolutePath().normalize();
+            digest.update((root + "\n").getBytes(StandardCharsets.UTF_8));
+            try (Stream<Path> files = Files.walk(root)) {
+                for (Path file : files.filter(Files::isRegularFile).sorted().toList()) {
+                    String line = root.relativize(file) + ":" + Files.size(file) + ":"
+                            + Files.getLastModifiedTime(file).toMillis() + "\n";
+                    digest.update(line.getBytes(StandardCharsets.UTF_8));
+                }
+            } catch (IOException | UncheckedIOException e) {
+                digest.update("unreadable\n".getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        return hash(digest);
+    }
+
+    private static String getCompilerVersion() {
+        String version = BuildCache.class.getPackage().getImplementationVersion();
+        return version == null ? "dev" : version;
+    }
+
+    /**
+     * Checks whether the given source and the hierarchies it depends on are unchanged since the last compilation,
+     * and its output still exists.
+     *
+     * @param sourceKey       The source path relative to the source directory.
+     * @param hash            The hash of the current source.
+     * @param outputDirectory The output directory.
+     * @param hierarchy       The resolver with the hierarchies of the current compilation,
+     *                        including every source of it.
+     * @return True if the source does not need to be recompiled.
+     */
+    public boolean isUpToDate(@NotNull String sourceKey, @NotNull String hash, @NotNull Path outputDirectory,
+                              @NotNull ClassHierarchyResolver hierarchy) {
+        if (!this.compatible)
+            return false;
+
+        Entry entry = this.entries.get(sourceKey);
+        return entry != null
+                && entry.hash().equals(hash)
+                && Files.isRegularFile(outputDirectory.resolve(entry.output()))
+                && entry.hierarchyHash().equals(hashHierarchies(entry.dependencies(), hierarchy));
+    }
+
+    /**
+     * Records a successful compilation of the given source.
+     *
+     * @param sourceKey    The source path relative to the source directory.
+     * @param hash         The hash of the compiled source.
+     * @param output       The class file path relative to the output directory.
+     * @param dependencies The classes whose hierarchies were resolved while compiling the source.
+     * @param hierarchy    The resolver the source was compiled with.
+     * @return The class file which was previously produced from the source but no longer is, or null.
+     */
+    @Nullable
+    public String update(@NotNull String sourceKey, @NotNull String hash, @NotNull String output,
+                         @NotNull Collection<String> dependencies, @NotNull ClassHierarchyResolver hierarchy) {
+        List<String> sortedDependencies = dependencies.stream().sorted().toList();
+        Entry previous = this.entries.put(
+                sourceKey,
+                new Entry(hash, output, hashHierarchies(sortedDependencies, hierarchy), sortedDependencies)
+        );
+        if (previous == null || previous.output().equals(output))
+            return null;
+        return previous.output();
+    }
+
+    /**
+     * Forgets the given source, so that it is compiled again on the next run.
+     *
+     * @param sourceKey The source path relative to the source directory.
+     */
+    public void invalidate(@NotNull String sourceKey) {
+        this.entries.remove(sourceKey);
+    }
+
+    /**
+     * Removes all entries whose sources no longer exist.
+     *
+     * @param existingSources The source keys which currently exist.
+     * @return The class files which were produced from the removed sources.
+     */
+    public List<String> retainSources(@NotNull Set<String> existingSources) {
+        List<String> staleOutputs = new ArrayList<>();
+        Iterator<Map.Entry<String, Entry>> iterator = this.entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Entry> entry = iterator.next();
+            if (existingSources.contains(entry.getKey()))
+                continue;
+
+            staleOutputs.add(entry.getValue().output());
+            iterator.remove();
+        }
+
+        return staleOutputs;
+    }
+
+    /**
+     * Writes the cache next to the output directory.
+     *
+     * @throws IOException If the cache file cannot be written.
+     */
+    public void save() throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(this.cacheFile, StandardCharsets.UTF_8)) {
+            writer.write(HEADER);
+            writer.newLine();
+            writer.write(KEY_VERSION + this.compilerVersion);
+            writer.newLine();
+            writer.write(KEY_FLAGS + this.compileFlags);
+            writer.newLine();
+            writer.write(KEY_CLASSPATH + this.classpathHash);
+            writer.newLine();
+            for (Map.Entry<String, Entry> entry : this.entries.entrySet()) {
+                Entry value = entry.getValue();
+                writer.write(entry.getKey() + "\t" + value.hash() + "\t" + value.output()
+                        + "\t" + value.hierarchyHash() + "\t" + String.join(",", value.dependencies()));
+                writer.newLine();
+            }
+        }
+    }
+
+    private record Entry(@NotNull String hash, @NotNull String output,
+                         @NotNull String hierarchyHash, @NotNull List<String> dependencies) {
+    }
+}
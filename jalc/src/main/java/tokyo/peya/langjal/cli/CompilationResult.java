@@ -0,0 +1,20 @@
+package tokyo.peya.langjal.cli;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * The outcome of one jalc compilation.
+ *
+ * @param succeeded Whether every source was compiled and written without errors.
+ * @param outputs   The class files or the archive written by the compilation, sorted by path.
+ */
+public record CompilationResult(boolean succeeded, @NotNull List<Path> outputs) {
+    public static final CompilationResult FAILED = new CompilationResult(false, List.of());
+
+    public static CompilationResult succeeded(@NotNull List<Path> outputs) {
+        return new CompilationResult(true, List.copyOf(outputs));
+    }
+}
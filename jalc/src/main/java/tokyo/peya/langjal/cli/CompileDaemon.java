@@ -0,0 +1,191 @@
+package tokyo.peya.langjal.cli;
+
+import org.jetbrains.annotations.NotNull;
+import tokyo.peya.langjal.analyser.hierarchy.CachingClassHierarchyResolver;
+import tokyo.peya.langjal.compiler.CompileSettings;
+import tokyo.peya.langjal.compiler.JALFileCompiler;
+import tokyo.peya.langjal.compiler.exceptions.CompileErrorException;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+
+/**
+ * A long-running compile server, which keeps a warmed-up compiler resident between jalc invocations.
+ * <p>
+ * Clients connect with {@link DaemonClient} over a Unix domain socket and submit jalc command lines.
+ * Since the JVM stays alive, the DFA caches of the lexer and the parser, the JIT-compiled evaluators
+ * and the hierarchies of platform classes ({@link CachingClassHierarchyResolver#getPlatform()})
+ * are reused by every request.
+ * <p>
+ * Requests are compiled one at a time, because the standard streams and the working directory
+ * are redirected to the client while a request runs. A request may still compile its files in parallel with {@code --jobs}.
+ */
+public class CompileDaemon {
+    private static final int WARM_UP_ITERATIONS = 20;
+    private static final String WARM_UP_SOURCE = """
+            public class WarmUp (major_version=55, minor_version=0) {
+              public static run(I)I {
+                iload_0
+                ifle negative
+                iload_0
+                iconst_2
+                imul
+                ireturn
+              negative:
+                iconst_0
+                ireturn
+              }
+            }
+            """;
+
+    private final Path socketPath;
+    private final boolean verbose;
+    private final PrintStream log;
+    private volatile boolean running;
+
+    public CompileDaemon(@NotNull Path socketPath, boolean verbose) {
+        this.socketPath = socketPath;
+        this.verbose = verbose;
+        this.log = System.out;
+    }
+
+    /**
+     * Returns the socket path used when none is given, which only the current user can reach:
+     * {@code $XDG_RUNTIME_DIR/jalc.sock}, or {@code jalc.sock} in a per-user directory under the temporary directory.
+     *
+     * @return The default socket path.
+     */
+    @NotNull
+    public static Path getDefaultSocketPath() {
+        return DaemonSockets.getDefaultSocketPath(
+                System.getenv("XDG_RUNTIME_DIR"),
+                System.getProperty("java.io.tmpdir"),
+                System.getProperty("user.name")
+        );
+    }
+
+    /**
+     * Listens on the socket and serves requests until a stop request is received.
+     *
+     * @throws IOException If the socket cannot be bound, e.g. because another daemon is listening on it,
+     *                     or if its directory or an existing socket may be used by another user.
+     */
+    public void serve() throws IOException {
+        DaemonSockets.prepareDirectory(this.socketPath);
+        if (Files.exists(this.socketPath, LinkOption.NOFOLLOW_LINKS)) {
+            // 他のユーザが置いたソケットには，問い合わせも削除もしない
+            DaemonSockets.checkOwner(this.socketPath);
+            if (DaemonClient.ping(this.socketPath))
+                throw new IOException("Another daemon is already listening on " + this.socketPath);
+            Files.delete(this.socketPath);  // 前回のデーモンが残したソケット
+        }
+
+        try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            server.bind(UnixDomainSocketAddress.of(this.socketPath));
+            DaemonSockets.restrictSocket(this.socketPath);
+            this.warmUp();
+
+            this.running = true;
+            this.log.println("jalc daemon is listening on " + this.socketPath);
+            while (this.running) {
+                try (SocketChannel client = server.accept()) {
+                    this.handle(client);
+                } catch (IOException e) {
+                    this.log.println("Failed to serve a request: " + e.getMessage());
+                }
+            }
+        } finally {
+            Files.deleteIfExists(this.socketPath);
+        }
+
+        this.log.println("jalc daemon has stopped.");
+    }
+
+    private void warmUp() {
+        long start = System.nanoTime();
+        PrintStream discard = new PrintStream(OutputStream.nullOutputStream());
+        JALCompilerReporter reporter = new JALCompilerReporter(false, discard, discard);
+        try {
+            // レキサ・パーサの DFA と，評価器の JIT を温めておく
+            for (int i = 0; i < WARM_UP_ITERATIONS; i++)
+                JALFileCompiler.compileOnly(
+                        WARM_UP_SOURCE, reporter, CompileSettings.FULL, CachingClassHierarchyResolver.getPlatform()
+                );
+        } catch (CompileErrorException e) {
+            this.log.println("Failed to warm up the compiler: " + e.getMessage());
+        }
+
+        if (this.verbose)
+            this.log.println("Warmed up the compiler in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+
+    private void handle(@NotNull SocketChannel client) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(client)));
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(client)));
+
+        DaemonProtocol.Request request = DaemonProtocol.readRequest(in);
+        if (request.kind() == DaemonProtocol.REQUEST_STOP) {
+            this.running = false;
+            DaemonProtocol.writeExit(out, 0);
+            return;
+        } else if (request.kind() == DaemonProtocol.REQUEST_PING) {
+            DaemonProtocol.writeExit(out, 0);
+            return;
+        } else if (request.kind() != DaemonProtocol.REQUEST_COMPILE) {
+            throw new IOException("Unknown request kind: " + request.kind());
+        }
+
+        if (this.verbose)
+            this.log.println("Compiling in " + request.workingDirectory() + ": " + String.join(" ", request.arguments()));
+
+        CompilationResult result = this.compile(request, out);
+        for (Path output : result.outputs()) {
+            byte[] payload = output.toString().getBytes(StandardCharsets.UTF_8);
+            DaemonProtocol.writeFrame(out, DaemonProtocol.FRAME_OUTPUT, payload, 0, payload.length);
+        }
+        DaemonProtocol.writeExit(out, result.succeeded() ? 0 : 1);
+    }
+
+    private CompilationResult compile(@NotNull DaemonProtocol.Request request, @NotNull DataOutputStream out) {
+        PrintStream stdout = new PrintStream(
+                new DaemonProtocol.FrameOutputStream(out, DaemonProtocol.FRAME_OUT), true, StandardCharsets.UTF_8
+        );
+        PrintStream stderr = new PrintStream(
+                new DaemonProtocol.FrameOutputStream(out, DaemonProtocol.FRAME_ERR), true, StandardCharsets.UTF_8
+        );
+
+        PrintStream originalOut = System.out;
+        PrintStream originalErr = System.err;
+        String originalWorkingDirectory = System.getProperty("user.dir");
+        System.setOut(stdout);
+        System.setErr(stderr);
+        // 相対パスは，クライアントの作業ディレクトリから解決する
+        System.setProperty("user.dir", request.workingDirectory());
+        try {
+            return Main.runRequest(request.arguments());
+        } catch (RuntimeException e) {
+            stderr.println("Error: " + e);
+            return CompilationResult.FAILED;
+        } finally {
+            stdout.flush();
+            stderr.flush();
+            System.setOut(originalOut);
+            System.setErr(originalErr);
+            System.setProperty("user.dir", originalWorkingDirectory);
+        }
+    }
+}
@@ -2,20 +2,43 @@ package tokyo.peya.langjal.cli;
 
 import org.intellij.lang.annotations.MagicConstant;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import tokyo.peya.langjal.analyser.hierarchy.CachingClassHierarchyResolver;
 import tokyo.peya.langjal.compiler.CompileSettings;
+import tokyo.peya.langjal.compiler.metrics.CompileMetricsListener;
 
+import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 
 public class CompilerCLI {
     public static String[] ALLOWED_INPUT_EXTENSIONS = {".jal"};
     public static String[] ALLOWED_OUTPUT_EXTENSIONS = {".jar", ".zip"};
 
-    public static void runCompiler(@NotNull String input, @NotNull String output,
-                                   @MagicConstant(valuesFromClass = CompileSettings.class) int compileFlags,
-                                   boolean verbose) {
+    public static CompilationResult runCompiler(@NotNull String input, @NotNull String output,
+                                                @MagicConstant(valuesFromClass = CompileSettings.class) int compileFlags,
+                                                boolean verbose) {
+        return runCompiler(
+                input, output, compileFlags, verbose,
+                1, false, List.of(), ArchiveOptions.DEFAULT, CompileMetricsListener.NONE
+        );
+    }
+
+    public static CompilationResult runCompiler(@NotNull String input, @NotNull String output,
+                                                @MagicConstant(valuesFromClass = CompileSettings.class) int compileFlags,
+                                                boolean verbose,
+                                                int jobs,
+                                                boolean incremental,
+                                                @NotNull List<String> classpath,
+                                                @NotNull ArchiveOptions archiveOptions,
+                                                @NotNull CompileMetricsListener metrics) {
         Path inputPath = resolveAbsolutePath(input);
         Path outputPath = resolveAbsolutePath(output);
+        List<Path> classpathEntries = classpath.stream()
+                .map(CompilerCLI::resolveAbsolutePath)
+                .toList();
 
         if (verbose) {
             System.out.println("Input path: " + inputPath);
@@ -23,29 +46,69 @@ public class CompilerCLI {
         }
 
         if (!(validateInputPath(input) && validateOutputPath(output)))
-            return;
+            return CompilationResult.FAILED;
 
         if (verbose)
             System.out.println("Starting compilation...");
 
         // ファイルがディレクトリの場合は，専用のコンパイラを使用
         if (Files.isDirectory(inputPath))
-            DirectoryCompiler.runCompiler(
+            return DirectoryCompiler.runCompiler(
                     inputPath, outputPath,
                     isDirectoryLike(output),
                     compileFlags,
-                    verbose
+                    verbose,
+                    jobs,
+                    incremental,
+                    classpathEntries,
+                    archiveOptions,
+                    metrics
             );
         else
-            FileCompiler.runCompiler(
+            return FileCompiler.runCompiler(
                     inputPath,
                     outputPath,
                     isDirectoryLike(output),
                     compileFlags,
-                    verbose
+                    verbose,
+                    classpathEntries,
+                    archiveOptions,
+                    metrics
             );
     }
 
+    /**
+     * Opens the class hierarchy resolver shared by all files of one compilation.
+     * Platform classes come from {@link CachingClassHierarchyResolver#getPlatform()}, which is kept across compilations.
+     * Other classes are looked up in the output directory first, so that classes compiled earlier can be referenced,
+     * and then in the given class path.
+     *
+     * @param classpath     The user class path entries.
+     * @param compileOutput The directory class files are compiled into, or null if the output is an archive.
+     * @return The resolver, or null if a class path entry cannot be opened.
+     */
+    @Nullable
+    public static CachingClassHierarchyResolver openHierarchyResolver(@NotNull List<Path> classpath,
+                                                                      @Nullable Path compileOutput) {
+        List<Path> entries = new ArrayList<>();
+        if (compileOutput != null && Files.isDirectory(compileOutput))
+            entries.add(compileOutput);
+        for (Path entry : classpath) {
+            if (!Files.exists(entry)) {
+                System.err.println("Warning: Class path entry does not exist: " + entry);
+                continue;
+            }
+            entries.add(entry);
+        }
+
+        try {
+            return CachingClassHierarchyResolver.ofClasspath(CachingClassHierarchyResolver.getPlatform(), entries);
+        } catch (IOException e) {
+            System.err.println("Failed to open class path: " + e.getMessage());
+            return null;
+        }
+    }
+
     public static boolean hasValidInputFileName(@NotNull Path path) {
         Path fileName = path.getFileName();
         if (fileName == null || !Files.isRegularFile(path) || fileName.toString().isEmpty()) {
@@ -0,0 +1,147 @@
+package tokyo.peya.langjal.cli;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Submits compilations to a running {@link CompileDaemon}.
+ */
+public class DaemonClient {
+    /**
+     * Submits a compilation to the daemon and relays its messages while it runs.
+     *
+     * @param socketPath       The socket the daemon listens on.
+     * @param workingDirectory The directory relative paths in the arguments are resolved against.
+     * @param arguments        The jalc command line arguments.
+     * @param out              The stream to relay the standard output of the compilation to.
+     * @param err              The stream to relay the error output of the compilation to.
+     * @return The result of the compilation, or null if no daemon is listening on the socket.
+     * @throws IOException If the socket is owned by another user, or the connection is lost during the compilation.
+     */
+    @Nullable
+    public static CompilationResult submit(@NotNull Path socketPath, @NotNull Path workingDirectory,
+                                           @NotNull List<String> arguments,
+                                           @NotNull PrintStream out, @NotNull PrintStream err) throws IOException {
+        SocketChannel channel = connect(socketPath);
+        if (channel == null)
+            return null;
+
+        try (channel) {
+            DataOutputStream request = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            DaemonProtocol.writeRequest(
+                    request,
+                    new DaemonProtocol.Request(DaemonProtocol.REQUEST_COMPILE, workingDirectory.toString(), arguments)
+            );
+
+            return readResponse(new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel))), out, err);
+        }
+    }
+
+    /**
+     * Asks the daemon to stop after the current request.
+     *
+     * @param socketPath The socket the daemon listens on.
+     * @return True if a daemon was listening on the socket.
+     * @throws IOException If the socket is owned by another user, or the connection is lost.
+     */
+    public static boolean stop(@NotNull Path socketPath) throws IOException {
+        return sendControl(socketPath, DaemonProtocol.REQUEST_STOP);
+    }
+
+    /**
+     * Checks whether a daemon is listening on the socket.
+     *
+     * @param socketPath The socket to check.
+     * @return True if a daemon answered.
+     */
+    public static boolean ping(@NotNull Path socketPath) {
+        try {
+            return sendControl(socketPath, DaemonProtocol.REQUEST_PING);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static boolean sendControl(@NotNull Path socketPath, byte kind) throws IOException {
+        SocketChannel channel = connect(socketPath);
+        if (channel == null)
+            return false;
+
+        try (channel) {
+            DataOutputStream request = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            DaemonProtocol.writeRequest(request, new DaemonProtocol.Request(kind, "", List.of()));
+
+            readResponse(
+                    new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel))),
+                    System.out, System.err
+            );
+            return true;
+        }
+    }
+
+    @Nullable
+    private static SocketChannel connect(@NotNull Path socketPath) throws IOException {
+        if (!Files.exists(socketPath, LinkOption.NOFOLLOW_LINKS))
+            return null;
+        // 他のユーザが置いたソケットには，ソースや引数を送らない
+        DaemonSockets.checkOwner(socketPath);
+
+        try {
+            SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+            try {
+                channel.connect(UnixDomainSocketAddress.of(socketPath));
+                return channel;
+            } catch (IOException e) {
+                channel.close();
+                return null;
+            }
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static CompilationResult readResponse(@NotNull DataInputStream in,
+                                                  @NotNull PrintStream out, @NotNull PrintStream err)
+            throws IOException {
+        List<Path> outputs = new ArrayList<>();
+        try {
+            while (true) {
+                byte type = in.readByte();
+                if (type == DaemonProtocol.FRAME_EXIT)
+                    return new CompilationResult(in.readInt() == 0, List.copyOf(outputs));
+
+                byte[] payload = new byte[in.readInt()];
+                in.readFully(payload);
+                switch (type) {
+                    case DaemonProtocol.FRAME_OUT -> out.write(payload);
+                    case DaemonProtocol.FRAME_ERR -> err.write(payload);
+                    case DaemonProtocol.FRAME_OUTPUT -> outputs.add(Path.of(new String(payload, StandardCharsets.UTF_8)));
+                    default -> throw new IOException("Unknown frame type from the daemon: " + type);
+                }
+            }
+        } catch (EOFException e) {
+            throw new IOException("The daemon closed the connection before the compilation finished", e);
+        } finally {
+            out.flush();
+            err.flush();
+        }
+    }
+}
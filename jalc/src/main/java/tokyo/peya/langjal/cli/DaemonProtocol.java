@@ -0,0 +1,116 @@
+package tokyo.peya.langjal.cli;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The wire format between {@link DaemonClient} and {@link CompileDaemon}.
+ * <p>
+ * A client sends one request: the magic, the version, the request kind, the working directory and the arguments.
+ * The daemon answers with frames of a type byte, a length and a payload:
+ * standard output and error of the compilation as they are printed, the paths of the written outputs,
+ * and finally the exit code.
+ */
+final class DaemonProtocol {
+    static final int MAGIC = 0x4A414C43;  // "JALC"
+    static final int VERSION = 1;
+
+    static final byte REQUEST_COMPILE = 1;
+    static final byte REQUEST_STOP = 2;
+    static final byte REQUEST_PING = 3;
+
+    static final byte FRAME_OUT = 1;
+    static final byte FRAME_ERR = 2;
+    static final byte FRAME_OUTPUT = 3;
+    static final byte FRAME_EXIT = 4;
+
+    private DaemonProtocol() {
+    }
+
+    static void writeRequest(@NotNull DataOutputStream out, @NotNull Request request) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeByte(request.kind());
+        out.writeUTF(request.workingDirectory());
+        out.writeInt(request.arguments().size());
+        for (String argument : request.arguments())
+            out.writeUTF(argument);
+        out.flush();
+    }
+
+    @NotNull
+    static Request readRequest(@NotNull DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC)
+            throw new IOException("Not a jalc daemon request");
+        int version = in.readInt();
+        if (version != VERSION)
+            throw new IOException("Unsupported protocol version " + version + ", expected " + VERSION);
+
+        byte kind = in.readByte();
+        String workingDirectory = in.readUTF();
+        int count = in.readInt();
+        List<String> arguments = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+            arguments.add(in.readUTF());
+
+        return new Request(kind, workingDirectory, arguments);
+    }
+
+    static void writeFrame(@NotNull DataOutputStream out, byte type,
+                           byte @NotNull [] payload, int offset, int length) throws IOException {
+        // 標準出力とエラー出力は，別々のスレッドから書かれ得る
+        synchronized (out) {
+            out.writeByte(type);
+            out.writeInt(length);
+            out.write(payload, offset, length);
+        }
+    }
+
+    static void writeExit(@NotNull DataOutputStream out, int exitCode) throws IOException {
+        synchronized (out) {
+            out.writeByte(FRAME_EXIT);
+            out.writeInt(exitCode);
+            out.flush();
+        }
+    }
+
+    record Request(byte kind, @NotNull String workingDirectory, @NotNull List<String> arguments) {
+    }
+
+    /**
+     * An output stream which sends everything written to it as frames of one type.
+     */
+    static final class FrameOutputStream extends OutputStream {
+        private final DataOutputStream out;
+        private final byte type;
+
+        FrameOutputStream(@NotNull DataOutputStream out, byte type) {
+            this.out = out;
+            this.type = type;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            this.write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte @NotNull [] b, int off, int len) throws IOException {
+            if (len > 0)
+                writeFrame(this.out, this.type, b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            synchronized (this.out) {
+                this.out.flush();
+            }
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package tokyo.peya.langjal.cli;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.util.Set;
+
+/**
+ * Places the socket of {@link CompileDaemon} where only the current user can reach it.
+ * <p>
+ * Anyone who can bind the socket first can read the sources and arguments sent by the client and answer them,
+ * and anyone who can connect to it can make the daemon read and write files as its user.
+ * So the socket is kept in a directory owned by the user and not writable by others,
+ * and neither the daemon nor the client uses a socket owned by another user.
+ */
+final class DaemonSockets {
+    private static final String SOCKET_NAME = "jalc.sock";
+
+    private DaemonSockets() {
+    }
+
+    /**
+     * Returns the default socket path: {@code $XDG_RUNTIME_DIR/jalc.sock} if the runtime directory is given,
+     * otherwise {@code jalc.sock} in a per-user directory under the temporary directory.
+     *
+     * @param runtimeDirectory The value of {@code XDG_RUNTIME_DIR}, or null.
+     * @param temporaryDirectory The temporary directory.
+     * @param userName The name of the current user.
+     * @return The default socket path.
+     */
+    @NotNull
+    static Path getDefaultSocketPath(@Nullable String runtimeDirectory, @NotNull String temporaryDirectory,
+                                     @NotNull String userName) {
+        if (runtimeDirectory != null && !runtimeDirectory.isEmpty())
+            return Path.of(runtimeDirectory, SOCKET_NAME);
+        return Path.of(temporaryDirectory, "jalc-" + userName, SOCKET_NAME);
+    }
+
+    /**
+     * Creates the directory of the socket with only the owner's permissions if it does not exist,
+     * and checks that it is owned by the current user and not writable by others.
+     *
+     * @param socketPath The socket path.
+     * @throws IOException If the directory cannot be created or may be used by another user.
+     */
+    static void prepareDirectory(@NotNull Path socketPath) throws IOException {
+        Path directory = socketPath.toAbsolutePath().getParent();
+        if (!Files.exists(directory, LinkOption.NOFOLLOW_LINKS)) {
+            if (isPosix(directory))
+                Files.createDirectories(
+                        directory,
+                        PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------"))
+                );
+            else
+                Files.createDirectories(directory);
+        }
+
+        if (!Files.isDirectory(directory, LinkOption.NOFOLLOW_LINKS))
+            throw new IOException("The socket directory is not a directory: " + directory);
+        checkOwner(directory);
+        if (isPosix(directory)) {
+            Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(directory, LinkOption.NOFOLLOW_LINKS);
+            if (permissions.contains(PosixFilePermission.GROUP_WRITE)
+                    || permissions.contains(PosixFilePermission.OTHERS_WRITE))
+                throw new IOException("The socket directory is writable by other users: " + directory);
+        }
+    }
+
+    /**
+     * Allows only the owner to connect to the bound socket.
+     *
+     * @param socketPath The socket path.
+     * @throws IOException If the permissions cannot be changed.
+     */
+    static void restrictSocket(@NotNull Path socketPath) throws IOException {
+        if (isPosix(socketPath))
+            Files.setPosixFilePermissions(socketPath, PosixFilePermissions.fromString("rw-------"));
+    }
+
+    /**
+     * Checks that the file is owned by the current user.
+     *
+     * @param path The file.
+     * @throws IOException If the file is owned by another user, or its owner cannot be read.
+     */
+    static void checkOwner(@NotNull Path path) throws IOException {
+        UserPrincipal owner = Files.getOwner(path, LinkOption.NOFOLLOW_LINKS);
+        UserPrincipal currentUser = path.getFileSystem()
+                .getUserPrincipalLookupService()
+                .lookupPrincipalByName(System.getProperty("user.name"));
+        if (!owner.equals(currentUser))
+            throw new IOException(path + " is owned by " + owner.getName() + ", not by the current user");
+    }
+
+    private static boolean isPosix(@NotNull Path path) {
+        return path.getFileSystem().supportedFileAttributeViews().contains("posix");
+    }
+}
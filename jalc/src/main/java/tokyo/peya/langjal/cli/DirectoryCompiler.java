@@ -2,59 +2,340 @@ package tokyo.peya.langjal.cli;
 
 import org.intellij.lang.annotations.MagicConstant;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.objectweb.asm.tree.ClassNode;
+import tokyo.peya.langjal.analyser.hierarchy.CachingClassHierarchyResolver;
+import tokyo.peya.langjal.analyser.hierarchy.ClassHierarchyInfo;
+import tokyo.peya.langjal.analyser.hierarchy.ClassHierarchyResolver;
+import tokyo.peya.langjal.compiler.CompileReporter;
 import tokyo.peya.langjal.compiler.CompileSettings;
 import tokyo.peya.langjal.compiler.JALFileCompiler;
 import tokyo.peya.langjal.compiler.exceptions.CompileErrorException;
+import tokyo.peya.langjal.compiler.metrics.CompileMetricsListener;
+import tokyo.peya.langjal.compiler.output.ClassSink;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Stream;
 
 public class DirectoryCompiler {
-    public static void runCompiler(@NotNull Path sourceDirectory, @NotNull Path output,
-                                   boolean isOutputDirectoryLike,
-                                   @MagicConstant(valuesFromClass = CompileSettings.class) int compileFlags,
-                                   boolean verbose) {
-        FileOutputter outputter = new FileOutputter(output, isOutputDirectoryLike, verbose);
+    public static CompilationResult runCompiler(@NotNull Path sourceDirectory, @NotNull Path output,
+                                                boolean isOutputDirectoryLike,
+                                                @MagicConstant(valuesFromClass = CompileSettings.class) int compileFlags,
+                                                boolean verbose) {
+        return runCompiler(
+                sourceDirectory, output, isOutputDirectoryLike, compileFlags, verbose,
+                1, false, List.of(), ArchiveOptions.DEFAULT, CompileMetricsListener.NONE
+        );
+    }
+
+    public static CompilationResult runCompiler(@NotNull Path sourceDirectory, @NotNull Path output,
+                                                boolean isOutputDirectoryLike,
+                                                @MagicConstant(valuesFromClass = CompileSettings.class) int compileFlags,
+                                                boolean verbose,
+                                                int jobs,
+                                                boolean incremental,
+                                                @NotNull List<Path> classpath,
+                                                @NotNull ArchiveOptions archiveOptions,
+                                                @NotNull CompileMetricsListener metrics) {
+        FileOutputter outputter = new FileOutputter(output, isOutputDirectoryLike, verbose, archiveOptions);
         if (!outputter.prepareOutput(output, verbose)) {
             System.err.println("Failed to prepare output directory: " + output);
-            return;
+            return CompilationResult.FAILED;
         }
 
         Path[] sourceFiles = scanInputDirectory(sourceDirectory, verbose);
         if (sourceFiles.length == 0) {
             System.out.println("No source files found in directory: " + sourceDirectory);
-            return;
+            return CompilationResult.succeeded(List.of());
         }
 
-        JALCompilerReporter reporter = new JALCompilerReporter(verbose);
-        JALFileCompiler compiler;
-        try {
-            compiler = new JALFileCompiler(reporter, outputter.getActualCompileOutput(), compileFlags);
+        BuildCache cache = null;
+        if (incremental) {
+            if (isOutputDirectoryLike)
+                cache = BuildCache.load(output, compileFlags, classpath);
+            else
+                System.err.println("Warning: Incremental compilation requires a directory output, performing a full build.");
+        }
+        // 削除されたソースの出力は，クラス階層として読まれる前に消しておく
+        if (cache != null)
+            pruneRemovedSources(sourceDirectory, sourceFiles, output, cache, verbose);
+
+        Path[] targetFiles = sourceFiles;
+        Map<Path, CompiledSource> compiledSources = new ConcurrentHashMap<>();
+        ClassSink sink = outputter.getSink();
+        boolean succeeded;
+        // クラス階層のキャッシュは，全ファイルで共有する
+        try (CachingClassHierarchyResolver hierarchy = CompilerCLI.openHierarchyResolver(classpath, outputter.getOutputDirectory())) {
+            if (hierarchy == null)
+                return CompilationResult.FAILED;
+
+            // どのメソッドを解析するよりも先に，全ソースのクラス階層を登録して，フレームをファイルの順番に依らないようにする
+            registerSourceHierarchies(sourceFiles, hierarchy);
+            if (cache != null) {
+                // 依存するクラス階層の変更も，登録した最新の階層と比べて検出する
+                targetFiles = selectOutdatedSources(sourceDirectory, sourceFiles, output, cache, hierarchy);
+                if (targetFiles.length == 0) {
+                    saveCache(cache);
+                    System.out.println("All " + sourceFiles.length + " source files are up to date.");
+                    return CompilationResult.succeeded(List.of());
+                }
+                if (verbose)
+                    System.out.println((sourceFiles.length - targetFiles.length) + " of " + sourceFiles.length +
+                            " source files are up to date, skipping them.");
+            }
+
+            if (jobs > 1 && targetFiles.length > 1)
+                succeeded = compileInParallel(
+                        targetFiles, sink, compileFlags, hierarchy, cache != null, verbose, jobs, metrics,
+                        compiledSources
+                );
+            else
+                succeeded = compileSequentially(
+                        targetFiles, sink, compileFlags, hierarchy, cache != null, verbose, metrics, compiledSources
+                );
+
+            if (cache != null) {
+                updateCache(sourceDirectory, targetFiles, output, cache, compiledSources, hierarchy, verbose);
+                saveCache(cache);
+            }
         } catch (IOException e) {
-            System.err.println("Failed to initialize compiler: " + e.getMessage());
-            return;
+            System.err.println("Failed to close class path: " + e.getMessage());
+            succeeded = false;
         }
 
+        if (!(succeeded && outputter.finalise()))
+            return CompilationResult.FAILED;
+
+        if (verbose)
+            System.out.println("Compilation completed successfully.");
+        return CompilationResult.succeeded(outputter.getWrittenOutputs());
+    }
+
+    private static void registerSourceHierarchies(@NotNull Path[] sourceFiles,
+                                                  @NotNull ClassHierarchyResolver hierarchy) {
+        for (Path sourceFile : sourceFiles) {
+            ClassHierarchyInfo info = JALFileCompiler.readClassHierarchy(sourceFile);
+            if (info != null)  // 読めないソースは，コンパイル時に報告される
+                hierarchy.register(info);
+        }
+    }
+
+    private static boolean compileSequentially(@NotNull Path[] sourceFiles, @NotNull ClassSink sink,
+                                               @MagicConstant(valuesFromClass = CompileSettings.class) int compileFlags,
+                                               @NotNull CachingClassHierarchyResolver hierarchy,
+                                               boolean incremental,
+                                               boolean verbose,
+                                               @NotNull CompileMetricsListener metrics,
+                                               @NotNull Map<? super Path, ? super CompiledSource> compiledSources) {
+        JALCompilerReporter reporter = new JALCompilerReporter(verbose, metrics);
+
         if (verbose)
             System.out.println("Compiling " + sourceFiles.length + " source files...");
 
+        // 並列の場合と同じく，失敗しても残りのファイルをコンパイルして，全てのエラーを報告する
+        int failures = 0;
         for (Path sourceFile : sourceFiles) {
             if (verbose)
                 System.out.println("Compiling: " + sourceFile);
 
             try {
-                compiler.compile(sourceFile);
+                CompiledSource compiled = compileSource(sourceFile, reporter, sink, compileFlags, hierarchy, incremental);
+                if (compiled == null)
+                    failures++;  // 読み込めなかったことは，コンパイラが報告している
+                else
+                    compiledSources.put(sourceFile, compiled);
             } catch (CompileErrorException e) {
                 reporter.postError("Failed to compile " + sourceFile, e, sourceFile);
-                return;
+                failures++;
             }
         }
 
-        outputter.finalise();
+        return reportFailures(failures, sourceFiles.length);
+    }
+
+    private static boolean reportFailures(int failures, int sourceFiles) {
+        if (failures == 0)
+            return true;
+
+        System.err.println("Compilation failed: " + failures + " of " + sourceFiles + " files had errors.");
+        return false;
+    }
+
+    private static boolean compileInParallel(@NotNull Path[] sourceFiles, @NotNull ClassSink sink,
+                                             @MagicConstant(valuesFromClass = CompileSettings.class) int compileFlags,
+                                             @NotNull CachingClassHierarchyResolver hierarchy,
+                                             boolean incremental,
+                                             boolean verbose, int jobs,
+                                             @NotNull CompileMetricsListener metrics,
+                                             @NotNull Map<? super Path, ? super CompiledSource> compiledSources) {
         if (verbose)
-            System.out.println("Compilation completed successfully.");
+            System.out.println("Compiling " + sourceFiles.length + " source files with " + jobs + " jobs...");
+
+        List<Future<FileCompileResult>> results = new ArrayList<>(sourceFiles.length);
+        ExecutorService executor = Executors.newFixedThreadPool(jobs);
+        try {
+            for (Path sourceFile : sourceFiles)
+                results.add(executor.submit(
+                        () -> compileFile(sourceFile, sink, compileFlags, hierarchy, incremental, verbose, metrics)
+                ));
+
+            // 各ファイルの報告は，ソースの順番通りに，ファイル単位でまとめて出力する
+            int failures = 0;
+            for (int i = 0; i < sourceFiles.length; i++) {
+                FileCompileResult result;
+                try {
+                    result = results.get(i).get();
+                } catch (ExecutionException e) {
+                    System.err.println("Failed to compile " + sourceFiles[i] + ": " + e.getCause());
+                    failures++;
+                    continue;
+                }
+
+                result.report().flushTo(System.out, System.err);
+                if (result.compiled() == null)
+                    failures++;
+                else
+                    compiledSources.put(sourceFiles[i], result.compiled());
+            }
+
+            return reportFailures(failures, sourceFiles.length);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("Compilation was interrupted.");
+            return false;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static FileCompileResult compileFile(@NotNull Path sourceFile, @NotNull ClassSink sink,
+                                                 @MagicConstant(valuesFromClass = CompileSettings.class) int compileFlags,
+                                                 @NotNull CachingClassHierarchyResolver hierarchy,
+                                                 boolean incremental,
+                                                 boolean verbose,
+                                                 @NotNull CompileMetricsListener metrics) {
+        BufferedCompilerReporter reporter = BufferedCompilerReporter.create(verbose, metrics);
+        if (verbose)
+            reporter.getOut().println("Compiling: " + sourceFile);
+
+        try {
+            CompiledSource compiled = compileSource(sourceFile, reporter, sink, compileFlags, hierarchy, incremental);
+            return new FileCompileResult(reporter, compiled);
+        } catch (CompileErrorException e) {
+            reporter.postError("Failed to compile " + sourceFile, e, sourceFile);
+        }
+
+        return new FileCompileResult(reporter, null);
+    }
+
+    @Nullable
+    private static CompiledSource compileSource(@NotNull Path sourceFile, @NotNull CompileReporter reporter,
+                                                @NotNull ClassSink sink,
+                                                @MagicConstant(valuesFromClass = CompileSettings.class) int compileFlags,
+                                                @NotNull CachingClassHierarchyResolver hierarchy,
+                                                boolean incremental) throws CompileErrorException {
+        if (!incremental) {
+            ClassNode compiled = new JALFileCompiler(reporter, sink, compileFlags, hierarchy).compile(sourceFile);
+            return compiled == null ? null : new CompiledSource(compiled, null, Set.of());
+        }
+
+        // 読み込みながらハッシュを求めるので，キャッシュにはコンパイルした内容そのもののハッシュが残る
+        MessageDigest digest = BuildCache.newDigest();
+        RecordingClassHierarchyResolver recorder = new RecordingClassHierarchyResolver(hierarchy);
+        ClassNode compiled = new JALFileCompiler(reporter, sink, compileFlags, recorder).compile(sourceFile, digest);
+        if (compiled == null)
+            return null;
+        return new CompiledSource(compiled, BuildCache.hash(digest), recorder.getResolvedClasses());
+    }
+
+    private static Path[] selectOutdatedSources(@NotNull Path sourceDirectory, @NotNull Path[] sourceFiles,
+                                                @NotNull Path outputDirectory, @NotNull BuildCache cache,
+                                                @NotNull ClassHierarchyResolver hierarchy) {
+        List<Path> outdated = new ArrayList<>();
+        for (Path sourceFile : sourceFiles) {
+            String hash;
+            try {
+                // 前処理の結果はソースとコンパイラの版だけで決まるので，前処理せずにソースそのものを比べる
+                hash = BuildCache.hash(Files.readAllBytes(sourceFile));
+            } catch (IOException e) {
+                // 読み込めないファイルは，コンパイラにエラーを報告させる
+                outdated.add(sourceFile);
+                continue;
+            }
+
+            if (!cache.isUpToDate(toSourceKey(sourceDirectory, sourceFile), hash, outputDirectory, hierarchy))
+                outdated.add(sourceFile);
+        }
+
+        return outdated.toArray(new Path[0]);
+    }
+
+    private static void pruneRemovedSources(@NotNull Path sourceDirectory, @NotNull Path[] sourceFiles,
+                                            @NotNull Path outputDirectory, @NotNull BuildCache cache,
+                                            boolean verbose) {
+        Set<String> existingSources = new HashSet<>();
+        for (Path sourceFile : sourceFiles)
+            existingSources.add(toSourceKey(sourceDirectory, sourceFile));
+
+        for (String staleOutput : cache.retainSources(existingSources))
+            deleteOutput(outputDirectory, staleOutput, verbose);
+    }
+
+    private static void updateCache(@NotNull Path sourceDirectory, @NotNull Path[] compiledFiles,
+                                    @NotNull Path outputDirectory, @NotNull BuildCache cache,
+                                    @NotNull Map<Path, CompiledSource> compiledSources,
+                                    @NotNull ClassHierarchyResolver hierarchy,
+                                    boolean verbose) {
+        for (Path sourceFile : compiledFiles) {
+            String sourceKey = toSourceKey(sourceDirectory, sourceFile);
+            CompiledSource compiled = compiledSources.get(sourceFile);
+            if (compiled == null || compiled.hash() == null) {
+                cache.invalidate(sourceKey);  // 失敗したものは，次回も必ずコンパイルする
+                continue;
+            }
+
+            String previousOutput = cache.update(
+                    sourceKey, compiled.hash(), compiled.classNode().name + ".class",
+                    compiled.dependencies(), hierarchy
+            );
+            if (previousOutput != null)  // クラス名が変わった場合は，古い出力を削除
+                deleteOutput(outputDirectory, previousOutput, verbose);
+        }
+    }
+
+    private static void deleteOutput(@NotNull Path outputDirectory, @NotNull String output, boolean verbose) {
+        Path outputFile = outputDirectory.resolve(output);
+        try {
+            if (Files.deleteIfExists(outputFile) && verbose)
+                System.out.println("Removed stale output: " + outputFile);
+        } catch (IOException e) {
+            System.err.println("Failed to remove stale output " + outputFile + ": " + e.getMessage());
+        }
+    }
+
+    private static void saveCache(@NotNull BuildCache cache) {
+        try {
+            cache.save();
+        } catch (IOException e) {
+            System.err.println("Failed to write build cache: " + e.getMessage());
+        }
+    }
+
+    private static String toSourceKey(@NotNull Path sourceDirectory, @NotNull Path sourceFile) {
+        return sourceDirectory.relativize(sourceFile).toString().replace('\\', '/');
     }
 
     private static Path[] scanInputDirectory(@NotNull Path sourceDirectory, boolean verbose) {
@@ -75,9 +356,21 @@ public class DirectoryCompiler {
             return paths
                     .filter(Files::isRegularFile)
                     .filter(CompilerCLI::hasValidInputFileName)
+                    .sorted()  // 報告の順番が，ディレクトリの走査順に依らないようにする
                     .toArray(Path[]::new);
         } catch (Exception e) {
             throw new RuntimeException("Failed to list source files in directory: " + sourceDirectory, e);
         }
     }
+
+    private record FileCompileResult(@NotNull BufferedCompilerReporter report, @Nullable CompiledSource compiled) {
+    }
+
+    /**
+     * A compiled source, with the hash of its content and the classes whose hierarchies it depends on
+     * if it was compiled incrementally.
+     */
+    private record CompiledSource(@NotNull ClassNode classNode, @Nullable String hash,
+                                  @NotNull Set<String> dependencies) {
+    }
 }
@@ -2,47 +2,68 @@ package tokyo.peya.langjal.cli;
 
 import org.intellij.lang.annotations.MagicConstant;
 import org.jetbrains.annotations.NotNull;
+import tokyo.peya.langjal.analyser.hierarchy.CachingClassHierarchyResolver;
 import tokyo.peya.langjal.compiler.CompileSettings;
 import tokyo.peya.langjal.compiler.JALFileCompiler;
 import tokyo.peya.langjal.compiler.exceptions.CompileErrorException;
+import tokyo.peya.langjal.compiler.metrics.CompileMetricsListener;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.List;
 
 public class FileCompiler {
-    public static void runCompiler(@NotNull Path sourceFile, @NotNull Path output,
-                                   boolean isOutputDirectoryLike,
-                                   @MagicConstant(valuesFromClass = CompileSettings.class) int compileFlags,
-                                   boolean verbose) {
-        FileOutputter outputter = new FileOutputter(output, isOutputDirectoryLike, verbose);
+    public static CompilationResult runCompiler(@NotNull Path sourceFile, @NotNull Path output,
+                                                boolean isOutputDirectoryLike,
+                                                @MagicConstant(valuesFromClass = CompileSettings.class) int compileFlags,
+                                                boolean verbose) {
+        return runCompiler(
+                sourceFile, output, isOutputDirectoryLike, compileFlags, verbose,
+                List.of(), ArchiveOptions.DEFAULT, CompileMetricsListener.NONE
+        );
+    }
+
+    public static CompilationResult runCompiler(@NotNull Path sourceFile, @NotNull Path output,
+                                                boolean isOutputDirectoryLike,
+                                                @MagicConstant(valuesFromClass = CompileSettings.class) int compileFlags,
+                                                boolean verbose,
+                                                @NotNull List<Path> classpath,
+                                                @NotNull ArchiveOptions archiveOptions,
+                                                @NotNull CompileMetricsListener metrics) {
+        FileOutputter outputter = new FileOutputter(output, isOutputDirectoryLike, verbose, archiveOptions);
         if (!outputter.prepareOutput(output, verbose)) {
             System.err.println("Failed to prepare output directory: " + output);
-            return;
-        }
-
-        JALCompilerReporter reporter = new JALCompilerReporter(verbose);
-        JALFileCompiler compiler;
-        try {
-            compiler = new JALFileCompiler(reporter, outputter.getActualCompileOutput(), compileFlags);
-        } catch (IOException e) {
-            System.err.println("Failed to initialize compiler: " + e.getMessage());
-            return;
+            return CompilationResult.FAILED;
         }
 
         if (!validateInputFile(sourceFile))
-            return;
+            return CompilationResult.FAILED;
 
-        try {
-            compiler.compile(sourceFile);
-        } catch (CompileErrorException e) {
-            reporter.postError("Failed to compile " + sourceFile, e, sourceFile);
-            return;
-        }
+        Path outputDirectory = outputter.getOutputDirectory();
+        try (CachingClassHierarchyResolver hierarchy = CompilerCLI.openHierarchyResolver(classpath, outputDirectory)) {
+            if (hierarchy == null)
+                return CompilationResult.FAILED;
 
+            JALCompilerReporter reporter = new JALCompilerReporter(verbose, metrics);
+            JALFileCompiler compiler = new JALFileCompiler(reporter, outputter.getSink(), compileFlags, hierarchy);
+            try {
+                // 読み込めなかったことは，コンパイラが報告している
+                if (compiler.compile(sourceFile) == null)
+                    return CompilationResult.FAILED;
+            } catch (CompileErrorException e) {
+                reporter.postError("Failed to compile " + sourceFile, e, sourceFile);
+                return CompilationResult.FAILED;
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to initialize compiler: " + e.getMessage());
+            return CompilationResult.FAILED;
+        }
 
-        outputter.finalise();
+        if (!outputter.finalise())
+            return CompilationResult.FAILED;
         if (verbose)
             System.out.println("Compilation completed successfully.");
+        return CompilationResult.succeeded(outputter.getWrittenOutputs());
     }
 
     private static boolean validateInputFile(@NotNull Path sourceFile) {
@@ -2,80 +2,103 @@ package tokyo.peya.langjal.cli;
 
 import lombok.Getter;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import tokyo.peya.langjal.compiler.output.ClassSink;
+import tokyo.peya.langjal.compiler.output.DirectoryClassSink;
+import tokyo.peya.langjal.compiler.output.JarClassSink;
 
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.stream.Stream;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 public class FileOutputter {
     private final Path output;
     private final boolean isDirectory;
     private final boolean verbose;
 
+    /**
+     * The destination of compiled classes.
+     * Classes compiled into an archive are kept in memory until {@link #finalise()}.
+     */
     @Getter
-    private final Path actualCompileOutput;
+    private final ClassSink sink;
+    /**
+     * The directory classes are written to, or null if the output is an archive.
+     */
+    @Getter
+    @Nullable
+    private final Path outputDirectory;
+    /**
+     * The files written to the output so far.
+     */
+    private final Queue<Path> writtenOutputs;
 
     public FileOutputter(@NotNull Path output, boolean isOutputDirectoryLike, boolean verbose) {
+        this(output, isOutputDirectoryLike, verbose, ArchiveOptions.DEFAULT);
+    }
+
+    public FileOutputter(@NotNull Path output, boolean isOutputDirectoryLike, boolean verbose,
+                         @NotNull ArchiveOptions archiveOptions) {
         this.output = output;
         this.isDirectory = isOutputDirectoryLike;
         this.verbose = verbose;
-
-        this.actualCompileOutput = createActualCompileOutput(isOutputDirectoryLike, output);
+        this.writtenOutputs = new ConcurrentLinkedQueue<>();
+
+        if (isOutputDirectoryLike) {
+            DirectoryClassSink directory = new DirectoryClassSink(output);
+            this.sink = (internalName, classFile) -> {
+                directory.write(internalName, classFile);
+                this.writtenOutputs.add(output.resolve(internalName + ".class"));
+            };
+            this.outputDirectory = output;
+        } else {
+            this.sink = new JarClassSink(
+                    archiveOptions.compressionLevel(),
+                    JarClassSink.createManifest(archiveOptions.mainClass())
+            );
+            this.outputDirectory = null;
+        }
 
         if (this.verbose)
             System.out.println("Output path: " + output + ", is directory: " + this.isDirectory);
     }
 
-    private static Path createActualCompileOutput(boolean isDirectory, @NotNull Path output) {
-        if (isDirectory)
-            return output;
-
-        try {
-            return Files.createTempDirectory("langjal-compile-output-");
-        } catch (IOException e) {
-            System.err.println("Failed to normalize output path " + output + ": " + e.getMessage());
-            throw new UncheckedIOException(e);
-        }
-    }
-
-    public void finalise() {
+    public boolean finalise() {
         if (this.verbose)
-            System.out.println("Finalising output: " + this.actualCompileOutput);
+            System.out.println("Finalising output: " + this.output);
 
-        if (this.isDirectory)
-            return;  // 何もすることはない
+        if (!(this.sink instanceof JarClassSink archive))
+            return true;  // 何もすることはない
 
-        if (!Files.exists(this.actualCompileOutput)) {
-            System.err.println("Output directory " + this.actualCompileOutput + " does not exist after compilation.");
-            return;
-        }
-
-        try (FileOutputStream fos = new FileOutputStream(this.output.toFile());
-             ZipOutputStream zos = new ZipOutputStream(fos);
-             Stream<Path> paths = Files.walk(this.actualCompileOutput)) {
-            paths.filter(Files::isRegularFile)
-                    .forEach(path -> {
-                        try {
-                            String zipEntryName = this.actualCompileOutput.relativize(path)
-                                    .toString()
-                                    .replace('\\', '/');
-                            zos.putNextEntry(new ZipEntry(zipEntryName));
-                            Files.copy(path, zos);
-                            zos.closeEntry();
-                        } catch (IOException e) {
-                            System.err.println("Failed to add file " + path + " to output archive: " + e.getMessage());
-                        }
-                    });
+        try {
+            archive.writeTo(this.output);
+            this.writtenOutputs.add(this.output);
+            if (this.verbose)
+                System.out.println("Wrote " + archive.size() + " classes to " + this.output);
+            return true;
         } catch (IOException e) {
             System.err.println("Failed to create an output archive: " + e.getMessage());
+            return false;
         }
     }
 
+    /**
+     * Returns the files written so far: each class file for a directory output,
+     * or the archive once it has been finalised.
+     *
+     * @return The written files, sorted by path.
+     */
+    @NotNull
+    public List<Path> getWrittenOutputs() {
+        return this.writtenOutputs.stream()
+                .distinct()
+                .sorted()
+                .toList();
+    }
+
     public boolean prepareOutput(@NotNull Path output, boolean verbose) {
         if (this.isDirectory) {
             if (verbose)
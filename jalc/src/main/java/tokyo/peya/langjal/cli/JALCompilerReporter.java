@@ -1,18 +1,41 @@
 package tokyo.peya.langjal.cli;
 
-import lombok.AllArgsConstructor;
 import org.antlr.v4.runtime.ParserRuleContext;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import tokyo.peya.langjal.compiler.CompileReporter;
 import tokyo.peya.langjal.compiler.exceptions.CompileErrorException;
+import tokyo.peya.langjal.compiler.metrics.CompileMetricsListener;
 
+import java.io.PrintStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 
-@AllArgsConstructor
 public class JALCompilerReporter implements CompileReporter {
     private final boolean verbose;
+    private final PrintStream out;
+    private final PrintStream err;
+    private final CompileMetricsListener metrics;
+
+    public JALCompilerReporter(boolean verbose) {
+        this(verbose, CompileMetricsListener.NONE);
+    }
+
+    public JALCompilerReporter(boolean verbose, @NotNull CompileMetricsListener metrics) {
+        this(verbose, System.out, System.err, metrics);
+    }
+
+    public JALCompilerReporter(boolean verbose, @NotNull PrintStream out, @NotNull PrintStream err) {
+        this(verbose, out, err, CompileMetricsListener.NONE);
+    }
+
+    public JALCompilerReporter(boolean verbose, @NotNull PrintStream out, @NotNull PrintStream err,
+                               @NotNull CompileMetricsListener metrics) {
+        this.verbose = verbose;
+        this.out = out;
+        this.err = err;
+        this.metrics = metrics;
+    }
 
     private static String getFileContent(@NotNull Path sourcePath) {
         try {
@@ -22,7 +45,7 @@ public class JALCompilerReporter implements CompileReporter {
         }
     }
 
-    private static void postAtLine(
+    private void postAtLine(
             @NotNull String message,
             @NotNull Path sourcePath,
             long line,
@@ -32,50 +55,50 @@ public class JALCompilerReporter implements CompileReporter {
         String content = getFileContent(sourcePath);
         String[] lines = content.split("\n");
         if (line < 1 || line > lines.length) {
-            System.err.println("Error: " + message + " at line " + line + ", column " + column + " in " + sourcePath);
+            this.err.println("Error: " + message + " at line " + line + ", column " + column + " in " + sourcePath);
             return;
         }
         String lineContent = lines[(int) line - 1];
-        System.err.println("Error: " + message + " at line " + line + ", column " + column + " in " + sourcePath);
-        System.err.println("Line: " + lineContent);
+        this.err.println("Error: " + message + " at line " + line + ", column " + column + " in " + sourcePath);
+        this.err.println("Line: " + lineContent);
         if (column > 0 && column <= lineContent.length()) {
             StringBuilder marker = new StringBuilder();
             for (int i = 1; i < column; i++)
                 marker.append("-");
             marker.append("^".repeat(Math.max(0, (int) length)));
-            System.err.println(marker);
+            this.err.println(marker);
         } else
-            System.err.println("Column " + column + " is out of bounds for line " + line);
+            this.err.println("Column " + column + " is out of bounds for line " + line);
     }
 
     @Override
     public void postWarning(@NotNull String message, @Nullable Path sourcePath) {
-        System.err.println("Warning: " + message + (sourcePath == null ? "" : " in " + sourcePath));
+        this.err.println("Warning: " + message + (sourcePath == null ? "" : " in " + sourcePath));
     }
 
     @Override
     public void postInfo(@NotNull String message, @Nullable Path sourcePath) {
         if (this.verbose)
-            System.out.println("Info: " + message + (sourcePath == null ? "" : " in " + sourcePath));
+            this.out.println("Info: " + message + (sourcePath == null ? "" : " in " + sourcePath));
     }
 
     @Override
     public void postDebug(@NotNull String message, @Nullable Path sourcePath) {
         if (this.verbose)
-            System.out.println("Debug: " + message + (sourcePath == null ? "" : " in " + sourcePath));
+            this.out.println("Debug: " + message + (sourcePath == null ? "" : " in " + sourcePath));
     }
 
     @Override
     public void postError(@NotNull String message, @Nullable Path sourcePath) {
-        System.err.println("Error: " + message + (sourcePath == null ? "" : " in " + sourcePath));
+        this.err.println("Error: " + message + (sourcePath == null ? "" : " in " + sourcePath));
     }
 
     @Override
     public void postError(@NotNull String message, @NotNull CompileErrorException cause, @Nullable Path sourcePath) {
-        System.err.println("Error: " + cause.getDetailedMessage() + (sourcePath == null ? "" : " in " + sourcePath));
+        this.err.println("Error: " + cause.getDetailedMessage() + (sourcePath == null ? "" : " in " + sourcePath));
         if (cause.getLine() > 0 && cause.getColumn() > 0) {
             if (sourcePath == null)
-                System.err.println("Error at line " + cause.getLine() + ", column " + cause.getColumn() + ": " + cause.getMessage());
+                this.err.println("Error at line " + cause.getLine() + ", column " + cause.getColumn() + ": " + cause.getMessage());
             else
                 postAtLine(
                         message,
@@ -85,13 +108,13 @@ public class JALCompilerReporter implements CompileReporter {
                         cause.getLength()
                 );
         } else
-            System.err.println("Error: " + cause.getMessage());
+            this.err.println("Error: " + cause.getMessage());
     }
 
     @Override
     public void postWarning(@NotNull String message, @Nullable Path sourcePath, long line, long column, long length) {
         if (sourcePath == null) {
-            System.err.println("Warning: " + message + " at line " + line + ", column " + column);
+            this.err.println("Warning: " + message + " at line " + line + ", column " + column);
             return;
         }
         postAtLine(message, sourcePath, line, column, length);
@@ -104,4 +127,19 @@ public class JALCompilerReporter implements CompileReporter {
         long length = ctxt.getStop().getStopIndex() - ctxt.getStart().getStartIndex() + 1;
         postAtLine(message, sourcePath, line, column, length);
     }
+
+    @Override
+    public boolean isInfoEnabled() {
+        return this.verbose;
+    }
+
+    @Override
+    public boolean isDebugEnabled() {
+        return this.verbose;
+    }
+
+    @Override
+    public @NotNull CompileMetricsListener getMetricsListener() {
+        return this.metrics;
+    }
 }
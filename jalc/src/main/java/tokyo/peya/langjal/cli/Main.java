@@ -5,10 +5,18 @@ import joptsimple.OptionSet;
 import org.intellij.lang.annotations.MagicConstant;
 import org.jetbrains.annotations.NotNull;
 import tokyo.peya.langjal.compiler.CompileSettings;
+import tokyo.peya.langjal.compiler.metrics.CompileMetricsListener;
+import tokyo.peya.langjal.compiler.metrics.CompileStatistics;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
 
 public class Main {
+    private static final int STATS_SLOWEST_METHODS = 10;
+
     public static void main(String[] args) {
         OptionParser parser = createOptionParser();
         try {
@@ -21,6 +29,15 @@ public class Main {
                 System.out.println("JAL Compiler CLI Version 1.0.0");
                 return;
             }
+            if (options.has("daemon")) {
+                new CompileDaemon(getSocketPath(options), options.has("verbose")).serve();
+                return;
+            }
+            if (options.has("stop-daemon")) {
+                if (!DaemonClient.stop(getSocketPath(options)))
+                    System.err.println("No daemon is listening on " + getSocketPath(options));
+                return;
+            }
 
             List<?> nonOptions = options.nonOptionArguments();
             if (nonOptions.isEmpty()) {
@@ -28,14 +45,25 @@ public class Main {
                 printHelpAndExit(parser);
                 return;
             }
-            String input = nonOptions.getFirst().toString();
 
-            String output = options.valueOf("output").toString();
-            boolean verbose = options.has("verbose");
-            @MagicConstant(valuesFromClass = CompileSettings.class)
-            int compileFlags = getCompileFlag(options);
+            if (options.has("connect")) {
+                CompilationResult result = DaemonClient.submit(
+                        getSocketPath(options),
+                        Path.of(System.getProperty("user.dir")),
+                        List.of(args),
+                        System.out, System.err
+                );
+                if (result != null) {
+                    if (!result.succeeded())
+                        System.exit(1);
+                    return;
+                }
+
+                // デーモンが居なければ，このプロセスでコンパイルする
+                System.err.println("Warning: No daemon is listening on " + getSocketPath(options) + ", compiling in this process.");
+            }
 
-            CompilerCLI.runCompiler(input, output, compileFlags, verbose);
+            compile(options);
         } catch (Exception e) {
             System.err.println("Error: " + e.getMessage());
             try {
@@ -46,24 +74,141 @@ public class Main {
         }
     }
 
+    /**
+     * Runs a compilation requested by a daemon client.
+     * Unlike {@link #main(String[])}, this never exits the JVM.
+     *
+     * @param args The command line arguments of the client.
+     * @return The result of the compilation.
+     */
+    static CompilationResult runRequest(@NotNull List<String> args) {
+        OptionParser parser = createOptionParser();
+        try {
+            OptionSet options = parser.parse(args.toArray(new String[0]));
+            if (options.nonOptionArguments().isEmpty()) {
+                System.err.println("Error: Missing input file.");
+                return CompilationResult.FAILED;
+            }
+
+            return compile(options);
+        } catch (Exception e) {
+            System.err.println("Error: " + e.getMessage());
+            return CompilationResult.FAILED;
+        }
+    }
+
+    private static CompilationResult compile(@NotNull OptionSet options) {
+        String input = options.nonOptionArguments().getFirst().toString();
+
+        String output = options.valueOf("output").toString();
+        boolean verbose = options.has("verbose");
+        @MagicConstant(valuesFromClass = CompileSettings.class)
+        int compileFlags = getCompileFlag(options);
+        int jobs = getJobs(options);
+        boolean incremental = options.has("incremental");
+        List<String> classpath = getClasspath(options);
+        ArchiveOptions archiveOptions = getArchiveOptions(options);
+        CompileStatistics statistics = null;
+        if (options.has("stats") || options.has("stats-json"))
+            statistics = new CompileStatistics();
+
+        CompilationResult result = CompilerCLI.runCompiler(
+                input, output, compileFlags, verbose, jobs, incremental, classpath, archiveOptions,
+                statistics == null ? CompileMetricsListener.NONE : statistics
+        );
+        if (statistics != null)
+            reportStatistics(options, statistics);
+        return result;
+    }
+
+    private static void reportStatistics(@NotNull OptionSet options, @NotNull CompileStatistics statistics) {
+        if (options.has("stats"))
+            statistics.printSummary(System.out, STATS_SLOWEST_METHODS);
+        if (!options.has("stats-json"))
+            return;
+
+        // デーモン経由でも，クライアントの作業ディレクトリから解決する
+        Path jsonPath = Path.of(System.getProperty("user.dir"))
+                .resolve(options.valueOf("stats-json").toString())
+                .normalize();
+        try {
+            Files.writeString(jsonPath, statistics.toJson());
+        } catch (IOException e) {
+            System.err.println("Failed to write statistics to " + jsonPath + ": " + e.getMessage());
+        }
+    }
+
     @MagicConstant(valuesFromClass = CompileSettings.class)
     private static int getCompileFlag(@NotNull OptionSet options) {
+        @MagicConstant(valuesFromClass = CompileSettings.class)
+        int flags = CompileSettings.NONE;
+
         // 特殊モード：軽量設定を強制
         if (options.has("no-debug"))
-            return CompileSettings.REQUIRED_ONLY;
+            flags = CompileSettings.REQUIRED_ONLY;
+        else {
+            if (!options.has("no-line-numbers"))
+                flags |= CompileSettings.INCLUDE_LINE_NUMBER_TABLE;
 
-        @MagicConstant(valuesFromClass = CompileSettings.class)
-        int flags = CompileSettings.NONE;
+            if (!options.has("no-stack-frame-map"))
+                flags |= CompileSettings.COMPUTE_STACK_FRAME_MAP;
+        }
 
-        if (!options.has("no-line-numbers"))
-            flags |= CompileSettings.INCLUDE_LINE_NUMBER_TABLE;
+        if (options.has("parallel-methods"))
+            flags |= CompileSettings.PARALLEL_METHODS;
 
-        if (!options.has("no-stack-frame-map"))
-            flags |= CompileSettings.COMPUTE_STACK_FRAME_MAP;
+        if (options.has("split-large-methods"))
+            flags |= CompileSettings.SPLIT_LARGE_METHODS;
+
+        if (options.has("optimise-peephole"))
+            flags |= CompileSettings.OPTIMISE_PEEPHOLE;
+
+        if (options.has("eliminate-dead-code"))
+            flags |= CompileSettings.ELIMINATE_DEAD_CODE;
+        if (options.has("optimise-jumps"))
+            flags |= CompileSettings.OPTIMISE_JUMPS;
 
         return flags;
     }
 
+    private static int getJobs(@NotNull OptionSet options) {
+        if (!options.has("jobs"))
+            return 1;
+
+        int jobs = (Integer) options.valueOf("jobs");
+        if (jobs <= 0)  // 0 以下の場合は，利用可能なプロセッサ数に合わせる
+            return Runtime.getRuntime().availableProcessors();
+        return jobs;
+    }
+
+    private static List<String> getClasspath(@NotNull OptionSet options) {
+        if (!options.has("classpath"))
+            return List.of();
+
+        return options.valuesOf("classpath").stream()
+                .map(Object::toString)
+                .filter(entry -> !entry.isEmpty())
+                .toList();
+    }
+
+    private static ArchiveOptions getArchiveOptions(@NotNull OptionSet options) {
+        int compressionLevel = ArchiveOptions.DEFAULT.compressionLevel();
+        if (options.has("compression-level")) {
+            compressionLevel = (Integer) options.valueOf("compression-level");
+            if (compressionLevel < 0 || compressionLevel > 9)
+                throw new IllegalArgumentException("Compression level must be between 0 and 9: " + compressionLevel);
+        }
+
+        String mainClass = options.has("main-class") ? options.valueOf("main-class").toString() : null;
+        return new ArchiveOptions(compressionLevel, mainClass);
+    }
+
+    private static Path getSocketPath(@NotNull OptionSet options) {
+        if (options.has("daemon-socket"))
+            return Path.of(options.valueOf("daemon-socket").toString()).toAbsolutePath();
+        return CompileDaemon.getDefaultSocketPath();
+    }
+
     private static void printHelpAndExit(OptionParser parser) {
         System.out.println("Usage: jalc.jar [options] <input>");
         System.out.println();
@@ -105,6 +250,42 @@ public class Main {
                 .ofType(Boolean.class)
                 .defaultsTo(false)
                 .describedAs("Disable stack frame map in the output files");
+        parser.acceptsAll(List.of("jobs", "j"))
+                .withRequiredArg()
+                .ofType(Integer.class)
+                .defaultsTo(1)
+                .describedAs("Number of files to compile in parallel (0 to use all available processors)");
+        parser.accepts("parallel-methods", "Evaluate and analyse the methods of each class in parallel");
+        parser.accepts("split-large-methods", "Move the code of methods exceeding 64 KB into synthetic helper methods");
+        parser.accepts("optimise-peephole", "Rewrite redundant instruction sequences into shorter ones");
+        parser.accepts("eliminate-dead-code", "Remove unreachable code, unused labels and empty exception handlers");
+        parser.accepts("optimise-jumps", "Thread jump chains, remove branches over gotos and rotate loops");
+        parser.accepts("incremental", "Skip unchanged sources using a build cache next to the output directory");
+        parser.acceptsAll(List.of("classpath", "cp"))
+                .withRequiredArg()
+                .ofType(String.class)
+                .withValuesSeparatedBy(File.pathSeparatorChar)
+                .describedAs("Directories and jar files to look up referenced classes in when computing stack frames");
+        parser.accepts("compression-level")
+                .withRequiredArg()
+                .ofType(Integer.class)
+                .describedAs("Compression level of the output archive, from 0 (stored, uncompressed) to 9");
+        parser.accepts("main-class")
+                .withRequiredArg()
+                .ofType(String.class)
+                .describedAs("Main-Class written to the manifest of the output archive");
+        parser.accepts("stats", "Print the time spent in each compile phase and the slowest methods");
+        parser.accepts("stats-json")
+                .withRequiredArg()
+                .ofType(String.class)
+                .describedAs("File to write per-file and per-method compile statistics to, as JSON");
+        parser.accepts("daemon", "Run as a daemon which keeps the compiler warm and serves --connect requests");
+        parser.accepts("connect", "Compile with the running daemon, or in this process if none is running");
+        parser.accepts("stop-daemon", "Stop the running daemon");
+        parser.accepts("daemon-socket")
+                .withRequiredArg()
+                .ofType(String.class)
+                .describedAs("Unix domain socket of the daemon (defaults to jalc-<user>.sock in the temporary directory)");
 
         return parser;
     }
@@ -0,0 +1,57 @@
+package tokyo.peya.langjal.cli;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import tokyo.peya.langjal.analyser.hierarchy.CachingClassHierarchyResolver;
+import tokyo.peya.langjal.analyser.hierarchy.ClassHierarchyInfo;
+import tokyo.peya.langjal.analyser.hierarchy.ClassHierarchyResolver;
+
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records the classes whose hierarchies one source depends on, while it is compiled with the shared resolver.
+ * <p>
+ * The stack frames of a source depend on the hierarchies of these classes,
+ * so the source must be compiled again when any of them changes, even if the source itself does not.
+ */
+final class RecordingClassHierarchyResolver implements ClassHierarchyResolver {
+    private final CachingClassHierarchyResolver delegate;
+    // メソッドが並列にコンパイルされる場合があるので，スレッドセーフにする
+    private final Set<String> resolvedClasses;
+
+    RecordingClassHierarchyResolver(@NotNull CachingClassHierarchyResolver delegate) {
+        this.delegate = delegate;
+        this.resolvedClasses = ConcurrentHashMap.newKeySet();
+    }
+
+    @Override
+    @Nullable
+    public ClassHierarchyInfo resolve(@NotNull String internalName) {
+        this.resolvedClasses.add(internalName);
+        return this.delegate.resolve(internalName);
+    }
+
+    @Override
+    public void register(@NotNull ClassHierarchyInfo info) {
+        this.delegate.register(info);
+    }
+
+    @Override
+    public boolean isAssignableFrom(@NotNull String type, @NotNull String other) {
+        // 答えは other の全ての上位型の階層で決まる
+        this.resolvedClasses.addAll(this.delegate.getSuperTypes(other));
+        return this.delegate.isAssignableFrom(type, other);
+    }
+
+    /**
+     * Returns the classes resolved so far, in their natural order.
+     *
+     * @return The internal names of the resolved classes.
+     */
+    @NotNull
+    Set<String> getResolvedClasses() {
+        return new TreeSet<>(this.resolvedClasses);
+    }
+}
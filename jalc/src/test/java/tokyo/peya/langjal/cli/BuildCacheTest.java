@@ -0,0 +1,164 @@
+package tokyo.peya.langjal.cli;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import tokyo.peya.langjal.analyser.hierarchy.CachingClassHierarchyResolver;
+import tokyo.peya.langjal.analyser.hierarchy.ClassHierarchyInfo;
+import tokyo.peya.langjal.analyser.hierarchy.ClassHierarchyResolver;
+import tokyo.peya.langjal.compiler.CompileSettings;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BuildCacheTest {
+    private static final ClassHierarchyResolver PLATFORM = CachingClassHierarchyResolver.getPlatform();
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void cacheFileIsPlacedNextToOutputDirectory() {
+        Path output = this.tempDir.resolve("classes");
+
+        assertEquals(this.tempDir.resolve("classes" + BuildCache.CACHE_FILE_SUFFIX), BuildCache.getCacheFile(output));
+    }
+
+    @Test
+    void savedEntriesAreUpToDateAfterReload() throws IOException {
+        Path output = this.createOutput("pkg/Test.class");
+        BuildCache cache = BuildCache.load(output, CompileSettings.FULL);
+        String hash = BuildCache.hash("class Test {}");
+        cache.update("Test.jal", hash, "pkg/Test.class", Set.of(), PLATFORM);
+        cache.save();
+
+        BuildCache reloaded = BuildCache.load(output, CompileSettings.FULL);
+
+        assertTrue(reloaded.isUpToDate("Test.jal", hash, output, PLATFORM));
+        assertFalse(reloaded.isUpToDate("Test.jal", BuildCache.hash("class Other {}"), output, PLATFORM));
+    }
+
+    @Test
+    void changedFlagsInvalidateAllEntries() throws IOException {
+        Path output = this.createOutput("pkg/Test.class");
+        BuildCache cache = BuildCache.load(output, CompileSettings.FULL);
+        String hash = BuildCache.hash("class Test {}");
+        cache.update("Test.jal", hash, "pkg/Test.class", Set.of(), PLATFORM);
+        cache.save();
+
+        BuildCache reloaded = BuildCache.load(output, CompileSettings.REQUIRED_ONLY);
+
+        assertFalse(reloaded.isUpToDate("Test.jal", hash, output, PLATFORM));
+    }
+
+    @Test
+    void changedClasspathInvalidatesAllEntries() throws IOException {
+        Path output = this.createOutput("pkg/Test.class");
+        Path library = Files.createDirectories(this.tempDir.resolve("lib"));
+        Path libraryClass = Files.write(library.resolve("Base.class"), new byte[]{0x01});
+        BuildCache cache = BuildCache.load(output, CompileSettings.FULL, List.of(library));
+        String hash = BuildCache.hash("class Test {}");
+        cache.update("Test.jal", hash, "pkg/Test.class", Set.of(), PLATFORM);
+        cache.save();
+
+        assertTrue(BuildCache.load(output, CompileSettings.FULL, List.of(library))
+                .isUpToDate("Test.jal", hash, output, PLATFORM));
+        assertFalse(BuildCache.load(output, CompileSettings.FULL)
+                .isUpToDate("Test.jal", hash, output, PLATFORM));
+
+        Files.setLastModifiedTime(libraryClass, FileTime.fromMillis(0));
+        assertFalse(BuildCache.load(output, CompileSettings.FULL, List.of(library))
+                .isUpToDate("Test.jal", hash, output, PLATFORM));
+    }
+
+    @Test
+    void changedHierarchyOfDependencyInvalidatesEntry() throws IOException {
+        Path output = this.createOutput("Sub.class");
+        BuildCache cache = BuildCache.load(output, CompileSettings.FULL);
+        String hash = BuildCache.hash("class Sub {}");
+        CachingClassHierarchyResolver before = new CachingClassHierarchyResolver(PLATFORM, List.of());
+        before.register(new ClassHierarchyInfo("Base", "java/lang/Object", List.of(), false));
+        cache.update("Sub.jal", hash, "Sub.class", Set.of("Base"), before);
+        cache.save();
+
+        CachingClassHierarchyResolver unchanged = new CachingClassHierarchyResolver(PLATFORM, List.of());
+        unchanged.register(new ClassHierarchyInfo("Base", "java/lang/Object", List.of(), false));
+        CachingClassHierarchyResolver changed = new CachingClassHierarchyResolver(PLATFORM, List.of());
+        changed.register(new ClassHierarchyInfo("Base", "java/lang/Exception", List.of(), false));
+        BuildCache reloaded = BuildCache.load(output, CompileSettings.FULL);
+
+        assertTrue(reloaded.isUpToDate("Sub.jal", hash, output, unchanged));
+        assertFalse(reloaded.isUpToDate("Sub.jal", hash, output, changed));
+    }
+
+    @Test
+    void missingOutputIsNotUpToDate() throws IOException {
+        Path output = this.createOutput("pkg/Test.class");
+        BuildCache cache = BuildCache.load(output, CompileSettings.FULL);
+        String hash = BuildCache.hash("class Test {}");
+        cache.update("Test.jal", hash, "pkg/Test.class", Set.of(), PLATFORM);
+
+        Files.delete(output.resolve("pkg/Test.class"));
+
+        assertFalse(cache.isUpToDate("Test.jal", hash, output, PLATFORM));
+    }
+
+    @Test
+    void retainSourcesReturnsOutputsOfDeletedSources() throws IOException {
+        Path output = this.createOutput();
+        BuildCache cache = BuildCache.load(output, CompileSettings.FULL);
+        cache.update("A.jal", BuildCache.hash("a"), "A.class", Set.of(), PLATFORM);
+        cache.update("B.jal", BuildCache.hash("b"), "B.class", Set.of(), PLATFORM);
+
+        List<String> staleOutputs = cache.retainSources(Set.of("A.jal"));
+
+        assertEquals(List.of("B.class"), staleOutputs);
+    }
+
+    @Test
+    void updateReturnsPreviousOutputWhenClassNameChanged() throws IOException {
+        BuildCache cache = BuildCache.load(this.createOutput(), CompileSettings.FULL);
+        String hash = BuildCache.hash("a");
+
+        assertNull(cache.update("A.jal", hash, "A.class", Set.of(), PLATFORM));
+        assertNull(cache.update("A.jal", hash, "A.class", Set.of(), PLATFORM));
+        assertEquals("A.class", cache.update("A.jal", hash, "Renamed.class", Set.of(), PLATFORM));
+    }
+
+    @Test
+    void hashDependsOnContent() {
+        assertEquals(BuildCache.hash("abc"), BuildCache.hash("abc"));
+        assertNotEquals(BuildCache.hash("abc"), BuildCache.hash("abd"));
+    }
+
+    @Test
+    void digestHashEqualsHashOfSameBytes() {
+        MessageDigest digest = BuildCache.newDigest();
+        digest.update("abc".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(BuildCache.hash("abc"), BuildCache.hash(digest));
+    }
+
+    private Path createOutput(String... classFiles) throws IOException {
+        Path output = this.tempDir.resolve("out");
+        Files.createDirectories(output);
+        for (String classFile : classFiles) {
+            Path file = output.resolve(classFile);
+            Files.createDirectories(file.getParent());
+            Files.write(file, new byte[]{0x01});
+        }
+
+        return output;
+    }
+}
@@ -0,0 +1,139 @@
+package tokyo.peya.langjal.cli;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class CompileDaemonTest {
+    private static final String SOURCE = """
+            public class Hello (major_version=55, minor_version=0) {
+              public static main([Ljava/lang/String;)V {
+                return
+              }
+            }
+            """;
+
+    @TempDir
+    Path tempDir;
+
+    private Path socket;
+    private Thread daemon;
+
+    @BeforeEach
+    void startDaemon() throws InterruptedException {
+        this.socket = this.tempDir.resolve("d.sock");
+        this.daemon = new Thread(() -> {
+            try {
+                new CompileDaemon(this.socket, false).serve();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        this.daemon.start();
+
+        for (int i = 0; i < 100 && !DaemonClient.ping(this.socket); i++)
+            Thread.sleep(100);
+    }
+
+    @AfterEach
+    void stopDaemon() throws IOException, InterruptedException {
+        DaemonClient.stop(this.socket);
+        this.daemon.join(10_000);
+    }
+
+    @Test
+    void compilesRelativeToClientWorkingDirectory() throws IOException {
+        Files.writeString(this.tempDir.resolve("Hello.jal"), SOURCE);
+
+        CompilationResult result = DaemonClient.submit(
+                this.socket, this.tempDir,
+                List.of("Hello.jal", "--output", "out"),
+                System.out, System.err
+        );
+
+        assertNotNull(result);
+        assertTrue(result.succeeded());
+        assertEquals(List.of(this.tempDir.resolve("out/Hello.class")), result.outputs());
+        assertTrue(Files.isRegularFile(this.tempDir.resolve("out/Hello.class")));
+    }
+
+    @Test
+    void relaysDiagnosticsOfFailedCompilation() throws IOException {
+        Files.writeString(this.tempDir.resolve("Broken.jal"), "public class Broken {");
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+        CompilationResult result = DaemonClient.submit(
+                this.socket, this.tempDir,
+                List.of("Broken.jal", "--output", "out"),
+                System.out, new PrintStream(err, true, StandardCharsets.UTF_8)
+        );
+
+        assertNotNull(result);
+        assertFalse(result.succeeded());
+        assertTrue(err.size() > 0);
+    }
+
+    @Test
+    void submitReturnsNullWithoutDaemon() throws IOException {
+        assertNull(DaemonClient.submit(
+                this.tempDir.resolve("missing.sock"), this.tempDir, List.of("Hello.jal"),
+                System.out, System.err
+        ));
+    }
+
+    @Test
+    void defaultSocketIsInRuntimeOrPerUserDirectory() {
+        assertEquals(
+                Path.of("/run/user/1000", "jalc.sock"),
+                DaemonSockets.getDefaultSocketPath("/run/user/1000", "/tmp", "alice")
+        );
+        assertEquals(
+                Path.of("/tmp", "jalc-alice", "jalc.sock"),
+                DaemonSockets.getDefaultSocketPath(null, "/tmp", "alice")
+        );
+    }
+
+    @Test
+    void onlyOwnerCanReachSocket() throws IOException {
+        assumeTrue(this.tempDir.getFileSystem().supportedFileAttributeViews().contains("posix"));
+
+        assertEquals(PosixFilePermissions.fromString("rw-------"), Files.getPosixFilePermissions(this.socket));
+    }
+
+    @Test
+    void createsSocketDirectoryForOwnerOnly() throws IOException {
+        assumeTrue(this.tempDir.getFileSystem().supportedFileAttributeViews().contains("posix"));
+        Path directory = this.tempDir.resolve("run");
+
+        DaemonSockets.prepareDirectory(directory.resolve("jalc.sock"));
+
+        assertEquals(PosixFilePermissions.fromString("rwx------"), Files.getPosixFilePermissions(directory));
+    }
+
+    @Test
+    void refusesSocketDirectoryWritableByOthers() throws IOException {
+        assumeTrue(this.tempDir.getFileSystem().supportedFileAttributeViews().contains("posix"));
+        Path shared = Files.createDirectory(this.tempDir.resolve("shared"));
+        Files.setPosixFilePermissions(shared, PosixFilePermissions.fromString("rwxrwxrwx"));
+
+        assertThrows(IOException.class, () -> new CompileDaemon(shared.resolve("jalc.sock"), false).serve());
+    }
+}
@@ -0,0 +1,126 @@
+package tokyo.peya.langjal.cli;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import tokyo.peya.langjal.compiler.CompileSettings;
+import tokyo.peya.langjal.compiler.metrics.CompileMetricsListener;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DirectoryCompilerTest {
+    private static final int JOBS = 4;
+
+    @TempDir
+    Path tempDir;
+
+    private static String source(String className, boolean broken) {
+        return """
+                public class %s (major_version=55, minor_version=0) {
+                  public static run()V {
+                    %s
+                  }
+                }
+                """.formatted(className, broken ? "goto Missing" + className : "return");
+    }
+
+    private Path createSources() throws IOException {
+        Path sources = Files.createDirectories(this.tempDir.resolve("src"));
+        Files.writeString(sources.resolve("A.jal"), source("A", false));
+        Files.writeString(sources.resolve("B.jal"), source("B", true));
+        Files.writeString(sources.resolve("C.jal"), source("C", true));
+        Files.writeString(sources.resolve("D.jal"), source("D", false));
+        return sources;
+    }
+
+    private String compile(Path sources, Path output, int jobs) {
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        PrintStream originalOut = System.out;
+        PrintStream originalErr = System.err;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        System.setErr(new PrintStream(err, true, StandardCharsets.UTF_8));
+        try {
+            CompilationResult result = DirectoryCompiler.runCompiler(
+                    sources, output, true, CompileSettings.FULL, false,
+                    jobs, false, List.of(), ArchiveOptions.DEFAULT, CompileMetricsListener.NONE
+            );
+            assertFalse(result.succeeded());
+        } finally {
+            System.setOut(originalOut);
+            System.setErr(originalErr);
+        }
+
+        return err.toString(StandardCharsets.UTF_8);
+    }
+
+    private String compileIncrementally(Path sources, Path output) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PrintStream originalOut = System.out;
+        System.setOut(new PrintStream(out, true, StandardCharsets.UTF_8));
+        try {
+            CompilationResult result = DirectoryCompiler.runCompiler(
+                    sources, output, true, CompileSettings.FULL, false,
+                    1, true, List.of(), ArchiveOptions.DEFAULT, CompileMetricsListener.NONE
+            );
+            assertTrue(result.succeeded());
+        } finally {
+            System.setOut(originalOut);
+        }
+
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void parallelModeReportsFilesInSourceOrder() throws IOException {
+        String err = this.compile(this.createSources(), this.tempDir.resolve("out"), JOBS);
+
+        int first = err.indexOf("MissingB");
+        int second = err.indexOf("MissingC");
+        assertTrue(first >= 0 && second > first, err);
+        assertTrue(err.endsWith("Compilation failed: 2 of 4 files had errors." + System.lineSeparator()), err);
+    }
+
+    @Test
+    void parallelModeCompilesEveryFileDespiteFailures() throws IOException {
+        Path output = this.tempDir.resolve("out");
+        this.compile(this.createSources(), output, JOBS);
+
+        assertTrue(Files.isRegularFile(output.resolve("A.class")));
+        assertTrue(Files.isRegularFile(output.resolve("D.class")));
+    }
+
+    @Test
+    void sequentialModeReportsLikeParallelMode() throws IOException {
+        Path sources = this.createSources();
+        Path sequentialOutput = this.tempDir.resolve("sequential");
+
+        String sequential = this.compile(sources, sequentialOutput, 1);
+        String parallel = this.compile(sources, this.tempDir.resolve("parallel"), JOBS);
+
+        assertEquals(parallel, sequential);
+        assertTrue(Files.isRegularFile(sequentialOutput.resolve("D.class")));
+    }
+
+    @Test
+    void unchangedSourcesAreNotCompiledAgain() throws IOException {
+        Path sources = Files.createDirectories(this.tempDir.resolve("src"));
+        Files.writeString(sources.resolve("A.jal"), source("A", false));
+        Files.writeString(sources.resolve("D.jal"), source("D", false));
+        Path output = this.tempDir.resolve("out");
+
+        this.compileIncrementally(sources, output);
+        String out = this.compileIncrementally(sources, output);
+
+        assertTrue(out.contains("All 2 source files are up to date."), out);
+    }
+}
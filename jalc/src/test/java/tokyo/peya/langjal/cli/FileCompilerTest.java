@@ -0,0 +1,63 @@
+package tokyo.peya.langjal.cli;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import tokyo.peya.langjal.compiler.CompileSettings;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FileCompilerTest {
+    @TempDir
+    Path tempDir;
+
+    private CompilationResult compile(Path sourceFile, Path output) {
+        PrintStream originalOut = System.out;
+        PrintStream originalErr = System.err;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        System.setErr(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            return FileCompiler.runCompiler(sourceFile, output, true, CompileSettings.FULL, false);
+        } finally {
+            System.setOut(originalOut);
+            System.setErr(originalErr);
+        }
+    }
+
+    @Test
+    void compilesValidSource() throws IOException {
+        Path sourceFile = Files.writeString(this.tempDir.resolve("A.jal"), """
+                public class A (major_version=55, minor_version=0) {
+                  public static run()V {
+                    return
+                  }
+                }
+                """);
+        Path output = this.tempDir.resolve("out");
+
+        assertTrue(this.compile(sourceFile, output).succeeded());
+        assertTrue(Files.isRegularFile(output.resolve("A.class")));
+    }
+
+    @Test
+    void unreadableSourceFails() throws IOException {
+        // 不正な UTF-8 のバイト列は，読み込みの失敗として報告される
+        byte[] header = "public class A (major_version=55, minor_version=0) { ".getBytes(StandardCharsets.UTF_8);
+        byte[] source = new byte[header.length + 2];
+        System.arraycopy(header, 0, source, 0, header.length);
+        source[header.length] = (byte) 0xC3;
+        source[header.length + 1] = (byte) 0x28;
+        Path sourceFile = Files.write(this.tempDir.resolve("A.jal"), source);
+
+        CompilationResult result = this.compile(sourceFile, this.tempDir.resolve("out"));
+
+        assertFalse(result.succeeded());
+    }
+}
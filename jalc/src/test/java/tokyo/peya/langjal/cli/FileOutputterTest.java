@@ -6,9 +6,14 @@ import org.junit.jupiter.api.io.TempDir;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.jar.JarFile;
+import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class FileOutputterTest {
@@ -21,20 +26,48 @@ class FileOutputterTest {
     }
 
     @Test
-    void finaliseArchivesCompiledDirectoryToRequestedOutputFile() throws IOException {
+    void finaliseArchivesCompiledClassesToRequestedOutputFile() throws IOException {
         Path output = this.tempDir.resolve("out.jar");
         FileOutputter outputter = new FileOutputter(output, false, false);
         assertTrue(outputter.prepareOutput(output, false));
+        assertNull(outputter.getOutputDirectory());
 
-        Path classFile = outputter.getActualCompileOutput().resolve("pkg").resolve("Test.class");
-        Files.createDirectories(classFile.getParent());
-        Files.write(classFile, new byte[]{0x01, 0x02, 0x03});
+        outputter.getSink().write("pkg/Test", new byte[]{0x01, 0x02, 0x03});
+        assertFalse(Files.exists(output));
 
         outputter.finalise();
 
         assertTrue(Files.isRegularFile(output));
         try (ZipFile zip = new ZipFile(output.toFile())) {
             assertNotNull(zip.getEntry("pkg/Test.class"));
+            assertNotNull(zip.getEntry(JarFile.MANIFEST_NAME));
         }
     }
+
+    @Test
+    void storedArchiveHasUncompressedEntriesAndMainClass() throws IOException {
+        Path output = this.tempDir.resolve("out.jar");
+        FileOutputter outputter = new FileOutputter(output, false, false, new ArchiveOptions(0, "pkg/Main"));
+        assertTrue(outputter.prepareOutput(output, false));
+
+        outputter.getSink().write("pkg/Main", new byte[]{0x01, 0x02, 0x03});
+        outputter.finalise();
+
+        try (JarFile jar = new JarFile(output.toFile())) {
+            assertEquals(ZipEntry.STORED, jar.getEntry("pkg/Main.class").getMethod());
+            assertEquals("pkg.Main", jar.getManifest().getMainAttributes().getValue("Main-Class"));
+        }
+    }
+
+    @Test
+    void directoryOutputWritesClassesImmediately() throws IOException {
+        Path output = this.tempDir.resolve("classes");
+        FileOutputter outputter = new FileOutputter(output, true, false);
+        assertTrue(outputter.prepareOutput(output, false));
+
+        outputter.getSink().write("pkg/Test", new byte[]{0x01});
+
+        assertEquals(output, outputter.getOutputDirectory());
+        assertTrue(Files.isRegularFile(output.resolve("pkg/Test.class")));
+    }
 }
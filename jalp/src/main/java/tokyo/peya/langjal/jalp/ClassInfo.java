@@ -1,13 +1,42 @@
 package tokyo.peya.langjal.jalp;
 
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.ByteBuffer;
 import java.nio.file.Path;
 import java.time.Instant;
 
+/**
+ * A class file located by {@link JALClassFinder}.
+ *
+ * @param bytes   The class file on the heap, or null if it has only been mapped.
+ * @param content The class file, which is memory-mapped when it is read from a file.
+ *                Its position must not be changed; read it through {@link ByteBuffer#duplicate()} instead.
+ */
 public record ClassInfo(
         Path classFile,
         Instant lastModified,
         long size,
         String sha256,
-        byte[] bytes
+        @Nullable byte[] bytes,
+        ByteBuffer content
 ) {
+    public ClassInfo(Path classFile, Instant lastModified, long size, String sha256, byte[] bytes) {
+        this(classFile, lastModified, size, sha256, bytes, ByteBuffer.wrap(bytes).asReadOnlyBuffer());
+    }
+
+    /**
+     * Returns the bytes of the class file, copying them out of {@link #content()} if they are not on the heap.
+     *
+     * @return The bytes of the class file.
+     */
+    @Override
+    public byte[] bytes() {
+        if (this.bytes != null) {
+            return this.bytes;
+        }
+        byte[] copy = new byte[this.content.remaining()];
+        this.content.get(this.content.position(), copy);
+        return copy;
+    }
 }
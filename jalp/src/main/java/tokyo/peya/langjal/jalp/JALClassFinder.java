@@ -1,8 +1,13 @@
 package tokyo.peya.langjal.jalp;
 
+import tokyo.peya.langjal.analyser.hierarchy.ClassLocation;
+import tokyo.peya.langjal.analyser.hierarchy.ClasspathIndex;
+import tokyo.peya.langjal.jalp.reader.JALClassReader;
+
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.attribute.FileTime;
@@ -13,17 +18,21 @@ import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.jar.JarEntry;
-import java.util.jar.JarFile;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 public class JALClassFinder {
+    private static final Map<String, ClasspathIndex> INDEXES = new ConcurrentHashMap<>();
+
     private JALClassFinder() {
     }
 
     public static ClassInfo findClass(String input, String classpath) {
-        ClassInfo classFromCandidates = findFromCandidates(createCandidates(input, classpath));
+        ClassInfo classFromCandidates = findFromCandidates(createCandidates(input));
         if (classFromCandidates != null) {
             return classFromCandidates;
         }
@@ -47,42 +56,96 @@ public class JALClassFinder {
     }
 
     private static ClassInfo findFromClasspath(String input, String classpath) {
-        String classEntry = toClassEntry(input);
-        for (Path entry : parseClasspathEntries(classpath)) {
-            if (Files.isDirectory(entry)) {
-                ClassInfo classFromDirectory = findInDirectory(entry, classEntry);
-                if (classFromDirectory != null) {
-                    return classFromDirectory;
-                }
-                continue;
+        String internalName = toInternalName(input);
+        ClasspathIndex index = getIndex(classpath);
+        try {
+            ClassLocation location = index.find(internalName);
+            if (location == null && index.isStale()) {
+                // 索引を作った後に追加されたクラスかもしれないので，作り直してから探し直す
+                index = rebuildIndex(classpath, index);
+                location = index.find(internalName);
             }
-
-            if (isArchiveFile(entry)) {
-                ClassInfo classFromArchive = findInArchive(entry, classEntry);
-                if (classFromArchive != null) {
-                    return classFromArchive;
-                }
+            if (location == null) {
+                return null;
             }
+            return readLocation(location);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Failed to read class from classpath: " + input, e);
         }
-        return null;
     }
 
-    private static ClassInfo findInDirectory(Path directory, String classEntry) {
-        ClassInfo classFromDirectory = readClassFile(directory.resolve(classEntry));
-        if (classFromDirectory != null) {
-            return classFromDirectory;
-        }
+    /**
+     * Returns the index of the classes on the given class path, building it on the first call for the class path.
+     * <p>
+     * The class path is searched in the same order as {@link #findClass(String, String)}:
+     * the class directories first, then the jar files given directly or found in the class directories,
+     * then the runtime image.
+     * The index and its opened jar files are shared by every caller for the rest of the process.
+     *
+     * @param classpath The class path, separated by {@link File#pathSeparator}; may be null.
+     * @return The index.
+     */
+    public static ClasspathIndex getIndex(String classpath) {
+        String key = classpath == null ? "" : classpath;
+        return INDEXES.computeIfAbsent(key, JALClassFinder::buildIndex);
+    }
+
+    private static ClasspathIndex rebuildIndex(String classpath, ClasspathIndex stale) {
+        // 古い索引は他のスレッドがまだ使っているかもしれないので，閉じずに差し替えるだけにする
+        String key = classpath == null ? "" : classpath;
+        return INDEXES.compute(key, (k, current) -> current == null || current == stale ? buildIndex(k) : current);
+    }
 
-        for (Path archivePath : listArchiveFiles(directory)) {
-            ClassInfo classFromArchive = findInArchive(archivePath, classEntry);
-            if (classFromArchive != null) {
-                return classFromArchive;
+    private static ClasspathIndex buildIndex(String classpath) {
+        List<Path> entries = parseClasspathEntries(classpath);
+        List<Path> indexed = new ArrayList<>();
+        for (Path entry : entries) {
+            if (Files.isDirectory(entry)) {
+                indexed.add(entry);
             }
         }
-        return null;
+        for (Path entry : entries) {
+            if (Files.isDirectory(entry)) {
+                indexed.addAll(listArchiveFiles(entry));
+            } else if (isArchiveFile(entry)) {
+                indexed.add(entry);
+            }
+        }
+
+        try {
+            return ClasspathIndex.build(indexed, true);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Failed to index classpath: " + classpath, e);
+        }
+    }
+
+    /**
+     * Reads the class file at a location of a {@link ClasspathIndex}.
+     *
+     * @param location The location.
+     * @return The class file.
+     * @throws IOException If the class file cannot be read.
+     */
+    public static ClassInfo readLocation(ClassLocation location) throws IOException {
+        return switch (location.kind()) {
+            case DIRECTORY -> {
+                ClassInfo classInfo = readClassFile(location.path());
+                if (classInfo == null) {
+                    throw new IOException("Class file disappeared: " + location.path());
+                }
+                yield classInfo;
+            }
+            case ARCHIVE -> readArchiveEntry(location.path(), location.archive(), location.entry());
+            // jrt ファイルシステムはマップできないので，ヒープに読み込む
+            case RUNTIME_IMAGE -> createInfo(
+                    location.path(),
+                    Files.getLastModifiedTime(location.path()).toInstant(),
+                    location.read()
+            );
+        };
     }
 
-    private static List<Path> createCandidates(String input, String classpath) {
+    private static List<Path> createCandidates(String input) {
         Set<Path> candidates = new LinkedHashSet<>();
         Path inputPath = Path.of(input);
         candidates.add(inputPath);
@@ -91,17 +154,16 @@ public class JALClassFinder {
             candidates.add(Path.of(input + ".class"));
         }
 
-        String classEntry = toClassEntry(input);
-        for (Path classpathEntry : parseClasspathEntries(classpath)) {
-            if (Files.isDirectory(classpathEntry)) {
-                candidates.add(classpathEntry.resolve(classEntry));
-            }
-        }
-
         return new ArrayList<>(candidates);
     }
 
-    private static List<Path> parseClasspathEntries(String classpath) {
+    /**
+     * Splits a class path into its directories and archives.
+     *
+     * @param classpath The class path, separated by {@link File#pathSeparator}; may be null.
+     * @return The entries of the class path.
+     */
+    public static List<Path> parseClasspathEntries(String classpath) {
         List<Path> entries = new ArrayList<>();
         if (classpath == null || classpath.isBlank()) {
             return entries;
@@ -125,31 +187,43 @@ public class JALClassFinder {
         return value;
     }
 
-    private static String toClassEntry(String input) {
+    private static String toInternalName(String input) {
         String normalized = input;
         if (normalized.endsWith(".class")) {
             normalized = normalized.substring(0, normalized.length() - ".class" .length());
         }
-        normalized = normalized.replace('.', '/').replace('\\', '/');
-        return normalized + ".class";
+        return normalized.replace('.', '/').replace('\\', '/');
     }
 
-    private static ClassInfo readClassFile(Path classFile) {
+    /**
+     * Maps a class file into memory.
+     *
+     * @param classFile The class file.
+     * @return The class file, or null if it is not a regular file.
+     */
+    public static ClassInfo readClassFile(Path classFile) {
         if (!Files.isRegularFile(classFile)) {
             return null;
         }
 
         try {
-            byte[] bytes = Files.readAllBytes(classFile);
+            // ヒープにコピーせず，マップしたままハッシュ計算とクラスの読み込みを行う
+            ByteBuffer content = JALClassReader.map(classFile);
             FileTime lastModified = Files.getLastModifiedTime(classFile);
             Path normalizedPath = classFile.toAbsolutePath().normalize();
-            return createInfo(normalizedPath, lastModified.toInstant(), bytes);
+            return new ClassInfo(normalizedPath, lastModified.toInstant(), content.remaining(), toSHA256(content), null, content);
         } catch (IOException e) {
             throw new IllegalArgumentException("Failed to read class file: " + classFile, e);
         }
     }
 
-    private static boolean isArchiveFile(Path entry) {
+    /**
+     * Returns whether the given path is a {@code .jar} or {@code .zip} file.
+     *
+     * @param entry The path.
+     * @return {@code true} if it is an archive.
+     */
+    public static boolean isArchiveFile(Path entry) {
         if (!Files.isRegularFile(entry)) {
             return false;
         }
@@ -168,33 +242,51 @@ public class JALClassFinder {
         }
     }
 
-    private static ClassInfo findInArchive(Path archivePath, String classEntry) {
-        try (JarFile jarFile = new JarFile(archivePath.toFile())) {
-            JarEntry jarEntry = jarFile.getJarEntry(classEntry);
-            if (jarEntry == null) {
-                return null;
-            }
-            try (InputStream inputStream = jarFile.getInputStream(jarEntry)) {
-                byte[] bytes = inputStream.readAllBytes();
-                Instant lastModified = jarEntry.getLastModifiedTime() != null
-                        ? jarEntry.getLastModifiedTime().toInstant()
-                        : Instant.EPOCH;
-                Path pseudoPath = Path.of(archivePath.toAbsolutePath().normalize() + "!" + classEntry);
-                return createInfo(pseudoPath, lastModified, bytes);
-            }
-        } catch (IOException e) {
-            throw new IllegalArgumentException("Failed to read archive: " + archivePath, e);
+    /**
+     * Reads a class file from an archive which has already been opened.
+     * The archive may be read from several threads at once.
+     *
+     * @param archivePath The path of the archive, used to name the class.
+     * @param jarFile     The opened archive.
+     * @param jarEntry    The entry of the class file.
+     * @return The class file.
+     * @throws IOException If the entry cannot be read.
+     */
+    public static ClassInfo readArchiveEntry(Path archivePath, ZipFile jarFile, ZipEntry jarEntry) throws IOException {
+        try (InputStream inputStream = jarFile.getInputStream(jarEntry)) {
+            byte[] bytes = readEntry(inputStream, jarEntry);
+            Instant lastModified = jarEntry.getLastModifiedTime() != null
+                    ? jarEntry.getLastModifiedTime().toInstant()
+                    : Instant.EPOCH;
+            Path pseudoPath = Path.of(archivePath.toAbsolutePath().normalize() + "!" + jarEntry.getName());
+            return createInfo(pseudoPath, lastModified, bytes);
+        }
+    }
+
+    private static byte[] readEntry(InputStream inputStream, ZipEntry jarEntry) throws IOException {
+        long size = jarEntry.getSize();
+        if (size < 0 || size > Integer.MAX_VALUE) {
+            return inputStream.readAllBytes();
+        }
+
+        // サイズが分かっていれば，readAllBytes のようにバッファを継ぎ足さずに一度で読める
+        byte[] bytes = new byte[(int) size];
+        int read = inputStream.readNBytes(bytes, 0, bytes.length);
+        if (read != bytes.length || inputStream.read() != -1) {
+            throw new IOException("Archive entry size mismatch: " + jarEntry.getName());
         }
+        return bytes;
     }
 
     private static ClassInfo createInfo(Path classFile, Instant lastModified, byte[] bytes) {
-        return new ClassInfo(classFile, lastModified, bytes.length, toSHA256(bytes), bytes);
+        return new ClassInfo(classFile, lastModified, bytes.length, toSHA256(ByteBuffer.wrap(bytes)), bytes);
     }
 
-    private static String toSHA256(byte[] bytes) {
+    private static String toSHA256(ByteBuffer content) {
         try {
             MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] hash = digest.digest(bytes);
+            digest.update(content.duplicate());
+            byte[] hash = digest.digest();
             StringBuilder builder = new StringBuilder(hash.length * 2);
             for (byte hashByte : hash) {
                 builder.append(String.format("%02x", hashByte));
@@ -4,9 +4,12 @@ import joptsimple.OptionException;
 import joptsimple.OptionParser;
 import joptsimple.OptionSet;
 import org.jetbrains.annotations.NotNull;
+import tokyo.peya.langjal.jalp.printers.JALBatchPrinter;
 import tokyo.peya.langjal.jalp.printers.JALFilePrinter;
 
+import java.io.IOException;
 import java.io.PrintStream;
+import java.nio.file.Path;
 import java.util.List;
 
 public class Main {
@@ -30,12 +33,21 @@ public class Main {
                 System.exit(1);
                 return;
             }
-            String input = nonOptions.getFirst().toString();
             String classpath = options.hasArgument("cp")
                     ? options.valueOf("cp").toString()
                     : "";
             int flags = getFlags(options);
 
+            if (options.has("output")) {
+                List<String> inputs = nonOptions.stream().map(Object::toString).toList();
+                Path outputDirectory = Path.of(options.valueOf("output").toString());
+                if (!processBatch(inputs, classpath, flags, outputDirectory, getJobs(options))) {
+                    System.exit(1);
+                }
+                return;
+            }
+
+            String input = nonOptions.getFirst().toString();
             JALFilePrinter bootstrap = new JALFilePrinter(classpath, flags);
             bootstrap.process(input);
         } catch (OptionException e) {
@@ -57,6 +69,27 @@ public class Main {
         }
     }
 
+    private static boolean processBatch(@NotNull List<String> inputs, @NotNull String classpath, int flags,
+                                        @NotNull Path outputDirectory, int jobs) throws IOException {
+        JALBatchPrinter printer = new JALBatchPrinter(classpath, flags, outputDirectory, jobs);
+        JALBatchPrinter.Result result = printer.process(inputs);
+        for (String failure : result.failures()) {
+            System.err.println("Failed to disassemble " + failure);
+        }
+
+        System.out.println("Disassembled " + result.printed() + " classes into " + outputDirectory
+                + (result.skipped() > 0 ? " (" + result.skipped() + " hidden by visibility options)" : ""));
+        return result.failures().isEmpty();
+    }
+
+    private static int getJobs(@NotNull OptionSet options) {
+        int jobs = (Integer) options.valueOf("jobs");
+        if (jobs <= 0) {  // 0 以下の場合は，利用可能なプロセッサ数に合わせる
+            return Runtime.getRuntime().availableProcessors();
+        }
+        return jobs;
+    }
+
     private static int getFlags(@NotNull OptionSet options) {
         int flags = 0;
         int visibilityFlags = 0;
@@ -106,6 +139,7 @@ public class Main {
         out.println();
         out.println("Example:");
         out.println("  jalp -p -c MyClass");
+        out.println("  jalp -p -c app.jar 'com.example.**' --output out");
         out.println();
         out.println("Options:");
 
@@ -132,6 +166,13 @@ public class Main {
         parser.accepts("constants", "Show constant pool entries");
         parser.acceptsAll(List.of("verbose", "v"), "Show verbose output (includes line numbers)");
         parser.accepts("no-header", "Do not show the class header");
+        parser.acceptsAll(List.of("output", "d"), "Disassemble every class of the inputs (jars, directories or class name globs) into .jal files under this directory")
+                .withRequiredArg()
+                .describedAs("directory");
+        parser.acceptsAll(List.of("jobs", "j"), "Number of classes to disassemble in parallel with --output (0 to use all available processors)")
+                .withRequiredArg()
+                .ofType(Integer.class)
+                .defaultsTo(0);
         return parser;
     }
 }
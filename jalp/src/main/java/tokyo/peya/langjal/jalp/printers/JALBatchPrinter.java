@@ -0,0 +1,326 @@
+package tokyo.peya.langjal.jalp.printers;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import tokyo.peya.langjal.analyser.hierarchy.ClassLocation;
+import tokyo.peya.langjal.analyser.hierarchy.ClasspathIndex;
+import tokyo.peya.langjal.jalp.ClassInfo;
+import tokyo.peya.langjal.jalp.JALClassFinder;
+import tokyo.peya.langjal.jalp.OutputFormatter;
+import tokyo.peya.langjal.jalp.reader.JALClass;
+import tokyo.peya.langjal.jalp.reader.JALClassReader;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.jar.JarFile;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Disassembles every class of jars, directories and class name globs into a mirrored tree of {@code .jal} files.
+ * <p>
+ * Each archive is opened once and its entries are read by the worker threads when they are printed,
+ * and only a fixed number of classes per job are in flight at a time, so memory stays bounded for large jars.
+ * Classes are printed and reported in the order of their names,
+ * and a class found in several inputs is taken from the first of them,
+ * so the output does not depend on the number of jobs.
+ * <br>
+ * <b>Usage Example:</b>
+ * <pre>{@code
+ * JALBatchPrinter printer = new JALBatchPrinter("", JALPOptions.DEFAULT, Path.of("out"), 8);
+ * JALBatchPrinter.Result result = printer.process(List.of("app.jar", "com.example.**"));
+ * }</pre>
+ */
+public class JALBatchPrinter {
+    private static final int IN_FLIGHT_PER_JOB = 4;
+    private static final String CLASS_SUFFIX = ".class";
+
+    private final String classpath;
+    private final int flags;
+    private final Path outputDirectory;
+    private final int jobs;
+
+    public JALBatchPrinter(String classpath, int flags, @NotNull Path outputDirectory, int jobs) {
+        this.classpath = classpath;
+        this.flags = flags;
+        this.outputDirectory = outputDirectory.toAbsolutePath().normalize();
+        this.jobs = Math.max(1, jobs);
+    }
+
+    /**
+     * Disassembles the classes of the given inputs.
+     * <p>
+     * An input is a {@code .jar} or {@code .zip} file, a directory of class files, a single class file,
+     * or a glob of class names looked up in the class path (or the working directory if it is empty).
+     * In a glob, {@code *} matches within a package and {@code **} matches across packages,
+     * e.g. {@code com.example.*} or {@code com/example/**}.
+     *
+     * @param inputs The inputs.
+     * @return The number of printed classes and the failures, in the order of the class names.
+     * @throws IOException If an input cannot be listed.
+     */
+    @NotNull
+    public Result process(@NotNull List<String> inputs) throws IOException {
+        Map<Path, JarFile> archives = new HashMap<>();
+        try {
+            SortedMap<String, ClassSource> classes = new TreeMap<>();
+            for (String input : inputs) {
+                this.collect(input, classes, archives);
+            }
+            return this.printAll(classes);
+        } finally {
+            for (JarFile archive : archives.values()) {
+                archive.close();
+            }
+        }
+    }
+
+    private void collect(@NotNull String input, @NotNull Map<String, ClassSource> classes,
+                         @NotNull Map<Path, JarFile> archives) throws IOException {
+        if (isGlob(input)) {
+            collectGlob(this.classpath, toPattern(input), classes);
+            return;
+        }
+
+        Path path = Path.of(input);
+        if (Files.isRegularFile(path) && !JALClassFinder.isArchiveFile(path)) {
+            // 単体のクラスファイルは，中身からクラス名を得る（定数プールの大半は読まずに済む）
+            String className = JALClassReader.read(path).thisName().getInternalName();
+            classes.putIfAbsent(className, new ClassSource(className, path, null, null));
+            return;
+        }
+        if (!Files.exists(path)) {
+            throw new IllegalArgumentException("Input not found: " + input);
+        }
+        this.collectFrom(path, classes, archives);
+    }
+
+    private void collectFrom(@NotNull Path entry, @NotNull Map<String, ClassSource> classes,
+                             @NotNull Map<Path, JarFile> archives) throws IOException {
+        if (Files.isDirectory(entry)) {
+            collectDirectory(entry, classes);
+        } else if (JALClassFinder.isArchiveFile(entry)) {
+            collectArchive(entry, this.openArchive(entry, archives), classes);
+        }
+    }
+
+    private static void collectGlob(@NotNull String classpath, @NotNull Pattern pattern,
+                                    @NotNull Map<String, ClassSource> classes) throws IOException {
+        // 索引はクラスパスごとに一度だけ作られ，開いた JAR ファイルも共有される
+        String searchPath = JALClassFinder.parseClasspathEntries(classpath).isEmpty() ? "." : classpath;
+        ClasspathIndex index = JALClassFinder.getIndex(searchPath);
+        List<String> classNames = index.getClassNames().stream()
+                .filter(className -> pattern.matcher(className).matches())
+                .sorted()
+                .toList();
+        for (String className : classNames) {
+            ClassLocation location = index.find(className);
+            if (location != null) {
+                classes.putIfAbsent(className, new ClassSource(className, location.path(), location.archive(), location.entry()));
+            }
+        }
+    }
+
+    private JarFile openArchive(@NotNull Path archivePath, @NotNull Map<Path, JarFile> archives) throws IOException {
+        Path normalized = archivePath.toAbsolutePath().normalize();
+        JarFile archive = archives.get(normalized);
+        if (archive == null) {
+            archive = new JarFile(normalized.toFile());
+            archives.put(normalized, archive);
+        }
+        return archive;
+    }
+
+    private static void collectDirectory(@NotNull Path directory, @NotNull Map<String, ClassSource> classes) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            List<Path> classFiles = paths
+                    .filter(Files::isRegularFile)
+                    .filter(path -> path.getFileName().toString().endsWith(CLASS_SUFFIX))
+                    .sorted()
+                    .toList();
+            for (Path classFile : classFiles) {
+                String entryName = directory.relativize(classFile).toString().replace('\\', '/');
+                String className = toClassName(entryName);
+                if (className != null) {
+                    classes.putIfAbsent(className, new ClassSource(className, classFile, null, null));
+                }
+            }
+        }
+    }
+
+    private static void collectArchive(@NotNull Path archivePath, @NotNull JarFile archive,
+                                       @NotNull Map<String, ClassSource> classes) {
+        archive.stream()
+                .filter(entry -> !entry.isDirectory())
+                .sorted((a, b) -> a.getName().compareTo(b.getName()))
+                .forEach(entry -> {
+                    String className = toClassName(entry.getName());
+                    if (className != null) {
+                        classes.putIfAbsent(className, new ClassSource(className, archivePath, archive, entry));
+                    }
+                });
+    }
+
+    @Nullable
+    private static String toClassName(@NotNull String entryName) {
+        // META-INF 配下（マルチリリース JAR の別バージョンなど）は対象外
+        if (!entryName.endsWith(CLASS_SUFFIX) || entryName.startsWith("META-INF/")) {
+            return null;
+        }
+        return entryName.substring(0, entryName.length() - CLASS_SUFFIX.length());
+    }
+
+    private static boolean isGlob(@NotNull String input) {
+        return input.indexOf('*') >= 0 || input.indexOf('?') >= 0;
+    }
+
+    private static Pattern toPattern(@NotNull String glob) {
+        String normalized = glob.replace('\\', '/');
+        if (normalized.endsWith(CLASS_SUFFIX)) {
+            normalized = normalized.substring(0, normalized.length() - CLASS_SUFFIX.length());
+        }
+        normalized = normalized.replace('.', '/');
+
+        StringBuilder regex = new StringBuilder();
+        for (int i = 0; i < normalized.length(); i++) {
+            char c = normalized.charAt(i);
+            if (c == '*' && i + 1 < normalized.length() && normalized.charAt(i + 1) == '*') {
+                regex.append(".*");
+                i++;
+            } else if (c == '*') {
+                regex.append("[^/]*");
+            } else if (c == '?') {
+                regex.append("[^/]");
+            } else {
+                regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return Pattern.compile(regex.toString());
+    }
+
+    private Result printAll(@NotNull SortedMap<String, ClassSource> classes) {
+        Tally tally = new Tally();
+        int window = this.jobs * IN_FLIGHT_PER_JOB;
+        Deque<PendingClass> pending = new ArrayDeque<>(window);
+        ExecutorService executor = Executors.newFixedThreadPool(this.jobs);
+        try {
+            for (ClassSource source : classes.values()) {
+                // 先頭のクラスが終わるまで次を投入しないので，同時に読み込まれるクラスの数は window 以下になる
+                if (pending.size() >= window) {
+                    tally.add(pending.removeFirst());
+                }
+                pending.addLast(new PendingClass(source, executor.submit(() -> this.printClass(source))));
+            }
+            while (!pending.isEmpty()) {
+                tally.add(pending.removeFirst());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Disassembly was interrupted", e);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        return new Result(tally.printed, tally.skipped, List.copyOf(tally.failures));
+    }
+
+    private boolean printClass(@NotNull ClassSource source) throws IOException {
+        ClassInfo classInfo = source.read();
+        if (classInfo.size() == 0) {
+            throw new IllegalArgumentException("Class file is empty: " + classInfo.classFile());
+        }
+
+        JALClass clazz = JALClassReader.read(classInfo.content());
+        if (PrinterUtils.shouldSkip(this.flags, clazz.access())) {
+            return false;
+        }
+
+        Path outputFile = this.outputDirectory.resolve(source.className() + ".jal").normalize();
+        if (!outputFile.startsWith(this.outputDirectory)) {
+            throw new IllegalArgumentException("Class name escapes the output directory: " + source.className());
+        }
+        Files.createDirectories(outputFile.getParent());
+
+        try (PrintStream out = new PrintStream(
+                new BufferedOutputStream(Files.newOutputStream(outputFile)),
+                false,
+                StandardCharsets.UTF_8
+        )) {
+            new JALFilePrinter(new OutputFormatter(out), this.classpath, this.flags).process(classInfo, clazz);
+            if (out.checkError()) {
+                throw new IOException("Failed to write " + outputFile);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The outcome of a batch.
+     *
+     * @param printed  The number of classes written to the output directory.
+     * @param skipped  The number of classes hidden by the visibility options.
+     * @param failures The classes which could not be printed with their errors, in the order of the class names.
+     */
+    public record Result(int printed, int skipped, @NotNull List<String> failures) {
+    }
+
+    private record ClassSource(@NotNull String className, @NotNull Path path,
+                               @Nullable ZipFile archive, @Nullable ZipEntry entry) {
+        @NotNull
+        ClassInfo read() throws IOException {
+            if (this.archive == null || this.entry == null) {
+                ClassInfo classInfo = JALClassFinder.readClassFile(this.path);
+                if (classInfo == null) {
+                    throw new IOException("Class file disappeared: " + this.path);
+                }
+                return classInfo;
+            }
+            return JALClassFinder.readArchiveEntry(this.path, this.archive, this.entry);
+        }
+    }
+
+    private record PendingClass(@NotNull ClassSource source, @NotNull Future<Boolean> future) {
+    }
+
+    private static final class Tally {
+        private final List<String> failures = new ArrayList<>();
+        private int printed;
+        private int skipped;
+
+        void add(@NotNull PendingClass pending) throws InterruptedException {
+            boolean printed;
+            try {
+                printed = pending.future().get();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                String message = cause.getMessage() == null ? cause.toString() : cause.getMessage();
+                this.failures.add(pending.source().className() + ": " + message);
+                return;
+            }
+
+            if (printed) {
+                this.printed++;
+            } else {
+                this.skipped++;
+            }
+        }
+    }
+}
@@ -37,12 +37,20 @@ public class JALFilePrinter {
 
     public void process(String input) {
         ClassInfo classInfo = JALClassFinder.findClass(input, this.classpath);
-        if (classInfo.bytes().length == 0) {
+        if (classInfo.size() == 0) {
             throw new IllegalArgumentException("Class file is empty: " + input);
         }
 
-        JALClass clazz = JALClassReader.read(classInfo.bytes());
+        this.process(classInfo, JALClassReader.read(classInfo.content()));
+    }
 
+    /**
+     * Prints a class which has already been read.
+     *
+     * @param classInfo The class file, used for the header.
+     * @param clazz     The class read from it.
+     */
+    public void process(ClassInfo classInfo, JALClass clazz) {
         if (JALPOptions.is(this.flags, JALPOptions.SHOW_HEADER)) {
             this.printHeader(classInfo, clazz);
         }
@@ -6,48 +6,47 @@ import tokyo.peya.langjal.compiler.jvm.ClassReferenceType;
 public sealed interface JALAttribute {
     String name();
 
-    static JALAttribute[] readAttributes(JALClassReader reader, JALConstantPoolEntry[] pool) {
+    static JALAttribute[] readAttributes(JALClassReader reader) {
         int count = reader.readUnsignedShort();
         JALAttribute[] attributes = new JALAttribute[count];
         for (int i = 0; i < count; i++) {
             int nameIdx = reader.readUnsignedShort();
-            String name = JALClassReader.getFromConstants(
-                    pool,
+            String name = reader.getFromConstants(
                     nameIdx,
                     entry -> entry instanceof JALConstantPoolEntry.Utf8Entry,
                     entry -> ((JALConstantPoolEntry.Utf8Entry) entry).value()
             );
             attributes[i] = switch (name) {
-                case "ConstantValue" -> ConstantValueAttribute.read(reader, pool);
-                case "Code" -> CodeAttribute.read(reader, pool);
+                case "ConstantValue" -> ConstantValueAttribute.read(reader);
+                case "Code" -> CodeAttribute.read(reader);
                 case "StackMapTable" -> StackMapTableAttribute.read(reader);
-                case "Exceptions" -> ExceptionsAttribute.read(reader, pool);
-                case "InnerClasses" -> InnerClassesAttribute.read(reader, pool);
-                case "EnclosingMethod" -> EnclosingMethodAttribute.read(reader, pool);
+                case "Exceptions" -> ExceptionsAttribute.read(reader);
+                case "InnerClasses" -> InnerClassesAttribute.read(reader);
+                case "EnclosingMethod" -> EnclosingMethodAttribute.read(reader);
                 case "Synthetic" -> SyntheticAttribute.read(reader);
-                case "Signature" -> SignatureAttribute.read(reader, pool);
-                case "SourceFile" -> SourceFileAttribute.read(reader, pool);
+                case "Signature" -> SignatureAttribute.read(reader);
+                case "SourceFile" -> SourceFileAttribute.read(reader);
                 case "SourceDebugExtension" -> SourceDebugExtensionAttribute.read(reader);
                 case "LineNumberTable" -> LineNumberTableAttribute.read(reader);
-                case "LocalVariableTable" -> LocalVariableTableAttribute.read(reader, pool);
-                case "LocalVariableTypeTable" -> LocalVariableTypeTableAttribute.read(reader, pool);
+                case "LocalVariableTable" -> LocalVariableTableAttribute.read(reader);
+                case "LocalVariableTypeTable" -> LocalVariableTypeTableAttribute.read(reader);
                 case "Deprecated" -> DeprecatedAttribute.read(reader);
-                case "RuntimeVisibleAnnotations" -> RuntimeVisibleAnnotationsAttribute.read(reader, pool);
-                case "RuntimeInvisibleAnnotations" -> RuntimeInvisibleAnnotationsAttribute.read(reader, pool);
-                case "RuntimeVisibleParameterAnnotations" -> RuntimeVisibleParameterAnnotationsAttribute.read(reader, pool);
-                case "RuntimeInvisibleParameterAnnotations" -> RuntimeInvisibleParameterAnnotationsAttribute.read(reader, pool);
-                case "RuntimeVisibleTypeAnnotations" -> RuntimeVisibleTypeAnnotationsAttribute.read(reader, pool);
-                case "RuntimeInvisibleTypeAnnotations" -> RuntimeInvisibleTypeAnnotationsAttribute.read(reader, pool);
-                case "AnnotationDefault" -> AnnotationDefaultAttribute.read(reader, pool);
-                case "BootstrapMethods" -> BootstrapMethodsAttribute.read(reader, pool);
-                case "MethodParameters" -> MethodParametersAttribute.read(reader, pool);
-                case "Module" -> ModuleAttribute.read(reader, pool);
-                case "ModulePackages" -> ModulePackagesAttribute.read(reader, pool);
-                case "ModuleMainClass" -> ModuleMainClassAttribute.read(reader, pool);
-                case "NestHost" -> NestHostAttribute.read(reader, pool);
-                case "NestMembers" -> NestMembersAttribute.read(reader, pool);
-                case "Record" -> RecordAttribute.read(reader, pool);
-                case "PermittedSubclasses" -> PermittedSubclassesAttribute.read(reader, pool);
+                case "RuntimeVisibleAnnotations" -> RuntimeVisibleAnnotationsAttribute.read(reader);
+                case "RuntimeInvisibleAnnotations" -> RuntimeInvisibleAnnotationsAttribute.read(reader);
+                case "RuntimeVisibleParameterAnnotations" -> RuntimeVisibleParameterAnnotationsAttribute.read(reader);
+                case "RuntimeInvisibleParameterAnnotations" -> RuntimeInvisibleParameterAnnotationsAttribute.read(reader);
+                case "RuntimeVisibleTypeAnnotations" -> RuntimeVisibleTypeAnnotationsAttribute.read(reader);
+                case "RuntimeInvisibleTypeAnnotations" -> RuntimeInvisibleTypeAnnotationsAttribute.read(reader);
+                case "AnnotationDefault" -> AnnotationDefaultAttribute.read(reader);
+                case "BootstrapMethods" -> BootstrapMethodsAttribute.read(reader);
+                case "MethodParameters" -> MethodParametersAttribute.read(reader);
+                case "Module" -> ModuleAttribute.read(reader);
+                case "ModulePackages" -> ModulePackagesAttribute.read(reader);
+                case "ModuleMainClass" -> ModuleMainClassAttribute.read(reader);
+                case "NestHost" -> NestHostAttribute.read(reader);
+                case "NestMembers" -> NestMembersAttribute.read(reader);
+                case "Record" -> RecordAttribute.read(reader);
+                case "PermittedSubclasses" -> PermittedSubclassesAttribute.read(reader);
                 default -> UnknownAttribute.read(name, reader);
             };
             reader.finishAttribute(name);
@@ -67,33 +66,33 @@ public sealed interface JALAttribute {
         }
     }
 
-    private static String cpUtf8(JALConstantPoolEntry[] pool, int idx) {
-        return JALClassReader.getFromConstants(
-                pool, idx,
+    private static String cpUtf8(JALClassReader reader, int idx) {
+        return reader.getFromConstants(
+                idx,
                 entry -> entry instanceof JALConstantPoolEntry.Utf8Entry,
                 entry -> ((JALConstantPoolEntry.Utf8Entry) entry).value()
         );
     }
 
-    private static JALConstantPoolEntry.ClassEntry cpClass(JALConstantPoolEntry[] pool, int idx) {
-        return JALClassReader.getFromConstants(
-                pool, idx,
+    private static JALConstantPoolEntry.ClassEntry cpClass(JALClassReader reader, int idx) {
+        return reader.getFromConstants(
+                idx,
                 entry -> entry instanceof JALConstantPoolEntry.ClassEntry,
                 entry -> (JALConstantPoolEntry.ClassEntry) entry
         );
     }
 
-    private static JALConstantPoolEntry.NameAndTypeEntry cpNameAndType(JALConstantPoolEntry[] pool, int idx) {
-        return JALClassReader.getFromConstants(
-                pool, idx,
+    private static JALConstantPoolEntry.NameAndTypeEntry cpNameAndType(JALClassReader reader, int idx) {
+        return reader.getFromConstants(
+                idx,
                 entry -> entry instanceof JALConstantPoolEntry.NameAndTypeEntry,
                 entry -> (JALConstantPoolEntry.NameAndTypeEntry) entry
         );
     }
 
-    private static JALConstantPoolEntry cpEntry(JALConstantPoolEntry[] pool, int idx) {
-        return JALClassReader.getFromConstants(
-                pool, idx,
+    private static JALConstantPoolEntry cpEntry(JALClassReader reader, int idx) {
+        return reader.getFromConstants(
+                idx,
                 entry -> true,
                 entry -> entry
         );
@@ -106,10 +105,10 @@ public sealed interface JALAttribute {
     }
 
     record ConstantValueAttribute(String name, JALConstantPoolEntry constant) implements JALAttribute {
-        public static ConstantValueAttribute read(JALClassReader reader, JALConstantPoolEntry[] pool) {
+        public static ConstantValueAttribute read(JALClassReader reader) {
             int length = readLength(reader);
             requireLength("ConstantValue", 2, length);
-            return new ConstantValueAttribute("ConstantValue", cpEntry(pool, reader.readUnsignedShort()));
+            return new ConstantValueAttribute("ConstantValue", cpEntry(reader, reader.readUnsignedShort()));
         }
     }
 
@@ -118,7 +117,7 @@ public sealed interface JALAttribute {
         record ExceptionHandler(int startPc, int endPc, int handlerPc, JALConstantPoolEntry.ClassEntry catchType) {
         }
 
-        public static CodeAttribute read(JALClassReader reader, JALConstantPoolEntry[] pool) {
+        public static CodeAttribute read(JALClassReader reader) {
             readLength(reader); // variable
             int maxStack = reader.readUnsignedShort();
             int maxLocals = reader.readUnsignedShort();
@@ -131,10 +130,10 @@ public sealed interface JALAttribute {
                 int endPc = reader.readUnsignedShort();
                 int handlerPc = reader.readUnsignedShort();
                 int catchTypeIdx = reader.readUnsignedShort();
-                JALConstantPoolEntry.ClassEntry catchType = catchTypeIdx == 0 ? null : cpClass(pool, catchTypeIdx);
+                JALConstantPoolEntry.ClassEntry catchType = catchTypeIdx == 0 ? null : cpClass(reader, catchTypeIdx);
                 handlers[i] = new ExceptionHandler(startPc, endPc, handlerPc, catchType);
             }
-            JALAttribute[] nested = readAttributes(reader, pool);
+            JALAttribute[] nested = readAttributes(reader);
             return new CodeAttribute("Code", maxStack, maxLocals, code, handlers, nested);
         }
 
@@ -157,12 +156,12 @@ public sealed interface JALAttribute {
     }
 
     record ExceptionsAttribute(String name, JALConstantPoolEntry.ClassEntry[] exceptions) implements JALAttribute {
-        public static ExceptionsAttribute read(JALClassReader reader, JALConstantPoolEntry[] pool) {
+        public static ExceptionsAttribute read(JALClassReader reader) {
             int length = readLength(reader);
             int n = reader.readUnsignedShort();
             requireLength("Exceptions", 2 + 2 * n, length);
             JALConstantPoolEntry.ClassEntry[] ex = new JALConstantPoolEntry.ClassEntry[n];
-            for (int i = 0; i < n; i++) ex[i] = cpClass(pool, reader.readUnsignedShort());
+            for (int i = 0; i < n; i++) ex[i] = cpClass(reader, reader.readUnsignedShort());
             return new ExceptionsAttribute("Exceptions", ex);
         }
     }
@@ -171,7 +170,7 @@ public sealed interface JALAttribute {
         record InnerClassInfo(JALConstantPoolEntry.ClassEntry innerClass, JALConstantPoolEntry.ClassEntry outerClass, String innerName, int accessFlags) {
         }
 
-        public static InnerClassesAttribute read(JALClassReader reader, JALConstantPoolEntry[] pool) {
+        public static InnerClassesAttribute read(JALClassReader reader) {
             readLength(reader);
             int n = reader.readUnsignedShort();
             InnerClassInfo[] classes = new InnerClassInfo[n];
@@ -181,9 +180,9 @@ public sealed interface JALAttribute {
                 int nameIdx = reader.readUnsignedShort();
                 int accessFlags = reader.readUnsignedShort();
                 classes[i] = new InnerClassInfo(
-                        innerIdx == 0 ? null : cpClass(pool, innerIdx),
-                        outerIdx == 0 ? null : cpClass(pool, outerIdx),
-                        nameIdx == 0 ? null : cpUtf8(pool, nameIdx),
+                        innerIdx == 0 ? null : cpClass(reader, innerIdx),
+                        outerIdx == 0 ? null : cpClass(reader, outerIdx),
+                        nameIdx == 0 ? null : cpUtf8(reader, nameIdx),
                         accessFlags
                 );
             }
@@ -193,12 +192,12 @@ public sealed interface JALAttribute {
 
     record EnclosingMethodAttribute(String name, JALConstantPoolEntry.ClassEntry owner, JALConstantPoolEntry.NameAndTypeEntry method)
             implements JALAttribute {
-        public static EnclosingMethodAttribute read(JALClassReader reader, JALConstantPoolEntry[] pool) {
+        public static EnclosingMethodAttribute read(JALClassReader reader) {
             int length = readLength(reader);
             requireLength("EnclosingMethod", 4, length);
-            JALConstantPoolEntry.ClassEntry owner = cpClass(pool, reader.readUnsignedShort());
+            JALConstantPoolEntry.ClassEntry owner = cpClass(reader, reader.readUnsignedShort());
             int methodIdx = reader.readUnsignedShort();
-            return new EnclosingMethodAttribute("EnclosingMethod", owner, methodIdx == 0 ? null : cpNameAndType(pool, methodIdx));
+            return new EnclosingMethodAttribute("EnclosingMethod", owner, methodIdx == 0 ? null : cpNameAndType(reader, methodIdx));
         }
     }
 
@@ -210,16 +209,16 @@ public sealed interface JALAttribute {
     }
 
     record SignatureAttribute(String name, String signature) implements JALAttribute {
-        public static SignatureAttribute read(JALClassReader reader, JALConstantPoolEntry[] pool) {
+        public static SignatureAttribute read(JALClassReader reader) {
             requireLength("Signature", 2, readLength(reader));
-            return new SignatureAttribute("Signature", cpUtf8(pool, reader.readUnsignedShort()));
+            return new SignatureAttribute("Signature", cpUtf8(reader, reader.readUnsignedShort()));
         }
     }
 
     record SourceFileAttribute(String name, String sourceFile) implements JALAttribute {
-        public static SourceFileAttribute read(JALClassReader reader, JALConstantPoolEntry[] pool) {
+        public static SourceFileAttribute read(JALClassReader reader) {
             requireLength("SourceFile", 2, readLength(reader));
-            return new SourceFileAttribute("SourceFile", cpUtf8(pool, reader.readUnsignedShort()));
+            return new SourceFileAttribute("SourceFile", cpUtf8(reader, reader.readUnsignedShort()));
         }
     }
 
@@ -247,7 +246,7 @@ public sealed interface JALAttribute {
         record Entry(int startPc, int length, String name, String descriptor, int index) {
         }
 
-        public static LocalVariableTableAttribute read(JALClassReader reader, JALConstantPoolEntry[] pool) {
+        public static LocalVariableTableAttribute read(JALClassReader reader) {
             readLength(reader);
             int n = reader.readUnsignedShort();
             Entry[] entries = new Entry[n];
@@ -255,8 +254,8 @@ public sealed interface JALAttribute {
                 entries[i] = new Entry(
                         reader.readUnsignedShort(),
                         reader.readUnsignedShort(),
-                        cpUtf8(pool, reader.readUnsignedShort()),
-                        cpUtf8(pool, reader.readUnsignedShort()),
+                        cpUtf8(reader, reader.readUnsignedShort()),
+                        cpUtf8(reader, reader.readUnsignedShort()),
                         reader.readUnsignedShort()
                 );
             }
@@ -268,7 +267,7 @@ public sealed interface JALAttribute {
         record Entry(int startPc, int length, String name, String signature, int index) {
         }
 
-        public static LocalVariableTypeTableAttribute read(JALClassReader reader, JALConstantPoolEntry[] pool) {
+        public static LocalVariableTypeTableAttribute read(JALClassReader reader) {
             readLength(reader);
             int n = reader.readUnsignedShort();
             Entry[] entries = new Entry[n];
@@ -276,8 +275,8 @@ public sealed interface JALAttribute {
                 entries[i] = new Entry(
                         reader.readUnsignedShort(),
                         reader.readUnsignedShort(),
-                        cpUtf8(pool, reader.readUnsignedShort()),
-                        cpUtf8(pool, reader.readUnsignedShort()),
+                        cpUtf8(reader, reader.readUnsignedShort()),
+                        cpUtf8(reader, reader.readUnsignedShort()),
                         reader.readUnsignedShort()
                 );
             }
@@ -293,57 +292,57 @@ public sealed interface JALAttribute {
     }
 
     record RuntimeVisibleAnnotationsAttribute(String name, Annotation[] annotations) implements JALAttribute {
-        public static RuntimeVisibleAnnotationsAttribute read(JALClassReader reader, JALConstantPoolEntry[] pool) {
+        public static RuntimeVisibleAnnotationsAttribute read(JALClassReader reader) {
             readLength(reader);
-            return new RuntimeVisibleAnnotationsAttribute("RuntimeVisibleAnnotations", readAnnotations(reader, pool));
+            return new RuntimeVisibleAnnotationsAttribute("RuntimeVisibleAnnotations", readAnnotations(reader));
         }
     }
 
     record RuntimeInvisibleAnnotationsAttribute(String name, Annotation[] annotations) implements JALAttribute {
-        public static RuntimeInvisibleAnnotationsAttribute read(JALClassReader reader, JALConstantPoolEntry[] pool) {
+        public static RuntimeInvisibleAnnotationsAttribute read(JALClassReader reader) {
             readLength(reader);
-            return new RuntimeInvisibleAnnotationsAttribute("RuntimeInvisibleAnnotations", readAnnotations(reader, pool));
+            return new RuntimeInvisibleAnnotationsAttribute("RuntimeInvisibleAnnotations", readAnnotations(reader));
         }
     }
 
     record RuntimeVisibleParameterAnnotationsAttribute(String name, Annotation[][] parameterAnnotations) implements JALAttribute {
-        public static RuntimeVisibleParameterAnnotationsAttribute read(JALClassReader reader, JALConstantPoolEntry[] pool) {
+        public static RuntimeVisibleParameterAnnotationsAttribute read(JALClassReader reader) {
             readLength(reader);
             int num = reader.readUnsignedByte();
             Annotation[][] parameters = new Annotation[num][];
-            for (int i = 0; i < num; i++) parameters[i] = readAnnotations(reader, pool);
+            for (int i = 0; i < num; i++) parameters[i] = readAnnotations(reader);
             return new RuntimeVisibleParameterAnnotationsAttribute("RuntimeVisibleParameterAnnotations", parameters);
         }
     }
 
     record RuntimeInvisibleParameterAnnotationsAttribute(String name, Annotation[][] parameterAnnotations) implements JALAttribute {
-        public static RuntimeInvisibleParameterAnnotationsAttribute read(JALClassReader reader, JALConstantPoolEntry[] pool) {
+        public static RuntimeInvisibleParameterAnnotationsAttribute read(JALClassReader reader) {
             readLength(reader);
             int num = reader.readUnsignedByte();
             Annotation[][] parameters = new Annotation[num][];
-            for (int i = 0; i < num; i++) parameters[i] = readAnnotations(reader, pool);
+            for (int i = 0; i < num; i++) parameters[i] = readAnnotations(reader);
             return new RuntimeInvisibleParameterAnnotationsAttribute("RuntimeInvisibleParameterAnnotations", parameters);
         }
     }
 
     record RuntimeVisibleTypeAnnotationsAttribute(String name, TypeAnnotation[] annotations) implements JALAttribute {
-        public static RuntimeVisibleTypeAnnotationsAttribute read(JALClassReader reader, JALConstantPoolEntry[] pool) {
+        public static RuntimeVisibleTypeAnnotationsAttribute read(JALClassReader reader) {
             readLength(reader);
-            return new RuntimeVisibleTypeAnnotationsAttribute("RuntimeVisibleTypeAnnotations", readTypeAnnotations(reader, pool));
+            return new RuntimeVisibleTypeAnnotationsAttribute("RuntimeVisibleTypeAnnotations", readTypeAnnotations(reader));
         }
     }
 
     record RuntimeInvisibleTypeAnnotationsAttribute(String name, TypeAnnotation[] annotations) implements JALAttribute {
-        public static RuntimeInvisibleTypeAnnotationsAttribute read(JALClassReader reader, JALConstantPoolEntry[] pool) {
+        public static RuntimeInvisibleTypeAnnotationsAttribute read(JALClassReader reader) {
             readLength(reader);
-            return new RuntimeInvisibleTypeAnnotationsAttribute("RuntimeInvisibleTypeAnnotations", readTypeAnnotations(reader, pool));
+            return new RuntimeInvisibleTypeAnnotationsAttribute("RuntimeInvisibleTypeAnnotations", readTypeAnnotations(reader));
         }
     }
 
     record AnnotationDefaultAttribute(String name, ElementValue defaultValue) implements JALAttribute {
-        public static AnnotationDefaultAttribute read(JALClassReader reader, JALConstantPoolEntry[] pool) {
+        public static AnnotationDefaultAttribute read(JALClassReader reader) {
             readLength(reader);
-            return new AnnotationDefaultAttribute("AnnotationDefault", readElementValue(reader, pool));
+            return new AnnotationDefaultAttribute("AnnotationDefault", readElementValue(reader));
         }
     }
 
@@ -351,19 +350,19 @@ public sealed interface JALAttribute {
         public record BootstrapMethod(JALConstantPoolEntry.MethodHandleEntry bootstrapMethodRef, JALConstantPoolEntry[] arguments) {
         }
 
-        public static BootstrapMethodsAttribute read(JALClassReader reader, JALConstantPoolEntry[] pool) {
+        public static BootstrapMethodsAttribute read(JALClassReader reader) {
             readLength(reader);
             int n = reader.readUnsignedShort();
             BootstrapMethod[] methods = new BootstrapMethod[n];
             for (int i = 0; i < n; i++) {
-                JALConstantPoolEntry.MethodHandleEntry handle = JALClassReader.getFromConstants(
-                        pool, reader.readUnsignedShort(),
+                JALConstantPoolEntry.MethodHandleEntry handle = reader.getFromConstants(
+                        reader.readUnsignedShort(),
                         e -> e instanceof JALConstantPoolEntry.MethodHandleEntry,
                         e -> (JALConstantPoolEntry.MethodHandleEntry) e
                 );
                 int argN = reader.readUnsignedShort();
                 JALConstantPoolEntry[] args = new JALConstantPoolEntry[argN];
-                for (int j = 0; j < argN; j++) args[j] = cpEntry(pool, reader.readUnsignedShort());
+                for (int j = 0; j < argN; j++) args[j] = cpEntry(reader, reader.readUnsignedShort());
                 methods[i] = new BootstrapMethod(handle, args);
             }
             return new BootstrapMethodsAttribute("BootstrapMethods", methods);
@@ -374,13 +373,13 @@ public sealed interface JALAttribute {
         record MethodParameter(String name, int accessFlags) {
         }
 
-        public static MethodParametersAttribute read(JALClassReader reader, JALConstantPoolEntry[] pool) {
+        public static MethodParametersAttribute read(JALClassReader reader) {
             readLength(reader);
             int n = reader.readUnsignedByte();
             MethodParameter[] params = new MethodParameter[n];
             for (int i = 0; i < n; i++) {
                 int nameIdx = reader.readUnsignedShort();
-                params[i] = new MethodParameter(nameIdx == 0 ? null : cpUtf8(pool, nameIdx), reader.readUnsignedShort());
+                params[i] = new MethodParameter(nameIdx == 0 ? null : cpUtf8(reader, nameIdx), reader.readUnsignedShort());
             }
             return new MethodParametersAttribute("MethodParameters", params);
         }
@@ -401,34 +400,34 @@ public sealed interface JALAttribute {
         record Provides(ClassReferenceType serviceName, ClassReferenceType[] implNames) {
         }
 
-        public static ModuleAttribute read(JALClassReader reader, JALConstantPoolEntry[] pool) {
+        public static ModuleAttribute read(JALClassReader reader) {
             readLength(reader);
-            String moduleName = JALClassReader.getFromConstants(pool, reader.readUnsignedShort(),
+            String moduleName = reader.getFromConstants(reader.readUnsignedShort(),
                     e -> e instanceof JALConstantPoolEntry.ModuleEntry, e -> ((JALConstantPoolEntry.ModuleEntry) e).name());
             int moduleFlags = reader.readUnsignedShort();
             int moduleVersionIdx = reader.readUnsignedShort();
-            String moduleVersion = moduleVersionIdx == 0 ? null : cpUtf8(pool, moduleVersionIdx);
+            String moduleVersion = moduleVersionIdx == 0 ? null : cpUtf8(reader, moduleVersionIdx);
 
             int reqN = reader.readUnsignedShort();
             Requires[] requires = new Requires[reqN];
             for (int i = 0; i < reqN; i++) {
-                String reqName = JALClassReader.getFromConstants(pool, reader.readUnsignedShort(),
+                String reqName = reader.getFromConstants(reader.readUnsignedShort(),
                         e -> e instanceof JALConstantPoolEntry.ModuleEntry, e -> ((JALConstantPoolEntry.ModuleEntry) e).name());
                 int flags = reader.readUnsignedShort();
                 int versionIdx = reader.readUnsignedShort();
-                requires[i] = new Requires(reqName, flags, versionIdx == 0 ? null : cpUtf8(pool, versionIdx));
+                requires[i] = new Requires(reqName, flags, versionIdx == 0 ? null : cpUtf8(reader, versionIdx));
             }
 
             int expN = reader.readUnsignedShort();
             Exports[] exports = new Exports[expN];
             for (int i = 0; i < expN; i++) {
-                String packageName = JALClassReader.getFromConstants(pool, reader.readUnsignedShort(),
+                String packageName = reader.getFromConstants(reader.readUnsignedShort(),
                         e -> e instanceof JALConstantPoolEntry.PackageEntry, e -> ((JALConstantPoolEntry.PackageEntry) e).name());
                 int flags = reader.readUnsignedShort();
                 int toN = reader.readUnsignedShort();
                 String[] toModules = new String[toN];
                 for (int j = 0; j < toN; j++) {
-                    toModules[j] = JALClassReader.getFromConstants(pool, reader.readUnsignedShort(),
+                    toModules[j] = reader.getFromConstants(reader.readUnsignedShort(),
                             e -> e instanceof JALConstantPoolEntry.ModuleEntry, e -> ((JALConstantPoolEntry.ModuleEntry) e).name());
                 }
                 exports[i] = new Exports(packageName, flags, toModules);
@@ -437,13 +436,13 @@ public sealed interface JALAttribute {
             int openN = reader.readUnsignedShort();
             Opens[] opens = new Opens[openN];
             for (int i = 0; i < openN; i++) {
-                String packageName = JALClassReader.getFromConstants(pool, reader.readUnsignedShort(),
+                String packageName = reader.getFromConstants(reader.readUnsignedShort(),
                         e -> e instanceof JALConstantPoolEntry.PackageEntry, e -> ((JALConstantPoolEntry.PackageEntry) e).name());
                 int flags = reader.readUnsignedShort();
                 int toN = reader.readUnsignedShort();
                 String[] toModules = new String[toN];
                 for (int j = 0; j < toN; j++) {
-                    toModules[j] = JALClassReader.getFromConstants(pool, reader.readUnsignedShort(),
+                    toModules[j] = reader.getFromConstants(reader.readUnsignedShort(),
                             e -> e instanceof JALConstantPoolEntry.ModuleEntry, e -> ((JALConstantPoolEntry.ModuleEntry) e).name());
                 }
                 opens[i] = new Opens(packageName, flags, toModules);
@@ -451,15 +450,15 @@ public sealed interface JALAttribute {
 
             int usesN = reader.readUnsignedShort();
             ClassReferenceType[] uses = new ClassReferenceType[usesN];
-            for (int i = 0; i < usesN; i++) uses[i] = cpClass(pool, reader.readUnsignedShort()).name();
+            for (int i = 0; i < usesN; i++) uses[i] = cpClass(reader, reader.readUnsignedShort()).name();
 
             int providesN = reader.readUnsignedShort();
             Provides[] provides = new Provides[providesN];
             for (int i = 0; i < providesN; i++) {
-                ClassReferenceType service = cpClass(pool, reader.readUnsignedShort()).name();
+                ClassReferenceType service = cpClass(reader, reader.readUnsignedShort()).name();
                 int implN = reader.readUnsignedShort();
                 ClassReferenceType[] impls = new ClassReferenceType[implN];
-                for (int j = 0; j < implN; j++) impls[j] = cpClass(pool, reader.readUnsignedShort()).name();
+                for (int j = 0; j < implN; j++) impls[j] = cpClass(reader, reader.readUnsignedShort()).name();
                 provides[i] = new Provides(service, impls);
             }
             return new ModuleAttribute("Module", moduleName, moduleFlags, moduleVersion, requires, exports, opens, uses, provides);
@@ -467,12 +466,12 @@ public sealed interface JALAttribute {
     }
 
     record ModulePackagesAttribute(String name, String[] packages) implements JALAttribute {
-        public static ModulePackagesAttribute read(JALClassReader reader, JALConstantPoolEntry[] pool) {
+        public static ModulePackagesAttribute read(JALClassReader reader) {
             readLength(reader);
             int n = reader.readUnsignedShort();
             String[] packages = new String[n];
             for (int i = 0; i < n; i++) {
-                packages[i] = JALClassReader.getFromConstants(pool, reader.readUnsignedShort(),
+                packages[i] = reader.getFromConstants(reader.readUnsignedShort(),
                         e -> e instanceof JALConstantPoolEntry.PackageEntry, e -> ((JALConstantPoolEntry.PackageEntry) e).name());
             }
             return new ModulePackagesAttribute("ModulePackages", packages);
@@ -480,25 +479,25 @@ public sealed interface JALAttribute {
     }
 
     record ModuleMainClassAttribute(String name, JALConstantPoolEntry.ClassEntry mainClass) implements JALAttribute {
-        public static ModuleMainClassAttribute read(JALClassReader reader, JALConstantPoolEntry[] pool) {
+        public static ModuleMainClassAttribute read(JALClassReader reader) {
             requireLength("ModuleMainClass", 2, readLength(reader));
-            return new ModuleMainClassAttribute("ModuleMainClass", cpClass(pool, reader.readUnsignedShort()));
+            return new ModuleMainClassAttribute("ModuleMainClass", cpClass(reader, reader.readUnsignedShort()));
         }
     }
 
     record NestHostAttribute(String name, JALConstantPoolEntry.ClassEntry hostClass) implements JALAttribute {
-        public static NestHostAttribute read(JALClassReader reader, JALConstantPoolEntry[] pool) {
+        public static NestHostAttribute read(JALClassReader reader) {
             requireLength("NestHost", 2, readLength(reader));
-            return new NestHostAttribute("NestHost", cpClass(pool, reader.readUnsignedShort()));
+            return new NestHostAttribute("NestHost", cpClass(reader, reader.readUnsignedShort()));
         }
     }
 
     record NestMembersAttribute(String name, JALConstantPoolEntry.ClassEntry[] classes) implements JALAttribute {
-        public static NestMembersAttribute read(JALClassReader reader, JALConstantPoolEntry[] pool) {
+        public static NestMembersAttribute read(JALClassReader reader) {
             readLength(reader);
             int n = reader.readUnsignedShort();
             JALConstantPoolEntry.ClassEntry[] classes = new JALConstantPoolEntry.ClassEntry[n];
-            for (int i = 0; i < n; i++) classes[i] = cpClass(pool, reader.readUnsignedShort());
+            for (int i = 0; i < n; i++) classes[i] = cpClass(reader, reader.readUnsignedShort());
             return new NestMembersAttribute("NestMembers", classes);
         }
     }
@@ -507,14 +506,14 @@ public sealed interface JALAttribute {
         record RecordComponent(String componentName, String descriptor, JALAttribute[] attributes) {
         }
 
-        public static RecordAttribute read(JALClassReader reader, JALConstantPoolEntry[] pool) {
+        public static RecordAttribute read(JALClassReader reader) {
             readLength(reader);
             int n = reader.readUnsignedShort();
             RecordComponent[] components = new RecordComponent[n];
             for (int i = 0; i < n; i++) {
-                String componentName = cpUtf8(pool, reader.readUnsignedShort());
-                String descriptor = cpUtf8(pool, reader.readUnsignedShort());
-                JALAttribute[] attrs = readAttributes(reader, pool);
+                String componentName = cpUtf8(reader, reader.readUnsignedShort());
+                String descriptor = cpUtf8(reader, reader.readUnsignedShort());
+                JALAttribute[] attrs = readAttributes(reader);
                 components[i] = new RecordComponent(componentName, descriptor, attrs);
             }
             return new RecordAttribute("Record", components);
@@ -522,11 +521,11 @@ public sealed interface JALAttribute {
     }
 
     record PermittedSubclassesAttribute(String name, JALConstantPoolEntry.ClassEntry[] classes) implements JALAttribute {
-        public static PermittedSubclassesAttribute read(JALClassReader reader, JALConstantPoolEntry[] pool) {
+        public static PermittedSubclassesAttribute read(JALClassReader reader) {
             readLength(reader);
             int n = reader.readUnsignedShort();
             JALConstantPoolEntry.ClassEntry[] classes = new JALConstantPoolEntry.ClassEntry[n];
-            for (int i = 0; i < n; i++) classes[i] = cpClass(pool, reader.readUnsignedShort());
+            for (int i = 0; i < n; i++) classes[i] = cpClass(reader, reader.readUnsignedShort());
             return new PermittedSubclassesAttribute("PermittedSubclasses", classes);
         }
     }
@@ -599,42 +598,42 @@ public sealed interface JALAttribute {
     record TypePathEntry(int kind, int argumentIndex) {
     }
 
-    private static Annotation[] readAnnotations(JALClassReader reader, JALConstantPoolEntry[] pool) {
+    private static Annotation[] readAnnotations(JALClassReader reader) {
         int n = reader.readUnsignedShort();
         Annotation[] annotations = new Annotation[n];
-        for (int i = 0; i < n; i++) annotations[i] = readAnnotation(reader, pool);
+        for (int i = 0; i < n; i++) annotations[i] = readAnnotation(reader);
         return annotations;
     }
 
-    private static Annotation readAnnotation(JALClassReader reader, JALConstantPoolEntry[] pool) {
-        String type = cpUtf8(pool, reader.readUnsignedShort());
+    private static Annotation readAnnotation(JALClassReader reader) {
+        String type = cpUtf8(reader, reader.readUnsignedShort());
         int n = reader.readUnsignedShort();
         ElementNameValuePair[] pairs = new ElementNameValuePair[n];
         for (int i = 0; i < n; i++) {
-            String name = cpUtf8(pool, reader.readUnsignedShort());
-            pairs[i] = new ElementNameValuePair(name, readElementValue(reader, pool));
+            String name = cpUtf8(reader, reader.readUnsignedShort());
+            pairs[i] = new ElementNameValuePair(name, readElementValue(reader));
         }
         return new Annotation(type, pairs);
     }
 
-    private static ElementValue readElementValue(JALClassReader reader, JALConstantPoolEntry[] pool) {
+    private static ElementValue readElementValue(JALClassReader reader) {
         char tag = (char) reader.readUnsignedByte();
         return switch (tag) {
-            case 'B', 'C', 'D', 'F', 'I', 'J', 'S', 'Z', 's' -> new ConstElementValue(tag, cpEntry(pool, reader.readUnsignedShort()));
-            case 'e' -> new EnumElementValue(tag, cpUtf8(pool, reader.readUnsignedShort()), cpUtf8(pool, reader.readUnsignedShort()));
-            case 'c' -> new ClassElementValue(tag, cpUtf8(pool, reader.readUnsignedShort()));
-            case '@' -> new AnnotationElementValue(tag, readAnnotation(reader, pool));
+            case 'B', 'C', 'D', 'F', 'I', 'J', 'S', 'Z', 's' -> new ConstElementValue(tag, cpEntry(reader, reader.readUnsignedShort()));
+            case 'e' -> new EnumElementValue(tag, cpUtf8(reader, reader.readUnsignedShort()), cpUtf8(reader, reader.readUnsignedShort()));
+            case 'c' -> new ClassElementValue(tag, cpUtf8(reader, reader.readUnsignedShort()));
+            case '@' -> new AnnotationElementValue(tag, readAnnotation(reader));
             case '[' -> {
                 int n = reader.readUnsignedShort();
                 ElementValue[] values = new ElementValue[n];
-                for (int i = 0; i < n; i++) values[i] = readElementValue(reader, pool);
+                for (int i = 0; i < n; i++) values[i] = readElementValue(reader);
                 yield new ArrayElementValue(tag, values);
             }
             default -> throw new IllegalStateException("Unknown element value tag: " + tag);
         };
     }
 
-    private static TypeAnnotation[] readTypeAnnotations(JALClassReader reader, JALConstantPoolEntry[] pool) {
+    private static TypeAnnotation[] readTypeAnnotations(JALClassReader reader) {
         int n = reader.readUnsignedShort();
         TypeAnnotation[] annotations = new TypeAnnotation[n];
         for (int i = 0; i < n; i++) {
@@ -645,7 +644,7 @@ public sealed interface JALAttribute {
             for (int j = 0; j < pathLength; j++) {
                 path[j] = new TypePathEntry(reader.readUnsignedByte(), reader.readUnsignedByte());
             }
-            annotations[i] = new TypeAnnotation(targetType, target, path, readAnnotation(reader, pool));
+            annotations[i] = new TypeAnnotation(targetType, target, path, readAnnotation(reader));
         }
         return annotations;
     }
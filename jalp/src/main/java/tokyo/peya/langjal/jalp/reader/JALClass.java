@@ -5,28 +5,159 @@ import tokyo.peya.langjal.compiler.jvm.AccessAttributeSet;
 import tokyo.peya.langjal.compiler.jvm.AccessLevel;
 import tokyo.peya.langjal.compiler.jvm.ClassReferenceType;
 
-public record JALClass(
-        int majorVersion,
-        int minorVersion,
+/**
+ * A class read from a class file.
+ * <p>
+ * When read by {@link JALClassReader}, the constant pool and the attributes are decoded on first access.
+ */
+public final class JALClass {
+    private final int majorVersion;
+    private final int minorVersion;
 
-        JALConstantPoolEntry[] constants,
+    private final JALConstantPoolEntry[] constants;
+    @Nullable
+    private final JALClassReader reader;
+    private volatile boolean constantsResolved;
 
-        AccessLevel access,
-        AccessAttributeSet accessAttrs,
+    private final AccessLevel access;
+    private final AccessAttributeSet accessAttrs;
 
-        ClassReferenceType thisName,
-        ClassReferenceType superName,
+    private final ClassReferenceType thisName;
+    private final ClassReferenceType superName;
 
-        ClassReferenceType[] interfaces,
+    private final ClassReferenceType[] interfaces;
 
-        JALField[] fields,
-        JALMethod[] methods,
+    private final JALField[] fields;
+    private final JALMethod[] methods;
+
+    private final LazyAttributes attributes;
+
+    public JALClass(int majorVersion,
+                    int minorVersion,
+                    JALConstantPoolEntry[] constants,
+                    AccessLevel access,
+                    AccessAttributeSet accessAttrs,
+                    ClassReferenceType thisName,
+                    ClassReferenceType superName,
+                    ClassReferenceType[] interfaces,
+                    JALField[] fields,
+                    JALMethod[] methods,
+                    JALAttribute[] attributes) {
+        this(majorVersion, minorVersion, constants, null, access, accessAttrs, thisName, superName,
+             interfaces, fields, methods, new LazyAttributes(attributes)
+        );
+        this.constantsResolved = true;
+    }
+
+    /* non-public */ JALClass(int majorVersion,
+                              int minorVersion,
+                              JALClassReader reader,
+                              AccessLevel access,
+                              AccessAttributeSet accessAttrs,
+                              ClassReferenceType thisName,
+                              ClassReferenceType superName,
+                              ClassReferenceType[] interfaces,
+                              JALField[] fields,
+                              JALMethod[] methods,
+                              LazyAttributes attributes) {
+        this(majorVersion, minorVersion, null, reader, access, accessAttrs, thisName, superName,
+             interfaces, fields, methods, attributes
+        );
+    }
+
+    private JALClass(int majorVersion,
+                     int minorVersion,
+                     @Nullable JALConstantPoolEntry[] constants,
+                     @Nullable JALClassReader reader,
+                     AccessLevel access,
+                     AccessAttributeSet accessAttrs,
+                     ClassReferenceType thisName,
+                     ClassReferenceType superName,
+                     ClassReferenceType[] interfaces,
+                     JALField[] fields,
+                     JALMethod[] methods,
+                     LazyAttributes attributes) {
+        this.majorVersion = majorVersion;
+        this.minorVersion = minorVersion;
+        this.constants = constants;
+        this.reader = reader;
+        this.access = access;
+        this.accessAttrs = accessAttrs;
+        this.thisName = thisName;
+        this.superName = superName;
+        this.interfaces = interfaces;
+        this.fields = fields;
+        this.methods = methods;
+        this.attributes = attributes;
+    }
+
+    public int majorVersion() {
+        return this.majorVersion;
+    }
+
+    public int minorVersion() {
+        return this.minorVersion;
+    }
+
+    /**
+     * Returns the constant pool, indexed from 1.
+     * Entries which have not been accessed yet are decoded and resolved by this call.
+     *
+     * @return The resolved constant pool.
+     */
+    public JALConstantPoolEntry[] constants() {
+        if (this.reader == null) {
+            return this.constants;
+        }
+        JALConstantPoolEntry[] constants = this.reader.resolveAllConstants();
+        this.constantsResolved = true;
+        return constants;
+    }
+
+    /**
+     * Returns whether every constant pool entry has been decoded.
+     *
+     * @return {@code true} if {@link #constants()} has been called or the pool was given up front.
+     */
+    public boolean isConstantsResolved() {
+        return this.constantsResolved;
+    }
+
+    public AccessLevel access() {
+        return this.access;
+    }
+
+    public AccessAttributeSet accessAttrs() {
+        return this.accessAttrs;
+    }
+
+    public ClassReferenceType thisName() {
+        return this.thisName;
+    }
+
+    public ClassReferenceType superName() {
+        return this.superName;
+    }
+
+    public ClassReferenceType[] interfaces() {
+        return this.interfaces;
+    }
+
+    public JALField[] fields() {
+        return this.fields;
+    }
+
+    public JALMethod[] methods() {
+        return this.methods;
+    }
+
+    public JALAttribute[] attributes() {
+        return this.attributes.get();
+    }
 
-        JALAttribute[] attributes
-) {
     @SuppressWarnings("unchecked")
     public <T> @Nullable T getAttribute(String name) {
-        for (JALAttribute attr : this.attributes) {
+        for (JALAttribute attr : this.attributes()) {
             if (attr.name().equals(name)) {
                 return (T) attr;
             }
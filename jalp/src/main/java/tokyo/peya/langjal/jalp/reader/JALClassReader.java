@@ -7,54 +7,114 @@ import tokyo.peya.langjal.compiler.jvm.ClassReferenceType;
 import java.io.ByteArrayInputStream;
 import java.io.DataInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayDeque;
 import java.util.Deque;
 import java.util.function.Function;
 import java.util.function.Predicate;
 
+/**
+ * Reads class files from a {@link ByteBuffer}, which may be a memory-mapped file.
+ * <p>
+ * Only the offsets of the constant pool entries are collected up front.
+ * Entries are decoded when they are first referenced,
+ * and the attributes of the class, its fields and its methods (including {@code Code} bodies)
+ * are decoded when they are first accessed.
+ * The buffer must therefore not be modified while the returned {@link JALClass} is in use.
+ */
 public class JALClassReader {
-    private final byte[] bytes;
+    private final ByteBuffer buffer;
     private final Deque<Integer> attributeEnds;
+    private int[] constantOffsets;
+    private JALConstantPoolEntry[] constants;
     private int current;
 
-    private JALClassReader(byte[] bytes) {
-        this.bytes = bytes;
+    private JALClassReader(ByteBuffer buffer) {
+        this.buffer = buffer;
         this.attributeEnds = new ArrayDeque<>();
         this.current = 0;
     }
 
+    private JALClassReader(JALClassReader parent, int offset) {
+        this.buffer = parent.buffer;
+        this.attributeEnds = new ArrayDeque<>();
+        this.constantOffsets = parent.constantOffsets;
+        this.constants = parent.constants;
+        this.current = offset;
+    }
+
     public static JALClass read(byte[] bytes) {
-        JALClassReader reader = new JALClassReader(bytes);
+        return read(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Reads a class file from the remaining bytes of the given buffer.
+     * The position of the buffer is not changed.
+     *
+     * @param buffer The buffer containing the class file.
+     * @return The class, whose attributes are decoded from the buffer on first access.
+     */
+    public static JALClass read(ByteBuffer buffer) {
+        JALClassReader reader = new JALClassReader(buffer.slice());
         return reader.readClass();
     }
 
+    /**
+     * Maps the given class file into memory and reads it without copying it onto the heap.
+     *
+     * @param classFile The class file.
+     * @return The class, whose attributes are decoded from the mapped file on first access.
+     * @throws IOException If the file cannot be mapped.
+     */
+    public static JALClass read(Path classFile) throws IOException {
+        return read(map(classFile));
+    }
+
+    /**
+     * Maps the given file read-only into memory.
+     * The mapping stays valid after this method returns, until the buffer is garbage collected.
+     *
+     * @param file The file to map.
+     * @return The mapped buffer.
+     * @throws IOException If the file cannot be opened or mapped.
+     */
+    public static ByteBuffer map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
     private JALClass readClass() {
         this.validateCAFEBABE();  // u4 magic
         int minorVersion = this.readUnsignedShort();  // u2  minor_version
         int majorVersion = this.readUnsignedShort();  // u2  major_version
 
         // (u2 constant_pool_count, cp_info constant_pool[constant_pool_count-1])
-        JALConstantPoolEntry[] constantPool = this.readConstants();
+        this.scanConstants();
 
         int access = this.readUnsignedShort();  // u2 access_flags
         AccessLevel accessLevel = AccessLevel.fromAccess(access);
         AccessAttributeSet accessAttrs = AccessAttributeSet.fromAccess(access);
 
-        JALConstantPoolEntry.ClassEntry thisClass = this.getClassEntryFromConstants(constantPool, this.readUnsignedShort());  // u2 this_class
+        JALConstantPoolEntry.ClassEntry thisClass = this.getClassEntryFromConstants(this.readUnsignedShort());  // u2 this_class
         int superClassIndex = this.readUnsignedShort();  // u2 super_class
         ClassReferenceType superClass = superClassIndex == 0
                 ? ClassReferenceType.OBJECT
-                : this.getClassEntryFromConstants(constantPool, superClassIndex).name();
+                : this.getClassEntryFromConstants(superClassIndex).name();
 
-        ClassReferenceType[] interfaces = this.readInterfaces(constantPool);  // u2 interfaces_count, u2 interfaces[interfaces_count]
-        JALField[] fields = this.readFields(constantPool);  // u2 fields_count, field_info fields[fields_count]
-        JALMethod[] methods = this.readMethods(constantPool);  // u2 methods_count, method_info methods[methods_count]
-        JALAttribute[] attributes = JALAttribute.readAttributes(this, constantPool);  // u2 attributes_count, attribute_info attributes[attributes_count]
+        ClassReferenceType[] interfaces = this.readInterfaces();  // u2 interfaces_count, u2 interfaces[interfaces_count]
+        JALField[] fields = this.readFields();  // u2 fields_count, field_info fields[fields_count]
+        JALMethod[] methods = this.readMethods();  // u2 methods_count, method_info methods[methods_count]
+        LazyAttributes attributes = this.skipAttributes();  // u2 attributes_count, attribute_info attributes[attributes_count]
 
         return new JALClass(
                 majorVersion,
                 minorVersion,
-                constantPool,
+                this,
                 accessLevel,
                 accessAttrs,
                 thisClass.name(),
@@ -73,84 +133,150 @@ public class JALClassReader {
         }
     }
 
-    private JALConstantPoolEntry[] readConstants() {
+    private void scanConstants() {
         int constantPoolCount = this.readUnsignedShort();
-        JALConstantPoolEntry[] constantPool = new JALConstantPoolEntry[constantPoolCount];
+        this.constantOffsets = new int[constantPoolCount];
+        this.constants = new JALConstantPoolEntry[constantPoolCount];
         for (int i = 1; i < constantPoolCount; i++) {
-            constantPool[i] = JALConstantPoolEntry.read(this);
-            if (constantPool[i] instanceof JALConstantPoolEntry.LongEntry
-                    || constantPool[i] instanceof JALConstantPoolEntry.DoubleEntry) {
-                i++;
+            // オフセットだけを記録して，中身は参照されたときにデコードする
+            this.constantOffsets[i] = this.current;
+            int tag = this.readUnsignedByte();
+            switch (tag) {
+                case 1 -> this.skip(this.readUnsignedShort());
+                case 7, 8, 16, 19, 20 -> this.skip(2);
+                case 15 -> this.skip(3);
+                case 3, 4, 9, 10, 11, 12, 17, 18 -> this.skip(4);
+                case 5, 6 -> {
+                    // long と double は 2 スロットを占める
+                    this.skip(8);
+                    i++;
+                }
+                default -> throw new IllegalArgumentException("Invalid constant pool tag: " + tag);
             }
         }
+    }
 
-        // 未解決の参照があるので，定数プールの解決を行う
-        this.resolveConstants(constantPool);
-        return constantPool;
+    /**
+     * Decodes and resolves every constant pool entry which has not been accessed yet.
+     *
+     * @return The fully resolved constant pool.
+     */
+    /* non-public */ JALConstantPoolEntry[] resolveAllConstants() {
+        for (int i = 1; i < this.constants.length; i++) {
+            if (this.constantOffsets[i] != 0) {
+                this.getConstant(i);
+            }
+        }
+        return this.constants;
     }
 
-    private void resolveConstants(JALConstantPoolEntry [] constantPool) {
-        for (int i = 1; i < constantPool.length; i++) {
-            if (constantPool[i] instanceof JALConstantPoolEntry.UnresolvedConstantPoolEntry unresolved) {
-                constantPool[i] = unresolved.resolve(constantPool);
+    /* non-public */ JALConstantPoolEntry getConstant(int idx) {
+        if (idx <= 0 || idx >= this.constants.length) {
+            throw new IllegalArgumentException("Invalid constant pool index: " + idx);
+        }
+        if (this.constantOffsets[idx] == 0) {
+            throw new IllegalArgumentException("Invalid constant pool index: " + idx + " points to an empty slot");
+        }
+
+        // 遅延デコードはスレッド間で共有されるので，プール単位で排他する
+        synchronized (this.constants) {
+            JALConstantPoolEntry entry = this.constants[idx];
+            if (entry == null) {
+                entry = JALConstantPoolEntry.read(this.fork(this.constantOffsets[idx]));
+                this.constants[idx] = entry;
+            }
+            if (entry instanceof JALConstantPoolEntry.UnresolvedConstantPoolEntry unresolved) {
+                // 参照先を先にデコードしておけば，既存の解決処理がそのまま使える
+                this.decodeReferences(this.constantOffsets[idx]);
+                entry = unresolved.resolve(this.constants);
+                this.constants[idx] = entry;
             }
+            return entry;
         }
     }
 
-    private String getStringFromConstants(JALConstantPoolEntry[] constantPool, int index) {
-        return getFromConstants(
-                constantPool,
-                index,
-                entry -> entry instanceof JALConstantPoolEntry.Utf8Entry,
-                entry -> ((JALConstantPoolEntry.Utf8Entry) entry).value()
-        );
+    private void decodeReferences(int offset) {
+        int tag = this.buffer.get(offset) & 0xFF;
+        switch (tag) {
+            case 7, 8, 16, 19, 20 -> this.getConstant(this.getUnsignedShort(offset + 1));
+            case 9, 10, 11, 12 -> {
+                this.getConstant(this.getUnsignedShort(offset + 1));
+                this.getConstant(this.getUnsignedShort(offset + 3));
+            }
+            case 15 -> this.getConstant(this.getUnsignedShort(offset + 2));
+            case 17, 18 -> this.getConstant(this.getUnsignedShort(offset + 3));  // bootstrap_method_attr_index は定数プールを指さない
+            default -> {
+            }
+        }
     }
 
-    private JALConstantPoolEntry.ClassEntry getClassEntryFromConstants(JALConstantPoolEntry[] constantPool, int index) {
-        return getFromConstants(
-                constantPool,
+    private JALConstantPoolEntry.ClassEntry getClassEntryFromConstants(int index) {
+        return this.getFromConstants(
                 index,
                 entry -> entry instanceof JALConstantPoolEntry.ClassEntry,
                 entry -> (JALConstantPoolEntry.ClassEntry) entry
         );
     }
 
-    private ClassReferenceType[]  readInterfaces(JALConstantPoolEntry[] constantPool) {
+    private ClassReferenceType[] readInterfaces() {
         int interfacesCount = this.readUnsignedShort();
         ClassReferenceType[] interfaces = new ClassReferenceType[interfacesCount];
         for (int i = 0; i < interfacesCount; i++) {
-            int index = this.readUnsignedShort();
-            JALConstantPoolEntry.ClassEntry clazz = getFromConstants(
-                    constantPool,
-                    index,
-                    entry -> entry instanceof JALConstantPoolEntry.ClassEntry,
-                    entry -> (JALConstantPoolEntry.ClassEntry) entry
-            );
-
-            interfaces[i] = clazz.name();
+            interfaces[i] = this.getClassEntryFromConstants(this.readUnsignedShort()).name();
         }
 
         return interfaces;
     }
 
-    private JALField[] readFields(JALConstantPoolEntry[] constantPool) {
+    private JALField[] readFields() {
         int fieldsCount = this.readUnsignedShort();
         JALField[] fields = new JALField[fieldsCount];
         for (int i = 0; i < fieldsCount; i++) {
-            fields[i] = JALField.read(this, constantPool);
+            fields[i] = JALField.read(this);
         }
         return fields;
     }
 
-    private JALMethod[] readMethods(JALConstantPoolEntry[] constantPool) {
+    private JALMethod[] readMethods() {
         int methodsCount = this.readUnsignedShort();
         JALMethod[] methods = new JALMethod[methodsCount];
         for (int i = 0; i < methodsCount; i++) {
-            methods[i] = JALMethod.read(this, constantPool);
+            methods[i] = JALMethod.read(this);
         }
         return methods;
     }
 
+    /**
+     * Skips an attribute table, remembering where it starts so that it can be decoded on first access.
+     *
+     * @return The attributes, decoded on first access.
+     */
+    /* non-public */ LazyAttributes skipAttributes() {
+        int start = this.current;
+        int count = this.readUnsignedShort();
+        for (int i = 0; i < count; i++) {
+            this.skip(2);  // u2 attribute_name_index
+            this.skip(this.readInt());  // u4 attribute_length, u1 info[attribute_length]
+        }
+        return new LazyAttributes(this, start);
+    }
+
+    /**
+     * Creates a reader positioned at the given offset, sharing the buffer and the constant pool of this reader.
+     *
+     * @param offset The offset in the class file.
+     * @return The new reader.
+     */
+    /* non-public */ JALClassReader fork(int offset) {
+        return new JALClassReader(this, offset);
+    }
+
+    /* non-public */ <T> T getFromConstants(int idx,
+                                            Predicate<? super JALConstantPoolEntry> type,
+                                            Function<? super JALConstantPoolEntry, T> extractor) {
+        return extract(idx, this.getConstant(idx), type, extractor);
+    }
+
     /* non-public */ static <T> T getFromConstants(JALConstantPoolEntry[] constantPool,
                                           int idx,
                                           Predicate<? super JALConstantPoolEntry> type,
@@ -160,30 +286,63 @@ public class JALClassReader {
             throw new IllegalArgumentException("Invalid constant pool index: " + idx);
         }
 
-        // 型が違う場合もダメ
         JALConstantPoolEntry entry = constantPool[idx];
         if (entry == null) {
             throw new IllegalArgumentException("Invalid constant pool index: " + idx + " points to an empty slot");
         }
+        return extract(idx, entry, type, extractor);
+    }
+
+    private static <T> T extract(int idx,
+                                 JALConstantPoolEntry entry,
+                                 Predicate<? super JALConstantPoolEntry> type,
+                                 Function<? super JALConstantPoolEntry, T> extractor) {
+        // 型が違う場合もダメ
         if (!type.test(entry)) {
             throw new IllegalArgumentException("Expected " + type + " at index " + idx + " but found " + entry.getClass().getSimpleName());
         }
         return extractor.apply(entry);
     }
 
-    /* non-public */ byte[] readBytes(int length) {
-        if (length < 0 || this.current + length > this.bytes.length) {
+    private void require(int length) {
+        if (length < 0 || this.current + length > this.buffer.limit()) {
+            throw new IllegalArgumentException("Unexpected end of class file");
+        }
+    }
+
+    private int getUnsignedShort(int offset) {
+        if (offset + 2 > this.buffer.limit()) {
             throw new IllegalArgumentException("Unexpected end of class file");
         }
+        return this.buffer.getShort(offset) & 0xFFFF;
+    }
+
+    /* non-public */ byte[] readBytes(int length) {
+        this.require(length);
         byte[] result = new byte[length];
-        System.arraycopy(this.bytes, this.current, result, 0, length);
+        this.buffer.get(this.current, result);
         this.current += length;
         return result;
     }
 
     /* non-public */ String readUTF8() {
         int length = this.readUnsignedShort();
+        this.require(length);
+
+        // ASCII だけなら modified UTF-8 と ISO-8859-1 は一致するので，バッファから直接作る
+        boolean ascii = true;
+        for (int i = 0; i < length; i++) {
+            byte b = this.buffer.get(this.current + i);
+            if (b <= 0) {  // 0x00 と 0x80 以上は modified UTF-8 では特別扱い
+                ascii = false;
+                break;
+            }
+        }
         byte[] bytes = this.readBytes(length);
+        if (ascii) {
+            return new String(bytes, StandardCharsets.ISO_8859_1);
+        }
+
         byte[] utf = new byte[length + 2];
         utf[0] = (byte) (length >>> 8);
         utf[1] = (byte) length;
@@ -196,24 +355,22 @@ public class JALClassReader {
     }
 
     /* non-public */ int readUnsignedShort() {
-        int byte1 = this.readByte() & 0xFF;
-        int byte2 = this.readByte() & 0xFF;
-        return (byte1 << 8) | byte2;
+        this.require(2);
+        int value = this.buffer.getShort(this.current) & 0xFFFF;
+        this.current += 2;
+        return value;
     }
 
     /* non-public */ int readByte() {
-        if (this.current >= this.bytes.length) {
-            throw new IllegalArgumentException("Unexpected end of class file");
-        }
-        return this.bytes[this.current++];
+        this.require(1);
+        return this.buffer.get(this.current++);
     }
 
     /* non-public */ int readInt() {
-        int byte1 = this.readByte() & 0xFF;
-        int byte2 = this.readByte() & 0xFF;
-        int byte3 = this.readByte() & 0xFF;
-        int byte4 = this.readByte() & 0xFF;
-        return (byte1 << 24) | (byte2 << 16) | (byte3 << 8) | byte4;
+        this.require(4);
+        int value = this.buffer.getInt(this.current);
+        this.current += 4;
+        return value;
     }
 
     /* non-public */ int readUnsignedByte() {
@@ -221,16 +378,10 @@ public class JALClassReader {
     }
 
     /* non-public */ long readLong() {
-        long byte1 = this.readByte() & 0xFFL;
-        long byte2 = this.readByte() & 0xFFL;
-        long byte3 = this.readByte() & 0xFFL;
-        long byte4 = this.readByte() & 0xFFL;
-        long byte5 = this.readByte() & 0xFFL;
-        long byte6 = this.readByte() & 0xFFL;
-        long byte7 = this.readByte() & 0xFFL;
-        long byte8 = this.readByte() & 0xFFL;
-        return (byte1 << 56) | (byte2 << 48) | (byte3 << 40) | (byte4 << 32) |
-               (byte5 << 24) | (byte6 << 16) | (byte7 << 8) | byte8;
+        this.require(8);
+        long value = this.buffer.getLong(this.current);
+        this.current += 8;
+        return value;
     }
 
     /* non-public */ float readFloat() {
@@ -242,15 +393,11 @@ public class JALClassReader {
     }
 
     /* non-public */ short readShort() {
-        int byte1 = this.readByte() & 0xFF;
-        int byte2 = this.readByte() & 0xFF;
-        return (short) ((byte1 << 8) | byte2);
+        return (short) this.readUnsignedShort();
     }
 
     /* non-public */ char readChar() {
-        int byte1 = this.readByte() & 0xFF;
-        int byte2 = this.readByte() & 0xFF;
-        return (char) ((byte1 << 8) | byte2);
+        return (char) this.readUnsignedShort();
     }
 
     /* non-public */ boolean readBoolean() {
@@ -258,7 +405,8 @@ public class JALClassReader {
     }
 
     /* non-public */ void skip(int length) {
-        this.readBytes(length);
+        this.require(length);
+        this.current += length;
     }
 
     /* non-public */ void markAttributeLength(int length) {
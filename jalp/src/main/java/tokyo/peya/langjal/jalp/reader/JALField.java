@@ -4,37 +4,60 @@ import tokyo.peya.langjal.compiler.jvm.AccessAttributeSet;
 import tokyo.peya.langjal.compiler.jvm.AccessLevel;
 import tokyo.peya.langjal.compiler.jvm.TypeDescriptor;
 
-public record JALField(
-        AccessLevel access,
-        AccessAttributeSet accessAttributeSet,
-        String name,
-        TypeDescriptor descriptor,
-        JALAttribute[] attributes
-) {
+/**
+ * A field read from a class file.
+ * <p>
+ * When read by {@link JALClassReader}, the attributes are decoded on first access.
+ */
+public final class JALField {
+    private final AccessLevel access;
+    private final AccessAttributeSet accessAttributeSet;
+    private final String name;
+    private final TypeDescriptor descriptor;
+    private final LazyAttributes attributes;
+
+    public JALField(AccessLevel access,
+                    AccessAttributeSet accessAttributeSet,
+                    String name,
+                    TypeDescriptor descriptor,
+                    JALAttribute[] attributes) {
+        this(access, accessAttributeSet, name, descriptor, new LazyAttributes(attributes));
+    }
+
     public JALField(AccessAttributeSet accessAttributeSet, String name, TypeDescriptor descriptor, JALAttribute[] attributes) {
         this(AccessLevel.PACKAGE_PRIVATE, accessAttributeSet, name, descriptor, attributes);
     }
 
-    public static JALField read(JALClassReader reader, JALConstantPoolEntry[] constantPool) {
+    private JALField(AccessLevel access,
+                     AccessAttributeSet accessAttributeSet,
+                     String name,
+                     TypeDescriptor descriptor,
+                     LazyAttributes attributes) {
+        this.access = access;
+        this.accessAttributeSet = accessAttributeSet;
+        this.name = name;
+        this.descriptor = descriptor;
+        this.attributes = attributes;
+    }
+
+    public static JALField read(JALClassReader reader) {
         int access = reader.readUnsignedShort();
         AccessLevel accessLevel = AccessLevel.fromAccess(access);
         AccessAttributeSet accessAttrs = AccessAttributeSet.fromAccess(access);
-        String name = JALClassReader.getFromConstants(
-                constantPool,
+        String name = reader.getFromConstants(
                 reader.readUnsignedShort(),
                 entry -> entry instanceof JALConstantPoolEntry.Utf8Entry,
                 entry -> ((JALConstantPoolEntry.Utf8Entry) entry).value()
         );
         TypeDescriptor descriptor = TypeDescriptor.parse(
-                JALClassReader.getFromConstants(
-                        constantPool,
+                reader.getFromConstants(
                         reader.readUnsignedShort(),
                         entry -> entry instanceof JALConstantPoolEntry.Utf8Entry,
                         entry -> ((JALConstantPoolEntry.Utf8Entry) entry).value()
                 )
         );
 
-        JALAttribute[] attributes = JALAttribute.readAttributes(reader, constantPool);
+        LazyAttributes attributes = reader.skipAttributes();
         return new JALField(
                 accessLevel,
                 accessAttrs,
@@ -43,4 +66,24 @@ public record JALField(
                 attributes
         );
     }
+
+    public AccessLevel access() {
+        return this.access;
+    }
+
+    public AccessAttributeSet accessAttributeSet() {
+        return this.accessAttributeSet;
+    }
+
+    public String name() {
+        return this.name;
+    }
+
+    public TypeDescriptor descriptor() {
+        return this.descriptor;
+    }
+
+    public JALAttribute[] attributes() {
+        return this.attributes.get();
+    }
 }
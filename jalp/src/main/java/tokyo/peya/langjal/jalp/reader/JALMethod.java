@@ -5,34 +5,57 @@ import tokyo.peya.langjal.compiler.jvm.AccessAttributeSet;
 import tokyo.peya.langjal.compiler.jvm.AccessLevel;
 import tokyo.peya.langjal.compiler.jvm.MethodDescriptor;
 
-public record JALMethod(
-        AccessLevel access,
-        AccessAttributeSet accessAttrs,
-        String name,
-        MethodDescriptor descriptor,
-        JALAttribute[] attributes
-) {
-    public static JALMethod read(JALClassReader reader, JALConstantPoolEntry[] constantPool) {
+/**
+ * A method read from a class file.
+ * <p>
+ * When read by {@link JALClassReader}, the attributes, including the {@code Code} body, are decoded on first access.
+ */
+public final class JALMethod {
+    private final AccessLevel access;
+    private final AccessAttributeSet accessAttrs;
+    private final String name;
+    private final MethodDescriptor descriptor;
+    private final LazyAttributes attributes;
+
+    public JALMethod(AccessLevel access,
+                     AccessAttributeSet accessAttrs,
+                     String name,
+                     MethodDescriptor descriptor,
+                     JALAttribute[] attributes) {
+        this(access, accessAttrs, name, descriptor, new LazyAttributes(attributes));
+    }
+
+    private JALMethod(AccessLevel access,
+                      AccessAttributeSet accessAttrs,
+                      String name,
+                      MethodDescriptor descriptor,
+                      LazyAttributes attributes) {
+        this.access = access;
+        this.accessAttrs = accessAttrs;
+        this.name = name;
+        this.descriptor = descriptor;
+        this.attributes = attributes;
+    }
+
+    public static JALMethod read(JALClassReader reader) {
         int access = reader.readUnsignedShort();
         AccessLevel accessLevel = AccessLevel.fromAccess(access);
         AccessAttributeSet accessAttrs = AccessAttributeSet.fromAccess(access);
 
-        String name = JALClassReader.getFromConstants(
-                constantPool,
+        String name = reader.getFromConstants(
                 reader.readUnsignedShort(),
                 entry -> entry instanceof JALConstantPoolEntry.Utf8Entry,
                 entry -> ((JALConstantPoolEntry.Utf8Entry) entry).value()
         );
         MethodDescriptor descriptor = MethodDescriptor.parse(
-                JALClassReader.getFromConstants(
-                        constantPool,
+                reader.getFromConstants(
                         reader.readUnsignedShort(),
                         entry -> entry instanceof JALConstantPoolEntry.Utf8Entry,
                         entry -> ((JALConstantPoolEntry.Utf8Entry) entry).value()
                 )
         );
 
-        JALAttribute[] attributes = JALAttribute.readAttributes(reader, constantPool);
+        LazyAttributes attributes = reader.skipAttributes();
         return new JALMethod(
                 accessLevel,
                 accessAttrs,
@@ -42,11 +65,30 @@ public record JALMethod(
         );
     }
 
+    public AccessLevel access() {
+        return this.access;
+    }
+
+    public AccessAttributeSet accessAttrs() {
+        return this.accessAttrs;
+    }
+
+    public String name() {
+        return this.name;
+    }
+
+    public MethodDescriptor descriptor() {
+        return this.descriptor;
+    }
+
+    public JALAttribute[] attributes() {
+        return this.attributes.get();
+    }
 
     @Nullable
     @SuppressWarnings("unchecked")
     public <T extends JALAttribute> T getAttribute(Class<T> attributeClass) {
-        for (JALAttribute attribute : this.attributes) {
+        for (JALAttribute attribute : this.attributes()) {
             if (attributeClass.isInstance(attribute)) {
                 return (T) attribute;
             }
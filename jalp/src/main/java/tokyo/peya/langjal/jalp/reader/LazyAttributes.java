@@ -0,0 +1,38 @@
+package tokyo.peya.langjal.jalp.reader;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * An attribute table which is decoded from the class file on first access.
+ */
+final class LazyAttributes {
+    @Nullable
+    private final JALClassReader reader;
+    private final int offset;
+    @Nullable
+    private volatile JALAttribute[] attributes;
+
+    LazyAttributes(@NotNull JALAttribute[] attributes) {
+        this.reader = null;
+        this.offset = -1;
+        this.attributes = attributes;
+    }
+
+    LazyAttributes(@NotNull JALClassReader reader, int offset) {
+        this.reader = reader;
+        this.offset = offset;
+    }
+
+    @NotNull
+    JALAttribute[] get() {
+        JALAttribute[] attributes = this.attributes;
+        if (attributes == null) {
+            assert this.reader != null;
+            // 同時に呼ばれても結果は同じなので，二重にデコードされるのは許容する
+            attributes = JALAttribute.readAttributes(this.reader.fork(this.offset));
+            this.attributes = attributes;
+        }
+        return attributes;
+    }
+}
@@ -12,6 +12,7 @@ import java.util.jar.JarOutputStream;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -162,6 +163,35 @@ class JALClassFinderTest {
         assertArrayEquals(new byte[] {13}, info.bytes());
     }
 
+    @Test
+    void findClassSeesClassesAddedAfterClasspathWasIndexed() throws IOException {
+        Path first = this.tempDir.resolve("pkg").resolve("First.class");
+        Files.createDirectories(first.getParent());
+        Files.write(first, new byte[] {15});
+        JALClassFinder.findClass("pkg.First", this.tempDir.toString());
+
+        Path second = this.tempDir.resolve("other").resolve("Second.class");
+        Files.createDirectories(second.getParent());
+        Files.write(second, new byte[] {16});
+
+        ClassInfo info = JALClassFinder.findClass("other.Second", this.tempDir.toString());
+
+        assertEquals(second.toAbsolutePath().normalize(), info.classFile());
+    }
+
+    @Test
+    void findClassReadsPlatformClassFromRuntimeImage() {
+        ClassInfo info = JALClassFinder.findClass("java.lang.String", null);
+
+        assertTrue(info.classFile().toString().endsWith("java/lang/String.class"));
+        assertEquals((byte) 0xCA, info.bytes()[0]);
+    }
+
+    @Test
+    void getIndexIsSharedPerClasspath() {
+        assertSame(JALClassFinder.getIndex(this.tempDir.toString()), JALClassFinder.getIndex(this.tempDir.toString()));
+    }
+
     @Test
     void findClassThrowsWhenClassCannotBeFound() {
         IllegalArgumentException exception = assertThrows(
@@ -66,6 +66,15 @@ class MainTest {
         assertTrue(JALPOptions.is(flags, JALPOptions.SHOW_CONSTANTS));
     }
 
+    @Test
+    void jobsDefaultToAvailableProcessors() throws Exception {
+        OptionSet defaults = createOptionParser().parse("--output", "out", "app.jar");
+        OptionSet explicit = createOptionParser().parse("-d", "out", "-j", "3", "app.jar");
+
+        assertEquals(Runtime.getRuntime().availableProcessors(), getJobs(defaults));
+        assertEquals(3, getJobs(explicit));
+    }
+
     private static OptionParser createOptionParser() throws Exception {
         Method method = Main.class.getDeclaredMethod("createOptionParser");
         method.setAccessible(true);
@@ -77,4 +86,10 @@ class MainTest {
         method.setAccessible(true);
         return (int) method.invoke(null, options);
     }
+
+    private static int getJobs(OptionSet options) throws Exception {
+        Method method = Main.class.getDeclaredMethod("getJobs", OptionSet.class);
+        method.setAccessible(true);
+        return (int) method.invoke(null, options);
+    }
 }
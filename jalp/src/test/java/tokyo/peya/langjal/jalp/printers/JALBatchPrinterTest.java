@@ -0,0 +1,143 @@
+package tokyo.peya.langjal.jalp.printers;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import tokyo.peya.langjal.jalp.JALPOptions;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JALBatchPrinterTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void processWritesEveryClassOfJarIntoMirroredTree() throws IOException {
+        Path jar = this.createJar("pkg/A", "pkg/sub/B", "C");
+        Path output = this.tempDir.resolve("out");
+
+        JALBatchPrinter.Result result = new JALBatchPrinter("", JALPOptions.VERBOSE, output, 4)
+                .process(List.of(jar.toString()));
+
+        assertEquals(3, result.printed());
+        assertEquals(List.of(), result.failures());
+        assertTrue(Files.readString(output.resolve("pkg/A.jal")).contains("pkg/A"));
+        assertTrue(Files.isRegularFile(output.resolve("pkg/sub/B.jal")));
+        assertTrue(Files.isRegularFile(output.resolve("C.jal")));
+        // マルチリリース用のエントリは出力しない
+        assertFalse(Files.exists(output.resolve("META-INF")));
+    }
+
+    @Test
+    void outputDoesNotDependOnNumberOfJobs() throws IOException {
+        String[] names = new String[40];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = "pkg" + (i % 3) + "/Class" + i;
+        }
+        Path jar = this.createJar(names);
+        Path serial = this.tempDir.resolve("serial");
+        Path parallel = this.tempDir.resolve("parallel");
+
+        new JALBatchPrinter("", JALPOptions.VERBOSE, serial, 1).process(List.of(jar.toString()));
+        new JALBatchPrinter("", JALPOptions.VERBOSE, parallel, 8).process(List.of(jar.toString()));
+
+        List<Path> files = listFiles(serial);
+        assertEquals(names.length, files.size());
+        assertEquals(files, listFiles(parallel));
+        for (Path file : files) {
+            assertEquals(Files.readString(serial.resolve(file)), Files.readString(parallel.resolve(file)));
+        }
+    }
+
+    @Test
+    void globSelectsClassesFromClasspath() throws IOException {
+        Path classes = this.tempDir.resolve("classes");
+        writeClass(classes, "pkg/A");
+        writeClass(classes, "pkg/sub/B");
+        writeClass(classes, "other/C");
+
+        Path single = this.tempDir.resolve("single");
+        JALBatchPrinter.Result singleResult = new JALBatchPrinter(classes.toString(), JALPOptions.DEFAULT, single, 2)
+                .process(List.of("pkg.*"));
+        Path deep = this.tempDir.resolve("deep");
+        JALBatchPrinter.Result deepResult = new JALBatchPrinter(classes.toString(), JALPOptions.DEFAULT, deep, 2)
+                .process(List.of("pkg/**"));
+
+        assertEquals(1, singleResult.printed());
+        assertEquals(List.of(Path.of("pkg/A.jal")), listFiles(single));
+        assertEquals(2, deepResult.printed());
+        assertEquals(List.of(Path.of("pkg/A.jal"), Path.of("pkg/sub/B.jal")), listFiles(deep));
+    }
+
+    @Test
+    void failuresAreReportedInClassNameOrderWithoutStoppingTheBatch() throws IOException {
+        Path classes = this.tempDir.resolve("classes");
+        writeClass(classes, "pkg/A");
+        Files.write(classes.resolve("pkg/Broken2.class"), new byte[]{1, 2, 3, 4});
+        Files.write(classes.resolve("pkg/Broken1.class"), new byte[]{1, 2, 3, 4});
+        Path output = this.tempDir.resolve("out");
+
+        JALBatchPrinter.Result result = new JALBatchPrinter("", JALPOptions.DEFAULT, output, 4)
+                .process(List.of(classes.toString()));
+
+        assertEquals(1, result.printed());
+        assertEquals(2, result.failures().size());
+        assertTrue(result.failures().get(0).startsWith("pkg/Broken1: "));
+        assertTrue(result.failures().get(1).startsWith("pkg/Broken2: "));
+    }
+
+    private Path createJar(String... names) throws IOException {
+        Path jar = this.tempDir.resolve("classes.jar");
+        try (JarOutputStream output = new JarOutputStream(Files.newOutputStream(jar))) {
+            for (String name : names) {
+                output.putNextEntry(new JarEntry(name + ".class"));
+                output.write(createClass(name));
+                output.closeEntry();
+            }
+            output.putNextEntry(new JarEntry("META-INF/versions/11/" + names[0] + ".class"));
+            output.write(createClass(names[0]));
+            output.closeEntry();
+        }
+        return jar;
+    }
+
+    private static void writeClass(Path directory, String name) throws IOException {
+        Path classFile = directory.resolve(name + ".class");
+        Files.createDirectories(classFile.getParent());
+        Files.write(classFile, createClass(name));
+    }
+
+    private static List<Path> listFiles(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            return paths.filter(Files::isRegularFile)
+                    .map(directory::relativize)
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static byte[] createClass(String name) {
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        writer.visit(Opcodes.V17, Opcodes.ACC_PUBLIC, name, null, "java/lang/Object", null);
+        MethodVisitor method = writer.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "run", "()I", null, null);
+        method.visitCode();
+        method.visitInsn(Opcodes.ICONST_1);
+        method.visitInsn(Opcodes.IRETURN);
+        method.visitMaxs(0, 0);
+        method.visitEnd();
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+}
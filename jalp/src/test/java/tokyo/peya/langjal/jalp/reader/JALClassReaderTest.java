@@ -1,11 +1,98 @@
 package tokyo.peya.langjal.jalp.reader;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class JALClassReaderTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void readPathDecodesMappedClassFileOnAccess() throws IOException {
+        Path classFile = this.tempDir.resolve("Example.class");
+        Files.write(classFile, createClass());
+
+        JALClass clazz = JALClassReader.read(classFile);
+
+        assertEquals("pkg/Example", clazz.thisName().getInternalName());
+        assertEquals("run", clazz.methods()[0].name());
+        assertEquals("value", clazz.fields()[0].name());
+        assertFalse(clazz.isConstantsResolved());
+
+        JALAttribute.CodeAttribute code = clazz.methods()[0].getAttribute(JALAttribute.CodeAttribute.class);
+        assertNotNull(code);
+        byte[] bytecode = code.code();
+        assertEquals(4, bytecode.length);  // ldc2_w #index, lreturn
+        assertEquals(0x14, bytecode[0]);
+        assertEquals((byte) 0xAD, bytecode[3]);
+        JALAttribute.SourceFileAttribute sourceFile = clazz.getAttribute("SourceFile");
+        assertNotNull(sourceFile);
+        assertEquals("Example.java", sourceFile.sourceFile());
+    }
+
+    @Test
+    void constantsResolvesEntriesWhichWereNotAccessed() {
+        byte[] bytes = createClass();
+        JALClass clazz = JALClassReader.read(ByteBuffer.wrap(bytes).asReadOnlyBuffer());
+
+        JALConstantPoolEntry[] constants = clazz.constants();
+
+        assertTrue(clazz.isConstantsResolved());
+        int longIndex = -1;
+        for (int i = 1; i < constants.length; i++) {
+            assertFalse(constants[i] instanceof JALConstantPoolEntry.UnresolvedConstantPoolEntry);
+            if (constants[i] instanceof JALConstantPoolEntry.LongEntry longEntry) {
+                assertEquals(42L, longEntry.value());
+                longIndex = i;
+            }
+        }
+        // long の次のスロットは空のまま
+        assertTrue(longIndex > 0);
+        assertNull(constants[longIndex + 1]);
+    }
+
+    @Test
+    void readBufferDoesNotMoveItsPosition() {
+        ByteBuffer buffer = ByteBuffer.wrap(createClass());
+
+        JALClass clazz = JALClassReader.read(buffer);
+
+        assertEquals(0, buffer.position());
+        assertInstanceOf(JALAttribute.CodeAttribute.class, clazz.methods()[0].attributes()[0]);
+    }
+
+    private static byte[] createClass() {
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        writer.visit(Opcodes.V17, Opcodes.ACC_PUBLIC, "pkg/Example", null, "java/lang/Object", null);
+        writer.visitSource("Example.java", null);
+        writer.visitField(Opcodes.ACC_PRIVATE, "value", "I", null, null).visitEnd();
+
+        MethodVisitor method = writer.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "run", "()J", null, null);
+        method.visitCode();
+        method.visitLdcInsn(42L);
+        method.visitInsn(Opcodes.LRETURN);
+        method.visitMaxs(0, 0);
+        method.visitEnd();
+
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
     @Test
     void readRejectsBytesWithoutClassFileMagic() {
         byte[] bytes = {0, 0, 0, 0};
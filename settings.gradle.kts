@@ -3,3 +3,4 @@ include("core")
 project(":core").name = "langjal"
 include("jalc")
 include("jalp")
+include("benchmarks")